@@ -4,6 +4,8 @@ import io.dropwizard.Configuration;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
 
 public class CaptureProcessConfig extends Configuration {
 
@@ -18,6 +20,19 @@ public class CaptureProcessConfig extends Configuration {
     private int queueSchedulerThreadDelayInSeconds;
     private int queueSchedulerNumberOfThreads;
 
+    private boolean parallelCaptureEnabled = false;
+    private int parallelCaptureNumberOfThreads = 10;
+    private int defaultMaximumConcurrentCapturesPerGateway = 2;
+    private Map<String, Integer> maximumConcurrentCapturesPerGateway = new HashMap<>();
+    private long parallelCaptureMaximumWaitInMilliseconds = 10000;
+
+    private boolean adaptiveReceiverEnabled = false;
+    private int minimumNumberOfReceivers = 1;
+    private int maximumNumberOfReceivers = 4;
+    private int receiverScalingIntervalInSeconds = 30;
+    private long emptyReceiveInitialBackoffInMilliseconds = 500;
+    private long emptyReceiveMaximumBackoffInMilliseconds = 30000;
+
     public int getChargesConsideredOverdueForCaptureAfter() {
         return chargesConsideredOverdueForCaptureAfter;
     }
@@ -39,4 +54,48 @@ public class CaptureProcessConfig extends Configuration {
     public int getQueueSchedulerNumberOfThreads() {
         return queueSchedulerNumberOfThreads;
     }
+
+    public boolean getParallelCaptureEnabled() {
+        return parallelCaptureEnabled;
+    }
+
+    public int getParallelCaptureNumberOfThreads() {
+        return parallelCaptureNumberOfThreads;
+    }
+
+    public int getDefaultMaximumConcurrentCapturesPerGateway() {
+        return defaultMaximumConcurrentCapturesPerGateway;
+    }
+
+    public Map<String, Integer> getMaximumConcurrentCapturesPerGateway() {
+        return maximumConcurrentCapturesPerGateway;
+    }
+
+    public long getParallelCaptureMaximumWaitInMilliseconds() {
+        return parallelCaptureMaximumWaitInMilliseconds;
+    }
+
+    public boolean getAdaptiveReceiverEnabled() {
+        return adaptiveReceiverEnabled;
+    }
+
+    public int getMinimumNumberOfReceivers() {
+        return minimumNumberOfReceivers;
+    }
+
+    public int getMaximumNumberOfReceivers() {
+        return maximumNumberOfReceivers;
+    }
+
+    public int getReceiverScalingIntervalInSeconds() {
+        return receiverScalingIntervalInSeconds;
+    }
+
+    public long getEmptyReceiveInitialBackoffInMilliseconds() {
+        return emptyReceiveInitialBackoffInMilliseconds;
+    }
+
+    public long getEmptyReceiveMaximumBackoffInMilliseconds() {
+        return emptyReceiveMaximumBackoffInMilliseconds;
+    }
 }
@@ -31,16 +31,19 @@ import uk.gov.pay.connector.charge.exception.MotoPaymentNotAllowedForGatewayAcco
 import uk.gov.pay.connector.charge.exception.ZeroAmountNotAllowedForGatewayAccountExceptionMapper;
 import uk.gov.pay.connector.charge.resource.ChargesApiResource;
 import uk.gov.pay.connector.charge.resource.ChargesFrontendResource;
+import uk.gov.pay.connector.charge.service.ChargeStatusListener;
 import uk.gov.pay.connector.chargeevent.resource.ChargeEventsResource;
 import uk.gov.pay.connector.command.RenderStateTransitionGraphCommand;
 import uk.gov.pay.connector.common.exception.ConstraintViolationExceptionMapper;
 import uk.gov.pay.connector.common.exception.UnsupportedOperationExceptionMapper;
 import uk.gov.pay.connector.common.exception.ValidationExceptionMapper;
+import uk.gov.pay.connector.events.EventBatchPublisher;
 import uk.gov.pay.connector.events.resource.EmittedEventResource;
 import uk.gov.pay.connector.expunge.resource.ExpungeResource;
 import uk.gov.pay.connector.filters.LoggingMDCRequestFilter;
 import uk.gov.pay.connector.filters.LoggingMDCResponseFilter;
 import uk.gov.pay.connector.filters.SchemeRewriteFilter;
+import uk.gov.pay.connector.gateway.GatewayConnectionWarmUp;
 import uk.gov.pay.connector.gateway.smartpay.auth.BasicAuthUser;
 import uk.gov.pay.connector.gateway.smartpay.auth.SmartpayAccountSpecificAuthenticator;
 import uk.gov.pay.connector.gatewayaccount.resource.GatewayAccount3dsFlexCredentialsResource;
@@ -48,12 +51,17 @@ import uk.gov.pay.connector.gatewayaccount.resource.GatewayAccountResource;
 import uk.gov.pay.connector.gatewayaccount.resource.StripeAccountResource;
 import uk.gov.pay.connector.gatewayaccount.resource.StripeAccountSetupResource;
 import uk.gov.pay.connector.healthcheck.CardExecutorServiceHealthCheck;
+import uk.gov.pay.connector.healthcheck.GatewayCircuitBreakerHealthCheck;
 import uk.gov.pay.connector.healthcheck.Ping;
 import uk.gov.pay.connector.healthcheck.SQSHealthCheck;
 import uk.gov.pay.connector.healthcheck.resource.HealthCheckResource;
 import uk.gov.pay.connector.paymentprocessor.resource.CardResource;
 import uk.gov.pay.connector.paymentprocessor.resource.DiscrepancyResource;
+import uk.gov.pay.connector.queue.managed.NotificationDedupePruner;
+import uk.gov.pay.connector.queue.managed.NotificationInboxReceiver;
+import uk.gov.pay.connector.queue.managed.ParkedNotificationSweeper;
 import uk.gov.pay.connector.queue.managed.QueueMessageReceiver;
+import uk.gov.pay.connector.queue.managed.StripeTransferOutboxReceiver;
 import uk.gov.pay.connector.refund.resource.ChargeRefundsResource;
 import uk.gov.pay.connector.report.resource.PerformanceReportResource;
 import uk.gov.pay.connector.tasks.HistoricalEventEmitterByDateRangeTask;
@@ -144,8 +152,14 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         environment.jersey().register(injector.getInstance(LoggingMDCRequestFilter.class));
         environment.jersey().register(injector.getInstance(LoggingMDCResponseFilter.class));
 
+        environment.lifecycle().manage(injector.getInstance(ChargeStatusListener.class));
+        if (configuration.getGatewayConnectionWarmUpConfig().isEnabled()) {
+            // the resources above have created every gateway client, so all of them are warmed up
+            environment.lifecycle().manage(injector.getInstance(GatewayConnectionWarmUp.class));
+        }
+
         if(configuration.getCaptureProcessConfig().getBackgroundProcessingEnabled()) {
-            setupSchedulers(environment, injector);
+            setupSchedulers(configuration, environment, injector);
         }
 
         setupSmartpayBasicAuth(environment, injector.getInstance(SmartpayAccountSpecificAuthenticator.class));
@@ -157,6 +171,7 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         environment.healthChecks().register("database", new DatabaseHealthCheck(configuration.getDataSourceFactory()));
         environment.healthChecks().register("cardExecutorService", injector.getInstance(CardExecutorServiceHealthCheck.class));
         environment.healthChecks().register("sqsQueue", injector.getInstance(SQSHealthCheck.class));
+        environment.healthChecks().register("gatewayCircuitBreakers", injector.getInstance(GatewayCircuitBreakerHealthCheck.class));
 
         environment.admin().addTask(injector.getInstance(HistoricalEventEmitterTask.class));
         environment.admin().addTask(injector.getInstance(HistoricalEventEmitterByDateRangeTask.class));
@@ -209,7 +224,24 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         new ConnectorApp().run(args);
     }
 
-    private void setupSchedulers(Environment environment, Injector injector) {
+    private void setupSchedulers(ConnectorConfiguration configuration, Environment environment, Injector injector) {
+        // managed objects are stopped in reverse order, so the publisher outlives the emitter threads feeding it
+        EventBatchPublisher eventBatchPublisher = injector.getInstance(EventBatchPublisher.class);
+        if (eventBatchPublisher.isEnabled()) {
+            environment.lifecycle().manage(eventBatchPublisher);
+        }
         environment.lifecycle().manage(injector.getInstance(QueueMessageReceiver.class));
+        if (configuration.getStripeTransferOutboxConfig().isEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(StripeTransferOutboxReceiver.class));
+        }
+        if (configuration.getNotificationInboxConfig().isEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(NotificationInboxReceiver.class));
+        }
+        if (configuration.getParkedNotificationConfig().isEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(ParkedNotificationSweeper.class));
+        }
+        if (configuration.getNotificationDedupeConfig().isEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(NotificationDedupePruner.class));
+        }
     }
 }
@@ -4,10 +4,20 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.JerseyClientConfiguration;
 import io.dropwizard.db.DataSourceFactory;
+import uk.gov.pay.connector.app.config.AdaptiveReadTimeoutConfig;
+import uk.gov.pay.connector.app.config.DiscrepancyConfig;
 import uk.gov.pay.connector.app.config.EmittedEventSweepConfig;
 import uk.gov.pay.connector.app.config.EventEmitterConfig;
 import uk.gov.pay.connector.app.config.ExpungeConfig;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+import uk.gov.pay.connector.app.config.GatewayConnectionWarmUpConfig;
+import uk.gov.pay.connector.app.config.GatewayStatusQueryConfig;
+import uk.gov.pay.connector.app.config.NotificationDedupeConfig;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.app.config.ParkedNotificationConfig;
 import uk.gov.pay.connector.app.config.RestClientConfig;
+import uk.gov.pay.connector.app.config.ReverseDnsConfig;
+import uk.gov.pay.connector.app.config.StripeTransferOutboxConfig;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 
 import javax.validation.Valid;
@@ -23,6 +33,36 @@ public class ConnectorConfiguration extends Configuration {
     @NotNull
     private ExecutorServiceConfig executorServiceConfig = new ExecutorServiceConfig();
 
+    @Valid
+    private GatewayCircuitBreakerConfig gatewayCircuitBreakerConfig = new GatewayCircuitBreakerConfig();
+
+    @Valid
+    private AdaptiveReadTimeoutConfig adaptiveReadTimeoutConfig = new AdaptiveReadTimeoutConfig();
+
+    @Valid
+    private GatewayStatusQueryConfig gatewayStatusQueryConfig = new GatewayStatusQueryConfig();
+
+    @Valid
+    private DiscrepancyConfig discrepancyConfig = new DiscrepancyConfig();
+
+    @Valid
+    private StripeTransferOutboxConfig stripeTransferOutboxConfig = new StripeTransferOutboxConfig();
+
+    @Valid
+    private GatewayConnectionWarmUpConfig gatewayConnectionWarmUpConfig = new GatewayConnectionWarmUpConfig();
+
+    @Valid
+    private NotificationInboxConfig notificationInboxConfig = new NotificationInboxConfig();
+
+    @Valid
+    private ReverseDnsConfig reverseDnsConfig = new ReverseDnsConfig();
+
+    @Valid
+    private NotificationDedupeConfig notificationDedupeConfig = new NotificationDedupeConfig();
+
+    @Valid
+    private ParkedNotificationConfig parkedNotificationConfig = new ParkedNotificationConfig();
+
     @Valid
     @NotNull
     private CaptureProcessConfig captureProcessConfig;
@@ -167,6 +207,46 @@ public class ConnectorConfiguration extends Configuration {
         return executorServiceConfig;
     }
 
+    public GatewayCircuitBreakerConfig getGatewayCircuitBreakerConfig() {
+        return gatewayCircuitBreakerConfig;
+    }
+
+    public AdaptiveReadTimeoutConfig getAdaptiveReadTimeoutConfig() {
+        return adaptiveReadTimeoutConfig;
+    }
+
+    public GatewayStatusQueryConfig getGatewayStatusQueryConfig() {
+        return gatewayStatusQueryConfig;
+    }
+
+    public DiscrepancyConfig getDiscrepancyConfig() {
+        return discrepancyConfig;
+    }
+
+    public StripeTransferOutboxConfig getStripeTransferOutboxConfig() {
+        return stripeTransferOutboxConfig;
+    }
+
+    public GatewayConnectionWarmUpConfig getGatewayConnectionWarmUpConfig() {
+        return gatewayConnectionWarmUpConfig;
+    }
+
+    public NotificationInboxConfig getNotificationInboxConfig() {
+        return notificationInboxConfig;
+    }
+
+    public ReverseDnsConfig getReverseDnsConfig() {
+        return reverseDnsConfig;
+    }
+
+    public NotificationDedupeConfig getNotificationDedupeConfig() {
+        return notificationDedupeConfig;
+    }
+
+    public ParkedNotificationConfig getParkedNotificationConfig() {
+        return parkedNotificationConfig;
+    }
+
     public NotifyConfiguration getNotifyConfiguration() {
         return notifyConfig;
     }
@@ -16,11 +16,14 @@ import io.dropwizard.setup.Environment;
 import uk.gov.pay.connector.charge.service.Worldpay3dsFlexJwtService;
 import uk.gov.pay.connector.charge.util.JwtGenerator;
 import uk.gov.pay.connector.common.validator.RequestValidator;
+import uk.gov.pay.connector.events.EventBatchPublisher;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.epdq.EpdqSha512SignatureGenerator;
 import uk.gov.pay.connector.gateway.epdq.SignatureGenerator;
+import uk.gov.pay.connector.gateway.stripe.StripePaymentProvider;
 import uk.gov.pay.connector.gatewayaccount.resource.GatewayAccountRequestValidator;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountServicesFactory;
+import uk.gov.pay.connector.paymentprocessor.service.CardCaptureProcess;
 import uk.gov.pay.connector.paymentprocessor.service.CardExecutorService;
 import uk.gov.pay.connector.queue.StateTransitionQueue;
 import uk.gov.pay.connector.usernotification.govuknotify.NotifyClientFactory;
@@ -48,6 +51,9 @@ public class ConnectorModule extends AbstractModule {
         bind(CardExecutorService.class).in(Singleton.class);
         bind(ApplePayDecrypter.class).in(Singleton.class);
         bind(PaymentProviders.class).in(Singleton.class);
+        bind(StripePaymentProvider.class).in(Singleton.class);
+        bind(EventBatchPublisher.class).in(Singleton.class);
+        bind(CardCaptureProcess.class).in(Singleton.class);
         bind(HashUtil.class);
         bind(RequestValidator.class);
         bind(GatewayAccountRequestValidator.class).in(Singleton.class);
@@ -139,6 +145,10 @@ public class ConnectorModule extends AbstractModule {
     }
 
     protected StateTransitionQueue getStateTransitionQueue() {
+        EventQueueConfig eventQueueConfig = configuration.getEventQueueConfig();
+        if (eventQueueConfig.getPartitionedStateTransitionEmitterEnabled()) {
+            return new StateTransitionQueue(eventQueueConfig.getStateTransitionNumberOfPartitions());
+        }
         return new StateTransitionQueue();
     }
     
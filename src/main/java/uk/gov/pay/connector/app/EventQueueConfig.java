@@ -5,6 +5,16 @@ import io.dropwizard.Configuration;
 public class EventQueueConfig extends Configuration {
     private Boolean eventQueueEnabled;
     private int paymentStateTransitionPollerNumberOfThreads;
+    private boolean stateTransitionOutboxEnabled = false;
+    private int stateTransitionOutboxBatchSize = 10;
+    private int stateTransitionOutboxLeaseInSeconds = 60;
+    private boolean eventBatchPublishingEnabled = false;
+    private int eventBatchLingerInMilliseconds = 20;
+    private int eventBatchQueueCapacity = 1000;
+    private int eventBatchEnqueueTimeoutInMilliseconds = 100;
+    private int stateTransitionDrainBatchSize = 1;
+    private boolean partitionedStateTransitionEmitterEnabled = false;
+    private int stateTransitionNumberOfPartitions = 4;
 
     public Boolean getEventQueueEnabled() {
         return eventQueueEnabled;
@@ -13,4 +23,44 @@ public class EventQueueConfig extends Configuration {
     public int getPaymentStateTransitionPollerNumberOfThreads() {
         return paymentStateTransitionPollerNumberOfThreads;
     }
+
+    public boolean getStateTransitionOutboxEnabled() {
+        return stateTransitionOutboxEnabled;
+    }
+
+    public int getStateTransitionOutboxBatchSize() {
+        return stateTransitionOutboxBatchSize;
+    }
+
+    public int getStateTransitionOutboxLeaseInSeconds() {
+        return stateTransitionOutboxLeaseInSeconds;
+    }
+
+    public boolean getEventBatchPublishingEnabled() {
+        return eventBatchPublishingEnabled;
+    }
+
+    public int getEventBatchLingerInMilliseconds() {
+        return eventBatchLingerInMilliseconds;
+    }
+
+    public int getEventBatchQueueCapacity() {
+        return eventBatchQueueCapacity;
+    }
+
+    public int getEventBatchEnqueueTimeoutInMilliseconds() {
+        return eventBatchEnqueueTimeoutInMilliseconds;
+    }
+
+    public int getStateTransitionDrainBatchSize() {
+        return stateTransitionDrainBatchSize;
+    }
+
+    public boolean getPartitionedStateTransitionEmitterEnabled() {
+        return partitionedStateTransitionEmitterEnabled;
+    }
+
+    public int getStateTransitionNumberOfPartitions() {
+        return stateTransitionNumberOfPartitions;
+    }
 }
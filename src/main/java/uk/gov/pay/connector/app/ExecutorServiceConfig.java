@@ -6,6 +6,7 @@ public class ExecutorServiceConfig extends Configuration {
 
     private int threadsPerCpu;
     private int timeoutInSeconds;
+    private boolean asyncGatewayAuthorisationEnabled = false;
 
     public int getThreadsPerCpu() {
         return threadsPerCpu;
@@ -14,4 +15,8 @@ public class ExecutorServiceConfig extends Configuration {
     public int getTimeoutInSeconds() {
         return timeoutInSeconds;
     }
+
+    public boolean isAsyncGatewayAuthorisationEnabled() {
+        return asyncGatewayAuthorisationEnabled;
+    }
 }
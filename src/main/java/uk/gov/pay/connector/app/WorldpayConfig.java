@@ -6,12 +6,17 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class WorldpayConfig extends GatewayConfig {
     private boolean secureNotificationEnabled;
     private String notificationDomain;
+    private String notificationAllowedCidrs;
     private ApplePayConfig applePayConfig;
 
     public String getNotificationDomain() {
         return notificationDomain;
     }
 
+    public String getNotificationAllowedCidrs() {
+        return notificationAllowedCidrs;
+    }
+
     public boolean isSecureNotificationEnabled() {
         return secureNotificationEnabled;
     }
@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class AdaptiveReadTimeoutConfig extends Configuration {
+
+    private boolean enabled = false;
+    private double percentile = 0.999;
+    private double factor = 3.0;
+    private Duration minimumReadTimeout = Duration.milliseconds(500);
+    private int windowInSeconds = 300;
+    private int minimumNumberOfSamples = 200;
+    private int recalculationIntervalInSeconds = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public Duration getMinimumReadTimeout() {
+        return minimumReadTimeout;
+    }
+
+    public int getWindowInSeconds() {
+        return windowInSeconds;
+    }
+
+    public int getMinimumNumberOfSamples() {
+        return minimumNumberOfSamples;
+    }
+
+    public int getRecalculationIntervalInSeconds() {
+        return recalculationIntervalInSeconds;
+    }
+}
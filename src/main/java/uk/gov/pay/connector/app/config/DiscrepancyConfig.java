@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class DiscrepancyConfig extends Configuration {
+
+    private boolean parallelInquiriesEnabled = false;
+    private int numberOfThreads = 10;
+    private int defaultMaximumConcurrentInquiriesPerGateway = 2;
+    private Map<String, Integer> maximumConcurrentInquiriesPerGateway = new HashMap<>();
+    private int maximumConcurrentJobs = 1;
+    private int jobRetentionInMinutes = 60;
+
+    public boolean isParallelInquiriesEnabled() {
+        return parallelInquiriesEnabled;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getDefaultMaximumConcurrentInquiriesPerGateway() {
+        return defaultMaximumConcurrentInquiriesPerGateway;
+    }
+
+    /**
+     * Keyed by gateway name, e.g. {@code worldpay}
+     */
+    public Map<String, Integer> getMaximumConcurrentInquiriesPerGateway() {
+        return maximumConcurrentInquiriesPerGateway;
+    }
+
+    public int getMaximumConcurrentJobs() {
+        return maximumConcurrentJobs;
+    }
+
+    public int getJobRetentionInMinutes() {
+        return jobRetentionInMinutes;
+    }
+}
@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class GatewayCircuitBreakerConfig extends Configuration {
+
+    private boolean enabled = false;
+    private int defaultMaximumConcurrentRequests = 50;
+    private Map<String, Integer> maximumConcurrentRequests = new HashMap<>();
+    private int failureThreshold = 10;
+    private long openDurationInMilliseconds = 30000;
+    private int halfOpenProbeRequests = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDefaultMaximumConcurrentRequests() {
+        return defaultMaximumConcurrentRequests;
+    }
+
+    /**
+     * Keyed by gateway and operation, e.g. {@code worldpay.auth}
+     */
+    public Map<String, Integer> getMaximumConcurrentRequests() {
+        return maximumConcurrentRequests;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDurationInMilliseconds() {
+        return openDurationInMilliseconds;
+    }
+
+    public int getHalfOpenProbeRequests() {
+        return halfOpenProbeRequests;
+    }
+}
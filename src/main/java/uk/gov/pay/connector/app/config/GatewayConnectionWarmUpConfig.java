@@ -0,0 +1,32 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class GatewayConnectionWarmUpConfig extends Configuration {
+
+    private boolean enabled = false;
+    private int connectionsPerRoute = 2;
+    private int numberOfThreads = 10;
+    private int timeoutInSeconds = 10;
+    private int validateAfterInactivityInMilliseconds = 2000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getConnectionsPerRoute() {
+        return connectionsPerRoute;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getTimeoutInSeconds() {
+        return timeoutInSeconds;
+    }
+
+    public int getValidateAfterInactivityInMilliseconds() {
+        return validateAfterInactivityInMilliseconds;
+    }
+}
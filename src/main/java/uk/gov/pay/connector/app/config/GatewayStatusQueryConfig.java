@@ -0,0 +1,17 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class GatewayStatusQueryConfig extends Configuration {
+
+    private boolean singleFlightEnabled = false;
+    private long resultCacheTtlInMilliseconds = 0;
+
+    public boolean isSingleFlightEnabled() {
+        return singleFlightEnabled;
+    }
+
+    public long getResultCacheTtlInMilliseconds() {
+        return resultCacheTtlInMilliseconds;
+    }
+}
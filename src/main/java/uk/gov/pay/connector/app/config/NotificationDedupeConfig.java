@@ -0,0 +1,27 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class NotificationDedupeConfig extends Configuration {
+
+    private boolean enabled = false;
+    private int cacheMaximumSize = 10000;
+    private int retentionInDays = 7;
+    private int pruneIntervalInMinutes = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public int getRetentionInDays() {
+        return retentionInDays;
+    }
+
+    public int getPruneIntervalInMinutes() {
+        return pruneIntervalInMinutes;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class NotificationInboxConfig extends Configuration {
+
+    private boolean enabled = false;
+    private int numberOfThreads = 4;
+    private int batchSize = 10;
+    private int leaseInSeconds = 60;
+    private int maximumAttempts = 10;
+    private long initialRetryDelayInSeconds = 30;
+    private long maximumRetryDelayInSeconds = 3600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getLeaseInSeconds() {
+        return leaseInSeconds;
+    }
+
+    public int getMaximumAttempts() {
+        return maximumAttempts;
+    }
+
+    public long getInitialRetryDelayInSeconds() {
+        return initialRetryDelayInSeconds;
+    }
+
+    public long getMaximumRetryDelayInSeconds() {
+        return maximumRetryDelayInSeconds;
+    }
+}
@@ -0,0 +1,27 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class ParkedNotificationConfig extends Configuration {
+
+    private boolean enabled = false;
+    private int expiryInMinutes = 1440;
+    private int sweepIntervalInSeconds = 60;
+    private int maximumReplayAttempts = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getExpiryInMinutes() {
+        return expiryInMinutes;
+    }
+
+    public int getSweepIntervalInSeconds() {
+        return sweepIntervalInSeconds;
+    }
+
+    public int getMaximumReplayAttempts() {
+        return maximumReplayAttempts;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+public class ReverseDnsConfig extends Configuration {
+
+    private int cacheMaximumSize = 1000;
+    private int positiveTtlInSeconds = 300;
+    private int negativeTtlInSeconds = 30;
+    private int contextPoolSize = 10;
+    private int timeoutInMilliseconds = 1000;
+
+    public int getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public int getPositiveTtlInSeconds() {
+        return positiveTtlInSeconds;
+    }
+
+    public int getNegativeTtlInSeconds() {
+        return negativeTtlInSeconds;
+    }
+
+    public int getContextPoolSize() {
+        return contextPoolSize;
+    }
+
+    public int getTimeoutInMilliseconds() {
+        return timeoutInMilliseconds;
+    }
+}
@@ -18,6 +18,7 @@ import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -105,6 +106,22 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .setParameter("provider", provider).getResultList().stream().findFirst();
     }
 
+    public List<ChargeEntity> findByProviderAndTransactionIds(String provider, Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return List.of();
+        }
+
+        String query = "SELECT c FROM ChargeEntity c " +
+                "WHERE c.gatewayTransactionId IN :gatewayTransactionIds " +
+                "AND c.gatewayAccount.gatewayName = :provider";
+
+        return entityManager.get()
+                .createQuery(query, ChargeEntity.class)
+                .setParameter("gatewayTransactionIds", transactionIds)
+                .setParameter("provider", provider)
+                .getResultList();
+    }
+
     public List<ChargeEntity> findBeforeDateWithStatusIn(ZonedDateTime date, List<ChargeStatus> statuses) {
         CriteriaBuilder cb = entityManager.get().getCriteriaBuilder();
         CriteriaQuery<ChargeEntity> cq = cb.createQuery(ChargeEntity.class);
@@ -211,4 +228,16 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .setMaxResults(1)
                 .getResultList().stream().findFirst();
     }
+
+    /**
+     * Postgres holds the notification until the surrounding transaction commits, so listeners never hear of
+     * a status change they cannot yet read.
+     */
+    public void notifyStatusChange(String channel, String payload) {
+        entityManager.get()
+                .createNativeQuery("SELECT pg_notify(?1, ?2)")
+                .setParameter(1, channel)
+                .setParameter(2, payload)
+                .getSingleResult();
+    }
 }
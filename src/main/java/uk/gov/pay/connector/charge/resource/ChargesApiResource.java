@@ -4,9 +4,11 @@ import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.charge.model.ChargeCreateRequest;
+import uk.gov.pay.connector.charge.model.ChargeResponse;
 import uk.gov.pay.connector.charge.model.telephone.TelephoneChargeCreateRequest;
 import uk.gov.pay.connector.charge.service.ChargeExpiryService;
 import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationProcess;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
@@ -47,11 +49,14 @@ public class ChargesApiResource {
     public static final int MAX_AMOUNT = 10_000_000;
     private final ChargeService chargeService;
     private final ChargeExpiryService chargeExpiryService;
+    private final ParkedNotificationProcess parkedNotificationProcess;
 
     @Inject
-    public ChargesApiResource(ChargeService chargeService, ChargeExpiryService chargeExpiryService) {
+    public ChargesApiResource(ChargeService chargeService, ChargeExpiryService chargeExpiryService,
+                              ParkedNotificationProcess parkedNotificationProcess) {
         this.chargeService = chargeService;
         this.chargeExpiryService = chargeExpiryService;
+        this.parkedNotificationProcess = parkedNotificationProcess;
     }
 
     @GET
@@ -88,8 +93,12 @@ public class ChargesApiResource {
     ) {
         return chargeService.findCharge(telephoneChargeCreateRequest)
                 .map(response -> Response.status(200).entity(response).build())
-                .orElse(Response.status(201).entity(chargeService.create(telephoneChargeCreateRequest, accountId).get())
-                .build());
+                .orElseGet(() -> {
+                    ChargeResponse response = chargeService.create(telephoneChargeCreateRequest, accountId).get();
+                    // the gateway may have notified us about the payment before it was reported to us
+                    parkedNotificationProcess.replayInBackgroundFor(telephoneChargeCreateRequest.getProviderId());
+                    return Response.status(201).entity(response).build();
+                });
     }
 
     @POST
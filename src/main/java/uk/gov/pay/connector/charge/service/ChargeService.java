@@ -113,6 +113,7 @@ public class ChargeService {
     private final StateTransitionService stateTransitionService;
     private final Boolean shouldEmitPaymentStateTransitionEvents;
     private final RefundDao refundDao;
+    private final ChargeStatusNotifier chargeStatusNotifier;
     private EventService eventService;
 
     @Inject
@@ -120,7 +121,7 @@ public class ChargeService {
                          CardTypeDao cardTypeDao, GatewayAccountDao gatewayAccountDao,
                          ConnectorConfiguration config, PaymentProviders providers,
                          StateTransitionService stateTransitionService, EventService eventService,
-                         RefundDao refundDao) {
+                         RefundDao refundDao, ChargeStatusNotifier chargeStatusNotifier) {
         this.tokenDao = tokenDao;
         this.chargeDao = chargeDao;
         this.chargeEventDao = chargeEventDao;
@@ -133,6 +134,7 @@ public class ChargeService {
         this.shouldEmitPaymentStateTransitionEvents = config.getEmitPaymentStateTransitionEvents();
         this.eventService = eventService;
         this.refundDao = refundDao;
+        this.chargeStatusNotifier = chargeStatusNotifier;
     }
 
     @Transactional
@@ -604,6 +606,7 @@ public class ChargeService {
         if (shouldEmitPaymentStateTransitionEvents) {
             stateTransitionService.offerPaymentStateTransition(charge.getExternalId(), fromChargeState, targetChargeState, chargeEventEntity);
         }
+        chargeStatusNotifier.publish(charge.getExternalId(), targetChargeState);
 
         return charge;
     }
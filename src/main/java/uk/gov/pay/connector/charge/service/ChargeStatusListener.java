@@ -0,0 +1,116 @@
+package uk.gov.pay.connector.charge.service;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds a database connection outside the connection pool that listens for the charge status changes published
+ * by {@link ChargeStatusNotifier}, reconnecting if the connection is lost.
+ */
+public class ChargeStatusListener implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChargeStatusListener.class);
+
+    private static final int RECEIVE_TIMEOUT_IN_MILLISECONDS = 1000;
+    private static final long RECONNECT_DELAY_IN_MILLISECONDS = 5000;
+
+    private final ChargeStatusNotifier chargeStatusNotifier;
+    private final DataSourceFactory dataSourceFactory;
+    private final ExecutorService listenerExecutorService;
+    private volatile boolean running = false;
+
+    @Inject
+    public ChargeStatusListener(ChargeStatusNotifier chargeStatusNotifier,
+                                Environment environment,
+                                ConnectorConfiguration connectorConfiguration) {
+        this.chargeStatusNotifier = chargeStatusNotifier;
+        this.dataSourceFactory = connectorConfiguration.getDataSourceFactory();
+        this.listenerExecutorService = environment
+                .lifecycle()
+                .executorService("charge-status-listener-%d")
+                .minThreads(1)
+                .maxThreads(1)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listenerExecutorService.submit(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listenerExecutorService.shutdown();
+    }
+
+    /**
+     * The same driver properties, such as the SSL mode and socket timeouts, as the connections in the pool
+     */
+    private Properties connectionProperties() {
+        Properties properties = new Properties();
+        properties.putAll(dataSourceFactory.getProperties());
+        if (dataSourceFactory.getUser() != null) {
+            properties.setProperty("user", dataSourceFactory.getUser());
+        }
+        if (dataSourceFactory.getPassword() != null) {
+            properties.setProperty("password", dataSourceFactory.getPassword());
+        }
+        return properties;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceFactory.getUrl(), connectionProperties())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ChargeStatusNotifier.CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                chargeStatusNotifier.setListening(true);
+                LOGGER.info("Listening for charge status changes");
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_IN_MILLISECONDS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            chargeStatusNotifier.statusChanged(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("Lost connection listening for charge status changes, waiting requests will poll [message={}]",
+                        e.getMessage());
+            } catch (RuntimeException e) {
+                // an exception escaping this loop would end the listener for good, leaving every waiting request
+                // to poll until the connector is restarted
+                LOGGER.error("Unexpected error listening for charge status changes, waiting requests will poll", e);
+            } finally {
+                chargeStatusNotifier.setListening(false);
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_IN_MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package uk.gov.pay.connector.charge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
+
+/**
+ * Lets a request wait for a charge to reach a status instead of polling the database for it. Status changes are
+ * published with Postgres NOTIFY, which is delivered when the transaction commits, and reach waiters on every
+ * connector instance through {@link ChargeStatusListener}. While the listener is not connected, waiters fall back
+ * to checking the database at a fixed interval.
+ */
+@Singleton
+public class ChargeStatusNotifier {
+
+    static final String CHANNEL = "charge_status";
+    static final long FALLBACK_POLL_INTERVAL_IN_MILLISECONDS = 200;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChargeStatusNotifier.class);
+    private static final Set<ChargeStatus> NOTIFIED_STATUSES = Set.of(AUTHORISATION_3DS_READY);
+
+    private final ChargeDao chargeDao;
+    private final Map<String, Set<CompletableFuture<Void>>> waiters = new ConcurrentHashMap<>();
+    private volatile boolean listening = false;
+
+    @Inject
+    public ChargeStatusNotifier(ChargeDao chargeDao) {
+        this.chargeDao = chargeDao;
+    }
+
+    public void publish(String chargeExternalId, ChargeStatus status) {
+        if (NOTIFIED_STATUSES.contains(status)) {
+            chargeDao.notifyStatusChange(CHANNEL, key(chargeExternalId, status));
+        }
+    }
+
+    /**
+     * @param isInStatus reads the charge's current status, used once before waiting and while not listening
+     * @return true if the charge reached the status within the timeout
+     */
+    public boolean awaitStatus(String chargeExternalId, ChargeStatus status, long timeoutInMilliseconds,
+                               BooleanSupplier isInStatus) {
+        String key = key(chargeExternalId, status);
+        CompletableFuture<Void> signal = new CompletableFuture<>();
+        waiters.compute(key, (k, signals) -> {
+            Set<CompletableFuture<Void>> keySignals = signals == null ? new HashSet<>() : signals;
+            keySignals.add(signal);
+            return keySignals;
+        });
+
+        try {
+            // registered first, so a change committed between this read and waiting still completes the signal
+            if (isInStatus.getAsBoolean()) {
+                return true;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMilliseconds);
+            long remaining = timeoutInMilliseconds;
+            while (remaining > 0) {
+                try {
+                    signal.get(listening ? remaining : Math.min(remaining, FALLBACK_POLL_INTERVAL_IN_MILLISECONDS),
+                            TimeUnit.MILLISECONDS);
+                    return true;
+                } catch (TimeoutException e) {
+                    if (!listening && isInStatus.getAsBoolean()) {
+                        return true;
+                    }
+                }
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        } finally {
+            waiters.computeIfPresent(key, (k, signals) -> {
+                signals.remove(signal);
+                return signals.isEmpty() ? null : signals;
+            });
+        }
+    }
+
+    void statusChanged(String payload) {
+        Set<CompletableFuture<Void>> signals = waiters.remove(payload);
+        if (signals != null) {
+            LOGGER.debug("Charge status change [{}] received by {} waiting requests", payload, signals.size());
+            signals.forEach(signal -> signal.complete(null));
+        }
+    }
+
+    void setListening(boolean listening) {
+        this.listening = listening;
+    }
+
+    private static String key(String chargeExternalId, ChargeStatus status) {
+        return chargeExternalId + ":" + status.name();
+    }
+}
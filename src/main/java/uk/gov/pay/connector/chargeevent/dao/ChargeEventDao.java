@@ -10,6 +10,7 @@ import uk.gov.pay.connector.common.dao.JpaDao;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,4 +50,15 @@ public class ChargeEventDao extends JpaDao<ChargeEventEntity> {
                 .setMaxResults(size)
                 .getResultList();
     }
+
+    public List<ChargeEventEntity> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return entityManager.get()
+                .createQuery("SELECT ce FROM ChargeEventEntity ce WHERE ce.id IN :ids", ChargeEventEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 }
@@ -0,0 +1,247 @@
+package uk.gov.pay.connector.events;
+
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
+import uk.gov.pay.connector.events.dao.EmittedEventDao;
+import uk.gov.pay.connector.events.model.Event;
+import uk.gov.pay.connector.queue.QueueException;
+import uk.gov.pay.connector.queue.sqs.SqsQueueService;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Collects events handed to it by the state transition emitter and sends them to the event queue with
+ * SendMessageBatch, either once {@link #MAXIMUM_BATCH_SIZE} events are waiting or once the oldest waiting
+ * event has lingered for the configured time. Each event's future completes once its SQS entry has been
+ * accepted and the emission has been recorded, or exceptionally with a {@link QueueException}. Accepted
+ * events in a batch are marked as emitted with a single statement.
+ * <p>
+ * Events wait in a bounded queue. When it is full, {@link #publish(Event)} waits up to the configured enqueue
+ * timeout for space and then fails the event with a {@link QueueException}, so the caller retries it later
+ * rather than the queue growing without limit while SQS is slow.
+ */
+public class EventBatchPublisher implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventBatchPublisher.class);
+
+    // SendMessageBatch accepts at most 10 entries
+    static final int MAXIMUM_BATCH_SIZE = 10;
+    private static final long IDLE_POLL_TIMEOUT_IN_MILLISECONDS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 5;
+
+    private final SqsQueueService sqsQueueService;
+    private final EmittedEventDao emittedEventDao;
+    private final String eventQueueUrl;
+    private final boolean eventQueueEnabled;
+    private final boolean enabled;
+    private final long lingerInNanoseconds;
+    private final long enqueueTimeoutInMilliseconds;
+    private final Histogram batchSizeHistogram;
+    private final Histogram lingerTimeHistogram;
+    private final Meter rejectedMeter;
+    private final BlockingQueue<PendingEvent> pendingEvents;
+
+    private ExecutorService executor;
+    private volatile boolean running = false;
+
+    @Inject
+    public EventBatchPublisher(SqsQueueService sqsQueueService,
+                               EmittedEventDao emittedEventDao,
+                               ConnectorConfiguration connectorConfiguration,
+                               Environment environment) {
+        this.sqsQueueService = sqsQueueService;
+        this.emittedEventDao = emittedEventDao;
+        this.eventQueueUrl = connectorConfiguration.getSqsConfig().getEventQueueUrl();
+
+        EventQueueConfig eventQueueConfig = connectorConfiguration.getEventQueueConfig();
+        this.eventQueueEnabled = eventQueueConfig.getEventQueueEnabled();
+        this.enabled = eventQueueConfig.getEventBatchPublishingEnabled();
+        this.lingerInNanoseconds = TimeUnit.MILLISECONDS.toNanos(eventQueueConfig.getEventBatchLingerInMilliseconds());
+        this.enqueueTimeoutInMilliseconds = eventQueueConfig.getEventBatchEnqueueTimeoutInMilliseconds();
+        this.pendingEvents = new LinkedBlockingQueue<>(eventQueueConfig.getEventBatchQueueCapacity());
+
+        this.batchSizeHistogram = environment.metrics().histogram("event-queue.batch.size");
+        this.lingerTimeHistogram = environment.metrics().histogram("event-queue.batch.linger-time");
+        this.rejectedMeter = environment.metrics().meter("event-queue.batch.rejected");
+        environment.metrics().register("event-queue.batch.queue-depth", (Gauge<Integer>) pendingEvents::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Void> publish(Event event) {
+        PendingEvent pendingEvent = new PendingEvent(event);
+        if (!running) {
+            pendingEvent.result.completeExceptionally(new QueueException("Event batch publisher is not running"));
+        } else {
+            enqueue(pendingEvent);
+        }
+        return pendingEvent.result;
+    }
+
+    private void enqueue(PendingEvent pendingEvent) {
+        try {
+            if (!pendingEvents.offer(pendingEvent, enqueueTimeoutInMilliseconds, TimeUnit.MILLISECONDS)) {
+                rejectedMeter.mark();
+                pendingEvent.result.completeExceptionally(new QueueException("Event batch publisher queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingEvent.result.completeExceptionally(new QueueException("Interrupted waiting for event batch publisher queue"));
+        }
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("event-batch-publisher-%d")
+                .build());
+        running = true;
+        executor.submit(this::publishLoop);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        LOGGER.info("Event batch publisher - number of not published events {}", pendingEvents.size());
+    }
+
+    private void publishLoop() {
+        while (running || !pendingEvents.isEmpty()) {
+            try {
+                publishNextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Event batch publisher failed to publish batch due to [message={}]", e.getMessage());
+            }
+        }
+    }
+
+    void publishNextBatch() throws InterruptedException {
+        PendingEvent first = pendingEvents.poll(IDLE_POLL_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+
+        List<PendingEvent> batch = new ArrayList<>(MAXIMUM_BATCH_SIZE);
+        batch.add(first);
+        long deadline = first.enqueuedAt + lingerInNanoseconds;
+
+        while (batch.size() < MAXIMUM_BATCH_SIZE) {
+            long remaining = deadline - System.nanoTime();
+            PendingEvent next = remaining > 0
+                    ? pendingEvents.poll(remaining, TimeUnit.NANOSECONDS)
+                    : pendingEvents.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+
+        sendBatch(batch);
+    }
+
+    private void sendBatch(List<PendingEvent> batch) {
+        batchSizeHistogram.update(batch.size());
+        lingerTimeHistogram.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).enqueuedAt));
+
+        if (!eventQueueEnabled) {
+            markAsEmitted(batch);
+            return;
+        }
+
+        Map<String, PendingEvent> pendingEventsByEntryId = new HashMap<>();
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEvent pendingEvent = batch.get(i);
+            String entryId = String.valueOf(i);
+            try {
+                entries.add(new SendMessageBatchRequestEntry(entryId, pendingEvent.event.toJsonString()));
+                pendingEventsByEntryId.put(entryId, pendingEvent);
+            } catch (JsonProcessingException e) {
+                pendingEvent.result.completeExceptionally(
+                        new QueueException(String.format("Error serialising event to json: %s", e.getMessage())));
+            }
+        }
+
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try {
+            SendMessageBatchResult result = sqsQueueService.sendMessageBatch(eventQueueUrl, entries);
+
+            List<PendingEvent> published = new ArrayList<>(result.getSuccessful().size());
+            for (SendMessageBatchResultEntry successful : result.getSuccessful()) {
+                published.add(pendingEventsByEntryId.get(successful.getId()));
+            }
+            markAsEmitted(published);
+
+            for (BatchResultErrorEntry failed : result.getFailed()) {
+                PendingEvent pendingEvent = pendingEventsByEntryId.get(failed.getId());
+                LOGGER.warn("Failed to publish event in batch [eventType={}] [resourceExternalId={}] [code={}] [message={}]",
+                        pendingEvent.event.getEventType(), pendingEvent.event.getResourceExternalId(),
+                        failed.getCode(), failed.getMessage());
+                pendingEvent.result.completeExceptionally(new QueueException(failed.getMessage()));
+            }
+        } catch (QueueException e) {
+            pendingEventsByEntryId.values().forEach(pendingEvent -> pendingEvent.result.completeExceptionally(e));
+        }
+    }
+
+    private void markAsEmitted(List<PendingEvent> published) {
+        if (published.isEmpty()) {
+            return;
+        }
+        try {
+            emittedEventDao.markEventsAsEmitted(published.stream()
+                    .map(pendingEvent -> pendingEvent.event)
+                    .collect(Collectors.toList()));
+            published.forEach(pendingEvent -> pendingEvent.result.complete(null));
+        } catch (RuntimeException e) {
+            published.forEach(pendingEvent -> pendingEvent.result.completeExceptionally(e));
+        }
+    }
+
+    private static class PendingEvent {
+        private final Event event;
+        private final long enqueuedAt;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingEvent(Event event) {
+            this.event = event;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+}
@@ -2,14 +2,24 @@ package uk.gov.pay.connector.events;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.events.exception.EventCreationException;
+import uk.gov.pay.connector.events.model.Event;
 import uk.gov.pay.connector.events.model.EventFactory;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.StateTransition;
 import uk.gov.pay.connector.queue.StateTransitionQueue;
 
 import javax.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class StateTransitionEmitterProcess {
@@ -19,69 +29,222 @@ public class StateTransitionEmitterProcess {
     private final StateTransitionQueue stateTransitionQueue;
     private final EventFactory eventFactory;
     private EventService eventService;
+    private final EventBatchPublisher eventBatchPublisher;
+    private final int drainBatchSize;
+    // retries that later transitions of the same resource have to wait for, keyed by partition key
+    private final Map<String, StateTransition> pendingRetries = new ConcurrentHashMap<>();
+    // later transitions of a resource held back behind its pending retry, in the order they were taken from the queue
+    private final Map<String, Queue<StateTransition>> heldBehindRetries = new ConcurrentHashMap<>();
 
     @Inject
     public StateTransitionEmitterProcess(
             StateTransitionQueue stateTransitionQueue,
             EventFactory eventFactory,
             StateTransitionQueueMetricEmitter stateTransitionQueueMetricEmitter,
-            EventService eventService
+            EventService eventService,
+            EventBatchPublisher eventBatchPublisher,
+            ConnectorConfiguration connectorConfiguration
     ) {
         this.stateTransitionQueue = stateTransitionQueue;
         this.eventFactory = eventFactory;
         this.eventService = eventService;
+        this.eventBatchPublisher = eventBatchPublisher;
+        this.drainBatchSize = connectorConfiguration.getEventQueueConfig().getStateTransitionDrainBatchSize();
 
         stateTransitionQueueMetricEmitter.register();
     }
 
     public int getNumberOfNotProcessedMessages() {
-        return stateTransitionQueue.size();
+        return stateTransitionQueue.size() + heldBehindRetries.values().stream().mapToInt(Queue::size).sum();
     }
 
     public boolean isReadyForShutdown() {
-        return stateTransitionQueue.isEmpty();
+        return stateTransitionQueue.isEmpty() && heldBehindRetries.values().stream().allMatch(Queue::isEmpty);
     }
 
     public void handleStateTransitionMessages() throws InterruptedException {
-        Optional.ofNullable(stateTransitionQueue.poll(STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS))
-                .ifPresent(this::emitEvents);
+        Optional<StateTransition> first = Optional.ofNullable(
+                stateTransitionQueue.poll(STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+
+        if (drainBatchSize > 1 && first.isPresent()) {
+            List<StateTransition> stateTransitions = new ArrayList<>(drainBatchSize);
+            stateTransitions.add(first.get());
+            stateTransitionQueue.drainTo(stateTransitions, drainBatchSize - 1);
+            emitEvents(stateTransitions);
+            return;
+        }
+
+        first.ifPresent(this::emitEvents);
+    }
+
+    /**
+     * Takes the next ready state transition from one partition of the queue and emits its events before returning.
+     * A transition that fails is retried before any later transition of the same resource is emitted: the later
+     * transitions are held back, in the order they were taken, until the retry has been emitted or given up, and
+     * are then emitted straight away. A single worker per partition therefore emits the events of each resource
+     * in order.
+     */
+    public void handleStateTransitionMessages(int partition) throws InterruptedException {
+        StateTransition stateTransition = stateTransitionQueue.poll(partition, STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+        if (stateTransition == null) {
+            return;
+        }
+
+        String partitionKey = stateTransition.getPartitionKey();
+        StateTransition pendingRetry = pendingRetries.get(partitionKey);
+        if (pendingRetry != null && pendingRetry != stateTransition) {
+            heldBehindRetries.computeIfAbsent(partitionKey, key -> new ArrayDeque<>()).add(stateTransition);
+            return;
+        }
+        pendingRetries.remove(partitionKey);
+
+        if (!emitInOrder(stateTransition)) {
+            return;
+        }
+
+        Queue<StateTransition> held = heldBehindRetries.get(partitionKey);
+        if (held == null) {
+            return;
+        }
+        StateTransition next;
+        while ((next = held.poll()) != null) {
+            if (!emitInOrder(next)) {
+                return;
+            }
+        }
+        heldBehindRetries.remove(partitionKey);
+    }
+
+    /**
+     * @return false if the transition failed and has been queued for a retry that later transitions must wait for
+     */
+    private boolean emitInOrder(StateTransition stateTransition) {
+        if (!stateTransition.shouldAttempt()) {
+            logMaximumAttemptsExceeded(stateTransition);
+            return true;
+        }
+
+        try {
+            List<Event> events = eventFactory.createEvents(stateTransition);
+            if (eventBatchPublisher.isEnabled()) {
+                CompletableFuture.allOf(events.stream()
+                        .map(eventBatchPublisher::publish)
+                        .toArray(CompletableFuture[]::new))
+                        .join();
+            } else {
+                for (Event event : events) {
+                    eventService.emitAndMarkEventAsEmitted(event);
+                }
+            }
+            LOGGER.info(
+                    "Emitted new state transition event for [eventId={}] [eventType={}]",
+                    stateTransition.getIdentifier(),
+                    stateTransition.getStateTransitionEventClass().getSimpleName()
+            );
+            return true;
+        } catch (EventCreationException | QueueException e) {
+            retryInOrder(e, stateTransition);
+        } catch (CompletionException e) {
+            retryInOrder(e.getCause(), stateTransition);
+        }
+        return false;
+    }
+
+    private void retryInOrder(Throwable e, StateTransition stateTransition) {
+        logEmitFailure(e, stateTransition);
+        StateTransition retry = stateTransition.getNext();
+        pendingRetries.put(retry.getPartitionKey(), retry);
+        stateTransitionQueue.offer(retry);
     }
 
     private void emitEvents(StateTransition stateTransition) {
         if (stateTransition.shouldAttempt()) {
             try {
-                eventFactory.createEvents(stateTransition)
-                        .forEach(event -> {
-                            try {
-                                eventService.emitAndMarkEventAsEmitted(event);
-                            } catch (QueueException e) {
-                                handleException(e, stateTransition);
-                            }
-                        });
-                LOGGER.info(
-                        "Emitted new state transition event for [eventId={}] [eventType={}]",
-                        stateTransition.getIdentifier(),
-                        stateTransition.getStateTransitionEventClass().getSimpleName()
-                );
+                emitEvents(eventFactory.createEvents(stateTransition), stateTransition);
             } catch (EventCreationException e) {
                 handleException(e, stateTransition);
             }
         } else {
-            LOGGER.error(
-                    "State transition message failed to process beyond max retries [eventId={}] [eventType={}]:",
-                    stateTransition.getIdentifier(),
-                    stateTransition.getStateTransitionEventClass().getSimpleName()
-            );
+            logMaximumAttemptsExceeded(stateTransition);
         }
     }
 
-    private void handleException(Exception e, StateTransition stateTransition) {
+    private void emitEvents(List<StateTransition> drainedStateTransitions) {
+        List<StateTransition> stateTransitions = new ArrayList<>(drainedStateTransitions.size());
+        for (StateTransition stateTransition : drainedStateTransitions) {
+            if (stateTransition.shouldAttempt()) {
+                stateTransitions.add(stateTransition);
+            } else {
+                logMaximumAttemptsExceeded(stateTransition);
+            }
+        }
+
+        Map<StateTransition, List<Event>> eventsByStateTransition = eventFactory.createEvents(stateTransitions);
+        for (StateTransition stateTransition : stateTransitions) {
+            List<Event> events = eventsByStateTransition.get(stateTransition);
+            if (events == null) {
+                handleException(new EventCreationException(stateTransition.getIdentifier()), stateTransition);
+            } else {
+                emitEvents(events, stateTransition);
+            }
+        }
+    }
+
+    private void emitEvents(List<Event> events, StateTransition stateTransition) {
+        if (eventBatchPublisher.isEnabled()) {
+            publishInBatch(events, stateTransition);
+            return;
+        }
+        events.forEach(event -> {
+            try {
+                eventService.emitAndMarkEventAsEmitted(event);
+            } catch (QueueException e) {
+                handleException(e, stateTransition);
+            }
+        });
+        LOGGER.info(
+                "Emitted new state transition event for [eventId={}] [eventType={}]",
+                stateTransition.getIdentifier(),
+                stateTransition.getStateTransitionEventClass().getSimpleName()
+        );
+    }
+
+    private void logMaximumAttemptsExceeded(StateTransition stateTransition) {
+        LOGGER.error(
+                "State transition message failed to process beyond max retries [eventId={}] [eventType={}]:",
+                stateTransition.getIdentifier(),
+                stateTransition.getStateTransitionEventClass().getSimpleName()
+        );
+    }
+
+    private void publishInBatch(List<Event> events, StateTransition stateTransition) {
+        CompletableFuture.allOf(events.stream()
+                .map(eventBatchPublisher::publish)
+                .toArray(CompletableFuture[]::new))
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        handleException(throwable instanceof CompletionException ? throwable.getCause() : throwable, stateTransition);
+                    } else {
+                        LOGGER.info(
+                                "Emitted new state transition event for [eventId={}] [eventType={}]",
+                                stateTransition.getIdentifier(),
+                                stateTransition.getStateTransitionEventClass().getSimpleName()
+                        );
+                    }
+                });
+    }
+
+    private void handleException(Throwable e, StateTransition stateTransition) {
+        logEmitFailure(e, stateTransition);
+        stateTransitionQueue.offer(stateTransition.getNext());
+    }
+
+    private void logEmitFailure(Throwable e, StateTransition stateTransition) {
         LOGGER.warn(
                 "Failed to emit new event for state transition [eventId={}] [eventType={}] [error={}]",
                 stateTransition.getIdentifier(),
                 stateTransition.getStateTransitionEventClass().getSimpleName(),
                 e.getMessage()
         );
-        stateTransitionQueue.offer(stateTransition.getNext());
     }
 }
@@ -0,0 +1,115 @@
+package uk.gov.pay.connector.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
+import uk.gov.pay.connector.events.exception.EventCreationException;
+import uk.gov.pay.connector.events.model.Event;
+import uk.gov.pay.connector.events.model.EventFactory;
+import uk.gov.pay.connector.queue.QueueException;
+import uk.gov.pay.connector.queue.StateTransition;
+import uk.gov.pay.connector.queue.StateTransitionOutboxEntity;
+import uk.gov.pay.connector.queue.dao.StateTransitionOutboxDao;
+
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+import static java.time.temporal.ChronoUnit.MILLIS;
+
+public class StateTransitionOutboxProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateTransitionOutboxProcess.class);
+
+    private static final long EMPTY_OUTBOX_POLL_DELAY_IN_MILLISECONDS = 1000;
+
+    private final StateTransitionOutboxDao stateTransitionOutboxDao;
+    private final EventFactory eventFactory;
+    private final EventService eventService;
+    private final int batchSize;
+    private final int leaseInSeconds;
+
+    @Inject
+    public StateTransitionOutboxProcess(
+            StateTransitionOutboxDao stateTransitionOutboxDao,
+            EventFactory eventFactory,
+            EventService eventService,
+            StateTransitionQueueMetricEmitter stateTransitionQueueMetricEmitter,
+            ConnectorConfiguration connectorConfiguration
+    ) {
+        this.stateTransitionOutboxDao = stateTransitionOutboxDao;
+        this.eventFactory = eventFactory;
+        this.eventService = eventService;
+
+        EventQueueConfig eventQueueConfig = connectorConfiguration.getEventQueueConfig();
+        this.batchSize = eventQueueConfig.getStateTransitionOutboxBatchSize();
+        this.leaseInSeconds = eventQueueConfig.getStateTransitionOutboxLeaseInSeconds();
+
+        if (eventQueueConfig.getStateTransitionOutboxEnabled()) {
+            stateTransitionQueueMetricEmitter.registerOutbox();
+        }
+    }
+
+    public void handleStateTransitionMessages() throws InterruptedException {
+        ZonedDateTime now = now(UTC);
+        List<StateTransitionOutboxEntity> claimed =
+                stateTransitionOutboxDao.claimReadyStateTransitions(batchSize, now, now.plusSeconds(leaseInSeconds));
+
+        if (claimed.isEmpty()) {
+            Thread.sleep(EMPTY_OUTBOX_POLL_DELAY_IN_MILLISECONDS);
+            return;
+        }
+
+        claimed.forEach(this::emitEvents);
+    }
+
+    private void emitEvents(StateTransitionOutboxEntity outboxEntry) {
+        StateTransition stateTransition;
+        try {
+            stateTransition = outboxEntry.toStateTransition();
+        } catch (IllegalStateException e) {
+            LOGGER.error("Discarding unreadable state transition from outbox [outboxId={}] [error={}]",
+                    outboxEntry.getId(), e.getMessage());
+            stateTransitionOutboxDao.deleteById(outboxEntry.getId());
+            return;
+        }
+
+        if (!stateTransition.shouldAttempt()) {
+            LOGGER.error(
+                    "State transition message failed to process beyond max retries [eventId={}] [eventType={}]:",
+                    stateTransition.getIdentifier(),
+                    stateTransition.getStateTransitionEventClass().getSimpleName()
+            );
+            stateTransitionOutboxDao.deleteById(outboxEntry.getId());
+            return;
+        }
+
+        try {
+            for (Event event : eventFactory.createEvents(stateTransition)) {
+                eventService.emitAndMarkEventAsEmitted(event);
+            }
+            stateTransitionOutboxDao.deleteById(outboxEntry.getId());
+            LOGGER.info(
+                    "Emitted new state transition event for [eventId={}] [eventType={}]",
+                    stateTransition.getIdentifier(),
+                    stateTransition.getStateTransitionEventClass().getSimpleName()
+            );
+        } catch (EventCreationException | QueueException e) {
+            handleException(e, outboxEntry, stateTransition);
+        }
+    }
+
+    private void handleException(Exception e, StateTransitionOutboxEntity outboxEntry, StateTransition stateTransition) {
+        LOGGER.warn(
+                "Failed to emit new event for state transition [eventId={}] [eventType={}] [error={}]",
+                stateTransition.getIdentifier(),
+                stateTransition.getStateTransitionEventClass().getSimpleName(),
+                e.getMessage()
+        );
+        StateTransition next = stateTransition.getNext();
+        stateTransitionOutboxDao.scheduleRetry(outboxEntry.getId(), next.getAttempts(),
+                now(UTC).plus(next.getDelayDurationInMilliseconds(), MILLIS));
+    }
+}
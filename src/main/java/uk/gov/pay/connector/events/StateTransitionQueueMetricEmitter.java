@@ -1,22 +1,30 @@
 package uk.gov.pay.connector.events;
 
+import com.codahale.metrics.CachedGauge;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.setup.Environment;
 import uk.gov.pay.connector.queue.StateTransitionQueue;
+import uk.gov.pay.connector.queue.dao.StateTransitionOutboxDao;
 
 import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
 
 public class StateTransitionQueueMetricEmitter {
+    private static final long OUTBOX_SIZE_CACHE_DURATION_IN_SECONDS = 10;
+
     private final MetricRegistry metricRegistry;
     private StateTransitionQueue stateTransitionQueue;
+    private StateTransitionOutboxDao stateTransitionOutboxDao;
 
     @Inject
     public StateTransitionQueueMetricEmitter(
             Environment environment,
-            StateTransitionQueue stateTransitionQueue) {
+            StateTransitionQueue stateTransitionQueue,
+            StateTransitionOutboxDao stateTransitionOutboxDao) {
         
         this.stateTransitionQueue = stateTransitionQueue;
+        this.stateTransitionOutboxDao = stateTransitionOutboxDao;
         this.metricRegistry = environment.metrics();
     }
     
@@ -25,4 +33,15 @@ public class StateTransitionQueueMetricEmitter {
         
         metricRegistry.register("state-transition.in-memory-queue.size", gauge);
     }
+
+    public void registerOutbox() {
+        final Gauge<Long> gauge = new CachedGauge<>(OUTBOX_SIZE_CACHE_DURATION_IN_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return stateTransitionOutboxDao.countPending();
+            }
+        };
+
+        metricRegistry.register("state-transition.outbox.size", gauge);
+    }
 }
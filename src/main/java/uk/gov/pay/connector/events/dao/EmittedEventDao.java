@@ -10,6 +10,7 @@ import uk.gov.pay.connector.events.model.ResourceType;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -20,6 +21,9 @@ import static java.time.ZonedDateTime.now;
 @Transactional
 public class EmittedEventDao extends JpaDao<EmittedEventEntity> {
 
+    // keeps the number of bind parameters per statement well below the Postgres driver's limit of 32767
+    private static final int MARK_AS_EMITTED_MAXIMUM_BATCH_SIZE = 1000;
+
     @Inject
     protected EmittedEventDao(Provider<EntityManager> entityManager) {
         super(entityManager);
@@ -85,6 +89,48 @@ public class EmittedEventDao extends JpaDao<EmittedEventEntity> {
         query.executeUpdate();
     }
 
+    @Transactional
+    public int markEventsAsEmitted(List<? extends Event> events) {
+        int updated = 0;
+        Timestamp emittedDate = Timestamp.from(ZonedDateTime.now(ZoneId.of("UTC")).toInstant());
+        for (int from = 0; from < events.size(); from += MARK_AS_EMITTED_MAXIMUM_BATCH_SIZE) {
+            List<? extends Event> batch = events.subList(from, Math.min(from + MARK_AS_EMITTED_MAXIMUM_BATCH_SIZE, events.size()));
+            updated += markBatchAsEmitted(batch, emittedDate);
+        }
+        return updated;
+    }
+
+    private int markBatchAsEmitted(List<? extends Event> events, Timestamp emittedDate) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < events.size(); i++) {
+            int parameter = 2 + i * 4;
+            values.append(i == 0 ? "" : ", ")
+                    .append(String.format("(?%d, ?%d, ?%d, CAST(?%d AS timestamp))",
+                            parameter, parameter + 1, parameter + 2, parameter + 3));
+        }
+
+        Query query = entityManager.get()
+                .createNativeQuery("UPDATE emitted_events e" +
+                        " SET emitted_date = ?1, event_date = v.event_date" +
+                        " FROM (VALUES " + values + ") AS v(resource_type, resource_external_id, event_type, event_date)" +
+                        " WHERE e.resource_type = v.resource_type" +
+                        " AND e.resource_external_id = v.resource_external_id" +
+                        " AND e.event_type = v.event_type" +
+                        " AND e.emitted_date is null"
+                );
+        query.setParameter(1, emittedDate);
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            int parameter = 2 + i * 4;
+            query.setParameter(parameter, event.getResourceType().getLowercase())
+                    .setParameter(parameter + 1, event.getResourceExternalId())
+                    .setParameter(parameter + 2, event.getEventType())
+                    .setParameter(parameter + 3, event.getTimestamp() == null ? null : Timestamp.from(event.getTimestamp().toInstant()));
+        }
+
+        return query.executeUpdate();
+    }
+
     public Optional<Long> findNotEmittedEventMaxIdOlderThan(ZonedDateTime cutOffDate, ZonedDateTime now) {
         String query = "SELECT MAX(e.id) from EmittedEventEntity e " +
                 "WHERE e.eventDate < :cutOffDate " +
@@ -30,8 +30,11 @@ import uk.gov.pay.connector.refund.model.domain.RefundHistory;
 import javax.inject.Inject;
 import java.lang.reflect.InvocationTargetException;
 import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -71,10 +74,60 @@ public class EventFactory {
         }
     }
 
+    /**
+     * Creates the events for several state transitions, loading all of their charge events and refund histories
+     * with one query each. State transitions whose events could not be created are left out of the result.
+     */
+    public Map<StateTransition, List<Event>> createEvents(List<? extends StateTransition> stateTransitions) {
+        List<Long> chargeEventIds = stateTransitions.stream()
+                .filter(PaymentStateTransition.class::isInstance)
+                .map(stateTransition -> ((PaymentStateTransition) stateTransition).getChargeEventId())
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, ChargeEventEntity> chargeEventsById = chargeEventDao.findByIds(chargeEventIds).stream()
+                .collect(Collectors.toMap(ChargeEventEntity::getId, Function.identity()));
+
+        List<String> refundExternalIds = stateTransitions.stream()
+                .filter(RefundStateTransition.class::isInstance)
+                .map(stateTransition -> ((RefundStateTransition) stateTransition).getRefundExternalId())
+                .distinct()
+                .collect(Collectors.toList());
+        List<RefundHistory> refundHistories = refundDao.getRefundHistoriesByRefundExternalIds(refundExternalIds);
+
+        Map<StateTransition, List<Event>> eventsByStateTransition = new LinkedHashMap<>();
+        for (StateTransition stateTransition : stateTransitions) {
+            try {
+                if (stateTransition instanceof PaymentStateTransition) {
+                    PaymentStateTransition paymentStateTransition = (PaymentStateTransition) stateTransition;
+                    ChargeEventEntity chargeEvent = Optional.ofNullable(chargeEventsById.get(paymentStateTransition.getChargeEventId()))
+                            .orElseThrow(() -> new EventCreationException(paymentStateTransition.getIdentifier()));
+                    eventsByStateTransition.put(stateTransition, createPaymentEvents(chargeEvent, paymentStateTransition));
+                } else if (stateTransition instanceof RefundStateTransition) {
+                    RefundStateTransition refundStateTransition = (RefundStateTransition) stateTransition;
+                    RefundHistory refundHistory = refundHistories.stream()
+                            .filter(history -> history.getExternalId().equals(refundStateTransition.getRefundExternalId()))
+                            .filter(history -> history.getStatus() == refundStateTransition.getRefundStatus())
+                            .findFirst()
+                            .orElseThrow(() -> new EventCreationException(refundStateTransition.getIdentifier()));
+                    eventsByStateTransition.put(stateTransition, createRefundEvents(refundHistory, refundStateTransition));
+                }
+            } catch (EventCreationException e) {
+                // left out of the result so the caller retries it
+            }
+        }
+
+        return eventsByStateTransition;
+    }
+
     private List<Event> createPaymentEvents(PaymentStateTransition paymentStateTransition) throws EventCreationException {
         ChargeEventEntity chargeEvent = chargeEventDao.findById(ChargeEventEntity.class, paymentStateTransition.getChargeEventId())
                 .orElseThrow(() -> new EventCreationException(String.valueOf(paymentStateTransition.getChargeEventId())));
 
+        return createPaymentEvents(chargeEvent, paymentStateTransition);
+    }
+
+    private List<Event> createPaymentEvents(ChargeEventEntity chargeEvent, PaymentStateTransition paymentStateTransition)
+            throws EventCreationException {
          PaymentEvent paymentEvent = createPaymentEvent(chargeEvent, paymentStateTransition.getStateTransitionEventClass());
 
         Optional<Event> refundAvailabilityEvent = createRefundAvailabilityUpdatedEvent(
@@ -94,6 +147,11 @@ public class EventFactory {
                 refundStateTransition.getRefundStatus())
                 .orElseThrow(() -> new EventCreationException(refundStateTransition.getIdentifier()));
 
+        return createRefundEvents(refundHistory, refundStateTransition);
+    }
+
+    private List<Event> createRefundEvents(RefundHistory refundHistory, RefundStateTransition refundStateTransition)
+            throws EventCreationException {
         Event refundEvent = createRefundEvent(refundHistory, refundStateTransition.getStateTransitionEventClass());
         Optional<Event> refundAvailabilityEvent = createRefundAvailabilityUpdatedEvent(
                 refundHistory.getChargeEntity().getExternalId(),
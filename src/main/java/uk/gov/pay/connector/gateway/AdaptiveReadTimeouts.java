@@ -0,0 +1,110 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Snapshot;
+import uk.gov.pay.connector.app.config.AdaptiveReadTimeoutConfig;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Read timeouts for one gateway operation, calculated per account type from the response times of its recent requests
+ * as the configured percentile multiplied by a factor. The result is kept between the configured minimum and the
+ * operation's static read timeout, which is also used until enough response times have been recorded.
+ */
+public class AdaptiveReadTimeouts {
+
+    private static final AdaptiveReadTimeouts DISABLED = new AdaptiveReadTimeouts();
+
+    private final String gatewayName;
+    private final String operation;
+    private final long maximumReadTimeoutInMilliseconds;
+    private final AdaptiveReadTimeoutConfig config;
+    private final MetricRegistry metricRegistry;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, AdaptiveReadTimeout> readTimeouts = new ConcurrentHashMap<>();
+
+    public AdaptiveReadTimeouts(String gatewayName,
+                                String operation,
+                                long maximumReadTimeoutInMilliseconds,
+                                AdaptiveReadTimeoutConfig config,
+                                MetricRegistry metricRegistry,
+                                Clock clock) {
+        this.gatewayName = gatewayName;
+        this.operation = operation;
+        this.maximumReadTimeoutInMilliseconds = maximumReadTimeoutInMilliseconds;
+        this.config = config;
+        this.metricRegistry = metricRegistry;
+        this.clock = clock;
+    }
+
+    private AdaptiveReadTimeouts() {
+        this(null, null, 0, null, null, null);
+    }
+
+    public static AdaptiveReadTimeouts disabled() {
+        return DISABLED;
+    }
+
+    public Optional<Integer> getReadTimeoutInMilliseconds(String accountType) {
+        if (this == DISABLED) {
+            return Optional.empty();
+        }
+        return Optional.of(forAccountType(accountType).getReadTimeoutInMilliseconds());
+    }
+
+    public void update(String accountType, long responseTimeInMilliseconds) {
+        if (this != DISABLED) {
+            forAccountType(accountType).update(responseTimeInMilliseconds);
+        }
+    }
+
+    private AdaptiveReadTimeout forAccountType(String accountType) {
+        return readTimeouts.computeIfAbsent(accountType, type -> {
+            AdaptiveReadTimeout readTimeout = new AdaptiveReadTimeout();
+            metricRegistry.<Gauge<Integer>>gauge(format("gateway-operations.%s.%s.%s.read_timeout", gatewayName, type, operation),
+                    () -> readTimeout::getReadTimeoutInMilliseconds);
+            return readTimeout;
+        });
+    }
+
+    private class AdaptiveReadTimeout {
+
+        private final Histogram responseTimes = new Histogram(
+                new SlidingTimeWindowArrayReservoir(config.getWindowInSeconds(), TimeUnit.SECONDS));
+        private final long minimumReadTimeoutInMilliseconds = config.getMinimumReadTimeout().toMilliseconds();
+        private final long recalculationIntervalInMilliseconds = TimeUnit.SECONDS.toMillis(config.getRecalculationIntervalInSeconds());
+
+        private volatile int readTimeoutInMilliseconds = (int) maximumReadTimeoutInMilliseconds;
+        private volatile long calculatedAtInMilliseconds = Long.MIN_VALUE;
+
+        void update(long responseTimeInMilliseconds) {
+            responseTimes.update(responseTimeInMilliseconds);
+        }
+
+        int getReadTimeoutInMilliseconds() {
+            long now = clock.millis();
+            if (calculatedAtInMilliseconds == Long.MIN_VALUE || now - calculatedAtInMilliseconds >= recalculationIntervalInMilliseconds) {
+                calculatedAtInMilliseconds = now;
+                readTimeoutInMilliseconds = calculate();
+            }
+            return readTimeoutInMilliseconds;
+        }
+
+        private int calculate() {
+            Snapshot snapshot = responseTimes.getSnapshot();
+            if (snapshot.size() < config.getMinimumNumberOfSamples()) {
+                return (int) maximumReadTimeoutInMilliseconds;
+            }
+            long readTimeout = (long) Math.ceil(snapshot.getValue(config.getPercentile()) * config.getFactor());
+            return (int) Math.max(minimumReadTimeoutInMilliseconds, Math.min(maximumReadTimeoutInMilliseconds, readTimeout));
+        }
+    }
+}
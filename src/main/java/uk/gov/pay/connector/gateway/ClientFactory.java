@@ -6,7 +6,6 @@ import io.dropwizard.client.JerseyClientBuilder;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
 import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
@@ -17,6 +16,7 @@ import org.glassfish.jersey.client.ClientProperties;
 import uk.gov.pay.commons.utils.xray.XRayHttpClientFilter;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.OperationOverrides;
+import uk.gov.pay.connector.app.config.AdaptiveReadTimeoutConfig;
 import uk.gov.pay.connector.filters.RestClientLoggingFilter;
 
 import javax.inject.Inject;
@@ -24,6 +24,7 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.client.Client;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -34,14 +35,16 @@ import static org.glassfish.jersey.client.ClientProperties.READ_TIMEOUT;
 public class ClientFactory {
     private final Environment environment;
     private final ConnectorConfiguration conf;
+    private final GatewayConnectionWarmUp gatewayConnectionWarmUp;
 
     private final static String PROXY_HOST_PROPERTY = "https.proxyHost";
     private final static String PROXY_PORT_PROPERTY = "https.proxyPort";
 
     @Inject
-    public ClientFactory(Environment environment, ConnectorConfiguration conf) {
+    public ClientFactory(Environment environment, ConnectorConfiguration conf, GatewayConnectionWarmUp gatewayConnectionWarmUp) {
         this.environment = environment;
         this.conf = conf;
+        this.gatewayConnectionWarmUp = gatewayConnectionWarmUp;
     }
 
     public Client createWithDropwizardClient(PaymentGatewayName gateway, GatewayOperation operation, MetricRegistry metricRegistry) {
@@ -53,11 +56,12 @@ public class ClientFactory {
     }
 
     private Client createWithDropwizardClient(PaymentGatewayName gateway, Duration readTimeout, String metricName, MetricRegistry metricRegistry) {
+        InstrumentedHttpClientConnectionManager connectionManager = createConnectionManager(gateway.getName(), metricName, metricRegistry);
         JerseyClientBuilder defaultClientBuilder = new JerseyClientBuilder(environment)
                 .using(new ApacheConnectorProvider())
                 .using(conf.getClientConfiguration())
                 .withProperty(READ_TIMEOUT, (int) readTimeout.toMilliseconds())
-                .withProperty(CONNECTION_MANAGER, createConnectionManager(gateway.getName(), metricName, metricRegistry));
+                .withProperty(CONNECTION_MANAGER, connectionManager);
 
         if (System.getProperty(PROXY_HOST_PROPERTY) != null && System.getProperty(PROXY_PORT_PROPERTY) != null) {
             defaultClientBuilder.withProperty(ClientProperties.PROXY_URI, format("http://%s:%s",
@@ -70,9 +74,20 @@ public class ClientFactory {
 
         if (conf.isXrayEnabled()) client.register(XRayHttpClientFilter.class);
 
+        gatewayConnectionWarmUp.register(gateway, metricName, client, connectionManager);
+
         return client;
     }
 
+    public AdaptiveReadTimeouts createAdaptiveReadTimeouts(PaymentGatewayName gateway, GatewayOperation operation, MetricRegistry metricRegistry) {
+        AdaptiveReadTimeoutConfig adaptiveReadTimeoutConfig = conf.getAdaptiveReadTimeoutConfig();
+        if (!adaptiveReadTimeoutConfig.isEnabled()) {
+            return AdaptiveReadTimeouts.disabled();
+        }
+        return new AdaptiveReadTimeouts(gateway.getName(), operation.getConfigKey(),
+                getReadTimeout(operation, gateway).toMilliseconds(), adaptiveReadTimeoutConfig, metricRegistry, Clock.systemUTC());
+    }
+
     private Duration getReadTimeout(GatewayOperation operation, PaymentGatewayName gateway) {
         return getOverridesFor(operation, gateway)
                 .map(OperationOverrides::getReadTimeout)
@@ -86,7 +101,7 @@ public class ClientFactory {
                 .map(jerseyClientOverrides -> jerseyClientOverrides.getOverridesFor(operation));
     }
 
-    private HttpClientConnectionManager createConnectionManager(String gatewayName, String operation, MetricRegistry metricRegistry) {
+    private InstrumentedHttpClientConnectionManager createConnectionManager(String gatewayName, String operation, MetricRegistry metricRegistry) {
 
         SSLConnectionSocketFactory sslConnectionSocketFactory;
         try {
@@ -100,7 +115,7 @@ public class ClientFactory {
             throw new RuntimeException("Unable to create SSL connection socket factory", e);
         }
 
-        return new InstrumentedHttpClientConnectionManager(
+        InstrumentedHttpClientConnectionManager connectionManager = new InstrumentedHttpClientConnectionManager(
                 metricRegistry,
                 RegistryBuilder.<ConnectionSocketFactory>create()
                         .register("http", PlainConnectionSocketFactory.getSocketFactory())
@@ -113,6 +128,9 @@ public class ClientFactory {
                 TimeUnit.MILLISECONDS,
                 format("%s.%s", gatewayName, operation)
         );
+        connectionManager.setValidateAfterInactivity(
+                conf.getGatewayConnectionWarmUpConfig().getValidateAfterInactivityInMilliseconds());
+        return connectionManager;
     }
 }
 
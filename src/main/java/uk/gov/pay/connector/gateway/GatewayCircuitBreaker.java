@@ -0,0 +1,202 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.CLOSED;
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.HALF_OPEN;
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.OPEN;
+
+/**
+ * Guards the requests {@link GatewayClient} sends for one gateway operation. At most a configured number of requests
+ * run at once, so a slow gateway cannot take every thread that sends gateway requests. After a run of consecutive
+ * failures (the timeouts, connection errors and 5xx responses counted by {@code GatewayClient}'s failures counter)
+ * the breaker opens and requests are rejected straight away. Once the open duration has passed a few probe requests
+ * are let through: a probe's success closes the breaker again, its failure re-opens it. Results are reported through
+ * the {@link Permit} each admitted request is given.
+ */
+public class GatewayCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final Semaphore concurrentRequests;
+    private final int failureThreshold;
+    private final long openDurationInMilliseconds;
+    private final int halfOpenProbeRequests;
+    private final Clock clock;
+    private final Counter rejections = new Counter();
+
+    private State state = CLOSED;
+    private int consecutiveFailures;
+    private int probesInFlight;
+    private long openedAtInMilliseconds;
+    // changes with every state transition, so the result of a request admitted before a transition is ignored
+    private long generation;
+
+    GatewayCircuitBreaker(String name, int maximumConcurrentRequests, GatewayCircuitBreakerConfig config, Clock clock) {
+        this.name = name;
+        this.enabled = config.isEnabled();
+        this.concurrentRequests = new Semaphore(maximumConcurrentRequests);
+        this.failureThreshold = config.getFailureThreshold();
+        this.openDurationInMilliseconds = config.getOpenDurationInMilliseconds();
+        this.halfOpenProbeRequests = config.getHalfOpenProbeRequests();
+        this.clock = clock;
+    }
+
+    public static GatewayCircuitBreaker disabled(String name) {
+        return new GatewayCircuitBreaker(name, 0, new GatewayCircuitBreakerConfig(), Clock.systemUTC());
+    }
+
+    /**
+     * @return a permit if the request may be sent, whose {@link Permit#release()} must be called once the request
+     * has finished, or empty if the request is rejected
+     */
+    public Optional<Permit> tryAcquire() {
+        if (!enabled) {
+            return Optional.of(new Permit(0, false));
+        }
+        if (!concurrentRequests.tryAcquire()) {
+            rejections.inc();
+            return Optional.empty();
+        }
+        Permit permit = admit();
+        if (permit == null) {
+            concurrentRequests.release();
+            rejections.inc();
+            return Optional.empty();
+        }
+        return Optional.of(permit);
+    }
+
+    private synchronized Permit admit() {
+        if (state == OPEN && clock.millis() - openedAtInMilliseconds >= openDurationInMilliseconds) {
+            transitionTo(HALF_OPEN);
+        }
+        switch (state) {
+            case CLOSED:
+                return new Permit(generation, false);
+            case HALF_OPEN:
+                if (probesInFlight < halfOpenProbeRequests) {
+                    probesInFlight++;
+                    return new Permit(generation, true);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private synchronized void recordSuccess(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (permit.probe) {
+            probesInFlight--;
+            transitionTo(CLOSED);
+        }
+    }
+
+    private synchronized void recordFailure(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        if (permit.probe) {
+            probesInFlight--;
+            open();
+            return;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private synchronized void recordNoResult(Permit permit) {
+        if (permit.probe && permit.generation == generation) {
+            probesInFlight--;
+        }
+    }
+
+    private void open() {
+        openedAtInMilliseconds = clock.millis();
+        transitionTo(OPEN);
+    }
+
+    private void transitionTo(State newState) {
+        LOGGER.warn("Gateway circuit breaker changed state [name={}] [from={}] [to={}] [consecutiveFailures={}]",
+                name, state, newState, consecutiveFailures);
+        state = newState;
+        probesInFlight = 0;
+        generation++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public int getAvailableConcurrentRequests() {
+        return concurrentRequests.availablePermits();
+    }
+
+    public Counter getRejections() {
+        return rejections;
+    }
+
+    /**
+     * One admitted request. Only its first result is recorded, and only if the breaker has not changed state since
+     * the request was admitted, so a slow request started while closed cannot close a half-open breaker. A probe
+     * frees its slot once its result is recorded or, failing that, once it is released.
+     */
+    public class Permit {
+        private final long generation;
+        private final boolean probe;
+        private final AtomicBoolean recorded = new AtomicBoolean(false);
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+
+        public void onSuccess() {
+            if (enabled && recorded.compareAndSet(false, true)) {
+                recordSuccess(this);
+            }
+        }
+
+        public void onFailure() {
+            if (enabled && recorded.compareAndSet(false, true)) {
+                recordFailure(this);
+            }
+        }
+
+        public void release() {
+            if (enabled && released.compareAndSet(false, true)) {
+                if (recorded.compareAndSet(false, true)) {
+                    recordNoResult(this);
+                }
+                concurrentRequests.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+@Singleton
+public class GatewayCircuitBreakers {
+
+    private final GatewayCircuitBreakerConfig config;
+    private final MetricRegistry metricRegistry;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, GatewayCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    @Inject
+    public GatewayCircuitBreakers(ConnectorConfiguration configuration, Environment environment) {
+        this(configuration.getGatewayCircuitBreakerConfig(), environment.metrics(), Clock.systemUTC());
+    }
+
+    public GatewayCircuitBreakers(GatewayCircuitBreakerConfig config, MetricRegistry metricRegistry, Clock clock) {
+        this.config = config;
+        this.metricRegistry = metricRegistry;
+        this.clock = clock;
+    }
+
+    public GatewayCircuitBreaker forOperation(PaymentGatewayName gateway, String operation) {
+        return circuitBreakers.computeIfAbsent(format("%s.%s", gateway.getName(), operation), this::create);
+    }
+
+    public Collection<GatewayCircuitBreaker> getAll() {
+        return circuitBreakers.values();
+    }
+
+    private GatewayCircuitBreaker create(String name) {
+        int maximumConcurrentRequests = config.getMaximumConcurrentRequests()
+                .getOrDefault(name, config.getDefaultMaximumConcurrentRequests());
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(name, maximumConcurrentRequests, config, clock);
+
+        if (config.isEnabled()) {
+            String metricsPrefix = "gateway-circuit-breaker." + name;
+            metricRegistry.register(metricsPrefix + ".state", (Gauge<Integer>) () -> circuitBreaker.getState().ordinal());
+            metricRegistry.register(metricsPrefix + ".available-concurrent-requests",
+                    (Gauge<Integer>) circuitBreaker::getAvailableConcurrentRequests);
+            metricRegistry.register(metricsPrefix + ".rejections", circuitBreaker.getRejections());
+        }
+        return circuitBreaker;
+    }
+}
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.gateway.GatewayException.GatewayConnectionTimeoutException;
 import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
 import uk.gov.pay.connector.gateway.GatewayException.GenericGatewayException;
+import uk.gov.pay.connector.gateway.GatewayOperationMetrics.OperationMetrics;
 import uk.gov.pay.connector.gateway.model.request.GatewayClientRequest;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 
@@ -14,28 +15,47 @@ import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
 import java.net.HttpCookie;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.OK;
+import static org.glassfish.jersey.client.ClientProperties.READ_TIMEOUT;
 
 public class GatewayClient {
     private static final Logger logger = LoggerFactory.getLogger(GatewayClient.class);
 
     private final Client client;
-    private final MetricRegistry metricRegistry;
+    private final GatewayOperationMetrics gatewayOperationMetrics;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final AdaptiveReadTimeouts readTimeouts;
 
     public GatewayClient(Client client, MetricRegistry metricRegistry) {
+        this(client, metricRegistry, GatewayCircuitBreaker.disabled("disabled"));
+    }
+
+    public GatewayClient(Client client, MetricRegistry metricRegistry, GatewayCircuitBreaker circuitBreaker) {
+        this(client, metricRegistry, circuitBreaker, AdaptiveReadTimeouts.disabled());
+    }
+
+    public GatewayClient(Client client,
+                         MetricRegistry metricRegistry,
+                         GatewayCircuitBreaker circuitBreaker,
+                         AdaptiveReadTimeouts readTimeouts) {
         this.client = client;
-        this.metricRegistry = metricRegistry;
+        this.gatewayOperationMetrics = new GatewayOperationMetrics(metricRegistry);
+        this.circuitBreaker = circuitBreaker;
+        this.readTimeouts = readTimeouts;
     }
 
     public GatewayClient.Response postRequestFor(URI url, GatewayAccountEntity account, GatewayOrder request, Map<String, String> headers)
@@ -55,59 +75,175 @@ public class GatewayClient {
                                                  Map<String, String> headers)
             throws GatewayException.GenericGatewayException, GatewayConnectionTimeoutException, GatewayErrorException {
 
-        String metricsPrefix = format("gateway-operations.%s.%s.%s", account.getGatewayName(), account.getType(), request.getOrderRequestType());
+        OperationMetrics metrics = getOperationMetrics(account, request);
+        GatewayCircuitBreaker.Permit permit = circuitBreaker.tryAcquire()
+                .orElseThrow(() -> toCircuitBreakerRejection(url));
         javax.ws.rs.core.Response response = null;
 
         Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
         try {
             logger.info("POSTing request for account '{}' with type '{}'", account.getGatewayName(), account.getType());
 
-            Builder requestBuilder = client.target(url).request();
-            headers.keySet().forEach(headerKey -> requestBuilder.header(headerKey, headers.get(headerKey)));
-            cookies.forEach(cookie -> requestBuilder.cookie(cookie.getName(), cookie.getValue()));
-            response = requestBuilder.post(Entity.entity(request.getPayload(), request.getMediaType()));
-            int statusCode = response.getStatus();
-            Response gatewayResponse = new Response(response);
-            if (statusCode == OK.getStatusCode()) {
-                return gatewayResponse;
-            } else {
-                if (statusCode >= INTERNAL_SERVER_ERROR.getStatusCode()) {
-                    logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {} with order request type {}",
-                            statusCode, url, account.getType(), request.getOrderRequestType());
-                    incrementFailureCounter(metricRegistry, metricsPrefix);
-                } else {
-                    logger.info("Gateway returned non-success status code: {}, for gateway url={} with type {} with order request type {}",
-                            statusCode, url, account.getType(), request.getOrderRequestType());
-                }
-                throw new GatewayErrorException("Non-success HTTP status code " + statusCode + " from gateway", gatewayResponse.getEntity(), statusCode);
-            }
-        } catch (ProcessingException pe) {
-            incrementFailureCounter(metricRegistry, metricsPrefix);
-            if (pe.getCause() != null) {
-                if (pe.getCause() instanceof SocketTimeoutException) {
-                    logger.error(format("Connection timed out error for gateway url=%s", url), pe);
-                    throw new GatewayConnectionTimeoutException("Gateway connection timeout error");
-                }
-            }
-            logger.error(format("Exception for gateway url=%s, error message: %s", url, pe.getMessage()), pe);
-            throw new GenericGatewayException(pe.getMessage());
+            response = buildRequest(url, account, cookies, headers).post(Entity.entity(request.getPayload(), request.getMediaType()));
+            return toGatewayResponse(response, url, account, request, metrics, permit);
         } catch (GatewayErrorException e) {
             throw e;
         } catch (Exception e) {
-            incrementFailureCounter(metricRegistry, metricsPrefix);
-            logger.error(format("Exception for gateway url=%s", url), e);
-            throw new GatewayException.GenericGatewayException(e.getMessage());
+            if (isConnectionTimeout(e)) {
+                throw toConnectionTimeoutException(e, url, metrics, permit);
+            }
+            throw toGenericGatewayException(e, url, metrics, permit);
         } finally {
-            responseTimeStopwatch.stop();
-            metricRegistry.histogram(metricsPrefix + ".response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
+            updateResponseTime(metrics, account, responseTimeStopwatch);
             if (response != null) {
                 response.close();
             }
+            permit.release();
+        }
+    }
+
+    public CompletableFuture<GatewayClient.Response> postRequestForAsync(URI url,
+                                                                         GatewayAccountEntity account,
+                                                                         GatewayOrder request,
+                                                                         Map<String, String> headers) {
+        return postRequestForAsync(url, account, request, emptyList(), headers);
+    }
+
+    /**
+     * Same as {@link #postRequestFor(URI, GatewayAccountEntity, GatewayOrder, List, Map)}, but sends the request
+     * through Jersey's async invoker, so the calling thread is not held while waiting for the gateway. The returned
+     * future completes exceptionally with the same {@link GatewayException}s the blocking call throws.
+     */
+    public CompletableFuture<GatewayClient.Response> postRequestForAsync(URI url,
+                                                                         GatewayAccountEntity account,
+                                                                         GatewayOrder request,
+                                                                         List<HttpCookie> cookies,
+                                                                         Map<String, String> headers) {
+
+        OperationMetrics metrics = getOperationMetrics(account, request);
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        Optional<GatewayCircuitBreaker.Permit> acquired = circuitBreaker.tryAcquire();
+        if (acquired.isEmpty()) {
+            result.completeExceptionally(toCircuitBreakerRejection(url));
+            return result;
+        }
+        GatewayCircuitBreaker.Permit permit = acquired.get();
+
+        Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
+        try {
+            logger.info("POSTing async request for account '{}' with type '{}'", account.getGatewayName(), account.getType());
+
+            buildRequest(url, account, cookies, headers).async().post(Entity.entity(request.getPayload(), request.getMediaType()),
+                    new InvocationCallback<javax.ws.rs.core.Response>() {
+                        @Override
+                        public void completed(javax.ws.rs.core.Response response) {
+                            try {
+                                result.complete(toGatewayResponse(response, url, account, request, metrics, permit));
+                            } catch (GatewayErrorException e) {
+                                result.completeExceptionally(e);
+                            } catch (Exception e) {
+                                result.completeExceptionally(toGatewayException(e, url, metrics, permit));
+                            } finally {
+                                updateResponseTime(metrics, account, responseTimeStopwatch);
+                                response.close();
+                                permit.release();
+                            }
+                        }
+
+                        @Override
+                        public void failed(Throwable throwable) {
+                            updateResponseTime(metrics, account, responseTimeStopwatch);
+                            permit.release();
+                            result.completeExceptionally(toGatewayException(throwable, url, metrics, permit));
+                        }
+                    });
+        } catch (Exception e) {
+            updateResponseTime(metrics, account, responseTimeStopwatch);
+            permit.release();
+            result.completeExceptionally(toGatewayException(e, url, metrics, permit));
+        }
+        return result;
+    }
+
+    private OperationMetrics getOperationMetrics(GatewayAccountEntity account, GatewayOrder request) {
+        return gatewayOperationMetrics.forOperation(account.getGatewayName(), account.getType(), request.getOrderRequestType());
+    }
+
+    private Builder buildRequest(URI url, GatewayAccountEntity account, List<HttpCookie> cookies, Map<String, String> headers) {
+        Builder requestBuilder = client.target(url).request();
+        readTimeouts.getReadTimeoutInMilliseconds(account.getType())
+                .ifPresent(readTimeout -> requestBuilder.property(READ_TIMEOUT, readTimeout));
+        headers.keySet().forEach(headerKey -> requestBuilder.header(headerKey, headers.get(headerKey)));
+        cookies.forEach(cookie -> requestBuilder.cookie(cookie.getName(), cookie.getValue()));
+        return requestBuilder;
+    }
+
+    private Response toGatewayResponse(javax.ws.rs.core.Response response,
+                                       URI url,
+                                       GatewayAccountEntity account,
+                                       GatewayOrder request,
+                                       OperationMetrics metrics,
+                                       GatewayCircuitBreaker.Permit permit) throws GatewayErrorException {
+        int statusCode = response.getStatus();
+        Response gatewayResponse = new Response(response);
+        if (statusCode == OK.getStatusCode()) {
+            permit.onSuccess();
+            return gatewayResponse;
+        } else {
+            if (statusCode >= INTERNAL_SERVER_ERROR.getStatusCode()) {
+                logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {} with order request type {}",
+                        statusCode, url, account.getType(), request.getOrderRequestType());
+                incrementFailureCounter(metrics, permit);
+            } else {
+                permit.onSuccess();
+                logger.info("Gateway returned non-success status code: {}, for gateway url={} with type {} with order request type {}",
+                        statusCode, url, account.getType(), request.getOrderRequestType());
+            }
+            throw new GatewayErrorException("Non-success HTTP status code " + statusCode + " from gateway", gatewayResponse.getEntity(), statusCode);
         }
     }
 
-    private void incrementFailureCounter(MetricRegistry metricRegistry, String metricsPrefix) {
-        metricRegistry.counter(metricsPrefix + ".failures").inc();
+    private GatewayException toGatewayException(Throwable failure, URI url, OperationMetrics metrics,
+                                                GatewayCircuitBreaker.Permit permit) {
+        return isConnectionTimeout(failure)
+                ? toConnectionTimeoutException(failure, url, metrics, permit)
+                : toGenericGatewayException(failure, url, metrics, permit);
+    }
+
+    private boolean isConnectionTimeout(Throwable failure) {
+        return failure instanceof ProcessingException && failure.getCause() instanceof SocketTimeoutException;
+    }
+
+    private GatewayConnectionTimeoutException toConnectionTimeoutException(Throwable failure, URI url, OperationMetrics metrics,
+                                                                          GatewayCircuitBreaker.Permit permit) {
+        incrementFailureCounter(metrics, permit);
+        logger.error(format("Connection timed out error for gateway url=%s", url), failure);
+        return new GatewayConnectionTimeoutException("Gateway connection timeout error");
+    }
+
+    private GenericGatewayException toGenericGatewayException(Throwable failure, URI url, OperationMetrics metrics,
+                                                              GatewayCircuitBreaker.Permit permit) {
+        incrementFailureCounter(metrics, permit);
+        logger.error(format("Exception for gateway url=%s, error message: %s", url, failure.getMessage()), failure);
+        return new GenericGatewayException(failure.getMessage());
+    }
+
+    private void updateResponseTime(OperationMetrics metrics, GatewayAccountEntity account, Stopwatch responseTimeStopwatch) {
+        responseTimeStopwatch.stop();
+        metrics.getResponseTime().update(responseTimeStopwatch.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        readTimeouts.update(account.getType(), responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    private GenericGatewayException toCircuitBreakerRejection(URI url) {
+        logger.warn("Gateway request rejected by circuit breaker [name={}] [state={}] for gateway url={}",
+                circuitBreaker.getName(), circuitBreaker.getState(), url);
+        return new GenericGatewayException(format("Gateway circuit breaker %s is %s or at its concurrent request limit",
+                circuitBreaker.getName(), circuitBreaker.getState()));
+    }
+
+    private void incrementFailureCounter(OperationMetrics metrics, GatewayCircuitBreaker.Permit permit) {
+        metrics.getFailures().inc();
+        permit.onFailure();
     }
 
     public static class Response {
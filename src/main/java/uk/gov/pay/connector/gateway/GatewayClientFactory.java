@@ -8,22 +8,25 @@ import javax.ws.rs.client.Client;
 public class GatewayClientFactory {
 
     private final ClientFactory clientFactory;
+    private final GatewayCircuitBreakers gatewayCircuitBreakers;
 
     @Inject
-    public GatewayClientFactory(ClientFactory clientFactory) {
+    public GatewayClientFactory(ClientFactory clientFactory, GatewayCircuitBreakers gatewayCircuitBreakers) {
         this.clientFactory = clientFactory;
+        this.gatewayCircuitBreakers = gatewayCircuitBreakers;
     }
 
     public GatewayClient createGatewayClient(PaymentGatewayName gateway,
                                              GatewayOperation operation,
                                              MetricRegistry metricRegistry) {
         Client client = clientFactory.createWithDropwizardClient(gateway, operation, metricRegistry);
-        return new GatewayClient(client, metricRegistry);
+        return new GatewayClient(client, metricRegistry, gatewayCircuitBreakers.forOperation(gateway, operation.getConfigKey()),
+                clientFactory.createAdaptiveReadTimeouts(gateway, operation, metricRegistry));
     }
 
     public GatewayClient createGatewayClient(PaymentGatewayName gateway,
                                              MetricRegistry metricRegistry) {
         Client client = clientFactory.createWithDropwizardClient(gateway, metricRegistry);
-        return new GatewayClient(client, metricRegistry);
+        return new GatewayClient(client, metricRegistry, gatewayCircuitBreakers.forOperation(gateway, "all"));
     }
 }
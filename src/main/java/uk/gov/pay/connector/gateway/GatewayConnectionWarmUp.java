@@ -0,0 +1,154 @@
+package uk.gov.pay.connector.gateway;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.GatewayConnectionWarmUpConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens connections from every gateway client before the connector starts taking requests, so the first payments
+ * after a deploy don't pay for TCP and TLS handshakes through the proxy. Each client sends concurrent HEAD requests
+ * to each of its gateway's hosts, so the connections they open stay in the client's pool for the next requests.
+ */
+@Singleton
+public class GatewayConnectionWarmUp implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayConnectionWarmUp.class);
+
+    private final ConnectorConfiguration conf;
+    private final int connectionsPerRoute;
+    private final int timeoutInSeconds;
+    private final List<PooledGatewayClient> clients = new CopyOnWriteArrayList<>();
+    private final ExecutorService warmUpExecutorService;
+
+    @Inject
+    public GatewayConnectionWarmUp(ConnectorConfiguration conf, Environment environment) {
+        this.conf = conf;
+
+        GatewayConnectionWarmUpConfig gatewayConnectionWarmUpConfig = conf.getGatewayConnectionWarmUpConfig();
+        this.connectionsPerRoute = gatewayConnectionWarmUpConfig.getConnectionsPerRoute();
+        this.timeoutInSeconds = gatewayConnectionWarmUpConfig.getTimeoutInSeconds();
+        this.warmUpExecutorService = gatewayConnectionWarmUpConfig.isEnabled()
+                ? environment.lifecycle()
+                        .executorService("gateway-connection-warm-up-%d")
+                        .minThreads(gatewayConnectionWarmUpConfig.getNumberOfThreads())
+                        .maxThreads(gatewayConnectionWarmUpConfig.getNumberOfThreads())
+                        .build()
+                : null;
+    }
+
+    public void register(PaymentGatewayName gateway, String operation, Client client,
+                         PoolingHttpClientConnectionManager connectionManager) {
+        if (warmUpExecutorService != null) {
+            clients.add(new PooledGatewayClient(gateway, operation, client, connectionManager));
+        }
+    }
+
+    @Override
+    public void start() {
+        if (warmUpExecutorService == null) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Future<?>> warmUpRequests = new ArrayList<>();
+        for (PooledGatewayClient pooledClient : clients) {
+            // more requests than the pool allows per route would only queue for the same connections
+            int connections = Math.min(connectionsPerRoute, pooledClient.connectionManager.getDefaultMaxPerRoute());
+            for (String url : routesFor(pooledClient.gateway)) {
+                for (int i = 0; i < connections; i++) {
+                    warmUpRequests.add(warmUpExecutorService.submit(() -> warmUp(pooledClient, url)));
+                }
+            }
+        }
+
+        awaitWarmUp(warmUpRequests, startTime + TimeUnit.SECONDS.toMillis(timeoutInSeconds));
+
+        clients.forEach(pooledClient -> LOGGER.info("Warmed up {} {} gateway client [availableConnections={}]",
+                pooledClient.gateway.getName(), pooledClient.operation,
+                pooledClient.connectionManager.getTotalStats().getAvailable()));
+        LOGGER.info("Gateway connection warm-up took {} milliseconds", System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    private void warmUp(PooledGatewayClient pooledClient, String url) {
+        try {
+            Response response = pooledClient.client.target(url).request().head();
+            response.close();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to warm up connection for {} {} gateway client to {} [message={}]",
+                    pooledClient.gateway.getName(), pooledClient.operation, url, e.getMessage());
+        }
+    }
+
+    private void awaitWarmUp(List<Future<?>> warmUpRequests, long deadline) {
+        for (Future<?> warmUpRequest : warmUpRequests) {
+            try {
+                warmUpRequest.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                warmUpRequest.cancel(true);
+            } catch (ExecutionException e) {
+                LOGGER.warn("Gateway connection warm-up request failed [message={}]", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                warmUpRequests.forEach(request -> request.cancel(true));
+                return;
+            }
+        }
+    }
+
+    private Collection<String> routesFor(PaymentGatewayName gateway) {
+        Collection<String> urls = gateway == PaymentGatewayName.STRIPE
+                ? List.of(conf.getStripeConfig().getUrl())
+                : conf.getGatewayConfigFor(gateway).getUrls().values();
+
+        // test and live accounts can share a host, which needs warming up only once
+        Map<String, String> urlsByOrigin = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url == null || url.isBlank()) {
+                continue;
+            }
+            URI uri = URI.create(url);
+            urlsByOrigin.putIfAbsent(uri.getScheme() + "://" + uri.getAuthority(), url);
+        }
+        return urlsByOrigin.values();
+    }
+
+    private static class PooledGatewayClient {
+        private final PaymentGatewayName gateway;
+        private final String operation;
+        private final Client client;
+        private final PoolingHttpClientConnectionManager connectionManager;
+
+        private PooledGatewayClient(PaymentGatewayName gateway, String operation, Client client,
+                                    PoolingHttpClientConnectionManager connectionManager) {
+            this.gateway = gateway;
+            this.operation = operation;
+            this.client = client;
+            this.connectionManager = connectionManager;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.gateway.model.OrderRequestType;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Looks up the {@code gateway-operations.*} metrics in the {@link MetricRegistry} once per gateway, account type,
+ * operation and outcome, and holds on to them, so recording a measurement does not format a metric name and search
+ * the registry each time. The names are unchanged, so existing dashboards keep working.
+ */
+public class GatewayOperationMetrics {
+
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentHashMap<MetricKey, OperationMetrics> operationMetrics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<MetricKey, Counter> resultCounters = new ConcurrentHashMap<>();
+
+    public GatewayOperationMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public OperationMetrics forOperation(String gatewayName, String accountType, OrderRequestType orderRequestType) {
+        return operationMetrics.computeIfAbsent(new MetricKey(gatewayName, accountType, null, orderRequestType, null), key -> {
+            String metricsPrefix = format("gateway-operations.%s.%s.%s", gatewayName, accountType, orderRequestType);
+            return new OperationMetrics(
+                    metricRegistry.timer(metricsPrefix + ".response_time"),
+                    metricRegistry.counter(metricsPrefix + ".failures"));
+        });
+    }
+
+    public Counter authorisationResult(String gatewayName,
+                                       String accountType,
+                                       Long gatewayAccountId,
+                                       boolean billingAddressSubmitted,
+                                       ChargeStatus status) {
+        return resultCounters.computeIfAbsent(
+                new MetricKey(gatewayName, accountType, gatewayAccountId,
+                        billingAddressSubmitted ? "authorise.with-billing-address" : "authorise.without-billing-address", status),
+                key -> metricRegistry.counter(format("gateway-operations.%s.%s.%s.%s.result.%s",
+                        gatewayName, accountType, gatewayAccountId, key.operation, status.toString())));
+    }
+
+    public Counter captureResult(String gatewayName, String accountType, Long gatewayAccountId, ChargeStatus status) {
+        return resultCounters.computeIfAbsent(new MetricKey(gatewayName, accountType, gatewayAccountId, "capture", status),
+                key -> metricRegistry.counter(format("gateway-operations.%s.%s.%s.capture.result.%s",
+                        gatewayName, accountType, gatewayAccountId, status.toString())));
+    }
+
+    public static class OperationMetrics {
+        private final Timer responseTime;
+        private final Counter failures;
+
+        private OperationMetrics(Timer responseTime, Counter failures) {
+            this.responseTime = responseTime;
+            this.failures = failures;
+        }
+
+        public Timer getResponseTime() {
+            return responseTime;
+        }
+
+        public Counter getFailures() {
+            return failures;
+        }
+    }
+
+    private static final class MetricKey {
+        private final String gatewayName;
+        private final String accountType;
+        private final Long gatewayAccountId;
+        private final Object operation;
+        private final Object outcome;
+
+        private MetricKey(String gatewayName, String accountType, Long gatewayAccountId, Object operation, Object outcome) {
+            this.gatewayName = gatewayName;
+            this.accountType = accountType;
+            this.gatewayAccountId = gatewayAccountId;
+            this.operation = operation;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MetricKey that = (MetricKey) o;
+            return Objects.equals(gatewayName, that.gatewayName) &&
+                    Objects.equals(accountType, that.accountType) &&
+                    Objects.equals(gatewayAccountId, that.gatewayAccountId) &&
+                    Objects.equals(operation, that.operation) &&
+                    Objects.equals(outcome, that.outcome);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(gatewayName);
+            result = 31 * result + Objects.hashCode(accountType);
+            result = 31 * result + Objects.hashCode(gatewayAccountId);
+            result = 31 * result + Objects.hashCode(operation);
+            result = 31 * result + Objects.hashCode(outcome);
+            return result;
+        }
+    }
+}
@@ -6,4 +6,6 @@ public interface NotificationConfiguration {
     Boolean isNotificationEndpointSecured();
 
     String getNotificationDomain();
+
+    String getNotificationAllowedCidrs();
 }
@@ -18,6 +18,7 @@ import uk.gov.pay.connector.wallets.WalletAuthorisationGatewayRequest;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentProvider {
 
@@ -27,6 +28,18 @@ public interface PaymentProvider {
 
     GatewayResponse authorise(CardAuthorisationGatewayRequest request) throws GatewayException;
 
+    /**
+     * Providers whose gateway client can send requests without holding the calling thread override this. The
+     * default runs the blocking {@link #authorise(CardAuthorisationGatewayRequest)} on the calling thread.
+     */
+    default CompletableFuture<GatewayResponse<BaseAuthoriseResponse>> authoriseAsync(CardAuthorisationGatewayRequest request) {
+        try {
+            return CompletableFuture.completedFuture(authorise(request));
+        } catch (GatewayException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     ChargeQueryResponse queryPaymentStatus(ChargeEntity charge) throws GatewayException;
 
     Gateway3DSAuthorisationResponse authorise3dsResponse(Auth3dsResponseGatewayRequest request);
@@ -51,24 +51,61 @@ public class EpdqNotificationService {
         this.refundNotificationProcessor = refundNotificationProcessor;
     }
 
+    /**
+     * Whether the notification is for a known charge and signed with that charge's SHA-OUT passphrase, so it
+     * can be accepted into the notification inbox without trusting an unauthenticated sender
+     */
+    @Transactional
+    public boolean isVerified(String payload) {
+        return parse(payload).flatMap(this::findVerifiedCharge).isPresent();
+    }
+
     @Transactional
     public void handleNotificationFor(String payload) {
+        Optional<EpdqNotification> maybeNotification = parse(payload);
+        if (maybeNotification.isEmpty()) {
+            return;
+        }
+
+        EpdqNotification notification = maybeNotification.get();
+        Optional<ChargeEntity> maybeCharge = findVerifiedCharge(notification);
+        if (maybeCharge.isEmpty()) {
+            return;
+        }
+
+        ChargeEntity charge = maybeCharge.get();
+        logger.info("Evaluating {} notification {}", PAYMENT_GATEWAY_NAME, notification);
+
+        final Optional<ChargeStatus> newChargeStatus = newChargeStateForChargeNotification(notification.getStatus(), ChargeStatus.fromString(charge.getStatus()));
+
+        if (newChargeStatus.isPresent()) {
+            chargeNotificationProcessor.invoke(notification.getTransactionId(), charge, newChargeStatus.get(), null);
+        } else {
+            final Optional<RefundStatus> newRefundStatus = newRefundStateForRefundNotification(notification.getStatus());
+            newRefundStatus.ifPresent(refundStatus -> refundNotificationProcessor.invoke(
+                    PaymentGatewayName.EPDQ, refundStatus, notification.getReference(), notification.getTransactionId()));
+        }
+    }
+
+    private Optional<EpdqNotification> parse(String payload) {
         logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
 
-        EpdqNotification notification;
         try {
-            notification = new EpdqNotification(payload);
+            EpdqNotification notification = new EpdqNotification(payload);
             logger.info("Parsed {} notification: {}", PAYMENT_GATEWAY_NAME, notification);
+            return Optional.of(notification);
         } catch (EpdqParseException e) {
             logger.error("{} notification parsing failed: {}", PAYMENT_GATEWAY_NAME, e);
-            return;
+            return Optional.empty();
         }
+    }
 
+    private Optional<ChargeEntity> findVerifiedCharge(EpdqNotification notification) {
         logger.info("Verifying {} notification {}", PAYMENT_GATEWAY_NAME, notification);
-        
+
         if (isBlank(notification.getTransactionId())) {
             logger.error("{} notification {} failed verification because it has no transaction ID", PAYMENT_GATEWAY_NAME, notification);
-            return;
+            return Optional.empty();
         }
 
         Optional<ChargeEntity> maybeCharge = chargeDao.findByProviderAndTransactionId(PAYMENT_GATEWAY_NAME, notification.getTransactionId());
@@ -76,25 +113,10 @@ public class EpdqNotificationService {
         if (maybeCharge.isEmpty()) {
             logger.error("{} notification {} could not be verified (associated charge entity not found)",
                     PAYMENT_GATEWAY_NAME, notification);
-            return;
-        }
-
-        ChargeEntity charge = maybeCharge.get();
-        if (!isValidNotificationSignature(notification, charge)) {
-            return;
+            return Optional.empty();
         }
 
-        logger.info("Evaluating {} notification {}", PAYMENT_GATEWAY_NAME, notification);
-
-        final Optional<ChargeStatus> newChargeStatus = newChargeStateForChargeNotification(notification.getStatus(), ChargeStatus.fromString(charge.getStatus()));
-
-        if (newChargeStatus.isPresent()) {
-            chargeNotificationProcessor.invoke(notification.getTransactionId(), charge, newChargeStatus.get(), null);
-        } else {
-            final Optional<RefundStatus> newRefundStatus = newRefundStateForRefundNotification(notification.getStatus());
-            newRefundStatus.ifPresent(refundStatus -> refundNotificationProcessor.invoke(
-                    PaymentGatewayName.EPDQ, refundStatus, notification.getReference(), notification.getTransactionId()));
-        }
+        return maybeCharge.filter(charge -> isValidNotificationSignature(notification, charge));
     }
 
     private boolean isValidNotificationSignature(EpdqNotification notification, ChargeEntity charge) {
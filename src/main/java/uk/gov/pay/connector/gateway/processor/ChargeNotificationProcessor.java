@@ -1,5 +1,6 @@
 package uk.gov.pay.connector.gateway.processor;
 
+import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
@@ -21,6 +22,7 @@ public class ChargeNotificationProcessor {
         this.chargeService = chargeService;
     }
 
+    @Transactional
     public void invoke(String transactionId, ChargeEntity chargeEntity, ChargeStatus newStatus, ZonedDateTime gatewayEventDate) {
         GatewayAccountEntity gatewayAccount = chargeEntity.getGatewayAccount();
         String oldStatus = chargeEntity.getStatus();
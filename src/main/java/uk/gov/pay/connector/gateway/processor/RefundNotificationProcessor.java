@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.gateway.processor;
 
 import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
@@ -27,6 +28,7 @@ public class RefundNotificationProcessor {
         this.userNotificationService = userNotificationService;
     }
 
+    @Transactional
     public void invoke(PaymentGatewayName gatewayName, RefundStatus newStatus, String reference, String transactionId) {
         if (isBlank(reference)) {
             logger.warn("{} refund notification could not be used to update charge (missing reference)",
@@ -41,7 +43,15 @@ public class RefundNotificationProcessor {
             return;
         }
 
-        RefundEntity refundEntity = optionalRefundEntity.get();
+        updateRefund(gatewayName, newStatus, optionalRefundEntity.get(), transactionId);
+    }
+
+    /**
+     * Updates a refund that has already been looked up by its gateway reference
+     */
+    @Transactional
+    public void updateRefund(PaymentGatewayName gatewayName, RefundStatus newStatus, RefundEntity refundEntity, String transactionId) {
+        String reference = refundEntity.getReference();
         RefundStatus oldStatus = refundEntity.getStatus();
 
         refundService.transitionRefundState(refundEntity, newStatus);
@@ -1,7 +1,6 @@
 package uk.gov.pay.connector.gateway.smartpay;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.inject.persist.Transactional;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,70 +12,201 @@ import uk.gov.pay.connector.gateway.model.status.MappedChargeStatus;
 import uk.gov.pay.connector.gateway.model.status.MappedRefundStatus;
 import uk.gov.pay.connector.gateway.processor.ChargeNotificationProcessor;
 import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
+import uk.gov.pay.connector.refund.dao.RefundDao;
+import uk.gov.pay.connector.refund.model.domain.RefundEntity;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeKey;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeService;
 
 import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
 
+/**
+ * Smartpay sends notifications in batches. The charges and refunds for a batch are looked up with one query each, and
+ * each notification is then applied in its own transaction, so a notification that fails doesn't roll back the rest.
+ * Notifications that have already been applied are skipped before anything is looked up, as Smartpay sends a batch
+ * again when any notification in it fails.
+ */
 public class SmartpayNotificationService {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final ChargeDao chargeDao;
+    private final RefundDao refundDao;
     private final ChargeNotificationProcessor chargeNotificationProcessor;
     private final RefundNotificationProcessor refundNotificationProcessor;
+    private final NotificationDedupeService notificationDedupeService;
 
     private static final String PAYMENT_GATEWAY_NAME = SMARTPAY.getName();
 
     @Inject
     public SmartpayNotificationService(ChargeDao chargeDao,
+                                       RefundDao refundDao,
                                        ChargeNotificationProcessor chargeNotificationProcessor,
-                                       RefundNotificationProcessor refundNotificationProcessor) {
+                                       RefundNotificationProcessor refundNotificationProcessor,
+                                       NotificationDedupeService notificationDedupeService) {
         this.chargeDao = chargeDao;
+        this.refundDao = refundDao;
         this.chargeNotificationProcessor = chargeNotificationProcessor;
         this.refundNotificationProcessor = refundNotificationProcessor;
+        this.notificationDedupeService = notificationDedupeService;
     }
 
-    @Transactional
     public boolean handleNotificationFor(String payload) {
-        List<SmartpayNotification> notifications = parse(payload);
+        List<SmartpayNotification> verified = parse(payload).stream()
+                .filter(this::isVerified)
+                .collect(toList());
+        Set<NotificationDedupeKey> replays = notificationDedupeService.findReplays(verified.stream()
+                .map(this::dedupeKeyFor)
+                .collect(toList()));
+        List<SmartpayNotification> notifications = verified.stream()
+                .filter(notification -> !isReplay(notification, replays))
+                .collect(toList());
+
+        Map<String, ChargeEntity> chargesByTransactionId = findCharges(notifications);
+        Map<String, RefundEntity> refundsByReference = findRefunds(notifications);
+
+        RuntimeException failure = null;
         for (SmartpayNotification notification : notifications) {
-            handle(notification);
+            try {
+                boolean applied;
+                if (failure == null) {
+                    applied = handle(notification, chargesByTransactionId, refundsByReference);
+                } else {
+                    // the failed transaction may have detached the entities looked up for the batch
+                    applied = handle(notification);
+                }
+                if (applied) {
+                    notificationDedupeService.record(dedupeKeyFor(notification));
+                }
+            } catch (RuntimeException e) {
+                logger.error("{} notification {} could not be processed: {}", PAYMENT_GATEWAY_NAME, notification, e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        // fail the batch so that Smartpay sends it again; notifications that have been applied will be ignored
+        if (failure != null) {
+            throw failure;
         }
         return true;
     }
 
-    private void handle(SmartpayNotification notification) {
+    private boolean isVerified(SmartpayNotification notification) {
         if (shouldIgnore(notification)) {
             logger.info("{} notification {} ignored", PAYMENT_GATEWAY_NAME, notification);
-            return;
+            return false;
         }
 
         logger.info("Verifying {} notification {}", PAYMENT_GATEWAY_NAME, notification);
 
         if (isBlank(notification.getTransactionId())) {
             logger.error("{} notification {} failed verification because it has no transaction ID", PAYMENT_GATEWAY_NAME, notification);
-            return;
+            return false;
         }
+        return true;
+    }
+
+    private boolean isReplay(SmartpayNotification notification, Set<NotificationDedupeKey> replays) {
+        if (replays.contains(dedupeKeyFor(notification))) {
+            logger.info("{} notification {} ignored because it has already been applied", PAYMENT_GATEWAY_NAME, notification);
+            return true;
+        }
+        return false;
+    }
+
+    private NotificationDedupeKey dedupeKeyFor(SmartpayNotification notification) {
+        return NotificationDedupeKey.of(SMARTPAY, notification.getOriginalReference(), notification.getPspReference(),
+                notification.getEventCode() + ":" + notification.isSuccessFul(), notification.getEventDate());
+    }
 
+    private Map<String, ChargeEntity> findCharges(List<SmartpayNotification> notifications) {
+        Set<String> transactionIds = notifications.stream()
+                .map(SmartpayNotification::getOriginalReference)
+                .filter(originalReference -> !isBlank(originalReference))
+                .collect(toSet());
+
+        return chargeDao.findByProviderAndTransactionIds(PAYMENT_GATEWAY_NAME, transactionIds).stream()
+                .collect(toMap(ChargeEntity::getGatewayTransactionId, identity(), (first, second) -> first));
+    }
+
+    private Map<String, RefundEntity> findRefunds(List<SmartpayNotification> notifications) {
+        Set<String> references = notifications.stream()
+                .filter(notification -> interpretedStatusFrom(notification.getStatus()) instanceof MappedRefundStatus)
+                .map(SmartpayNotification::getPspReference)
+                .collect(toSet());
+
+        return refundDao.findByProviderAndReferences(PAYMENT_GATEWAY_NAME, references).stream()
+                .collect(toMap(RefundEntity::getReference, identity(), (first, second) -> first));
+    }
+
+    private boolean handle(SmartpayNotification notification, Map<String, ChargeEntity> chargesByTransactionId,
+                           Map<String, RefundEntity> refundsByReference) {
+        logger.info("Evaluating {} notification {}", PAYMENT_GATEWAY_NAME, notification);
+
+        ChargeEntity charge = chargesByTransactionId.get(notification.getOriginalReference());
+        if (charge == null) {
+            logChargeNotFound(notification);
+            return false;
+        }
+
+        InterpretedStatus interpretedStatus = interpretStatus(notification, charge);
+
+        if (interpretedStatus instanceof MappedRefundStatus) {
+            RefundEntity refund = refundsByReference.get(notification.getPspReference());
+            if (refund == null) {
+                logger.warn("{} notification '{}' could not be used to update refund (associated refund entity not found)",
+                        PAYMENT_GATEWAY_NAME, notification.getPspReference());
+                return false;
+            }
+            refundNotificationProcessor.updateRefund(SMARTPAY, interpretedStatus.getRefundStatus(), refund,
+                    notification.getOriginalReference());
+            return true;
+        }
+        return apply(notification, charge, interpretedStatus);
+    }
+
+    private boolean handle(SmartpayNotification notification) {
         logger.info("Evaluating {} notification {}", PAYMENT_GATEWAY_NAME, notification);
 
         Optional<ChargeEntity> maybeCharge = chargeDao.findByProviderAndTransactionId(PAYMENT_GATEWAY_NAME,
                 notification.getOriginalReference());
 
         if (maybeCharge.isEmpty()) {
-            logger.warn("{} notification {} could not be evaluated (associated charge entity not found)",
-                    PAYMENT_GATEWAY_NAME, notification);
-            return;
+            logChargeNotFound(notification);
+            return false;
         }
 
         ChargeEntity charge = maybeCharge.get();
         InterpretedStatus interpretedStatus = interpretStatus(notification, charge);
 
+        if (interpretedStatus instanceof MappedRefundStatus) {
+            refundNotificationProcessor.invoke(
+                    SMARTPAY,
+                    interpretedStatus.getRefundStatus(),
+                    notification.getPspReference(),
+                    notification.getOriginalReference()
+            );
+            return true;
+        }
+        return apply(notification, charge, interpretedStatus);
+    }
+
+    private boolean apply(SmartpayNotification notification, ChargeEntity charge, InterpretedStatus interpretedStatus) {
         if (interpretedStatus instanceof MappedChargeStatus) {
             chargeNotificationProcessor.invoke(
                     notification.getOriginalReference(),
@@ -84,16 +214,15 @@ public class SmartpayNotificationService {
                     interpretedStatus.getChargeStatus(),
                     notification.getEventDate()
             );
-        } else if (interpretedStatus instanceof MappedRefundStatus) {
-            refundNotificationProcessor.invoke(
-                    SMARTPAY,
-                    interpretedStatus.getRefundStatus(),
-                    notification.getPspReference(),
-                    notification.getOriginalReference()
-            );
-        } else {
-            logger.error("{} notification {} unknown", PAYMENT_GATEWAY_NAME, notification);
+            return true;
         }
+        logger.error("{} notification {} unknown", PAYMENT_GATEWAY_NAME, notification);
+        return false;
+    }
+
+    private void logChargeNotFound(SmartpayNotification notification) {
+        logger.warn("{} notification {} could not be evaluated (associated charge entity not found)",
+                PAYMENT_GATEWAY_NAME, notification);
     }
 
     private InterpretedStatus interpretStatus(SmartpayNotification notification, ChargeEntity charge) {
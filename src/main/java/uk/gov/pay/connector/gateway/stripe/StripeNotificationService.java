@@ -10,6 +10,7 @@ import uk.gov.pay.connector.app.StripeGatewayConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.charge.service.ChargeStatusNotifier;
 import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.gateway.model.Auth3dsDetails;
@@ -56,6 +57,7 @@ public class StripeNotificationService {
     private final ObjectMapper objectMapper;
     private final StripeGatewayConfig stripeGatewayConfig;
     private final StripeAccountUpdatedHandler stripeAccountUpdatedHandler;
+    private final ChargeStatusNotifier chargeStatusNotifier;
 
     private static final String PAYMENT_GATEWAY_NAME = PaymentGatewayName.STRIPE.getName();
     private static final long DEFAULT_TOLERANCE = 300L;
@@ -64,20 +66,29 @@ public class StripeNotificationService {
     public StripeNotificationService(Card3dsResponseAuthService card3dsResponseAuthService,
                                      ChargeService chargeService,
                                      StripeGatewayConfig stripeGatewayConfig, 
-                                     StripeAccountUpdatedHandler stripeAccountUpdatedHandler) {
+                                     StripeAccountUpdatedHandler stripeAccountUpdatedHandler,
+                                     ChargeStatusNotifier chargeStatusNotifier) {
         this.card3dsResponseAuthService = card3dsResponseAuthService;
         this.chargeService = chargeService;
         this.stripeAccountUpdatedHandler = stripeAccountUpdatedHandler;
+        this.chargeStatusNotifier = chargeStatusNotifier;
         objectMapper = new ObjectMapper();
         this.stripeGatewayConfig = stripeGatewayConfig;
     }
 
     public void handleNotificationFor(String payload, String signatureHeader) {
-        logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
+        verifyNotificationSignature(payload, signatureHeader);
+        processNotification(payload);
+    }
 
+    public void verifyNotificationSignature(String payload, String signatureHeader) {
         if (!isValidNotificationSignature(payload, signatureHeader)) {
             throw new WebApplicationException(String.format("Invalid notification signature from %s [%s]", PAYMENT_GATEWAY_NAME, signatureHeader));
         }
+    }
+
+    public void processNotification(String payload) {
+        logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
 
         StripeNotification notification;
         try {
@@ -197,20 +208,11 @@ public class StripeNotificationService {
     }
 
     private void delayFor3dsReady(ChargeEntity charge) {
-        int totalTimeDelayedInMillis = 0;
-        int delayInMillis = 200;
-        while (totalTimeDelayedInMillis < stripeGatewayConfig.getNotification3dsWaitDelay()) {
-            ChargeEntity chargeEntity = chargeService.findChargeById(charge.getExternalId());
-            if (ChargeStatus.fromString(chargeEntity.getStatus()) == AUTHORISATION_3DS_READY) {
-                break;
-            }
-            try {
-                Thread.sleep(delayInMillis);
-            } catch (InterruptedException e) {
-                logger.error("Waiting for 3ds ready locking state failed, {}", kv("error", e.getMessage()));
-            }
-            totalTimeDelayedInMillis += delayInMillis;
-        }
+        long startTime = System.currentTimeMillis();
+        chargeStatusNotifier.awaitStatus(charge.getExternalId(), AUTHORISATION_3DS_READY,
+                stripeGatewayConfig.getNotification3dsWaitDelay(),
+                () -> ChargeStatus.fromString(chargeService.findChargeById(charge.getExternalId()).getStatus()) == AUTHORISATION_3DS_READY);
+        long totalTimeDelayedInMillis = System.currentTimeMillis() - startTime;
         logger.info("Total time waited for Frontend to update charge [{}] to 3ds ready - {} milliseconds,"
                 , kv(PAYMENT_EXTERNAL_ID, charge.getExternalId()), totalTimeDelayedInMillis);
     }
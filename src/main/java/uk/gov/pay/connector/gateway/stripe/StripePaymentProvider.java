@@ -12,6 +12,7 @@ import uk.gov.pay.connector.gateway.CaptureResponse;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
 import uk.gov.pay.connector.gateway.GatewayClient;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
+import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.GatewayException.GatewayConnectionTimeoutException;
 import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
 import uk.gov.pay.connector.gateway.GatewayException.GenericGatewayException;
@@ -34,8 +35,11 @@ import uk.gov.pay.connector.gateway.stripe.handler.StripeRefundHandler;
 import uk.gov.pay.connector.gateway.stripe.json.StripeCharge;
 import uk.gov.pay.connector.gateway.stripe.json.StripeErrorResponse;
 import uk.gov.pay.connector.gateway.stripe.request.StripeAuthoriseRequest;
+import uk.gov.pay.connector.gateway.stripe.transfer.StripeTransferOutboxEntity;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
 import uk.gov.pay.connector.gateway.util.DefaultExternalRefundAvailabilityCalculator;
 import uk.gov.pay.connector.gateway.util.ExternalRefundAvailabilityCalculator;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.util.JsonObjectMapper;
 import uk.gov.pay.connector.wallets.WalletAuthorisationGatewayRequest;
@@ -68,12 +72,14 @@ public class StripePaymentProvider implements PaymentProvider {
     public StripePaymentProvider(GatewayClientFactory gatewayClientFactory,
                                  ConnectorConfiguration configuration,
                                  JsonObjectMapper jsonObjectMapper,
-                                 Environment environment) {
+                                 Environment environment,
+                                 StripeTransferOutboxDao stripeTransferOutboxDao) {
         this.stripeGatewayConfig = configuration.getStripeConfig();
         this.client = gatewayClientFactory.createGatewayClient(STRIPE, environment.metrics());
         this.jsonObjectMapper = jsonObjectMapper;
         this.externalRefundAvailabilityCalculator = new DefaultExternalRefundAvailabilityCalculator();
-        stripeCaptureHandler = new StripeCaptureHandler(client, stripeGatewayConfig, jsonObjectMapper);
+        stripeCaptureHandler = new StripeCaptureHandler(client, stripeGatewayConfig, jsonObjectMapper,
+                configuration.getStripeTransferOutboxConfig().isEnabled() ? stripeTransferOutboxDao : null);
         stripeCancelHandler = new StripeCancelHandler(client, stripeGatewayConfig);
         stripeRefundHandler = new StripeRefundHandler(client, stripeGatewayConfig, jsonObjectMapper);
         stripeAuthoriseHandler = new StripeAuthoriseHandler(client, stripeGatewayConfig, configuration, jsonObjectMapper);
@@ -172,6 +178,10 @@ public class StripePaymentProvider implements PaymentProvider {
         return stripeCaptureHandler.capture(request);
     }
 
+    public void transferToConnectAccount(StripeTransferOutboxEntity transfer, GatewayAccountEntity gatewayAccount) throws GatewayException {
+        stripeCaptureHandler.transferToConnectAccount(transfer, gatewayAccount);
+    }
+
     @Override
     public GatewayRefundResponse refund(RefundGatewayRequest request) {
         return stripeRefundHandler.refund(request);
@@ -18,6 +18,9 @@ import uk.gov.pay.connector.gateway.stripe.request.StripeChargeCaptureRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripePaymentIntentCaptureRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripeTransferOutRequest;
 import uk.gov.pay.connector.gateway.stripe.response.StripeCaptureResponse;
+import uk.gov.pay.connector.gateway.stripe.transfer.StripeTransferOutboxEntity;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.util.JsonObjectMapper;
 
 import java.util.List;
@@ -36,13 +39,26 @@ public class StripeCaptureHandler implements CaptureHandler {
     private final GatewayClient client;
     private final StripeGatewayConfig stripeGatewayConfig;
     private final JsonObjectMapper jsonObjectMapper;
+    private final StripeTransferOutboxDao stripeTransferOutboxDao;
 
     public StripeCaptureHandler(GatewayClient client,
                                 StripeGatewayConfig stripeGatewayConfig,
                                 JsonObjectMapper jsonObjectMapper) {
+        this(client, stripeGatewayConfig, jsonObjectMapper, null);
+    }
+
+    /**
+     * @param stripeTransferOutboxDao where transfers to Stripe Connect accounts are recorded to be made after the
+     *                                capture, or null to make them as part of the capture
+     */
+    public StripeCaptureHandler(GatewayClient client,
+                                StripeGatewayConfig stripeGatewayConfig,
+                                JsonObjectMapper jsonObjectMapper,
+                                StripeTransferOutboxDao stripeTransferOutboxDao) {
         this.client = client;
         this.stripeGatewayConfig = stripeGatewayConfig;
         this.jsonObjectMapper = jsonObjectMapper;
+        this.stripeTransferOutboxDao = stripeTransferOutboxDao;
     }
 
     @Override
@@ -64,7 +80,11 @@ public class StripeCaptureHandler implements CaptureHandler {
                     .map(fee -> request.getAmount() - fee)
                     .orElse(request.getAmount());
             
-            transferToConnectAccount(request, netTransferAmount, capturedCharge.getId());
+            if (stripeTransferOutboxDao != null) {
+                recordTransferToConnectAccount(request, netTransferAmount, capturedCharge.getId());
+            } else {
+                transferToConnectAccount(request, netTransferAmount, capturedCharge.getId());
+            }
 
             return new CaptureResponse(transactionId, COMPLETE, processingFee.orElse(null));
         } catch (GatewayErrorException e) {
@@ -131,10 +151,33 @@ public class StripeCaptureHandler implements CaptureHandler {
     }
 
     private void transferToConnectAccount(CaptureGatewayRequest request, Long netTransferAmount, String stripeChargeId) throws GatewayException.GenericGatewayException, GatewayErrorException, GatewayException.GatewayConnectionTimeoutException {
-        String transferResponse = client.postRequestFor(StripeTransferOutRequest.of(netTransferAmount.toString(), stripeChargeId, request, stripeGatewayConfig)).getEntity();
+        postTransfer(StripeTransferOutRequest.of(netTransferAmount.toString(), stripeChargeId, request, stripeGatewayConfig),
+                request.getExternalId());
+    }
+
+    /**
+     * Makes a transfer recorded by an earlier capture. The transfer uses the same idempotency key as it would have
+     * during the capture, so retrying one that reached Stripe does not transfer the amount twice.
+     */
+    public void transferToConnectAccount(StripeTransferOutboxEntity transfer, GatewayAccountEntity gatewayAccount) throws GatewayException {
+        postTransfer(StripeTransferOutRequest.of(transfer.getAmount().toString(), transfer.getStripeChargeId(),
+                transfer.getChargeExternalId(), gatewayAccount, stripeGatewayConfig), transfer.getChargeExternalId());
+    }
+
+    private void recordTransferToConnectAccount(CaptureGatewayRequest request, Long netTransferAmount, String stripeChargeId) {
+        stripeTransferOutboxDao.insertIfAbsent(StripeTransferOutboxEntity.of(request.getExternalId(),
+                request.getGatewayAccount().getId(), stripeChargeId, netTransferAmount));
+        logger.info("In capturing charge id {}, recorded transfer of net amount {} to Stripe Connect account, to be made after capture",
+                request.getExternalId(),
+                netTransferAmount
+        );
+    }
+
+    private void postTransfer(StripeTransferOutRequest transferOutRequest, String chargeExternalId) throws GatewayException.GenericGatewayException, GatewayErrorException, GatewayException.GatewayConnectionTimeoutException {
+        String transferResponse = client.postRequestFor(transferOutRequest).getEntity();
         StripeTransferResponse stripeTransferResponse = jsonObjectMapper.getObject(transferResponse, StripeTransferResponse.class);
         logger.info("In capturing charge id {}, transferred net amount {} - transfer id {} -  to Stripe Connect account id {} in transfer group {}",
-                request.getExternalId(),
+                chargeExternalId,
                 stripeTransferResponse.getAmount(),
                 stripeTransferResponse.getId(),
                 stripeTransferResponse.getDestinationStripeAccountId(),
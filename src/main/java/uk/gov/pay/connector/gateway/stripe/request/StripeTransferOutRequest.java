@@ -20,11 +20,19 @@ public class StripeTransferOutRequest extends StripeTransferRequest {
     }
 
     public static StripeTransferOutRequest of(String amount, String stripeChargeId, CaptureGatewayRequest request, StripeGatewayConfig stripeGatewayConfig) {
+        return of(amount, stripeChargeId, request.getExternalId(), request.getGatewayAccount(), stripeGatewayConfig);
+    }
+
+    public static StripeTransferOutRequest of(String amount,
+                                              String stripeChargeId,
+                                              String chargeExternalId,
+                                              GatewayAccountEntity gatewayAccount,
+                                              StripeGatewayConfig stripeGatewayConfig) {
         return new StripeTransferOutRequest(
                 amount,
-                request.getGatewayAccount(),
+                gatewayAccount,
                 stripeChargeId,
-                request.getExternalId(),
+                chargeExternalId,
                 stripeGatewayConfig
         );
     }
@@ -0,0 +1,117 @@
+package uk.gov.pay.connector.gateway.stripe.transfer;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * A transfer of the net amount of a captured Stripe charge to the service's Stripe Connect account that has still
+ * to be made. There is at most one per charge.
+ */
+@Entity
+@Table(name = "stripe_transfer_outbox")
+@SequenceGenerator(name = "stripe_transfer_outbox_id_seq",
+        sequenceName = "stripe_transfer_outbox_id_seq", allocationSize = 1)
+public class StripeTransferOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stripe_transfer_outbox_id_seq")
+    private Long id;
+
+    @Column(name = "charge_external_id")
+    private String chargeExternalId;
+
+    @Column(name = "gateway_account_id")
+    private Long gatewayAccountId;
+
+    @Column(name = "stripe_charge_id")
+    private String stripeChargeId;
+
+    @Column(name = "amount")
+    private Long amount;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "abandoned")
+    private boolean abandoned;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    protected StripeTransferOutboxEntity() {
+    }
+
+    private StripeTransferOutboxEntity(String chargeExternalId, Long gatewayAccountId, String stripeChargeId,
+                                       Long amount, ZonedDateTime createdDate) {
+        this.chargeExternalId = chargeExternalId;
+        this.gatewayAccountId = gatewayAccountId;
+        this.stripeChargeId = stripeChargeId;
+        this.amount = amount;
+        this.attempts = 0;
+        this.abandoned = false;
+        this.createdDate = createdDate;
+        this.nextAttemptDate = createdDate;
+    }
+
+    public static StripeTransferOutboxEntity of(String chargeExternalId, Long gatewayAccountId, String stripeChargeId,
+                                                Long amount) {
+        return new StripeTransferOutboxEntity(chargeExternalId, gatewayAccountId, stripeChargeId, amount,
+                ZonedDateTime.now(UTC));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getChargeExternalId() {
+        return chargeExternalId;
+    }
+
+    public Long getGatewayAccountId() {
+        return gatewayAccountId;
+    }
+
+    public String getStripeChargeId() {
+        return stripeChargeId;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
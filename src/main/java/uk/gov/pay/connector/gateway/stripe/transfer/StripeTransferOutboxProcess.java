@@ -0,0 +1,132 @@
+package uk.gov.pay.connector.gateway.stripe.transfer;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.StripeTransferOutboxConfig;
+import uk.gov.pay.connector.gateway.GatewayException;
+import uk.gov.pay.connector.gateway.stripe.StripePaymentProvider;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+
+/**
+ * Makes the transfers to Stripe Connect accounts that captures have recorded in the outbox, retrying failed
+ * transfers with exponential backoff until the maximum number of attempts, after which they are abandoned.
+ */
+@Singleton
+public class StripeTransferOutboxProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripeTransferOutboxProcess.class);
+
+    private static final long EMPTY_OUTBOX_POLL_DELAY_IN_MILLISECONDS = 1000;
+    private static final long OUTBOX_SIZE_CACHE_DURATION_IN_SECONDS = 10;
+
+    private final StripeTransferOutboxDao stripeTransferOutboxDao;
+    private final GatewayAccountDao gatewayAccountDao;
+    private final StripePaymentProvider stripePaymentProvider;
+    private final int batchSize;
+    private final int leaseInSeconds;
+    private final int maximumAttempts;
+    private final long initialRetryDelayInSeconds;
+    private final long maximumRetryDelayInSeconds;
+
+    @Inject
+    public StripeTransferOutboxProcess(StripeTransferOutboxDao stripeTransferOutboxDao,
+                                       GatewayAccountDao gatewayAccountDao,
+                                       StripePaymentProvider stripePaymentProvider,
+                                       Environment environment,
+                                       ConnectorConfiguration connectorConfiguration) {
+        this.stripeTransferOutboxDao = stripeTransferOutboxDao;
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.stripePaymentProvider = stripePaymentProvider;
+
+        StripeTransferOutboxConfig stripeTransferOutboxConfig = connectorConfiguration.getStripeTransferOutboxConfig();
+        this.batchSize = stripeTransferOutboxConfig.getBatchSize();
+        this.leaseInSeconds = stripeTransferOutboxConfig.getLeaseInSeconds();
+        this.maximumAttempts = stripeTransferOutboxConfig.getMaximumAttempts();
+        this.initialRetryDelayInSeconds = stripeTransferOutboxConfig.getInitialRetryDelayInSeconds();
+        this.maximumRetryDelayInSeconds = stripeTransferOutboxConfig.getMaximumRetryDelayInSeconds();
+
+        if (stripeTransferOutboxConfig.isEnabled()) {
+            registerMetrics(environment.metrics());
+        }
+    }
+
+    public void handleTransfers() throws InterruptedException {
+        ZonedDateTime now = now(UTC);
+        List<StripeTransferOutboxEntity> claimed =
+                stripeTransferOutboxDao.claimReadyTransfers(batchSize, now, now.plusSeconds(leaseInSeconds));
+
+        if (claimed.isEmpty()) {
+            Thread.sleep(EMPTY_OUTBOX_POLL_DELAY_IN_MILLISECONDS);
+            return;
+        }
+
+        claimed.forEach(this::transfer);
+    }
+
+    private void transfer(StripeTransferOutboxEntity transfer) {
+        Optional<GatewayAccountEntity> gatewayAccount = gatewayAccountDao.findById(transfer.getGatewayAccountId());
+        if (gatewayAccount.isEmpty()) {
+            LOGGER.error("Abandoning Stripe transfer for charge {}, gateway account {} not found",
+                    transfer.getChargeExternalId(), transfer.getGatewayAccountId());
+            stripeTransferOutboxDao.abandon(transfer.getId(), transfer.getAttempts());
+            return;
+        }
+
+        int attempts = transfer.getAttempts() + 1;
+        try {
+            stripePaymentProvider.transferToConnectAccount(transfer, gatewayAccount.get());
+            stripeTransferOutboxDao.deleteById(transfer.getId());
+        } catch (GatewayException | RuntimeException e) {
+            if (attempts >= maximumAttempts) {
+                LOGGER.error("Abandoning Stripe transfer for charge {} after {} attempts [error={}]",
+                        transfer.getChargeExternalId(), attempts, e.getMessage());
+                stripeTransferOutboxDao.abandon(transfer.getId(), attempts);
+                return;
+            }
+
+            long retryDelayInSeconds = retryDelayInSeconds(attempts);
+            LOGGER.warn("Failed to make Stripe transfer for charge {}, retrying in {} seconds [attempts={}] [error={}]",
+                    transfer.getChargeExternalId(), retryDelayInSeconds, attempts, e.getMessage());
+            stripeTransferOutboxDao.scheduleRetry(transfer.getId(), attempts, now(UTC).plusSeconds(retryDelayInSeconds));
+        }
+    }
+
+    long retryDelayInSeconds(int attempts) {
+        long retryDelayInSeconds = initialRetryDelayInSeconds;
+        for (int attempt = 1; attempt < attempts && retryDelayInSeconds < maximumRetryDelayInSeconds; attempt++) {
+            retryDelayInSeconds *= 2;
+        }
+        return Math.min(retryDelayInSeconds, maximumRetryDelayInSeconds);
+    }
+
+    private void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register("stripe-transfer.outbox.size", cachedGauge(stripeTransferOutboxDao::countPending));
+        metricRegistry.register("stripe-transfer.outbox.abandoned", cachedGauge(stripeTransferOutboxDao::countAbandoned));
+    }
+
+    private Gauge<Long> cachedGauge(Supplier<Long> count) {
+        return new CachedGauge<>(OUTBOX_SIZE_CACHE_DURATION_IN_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return count.get();
+            }
+        };
+    }
+}
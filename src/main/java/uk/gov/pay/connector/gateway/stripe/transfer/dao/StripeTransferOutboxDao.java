@@ -0,0 +1,119 @@
+package uk.gov.pay.connector.gateway.stripe.transfer.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.gateway.stripe.transfer.StripeTransferOutboxEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Transactional
+public class StripeTransferOutboxDao extends JpaDao<StripeTransferOutboxEntity> {
+
+    @Inject
+    public StripeTransferOutboxDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * A charge that is captured again, because the first capture was not acknowledged, does not get a second
+     * transfer.
+     */
+    public void insertIfAbsent(StripeTransferOutboxEntity transfer) {
+        String query = "INSERT INTO stripe_transfer_outbox " +
+                "(charge_external_id, gateway_account_id, stripe_charge_id, amount, attempts, abandoned, next_attempt_date, created_date) " +
+                "VALUES (?1, ?2, ?3, ?4, ?5, false, ?6, ?7) " +
+                "ON CONFLICT (charge_external_id) DO NOTHING";
+
+        entityManager.get()
+                .createNativeQuery(query)
+                .setParameter(1, transfer.getChargeExternalId())
+                .setParameter(2, transfer.getGatewayAccountId())
+                .setParameter(3, transfer.getStripeChargeId())
+                .setParameter(4, transfer.getAmount())
+                .setParameter(5, transfer.getAttempts())
+                .setParameter(6, Timestamp.from(transfer.getNextAttemptDate().toInstant()))
+                .setParameter(7, Timestamp.from(transfer.getCreatedDate().toInstant()))
+                .executeUpdate();
+    }
+
+    /**
+     * Rows locked by a concurrent claim on another node are skipped rather than waited on. A claimed row
+     * becomes ready again once {@code leaseUntil} passes, so transfers survive the claiming node dying.
+     */
+    @SuppressWarnings("unchecked")
+    public List<StripeTransferOutboxEntity> claimReadyTransfers(int batchSize, ZonedDateTime now, ZonedDateTime leaseUntil) {
+        String query = "SELECT * FROM stripe_transfer_outbox " +
+                "WHERE next_attempt_date <= ?1 " +
+                "AND abandoned = false " +
+                "ORDER BY next_attempt_date " +
+                "LIMIT ?2 " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<StripeTransferOutboxEntity> claimed = entityManager.get()
+                .createNativeQuery(query, StripeTransferOutboxEntity.class)
+                .setParameter(1, Timestamp.from(now.toInstant()))
+                .setParameter(2, batchSize)
+                .getResultList();
+
+        if (!claimed.isEmpty()) {
+            entityManager.get()
+                    .createQuery("UPDATE StripeTransferOutboxEntity s" +
+                            " SET s.nextAttemptDate = :leaseUntil" +
+                            " WHERE s.id IN :ids")
+                    .setParameter("leaseUntil", leaseUntil)
+                    .setParameter("ids", claimed.stream().map(StripeTransferOutboxEntity::getId).collect(Collectors.toList()))
+                    .executeUpdate();
+        }
+
+        return claimed;
+    }
+
+    public void scheduleRetry(Long id, int attempts, ZonedDateTime nextAttemptDate) {
+        entityManager.get()
+                .createQuery("UPDATE StripeTransferOutboxEntity s" +
+                        " SET s.attempts = :attempts, s.nextAttemptDate = :nextAttemptDate" +
+                        " WHERE s.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("nextAttemptDate", nextAttemptDate)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Abandoned transfers are kept, so they can be found and made by hand, but are no longer claimed.
+     */
+    public void abandon(Long id, int attempts) {
+        entityManager.get()
+                .createQuery("UPDATE StripeTransferOutboxEntity s" +
+                        " SET s.attempts = :attempts, s.abandoned = true" +
+                        " WHERE s.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public void deleteById(Long id) {
+        entityManager.get()
+                .createQuery("DELETE FROM StripeTransferOutboxEntity s WHERE s.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public Long countPending() {
+        return entityManager.get()
+                .createQuery("SELECT COUNT(s) FROM StripeTransferOutboxEntity s WHERE s.abandoned = false", Long.class)
+                .getSingleResult();
+    }
+
+    public Long countAbandoned() {
+        return entityManager.get()
+                .createQuery("SELECT COUNT(s) FROM StripeTransferOutboxEntity s WHERE s.abandoned = true", Long.class)
+                .getSingleResult();
+    }
+}
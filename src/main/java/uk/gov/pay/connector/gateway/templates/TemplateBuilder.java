@@ -7,21 +7,27 @@ import freemarker.template.TemplateExceptionHandler;
 import uk.gov.pay.connector.gateway.OrderRequestBuilder.TemplateData;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Locale;
 
 import static freemarker.template.Configuration.VERSION_2_3_20;
 
 public class TemplateBuilder implements PayloadBuilder {
+    private static final String TEMPLATE_DIR = "/templates";
+    private static final Configuration CONFIGURATION = createConfiguration();
+
+    // payloads are rendered into a buffer that is kept per thread rather than a new StringWriter each time
+    private static final ThreadLocal<StringBuilderWriter> WRITER = ThreadLocal.withInitial(StringBuilderWriter::new);
+
     private Template template;
 
     public TemplateBuilder(String templatePath) {
-        templateSetup("/templates", templatePath);
+        templateSetup(templatePath);
     }
 
     public String buildWith(TemplateData templateData) {
-        Writer responseWriter = new StringWriter();
+        StringBuilderWriter responseWriter = WRITER.get();
+        responseWriter.reset();
         try {
             template.process(templateData, responseWriter);
         } catch (TemplateException | IOException e) {
@@ -30,18 +36,62 @@ public class TemplateBuilder implements PayloadBuilder {
         return responseWriter.toString();
     }
 
-    private void templateSetup(String templateDir, String templateName) {
+    private void templateSetup(String templateName) {
+        try {
+            template = CONFIGURATION.getTemplate(templateName);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load template " + templateName + " in dir " + TEMPLATE_DIR, e);
+        }
+    }
+
+    private static Configuration createConfiguration() {
         Configuration cfg = new Configuration(VERSION_2_3_20);
         cfg.setDefaultEncoding("UTF-8");
         cfg.setLocale(Locale.ENGLISH);
         cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        cfg.setClassForTemplateLoading(TemplateBuilder.class, templateDir);
+        cfg.setClassForTemplateLoading(TemplateBuilder.class, TEMPLATE_DIR);
+        return cfg;
+    }
 
-        try {
-            template = cfg.getTemplate(templateName);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not load template " + templateName + " in dir " + templateDir, e);
+    private static class StringBuilderWriter extends Writer {
+        private final StringBuilder buffer = new StringBuilder(2048);
+
+        void reset() {
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            buffer.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(int c) {
+            buffer.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            buffer.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            buffer.append(csq);
+            return this;
         }
-    }
 
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
 }
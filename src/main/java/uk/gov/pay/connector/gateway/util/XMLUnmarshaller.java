@@ -14,6 +14,9 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.sax.SAXSource;
 import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING;
@@ -23,6 +26,12 @@ public class XMLUnmarshaller {
     private static final String JDK_ENTITY_EXPANSION_LIMIT = "http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit";
     private static final String JDK_ENTITY_EXPANSION_LIMIT_VALUE = "1";
 
+    // JAXBContext is thread-safe and expensive to create; Unmarshaller and XMLReader are not thread-safe, so each
+    // thread keeps its own and drops them if a parse fails
+    private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> UNMARSHALLERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<XMLReader> XML_READER = new ThreadLocal<>();
+
     /**
      * Unmarshall XML payloads to Java instance
      *
@@ -36,20 +45,49 @@ public class XMLUnmarshaller {
      */
     public static <T> T unmarshall(String payload, Class<T> clazz) throws XMLUnmarshallerException {
         try {
-            XMLReader xmlReader = buildXmlReader();
+            XMLReader xmlReader = getXmlReader();
             return unmarshall(payload, clazz, xmlReader);
         } catch (ParserConfigurationException | SAXException | JAXBException e) {
+            XML_READER.remove();
+            UNMARSHALLERS.get().remove(clazz);
             throw new XMLUnmarshallerException(e);
         }
     }
 
     private static <T> T unmarshall(String payload, Class<T> clazz, XMLReader xmlReader) throws JAXBException {
         InputSource inputSource = new InputSource(new ByteArrayInputStream(payload.getBytes(UTF_8)));
-        JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        Unmarshaller unmarshaller = getUnmarshaller(clazz);
         return unmarshaller.unmarshal(new SAXSource(xmlReader, inputSource), clazz).getValue();
     }
 
+    private static Unmarshaller getUnmarshaller(Class<?> clazz) throws JAXBException {
+        Map<Class<?>, Unmarshaller> unmarshallers = UNMARSHALLERS.get();
+        Unmarshaller unmarshaller = unmarshallers.get(clazz);
+        if (unmarshaller == null) {
+            unmarshaller = getJaxbContext(clazz).createUnmarshaller();
+            unmarshallers.put(clazz, unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    private static JAXBContext getJaxbContext(Class<?> clazz) throws JAXBException {
+        JAXBContext jaxbContext = JAXB_CONTEXTS.get(clazz);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(clazz);
+            JAXB_CONTEXTS.putIfAbsent(clazz, jaxbContext);
+        }
+        return jaxbContext;
+    }
+
+    private static XMLReader getXmlReader() throws ParserConfigurationException, SAXException {
+        XMLReader xmlReader = XML_READER.get();
+        if (xmlReader == null) {
+            xmlReader = buildXmlReader();
+            XML_READER.set(xmlReader);
+        }
+        return xmlReader;
+    }
+
     private static XMLReader buildXmlReader() throws ParserConfigurationException, SAXException {
         SAXParserFactory spf = SAXParserFactory.newInstance();
         spf.setFeature(FEATURE_SECURE_PROCESSING, true); // Explicitly set. Do not remove
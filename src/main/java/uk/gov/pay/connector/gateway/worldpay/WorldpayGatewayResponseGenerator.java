@@ -6,6 +6,7 @@ import uk.gov.pay.connector.gateway.GatewayClient;
 import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
 import uk.gov.pay.connector.gateway.model.response.BaseResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
+import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
 
 import java.util.Optional;
 
@@ -17,12 +18,23 @@ public interface WorldpayGatewayResponseGenerator {
     Logger logger = LoggerFactory.getLogger(WorldpayGatewayResponseGenerator.class);
 
     default GatewayResponse getWorldpayGatewayResponse(GatewayClient.Response response) throws GatewayErrorException {
-        return getWorldpayGatewayResponse(response, WorldpayOrderStatusResponse.class);
+        WorldpayOrderStatusResponse orderStatusResponse;
+        try {
+            orderStatusResponse = WorldpayXMLStreamParser.parseOrderStatusResponse(response.getEntity());
+        } catch (XMLUnmarshallerException e) {
+            logger.info("Could not stream parse Worldpay order status response, falling back to JAXB: {}", e.getMessage());
+            orderStatusResponse = unmarshallResponse(response, WorldpayOrderStatusResponse.class);
+        }
+        return buildGatewayResponse(response, orderStatusResponse);
     }
 
     default <T extends BaseResponse> GatewayResponse<T> getWorldpayGatewayResponse(GatewayClient.Response response, Class<T> target) throws GatewayErrorException {
+        return buildGatewayResponse(response, unmarshallResponse(response, target));
+    }
+
+    private <T extends BaseResponse> GatewayResponse<T> buildGatewayResponse(GatewayClient.Response response, T baseResponse) {
         GatewayResponse.GatewayResponseBuilder<T> responseBuilder = GatewayResponse.GatewayResponseBuilder.responseBuilder();
-        responseBuilder.withResponse(unmarshallResponse(response, target));
+        responseBuilder.withResponse(baseResponse);
         Optional.ofNullable(response.getResponseCookies().get(WORLDPAY_MACHINE_COOKIE_NAME))
                 .ifPresent(responseBuilder::withSessionIdentifier);
         return responseBuilder.build();
@@ -63,6 +63,34 @@ public class WorldpayNotification implements ChargeStatusRequest {
         this.chargeStatus = chargeStatus;
     }
 
+    void setMerchantCode(String merchantCode) {
+        this.merchantCode = merchantCode;
+    }
+
+    void setStatus(String status) {
+        this.status = status;
+    }
+
+    void setDayOfMonth(int dayOfMonth) {
+        this.dayOfMonth = dayOfMonth;
+    }
+
+    void setMonth(int month) {
+        this.month = month;
+    }
+
+    void setYear(int year) {
+        this.year = year;
+    }
+
+    void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    void setReference(String reference) {
+        this.reference = reference;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -29,4 +29,9 @@ public class WorldpayNotificationConfiguration implements NotificationConfigurat
     public String getNotificationDomain() {
         return config.getNotificationDomain();
     }
+
+    @Override
+    public String getNotificationAllowedCidrs() {
+        return config.getNotificationAllowedCidrs();
+    }
 }
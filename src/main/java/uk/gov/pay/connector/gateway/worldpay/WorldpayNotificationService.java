@@ -13,13 +13,23 @@ import uk.gov.pay.connector.gateway.util.XMLUnmarshaller;
 import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.DnsUtils;
+import uk.gov.pay.connector.util.IpAddressRange;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeKey;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeService;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationEntity;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationService;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult;
 
 import javax.inject.Inject;
+import java.time.DateTimeException;
 import java.util.List;
 import java.util.Optional;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CHARGE_NOT_FOUND;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CLAIMED_ELSEWHERE;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.REPLAYED;
 
 public class WorldpayNotificationService {
 
@@ -39,8 +49,11 @@ public class WorldpayNotificationService {
     private final ChargeDao chargeDao;
     private final WorldpayNotificationConfiguration config;
     private final DnsUtils dnsUtils;
+    private final List<IpAddressRange> notificationAllowedRanges;
     private final ChargeNotificationProcessor chargeNotificationProcessor;
     private final RefundNotificationProcessor refundNotificationProcessor;
+    private final NotificationDedupeService notificationDedupeService;
+    private final ParkedNotificationService parkedNotificationService;
 
     @Inject
     public WorldpayNotificationService(
@@ -48,28 +61,67 @@ public class WorldpayNotificationService {
             WorldpayNotificationConfiguration config,
             DnsUtils dnsUtils,
             ChargeNotificationProcessor chargeNotificationProcessor,
-            RefundNotificationProcessor refundNotificationProcessor
+            RefundNotificationProcessor refundNotificationProcessor,
+            NotificationDedupeService notificationDedupeService,
+            ParkedNotificationService parkedNotificationService
     ) {
         this.chargeDao = chargeDao;
         this.config = config;
         this.dnsUtils = dnsUtils;
+        this.notificationAllowedRanges = IpAddressRange.parseAll(config.getNotificationAllowedCidrs());
 
         this.chargeNotificationProcessor = chargeNotificationProcessor;
         this.refundNotificationProcessor = refundNotificationProcessor;
+        this.notificationDedupeService = notificationDedupeService;
+        this.parkedNotificationService = parkedNotificationService;
     }
 
     @Transactional
     public boolean handleNotificationFor(String ipAddress, String payload) {
+        return isNotificationFromWorldpay(ipAddress) && processNotification(payload);
+    }
+
+    public boolean isNotificationFromWorldpay(String ipAddress) {
         if (isNotificationRejectedFromIpAddress(ipAddress)) {
             logger.error("{} notification received from ip '{}' which is not in domain '{}'", gatewayName(), ipAddress, notificationDomain());
             return false;
         }
+        return true;
+    }
+
+    /**
+     * @return false if the notification should be sent again later, because its charge is not known yet and
+     * notifications are not being parked
+     */
+    @Transactional
+    public boolean processNotification(String payload) {
+        return processNotification(payload, parkedNotificationService.isEnabled());
+    }
+
+    /**
+     * Replays a parked notification in its own transaction, so a notification that fails doesn't undo the ones
+     * replayed before it. The notification is claimed in this transaction, so a sweep and a telephone charge being
+     * created can't both replay it.
+     */
+    @Transactional
+    public ReplayResult replayParkedNotification(Long parkedNotificationId) {
+        Optional<ParkedNotificationEntity> parkedNotification = parkedNotificationService.claim(parkedNotificationId);
+        if (parkedNotification.isEmpty()) {
+            return CLAIMED_ELSEWHERE;
+        }
+        if (!processNotification(parkedNotification.get().getPayload(), false)) {
+            return CHARGE_NOT_FOUND;
+        }
+        parkedNotificationService.replayed(parkedNotification.get());
+        return REPLAYED;
+    }
 
+    private boolean processNotification(String payload, boolean parkIfChargeNotFound) {
         WorldpayNotification notification;
         try {
             logger.info("Parsing {} notification", gatewayName());
             logger.debug("Payload: {}", payload);
-            notification = XMLUnmarshaller.unmarshall(payload, WorldpayNotification.class);
+            notification = parseNotification(payload);
             logger.info("Parsed {} notification: {}", gatewayName(), notification);
         } catch (XMLUnmarshallerException e) {
             logger.error("{} notification parsing failed: {}", gatewayName(), e.toString());
@@ -86,10 +138,22 @@ public class WorldpayNotificationService {
             return true;
         }
 
+        Optional<NotificationDedupeKey> dedupeKey = dedupeKeyFor(notification);
+        if (dedupeKey.isPresent() && notificationDedupeService.isReplay(dedupeKey.get())) {
+            logger.info("{} notification {} ignored because it has already been applied", gatewayName(), notification);
+            return true;
+        }
+
         Optional<ChargeEntity> optionalChargeEntity = chargeDao.findByProviderAndTransactionId(gatewayName(),
                 notification.getTransactionId());
 
         if (optionalChargeEntity.isEmpty()) {
+            if (parkIfChargeNotFound) {
+                // telephone payment notifications can arrive before the payment is created, so they are kept
+                // and replayed when it is rather than waiting for worldpay to send them again
+                parkedNotificationService.park(getPaymentGatewayName(), notification.getTransactionId(), payload);
+                return true;
+            }
             logger.info("{} notification {} could not be evaluated (associated charge entity not found)",
                     gatewayName(), notification);
             // Respond with an error, which will cause worldpay to try to send the notification
@@ -104,10 +168,22 @@ public class WorldpayNotificationService {
             refundNotificationProcessor.invoke(getPaymentGatewayName(), newRefundStatus(notification), notification.getReference(), notification.getTransactionId());
         } else {
             logger.error("{} notification {} unknown", gatewayName(), notification);
+            return true;
         }
+        dedupeKey.ifPresent(notificationDedupeService::record);
         return true;
     }
 
+    private Optional<NotificationDedupeKey> dedupeKeyFor(WorldpayNotification notification) {
+        try {
+            return Optional.of(NotificationDedupeKey.of(getPaymentGatewayName(), notification.getTransactionId(),
+                    notification.getReference(), notification.getStatus(), notification.getGatewayEventDate()));
+        } catch (DateTimeException e) {
+            // the booking date is not a valid date, so the notification can't be told apart from others
+            return Optional.empty();
+        }
+    }
+
     private RefundStatus newRefundStatus(WorldpayNotification notification) {
         return "REFUND_FAILED".equals(notification.getStatus()) ? RefundStatus.REFUND_ERROR : RefundStatus.REFUNDED;
     }
@@ -121,13 +197,29 @@ public class WorldpayNotificationService {
     }
 
     private boolean isNotificationRejectedFromIpAddress(String ipAddress) {
-        return isNotificationEndpointSecured() && !dnsUtils.ipMatchesDomain(ipAddress, notificationDomain());
+        if (!isNotificationEndpointSecured()) {
+            return false;
+        }
+        // an allow-list of Worldpay's published ranges avoids a reverse DNS lookup for every notification
+        if (!notificationAllowedRanges.isEmpty()) {
+            return !dnsUtils.ipInRanges(ipAddress, notificationAllowedRanges);
+        }
+        return !dnsUtils.ipMatchesDomain(ipAddress, notificationDomain());
     }
 
     private boolean isTransactionIdBlank(WorldpayNotification notification) {
         return isBlank(notification.getTransactionId());
     }
 
+    private WorldpayNotification parseNotification(String payload) throws XMLUnmarshallerException {
+        try {
+            return WorldpayXMLStreamParser.parseNotification(payload);
+        } catch (XMLUnmarshallerException e) {
+            logger.info("Could not stream parse {} notification, falling back to JAXB: {}", gatewayName(), e.getMessage());
+            return XMLUnmarshaller.unmarshall(payload, WorldpayNotification.class);
+        }
+    }
+
     private boolean isIgnored(WorldpayNotification notification) {
         return IGNORED_STATUSES.contains(notification.getStatus());
     }
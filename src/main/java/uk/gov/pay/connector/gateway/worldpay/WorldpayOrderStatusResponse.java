@@ -82,6 +82,38 @@ public class WorldpayOrderStatusResponse implements BaseAuthoriseResponse, BaseC
         this.challengeAcsUrl = challengeAcsUrl != null ? challengeAcsUrl.trim() : null;
     }
 
+    void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    void setLastEvent(String lastEvent) {
+        this.lastEvent = lastEvent;
+    }
+
+    void setRefusedReturnCode(String refusedReturnCode) {
+        this.refusedReturnCode = refusedReturnCode;
+    }
+
+    void setRefusedReturnCodeDescription(String refusedReturnCodeDescription) {
+        this.refusedReturnCodeDescription = refusedReturnCodeDescription;
+    }
+
+    void setPaRequest(String paRequest) {
+        this.paRequest = paRequest;
+    }
+
+    void setChallengeTransactionId(String challengeTransactionId) {
+        this.challengeTransactionId = challengeTransactionId;
+    }
+
+    void setChallengePayload(String challengePayload) {
+        this.challengePayload = challengePayload;
+    }
+
+    void setThreeDsVersion(String threeDsVersion) {
+        this.threeDsVersion = threeDsVersion;
+    }
+
     public String getLastEvent() {
         return lastEvent;
     }
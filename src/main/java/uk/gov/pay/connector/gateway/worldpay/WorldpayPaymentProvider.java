@@ -41,6 +41,8 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
@@ -137,6 +139,23 @@ public class WorldpayPaymentProvider implements PaymentProvider, WorldpayGateway
         return getWorldpayGatewayResponse(response);
     }
 
+    @Override
+    public CompletableFuture<GatewayResponse<BaseAuthoriseResponse>> authoriseAsync(CardAuthorisationGatewayRequest request) {
+        GatewayOrder gatewayOrder = buildAuthoriseOrder(request);
+        return authoriseClient.postRequestForAsync(
+                gatewayUrlMap.get(request.getGatewayAccount().getType()),
+                request.getGatewayAccount(),
+                gatewayOrder,
+                getGatewayAccountCredentialsAsAuthHeader(request.getGatewayAccount()))
+                .<GatewayResponse<BaseAuthoriseResponse>>thenApply(response -> {
+                    try {
+                        return getWorldpayGatewayResponse(response);
+                    } catch (GatewayException.GatewayErrorException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
     @Override
     public Gateway3DSAuthorisationResponse authorise3dsResponse(Auth3dsResponseGatewayRequest request) {
         try {
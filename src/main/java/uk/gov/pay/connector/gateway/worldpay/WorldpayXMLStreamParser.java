@@ -0,0 +1,164 @@
+package uk.gov.pay.connector.gateway.worldpay;
+
+import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads the few fields we use from Worldpay order status responses and notifications in a single pass over the
+ * payload, instead of binding them through JAXB. Paths are relative to the root element, as with the
+ * {@code @XmlPath} mappings on {@link WorldpayOrderStatusResponse} and {@link WorldpayNotification}.
+ * DTDs and external entities are not supported, so DOCTYPE declarations are skipped without being loaded.
+ */
+public class WorldpayXMLStreamParser {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    public static WorldpayOrderStatusResponse parseOrderStatusResponse(String payload) throws XMLUnmarshallerException {
+        WorldpayOrderStatusResponse response = new WorldpayOrderStatusResponse();
+        parse(payload, (path, reader) -> {
+            switch (path) {
+                case "reply/orderStatus":
+                    response.setTransactionId(reader.getAttributeValue(null, "orderCode"));
+                    return false;
+                case "reply/orderStatus/payment/lastEvent":
+                    response.setLastEvent(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/payment/ISO8583ReturnCode":
+                    response.setRefusedReturnCode(reader.getAttributeValue(null, "code"));
+                    response.setRefusedReturnCodeDescription(reader.getAttributeValue(null, "description"));
+                    return false;
+                case "reply/error":
+                    response.setErrorCode(reader.getAttributeValue(null, "code"));
+                    response.setErrorMessage(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/error":
+                    response.setOrderStatusErrorCode(reader.getAttributeValue(null, "code"));
+                    response.setOrderStatusErrorMessage(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/requestInfo/request3DSecure/paRequest":
+                    response.setPaRequest(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/requestInfo/request3DSecure/issuerURL":
+                    response.set3dsIssuerUrl(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/challengeRequired/threeDSChallengeDetails/acsURL":
+                    response.setChallengeAcsUrl(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/challengeRequired/threeDSChallengeDetails/transactionId3DS":
+                    response.setChallengeTransactionId(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/challengeRequired/threeDSChallengeDetails/payload":
+                    response.setChallengePayload(reader.getElementText());
+                    return true;
+                case "reply/orderStatus/challengeRequired/threeDSChallengeDetails/threeDSVersion":
+                    response.setThreeDsVersion(reader.getElementText());
+                    return true;
+                default:
+                    return false;
+            }
+        });
+        return response;
+    }
+
+    public static WorldpayNotification parseNotification(String payload) throws XMLUnmarshallerException {
+        WorldpayNotification notification = new WorldpayNotification();
+        parse(payload, (path, reader) -> {
+            switch (path) {
+                case "":
+                    notification.setMerchantCode(reader.getAttributeValue(null, "merchantCode"));
+                    break;
+                case "notify/orderStatusEvent":
+                    notification.setTransactionId(reader.getAttributeValue(null, "orderCode"));
+                    break;
+                case "notify/orderStatusEvent/journal":
+                    notification.setStatus(reader.getAttributeValue(null, "journalType"));
+                    break;
+                case "notify/orderStatusEvent/journal/bookingDate/date":
+                    notification.setDayOfMonth(parseInt(reader.getAttributeValue(null, "dayOfMonth")));
+                    notification.setMonth(parseInt(reader.getAttributeValue(null, "month")));
+                    notification.setYear(parseInt(reader.getAttributeValue(null, "year")));
+                    break;
+                case "notify/orderStatusEvent/journal/journalReference":
+                    notification.setReference(reader.getAttributeValue(null, "reference"));
+                    break;
+                default:
+                    break;
+            }
+            return false;
+        });
+        return notification;
+    }
+
+    private static void parse(String payload, ElementHandler handler) throws XMLUnmarshallerException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(payload));
+            StringBuilder path = new StringBuilder();
+            Deque<Integer> parentPathLengths = new ArrayDeque<>();
+            boolean rootElementRead = false;
+
+            while (reader.hasNext()) {
+                int eventType = reader.next();
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    parentPathLengths.push(path.length());
+                    if (rootElementRead) {
+                        if (path.length() > 0) {
+                            path.append('/');
+                        }
+                        path.append(reader.getLocalName());
+                    }
+                    rootElementRead = true;
+
+                    // a handler that reads the element's text leaves the reader on its end element
+                    if (handler.handle(path.toString(), reader)) {
+                        path.setLength(parentPathLengths.pop());
+                    }
+                } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                    path.setLength(parentPathLengths.pop());
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new XMLUnmarshallerException(e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static int parseInt(String value) {
+        return value == null ? 0 : Integer.parseInt(value.trim());
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // nothing more to read
+            }
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false); // Explicitly set. Do not remove
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return xmlInputFactory;
+    }
+
+    @FunctionalInterface
+    private interface ElementHandler {
+        /**
+         * @return true if the element's text has been read, which moves the reader to the element's end
+         */
+        boolean handle(String path, XMLStreamReader reader) throws XMLStreamException;
+    }
+}
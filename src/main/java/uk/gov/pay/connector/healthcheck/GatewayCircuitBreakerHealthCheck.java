@@ -0,0 +1,38 @@
+package uk.gov.pay.connector.healthcheck;
+
+import com.codahale.metrics.health.HealthCheck;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreaker;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreakers;
+
+import javax.inject.Inject;
+import java.util.stream.Collectors;
+
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.CLOSED;
+
+/**
+ * Reports the gateway operations whose circuit breaker is not closed. It stays healthy regardless: a degraded gateway
+ * is not a reason to replace this node.
+ */
+public class GatewayCircuitBreakerHealthCheck extends HealthCheck {
+
+    private final GatewayCircuitBreakers gatewayCircuitBreakers;
+
+    @Inject
+    public GatewayCircuitBreakerHealthCheck(GatewayCircuitBreakers gatewayCircuitBreakers) {
+        this.gatewayCircuitBreakers = gatewayCircuitBreakers;
+    }
+
+    @Override
+    protected Result check() {
+        String notClosed = gatewayCircuitBreakers.getAll().stream()
+                .filter(circuitBreaker -> circuitBreaker.getState() != CLOSED)
+                .map(circuitBreaker -> circuitBreaker.getName() + "=" + circuitBreaker.getState())
+                .sorted()
+                .collect(Collectors.joining(", "));
+
+        if (notClosed.isEmpty()) {
+            return Result.healthy();
+        }
+        return Result.healthy("Gateway circuit breakers not closed: " + notClosed);
+    }
+}
@@ -1,26 +1,54 @@
 package uk.gov.pay.connector.paymentprocessor.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import org.hibernate.validator.constraints.NotEmpty;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.paymentprocessor.service.DiscrepancyJobService;
 import uk.gov.pay.connector.paymentprocessor.service.DiscrepancyService;
+import uk.gov.pay.connector.report.model.DiscrepancyJob;
 import uk.gov.pay.connector.report.model.GatewayStatusComparison;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static java.lang.String.format;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.connector.util.ResponseUtil.conflictErrorResponse;
+import static uk.gov.pay.connector.util.ResponseUtil.notFoundResponse;
+import static uk.gov.pay.connector.util.ResponseUtil.successResponseWithEntity;
 
 @Path("/")
 public class DiscrepancyResource {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String DISCREPANCY_JOB_PATH = "/v1/api/discrepancies/jobs/{jobId}";
+
     private final DiscrepancyService discrepancyService;
+    private final DiscrepancyJobService discrepancyJobService;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public DiscrepancyResource(DiscrepancyService discrepancyService) {
+    public DiscrepancyResource(DiscrepancyService discrepancyService,
+                               DiscrepancyJobService discrepancyJobService,
+                               ObjectMapper objectMapper) {
         this.discrepancyService = discrepancyService;
+        this.discrepancyJobService = discrepancyJobService;
+        this.objectMapper = objectMapper;
     }
     
     @POST
@@ -38,4 +66,78 @@ public class DiscrepancyResource {
     public List<GatewayStatusComparison> resolveDiscrepancies(@NotEmpty List<String> chargeIds) {
         return discrepancyService.resolveDiscrepancies(chargeIds);
     }
+
+    @POST
+    @Path("/v1/api/discrepancies/report/stream")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_NDJSON)
+    public StreamingOutput streamDiscrepancies(@NotEmpty List<String> chargeIds) {
+        List<ChargeEntity> charges = discrepancyService.findCharges(chargeIds);
+        return output -> writeAsNdjson(output,
+                consumer -> discrepancyService.forEachGatewayStatusComparison(charges, consumer));
+    }
+
+    @POST
+    @Path("/v1/api/discrepancies/resolve/stream")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_NDJSON)
+    public StreamingOutput streamResolvedDiscrepancies(@NotEmpty List<String> chargeIds) {
+        List<ChargeEntity> charges = discrepancyService.findCharges(chargeIds);
+        return output -> writeAsNdjson(output,
+                consumer -> discrepancyService.forEachResolvedDiscrepancy(charges, consumer));
+    }
+
+    @POST
+    @Path("/v1/api/discrepancies/report/jobs")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    public Response startDiscrepancyReportJob(@NotEmpty List<String> chargeIds, @Context UriInfo uriInfo) {
+        return toJobStartedResponse(discrepancyJobService.startReport(chargeIds), uriInfo);
+    }
+
+    @POST
+    @Path("/v1/api/discrepancies/resolve/jobs")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    public Response startDiscrepancyResolutionJob(@NotEmpty List<String> chargeIds, @Context UriInfo uriInfo) {
+        return toJobStartedResponse(discrepancyJobService.startResolution(chargeIds), uriInfo);
+    }
+
+    @GET
+    @Path(DISCREPANCY_JOB_PATH)
+    @Produces(APPLICATION_JSON)
+    public Response getDiscrepancyJob(@PathParam("jobId") String jobId) {
+        return discrepancyJobService.getJob(jobId)
+                .map(job -> successResponseWithEntity(job))
+                .orElseGet(() -> notFoundResponse(format("Discrepancy job with id [%s] not found.", jobId)));
+    }
+
+    private Response toJobStartedResponse(Optional<DiscrepancyJob> startedJob, UriInfo uriInfo) {
+        return startedJob
+                .map(job -> Response.accepted(job)
+                        .location(uriInfo.getBaseUriBuilder().path(DISCREPANCY_JOB_PATH).build(job.getJobId()))
+                        .build())
+                .orElseGet(() -> conflictErrorResponse("The maximum number of discrepancy jobs are already running"));
+    }
+
+    /**
+     * Writes each comparison as a line of JSON and flushes it straight away, so callers see results as gateways
+     * respond rather than once the whole batch has been queried.
+     */
+    private void writeAsNdjson(OutputStream output, Consumer<Consumer<GatewayStatusComparison>> gatewayStatusComparisons)
+            throws IOException {
+        try {
+            gatewayStatusComparisons.accept(gatewayStatusComparison -> {
+                try {
+                    output.write(objectMapper.writeValueAsBytes(gatewayStatusComparison));
+                    output.write('\n');
+                    output.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
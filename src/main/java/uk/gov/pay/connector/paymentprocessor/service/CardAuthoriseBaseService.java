@@ -18,6 +18,9 @@ import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 
 import javax.inject.Inject;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR;
@@ -38,8 +41,14 @@ public class CardAuthoriseBaseService {
     }
  
     public <T> T executeAuthorise(String chargeId, Supplier<T> authorisationSupplier) {
-        Pair<ExecutionStatus, T> executeResult = cardExecutorService.execute(authorisationSupplier);
+        return toAuthorisationResult(chargeId, cardExecutorService.execute(authorisationSupplier));
+    }
+
+    public <T> T executeAuthoriseAsync(String chargeId, Function<Executor, CompletableFuture<T>> asyncAuthorisation) {
+        return toAuthorisationResult(chargeId, cardExecutorService.executeAsync(asyncAuthorisation));
+    }
 
+    private <T> T toAuthorisationResult(String chargeId, Pair<ExecutionStatus, T> executeResult) {
         switch (executeResult.getLeft()) {
             case COMPLETED:
                 return executeResult.getRight();
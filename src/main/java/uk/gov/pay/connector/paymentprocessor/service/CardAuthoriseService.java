@@ -1,10 +1,10 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.persist.Transactional;
 import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.charge.model.domain.Auth3dsDetailsEntity;
@@ -13,6 +13,7 @@ import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.gateway.GatewayException;
+import uk.gov.pay.connector.gateway.GatewayOperationMetrics;
 import uk.gov.pay.connector.gateway.PaymentProvider;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.model.AuthCardDetails;
@@ -26,6 +27,8 @@ import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import static uk.gov.pay.connector.charge.util.CorporateCardSurchargeCalculator.getCorporateCardSurchargeFor;
@@ -37,76 +40,96 @@ public class CardAuthoriseService {
     private final ChargeService chargeService;
     private final PaymentProviders providers;
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private MetricRegistry metricRegistry;
+    private final GatewayOperationMetrics gatewayOperationMetrics;
+    private final boolean asyncGatewayAuthorisationEnabled;
 
     @Inject
     public CardAuthoriseService(CardTypeDao cardTypeDao,
                                 PaymentProviders providers,
                                 CardAuthoriseBaseService cardAuthoriseBaseService,
                                 ChargeService chargeService,
-                                Environment environment) {
+                                Environment environment,
+                                ConnectorConfiguration configuration) {
         this.providers = providers;
         this.cardAuthoriseBaseService = cardAuthoriseBaseService;
         this.chargeService = chargeService;
-        this.metricRegistry = environment.metrics();
+        this.gatewayOperationMetrics = new GatewayOperationMetrics(environment.metrics());
         this.cardTypeDao = cardTypeDao;
+        this.asyncGatewayAuthorisationEnabled = configuration.getExecutorServiceConfig().isAsyncGatewayAuthorisationEnabled();
     }
 
     public AuthorisationResponse doAuthorise(String chargeId, AuthCardDetails authCardDetails) {
-        return cardAuthoriseBaseService.executeAuthorise(chargeId, () -> {
+        if (asyncGatewayAuthorisationEnabled) {
+            return cardAuthoriseBaseService.executeAuthoriseAsync(chargeId, executorWithContext -> {
+                final ChargeEntity charge = prepareChargeForAuthorisation(chargeId, authCardDetails);
+                return authoriseAsync(charge, authCardDetails)
+                        .handleAsync((operationResponse, throwable) -> completeAuthorisation(charge, authCardDetails, () -> {
+                            if (throwable != null) {
+                                throw toGatewayException(throwable);
+                            }
+                            return operationResponse;
+                        }), executorWithContext);
+            });
+        }
 
+        return cardAuthoriseBaseService.executeAuthorise(chargeId, () -> {
             final ChargeEntity charge = prepareChargeForAuthorisation(chargeId, authCardDetails);
-            GatewayResponse<BaseAuthoriseResponse> operationResponse;
-            ChargeStatus newStatus;
-            Optional<String> transactionId = Optional.empty();
-            Optional<String> sessionIdentifier = Optional.empty();
-            Optional<Auth3dsDetailsEntity> auth3dsDetailsEntity = Optional.empty();
-
-            try {
-                operationResponse = authorise(charge, authCardDetails);
-
-                if (operationResponse.getBaseResponse().isEmpty()) operationResponse.throwGatewayError();
-
-                newStatus = operationResponse.getBaseResponse().get().authoriseStatus().getMappedChargeStatus();
-                transactionId = cardAuthoriseBaseService.extractTransactionId(charge.getExternalId(), operationResponse);
-                auth3dsDetailsEntity = extractAuth3dsDetails(operationResponse);
-                sessionIdentifier = operationResponse.getSessionIdentifier();
-
-            } catch (GatewayException e) {
-                newStatus = CardAuthoriseBaseService.mapFromGatewayErrorException(e);
-                operationResponse = GatewayResponse.GatewayResponseBuilder.responseBuilder().withGatewayError(e.toGatewayError()).build();
-            }
-
-            ChargeEntity updatedCharge = chargeService.updateChargePostCardAuthorisation(
-                    charge.getExternalId(),
-                    newStatus,
-                    transactionId,
-                    auth3dsDetailsEntity,
-                    sessionIdentifier,
-                    authCardDetails);
-
-            boolean billingAddressSubmitted = updatedCharge.getCardDetails().getBillingAddress().isPresent();
-
-            // Used by Sumo Logic saved search
-            logger.info("Authorisation {} for {} ({} {}) for {} ({}) - {} .'. {} -> {}",
-                    billingAddressSubmitted ? "with billing address" : "without billing address",
-                    updatedCharge.getExternalId(), updatedCharge.getPaymentGatewayName().getName(),
-                    transactionId.orElse("missing transaction ID"),
-                    updatedCharge.getGatewayAccount().getAnalyticsId(), updatedCharge.getGatewayAccount().getId(),
-                    operationResponse, ChargeStatus.fromString(charge.getStatus()), newStatus);
-
-            metricRegistry.counter(String.format(
-                    "gateway-operations.%s.%s.%s.authorise.%s.result.%s",
-                    updatedCharge.getGatewayAccount().getGatewayName(),
-                    updatedCharge.getGatewayAccount().getType(),
-                    updatedCharge.getGatewayAccount().getId(),
-                    billingAddressSubmitted ? "with-billing-address" : "without-billing-address",
-                    newStatus.toString())).inc();
-
-            return new AuthorisationResponse(operationResponse);
+            return completeAuthorisation(charge, authCardDetails, () -> authorise(charge, authCardDetails));
         });
     }
 
+    private AuthorisationResponse completeAuthorisation(ChargeEntity charge,
+                                                        AuthCardDetails authCardDetails,
+                                                        GatewayAuthorisation gatewayAuthorisation) {
+        GatewayResponse<BaseAuthoriseResponse> operationResponse;
+        ChargeStatus newStatus;
+        Optional<String> transactionId = Optional.empty();
+        Optional<String> sessionIdentifier = Optional.empty();
+        Optional<Auth3dsDetailsEntity> auth3dsDetailsEntity = Optional.empty();
+
+        try {
+            operationResponse = gatewayAuthorisation.authorise();
+
+            if (operationResponse.getBaseResponse().isEmpty()) operationResponse.throwGatewayError();
+
+            newStatus = operationResponse.getBaseResponse().get().authoriseStatus().getMappedChargeStatus();
+            transactionId = cardAuthoriseBaseService.extractTransactionId(charge.getExternalId(), operationResponse);
+            auth3dsDetailsEntity = extractAuth3dsDetails(operationResponse);
+            sessionIdentifier = operationResponse.getSessionIdentifier();
+
+        } catch (GatewayException e) {
+            newStatus = CardAuthoriseBaseService.mapFromGatewayErrorException(e);
+            operationResponse = GatewayResponse.GatewayResponseBuilder.responseBuilder().withGatewayError(e.toGatewayError()).build();
+        }
+
+        ChargeEntity updatedCharge = chargeService.updateChargePostCardAuthorisation(
+                charge.getExternalId(),
+                newStatus,
+                transactionId,
+                auth3dsDetailsEntity,
+                sessionIdentifier,
+                authCardDetails);
+
+        boolean billingAddressSubmitted = updatedCharge.getCardDetails().getBillingAddress().isPresent();
+
+        // Used by Sumo Logic saved search
+        logger.info("Authorisation {} for {} ({} {}) for {} ({}) - {} .'. {} -> {}",
+                billingAddressSubmitted ? "with billing address" : "without billing address",
+                updatedCharge.getExternalId(), updatedCharge.getPaymentGatewayName().getName(),
+                transactionId.orElse("missing transaction ID"),
+                updatedCharge.getGatewayAccount().getAnalyticsId(), updatedCharge.getGatewayAccount().getId(),
+                operationResponse, ChargeStatus.fromString(charge.getStatus()), newStatus);
+
+        gatewayOperationMetrics.authorisationResult(
+                updatedCharge.getGatewayAccount().getGatewayName(),
+                updatedCharge.getGatewayAccount().getType(),
+                updatedCharge.getGatewayAccount().getId(),
+                billingAddressSubmitted,
+                newStatus).inc();
+
+        return new AuthorisationResponse(operationResponse);
+    }
+
     @Transactional
     public ChargeEntity prepareChargeForAuthorisation(String chargeId, AuthCardDetails authCardDetails) {
         ChargeEntity charge = chargeService.lockChargeForProcessing(chargeId, OperationType.AUTHORISATION);
@@ -143,6 +166,22 @@ public class CardAuthoriseService {
         return getPaymentProviderFor(charge).authorise(CardAuthorisationGatewayRequest.valueOf(charge, authCardDetails));
     }
 
+    private CompletableFuture<GatewayResponse<BaseAuthoriseResponse>> authoriseAsync(ChargeEntity charge, AuthCardDetails authCardDetails) {
+        return getPaymentProviderFor(charge).authoriseAsync(CardAuthorisationGatewayRequest.valueOf(charge, authCardDetails));
+    }
+
+    /**
+     * Gateway failures are mapped to an authorisation status in the same way as the blocking call. Anything else
+     * fails the authorisation, as an unexpected exception from the blocking call would.
+     */
+    private static GatewayException toGatewayException(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        if (cause instanceof GatewayException) {
+            return (GatewayException) cause;
+        }
+        throw new CompletionException(cause);
+    }
+
     private Optional<Auth3dsDetailsEntity> extractAuth3dsDetails(GatewayResponse<BaseAuthoriseResponse> operationResponse) {
         return operationResponse.getBaseResponse()
                 .flatMap(BaseAuthoriseResponse::getGatewayParamsFor3ds)
@@ -152,4 +191,8 @@ public class CardAuthoriseService {
     private PaymentProvider getPaymentProviderFor(ChargeEntity chargeEntity) {
         return providers.byName(chargeEntity.getPaymentGatewayName());
     }
+
+    private interface GatewayAuthorisation {
+        GatewayResponse<BaseAuthoriseResponse> authorise() throws GatewayException;
+    }
 }
@@ -1,18 +1,38 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import uk.gov.pay.connector.app.CaptureProcessConfig;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.charge.ChargesAwaitingCaptureMetricEmitter;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.gateway.CaptureResponse;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.queue.CaptureQueue;
 import uk.gov.pay.connector.queue.ChargeCaptureMessage;
 import uk.gov.pay.connector.queue.QueueException;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 public class CardCaptureProcess {
 
@@ -21,81 +41,218 @@ public class CardCaptureProcess {
     private final ChargeService chargeService;
     private CardCaptureService cardCaptureService;
 
+    private final boolean parallelCaptureEnabled;
+    private final ExecutorService captureExecutorService;
+    private final Map<PaymentGatewayName, GatewayCaptureLane> captureLanesByGateway = new EnumMap<>(PaymentGatewayName.class);
+    private final GatewayCaptureLane unknownGatewayCaptureLane;
+    private final Queue<CompletedCapture> completedCaptures = new ConcurrentLinkedQueue<>();
+    private final Lock acknowledgeLock = new ReentrantLock();
+    private final Counter inFlightCaptures;
+
     @Inject
     public CardCaptureProcess(CaptureQueue captureQueue,
                               CardCaptureService cardCaptureService,
                               ChargeService chargeService,
-                              ChargesAwaitingCaptureMetricEmitter chargesAwaitingCaptureMetricEmitter) {
+                              ChargesAwaitingCaptureMetricEmitter chargesAwaitingCaptureMetricEmitter,
+                              Environment environment,
+                              ConnectorConfiguration connectorConfiguration) {
         this.captureQueue = captureQueue;
         this.cardCaptureService = cardCaptureService;
         this.chargeService = chargeService;
 
         chargesAwaitingCaptureMetricEmitter.register();
+
+        CaptureProcessConfig captureProcessConfig = connectorConfiguration.getCaptureProcessConfig();
+        this.parallelCaptureEnabled = captureProcessConfig.getParallelCaptureEnabled();
+        this.captureExecutorService = parallelCaptureEnabled
+                ? environment.lifecycle()
+                        .executorService("card-capture-process-%d")
+                        .minThreads(captureProcessConfig.getParallelCaptureNumberOfThreads())
+                        .maxThreads(captureProcessConfig.getParallelCaptureNumberOfThreads())
+                        .build()
+                : null;
+
+        MetricRegistry metricRegistry = environment.metrics();
+        this.inFlightCaptures = metricRegistry.counter("gateway-operations.capture-process.in-flight-captures");
+        int maximumWaitingCaptures = captureProcessConfig.getParallelCaptureNumberOfThreads();
+        long maximumWaitInNanoseconds = TimeUnit.MILLISECONDS.toNanos(captureProcessConfig.getParallelCaptureMaximumWaitInMilliseconds());
+        for (PaymentGatewayName gateway : PaymentGatewayName.values()) {
+            int maximumConcurrentCaptures = captureProcessConfig.getMaximumConcurrentCapturesPerGateway()
+                    .getOrDefault(gateway.getName(), captureProcessConfig.getDefaultMaximumConcurrentCapturesPerGateway());
+            captureLanesByGateway.put(gateway, new GatewayCaptureLane(maximumConcurrentCaptures, maximumWaitingCaptures,
+                    maximumWaitInNanoseconds, metricRegistry.timer(String.format("gateway-operations.capture-process.%s.queue-wait", gateway.getName()))));
+        }
+        this.unknownGatewayCaptureLane = new GatewayCaptureLane(
+                captureProcessConfig.getDefaultMaximumConcurrentCapturesPerGateway(), maximumWaitingCaptures,
+                maximumWaitInNanoseconds, metricRegistry.timer("gateway-operations.capture-process.unknown.queue-wait"));
     }
 
-    public void handleCaptureMessages() throws QueueException {
+    /**
+     * @return the number of capture messages received from the queue and taken on for capture. When capturing
+     * in parallel, messages given back to the queue are not counted, so a receiver backs off while gateways
+     * are saturated.
+     */
+    public int handleCaptureMessages() throws QueueException {
+        if (parallelCaptureEnabled) {
+            captureLanesByGateway.values().forEach(GatewayCaptureLane::returnExpiredWaitingCaptures);
+            unknownGatewayCaptureLane.returnExpiredWaitingCaptures();
+            if (captureLanesByGateway.values().stream().allMatch(GatewayCaptureLane::isFull)) {
+                return 0;
+            }
+            return captureInParallel(captureQueue.retrieveChargesForCapture());
+        }
+
         List<ChargeCaptureMessage> captureMessages = captureQueue.retrieveChargesForCapture();
+        List<CaptureOutcome> outcomes = captureMessages.stream().map(this::processMessage).collect(Collectors.toList());
+        acknowledgeMessages(captureMessages, outcomes);
+        return captureMessages.size();
+    }
+
+    /**
+     * Hands each message to its gateway's lane and returns without waiting for the captures, so the next batch
+     * can be received while a slow gateway is still capturing. Messages for a gateway that already has a full
+     * lane are made visible on the queue again straight away, rather than once their visibility timeout expires.
+     *
+     * @return the number of messages taken on by a lane
+     */
+    private int captureInParallel(List<ChargeCaptureMessage> captureMessages) {
+        List<ChargeCaptureMessage> refused = new ArrayList<>();
         for (ChargeCaptureMessage message : captureMessages) {
+            GatewayCaptureLane lane;
             try {
-                MDC.put("chargeId", message.getChargeId());
-                LOGGER.info("Charge capture message received - [queueMessageId={}] [queueMessageReceiptHandle={}]",
-                        message.getQueueMessageId(),
-                        message.getQueueMessageReceiptHandle()
-                );
-
-                runCapture(message);
+                lane = captureLanesByGateway.get(chargeService.findChargeById(message.getChargeId()).getPaymentGatewayName());
             } catch (Exception e) {
-                LOGGER.warn("Error capturing charge from SQS message [queueMessageId={}] [errorMessage={}]",
-                        message.getQueueMessageId(),
-                        e.getMessage()
-                );
+                lane = unknownGatewayCaptureLane;
+            }
+            if (!lane.offer(message)) {
+                LOGGER.info("Too many captures waiting for gateway, returning message to queue [queueMessageId={}] [chargeId={}]",
+                        message.getQueueMessageId(), message.getChargeId());
+                refused.add(message);
+            }
+        }
+        returnMessagesToQueue(refused);
+        return captureMessages.size() - refused.size();
+    }
+
+    private void returnMessagesToQueue(List<ChargeCaptureMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        captureQueue.returnMessagesToQueue(messages).forEach(message ->
+                LOGGER.warn("Failed to return charge capture message to queue [queueMessageId={}] [chargeId={}]",
+                        message.getQueueMessageId(), message.getChargeId()));
+    }
+
+    private void completeCapture(ChargeCaptureMessage message, CaptureOutcome outcome) {
+        completedCaptures.add(new CompletedCapture(message, outcome));
+        acknowledgeCompletedCaptures();
+    }
+
+    /**
+     * Captures that complete while another thread is acknowledging are picked up by that thread, so completions
+     * are still acknowledged in batches.
+     */
+    private void acknowledgeCompletedCaptures() {
+        while (!completedCaptures.isEmpty() && acknowledgeLock.tryLock()) {
+            try {
+                List<ChargeCaptureMessage> messages = new ArrayList<>();
+                List<CaptureOutcome> outcomes = new ArrayList<>();
+                CompletedCapture completedCapture;
+                while ((completedCapture = completedCaptures.poll()) != null) {
+                    messages.add(completedCapture.message);
+                    outcomes.add(completedCapture.outcome);
+                }
+                acknowledgeMessages(messages, outcomes);
             } finally {
-                MDC.remove("chargeId");
+                acknowledgeLock.unlock();
             }
         }
     }
 
-    private void runCapture(ChargeCaptureMessage captureMessage) throws QueueException {
+    private CaptureOutcome processMessage(ChargeCaptureMessage message) {
+        try {
+            MDC.put("chargeId", message.getChargeId());
+            LOGGER.info("Charge capture message received - [queueMessageId={}] [queueMessageReceiptHandle={}]",
+                    message.getQueueMessageId(),
+                    message.getQueueMessageReceiptHandle()
+            );
+
+            return runCapture(message);
+        } catch (Exception e) {
+            LOGGER.warn("Error capturing charge from SQS message [queueMessageId={}] [errorMessage={}]",
+                    message.getQueueMessageId(),
+                    e.getMessage()
+            );
+            return CaptureOutcome.LEAVE_ON_QUEUE;
+        } finally {
+            MDC.remove("chargeId");
+        }
+    }
+
+    private void acknowledgeMessages(List<ChargeCaptureMessage> captureMessages, List<CaptureOutcome> outcomes) {
+        List<ChargeCaptureMessage> processed = new ArrayList<>();
+        List<ChargeCaptureMessage> toRetry = new ArrayList<>();
+        for (int i = 0; i < captureMessages.size(); i++) {
+            if (outcomes.get(i) == CaptureOutcome.MARK_AS_PROCESSED) {
+                processed.add(captureMessages.get(i));
+            } else if (outcomes.get(i) == CaptureOutcome.SCHEDULE_FOR_RETRY) {
+                toRetry.add(captureMessages.get(i));
+            }
+        }
+
+        if (!processed.isEmpty()) {
+            captureQueue.markMessagesAsProcessed(processed).forEach(message ->
+                    LOGGER.warn("Failed to mark charge capture message as processed [queueMessageId={}] [chargeId={}]",
+                            message.getQueueMessageId(), message.getChargeId()));
+        }
+
+        if (!toRetry.isEmpty()) {
+            captureQueue.scheduleMessagesForRetry(toRetry).forEach(message ->
+                    LOGGER.warn("Failed to schedule charge capture message for retry [queueMessageId={}] [chargeId={}]",
+                            message.getQueueMessageId(), message.getChargeId()));
+        }
+    }
+
+    private CaptureOutcome runCapture(ChargeCaptureMessage captureMessage) {
         String externalChargeId = captureMessage.getChargeId();
 
         try {
             CaptureResponse gatewayResponse = cardCaptureService.doCapture(externalChargeId);
 
             if (gatewayResponse.isSuccessful()) {
-                captureQueue.markMessageAsProcessed(captureMessage);
-            } else {
-                LOGGER.info(
-                        "Failed to capture [externalChargeId={}] due to: {}",
-                        externalChargeId,
-                        gatewayResponse.getErrorMessage()
-                );
-                handleCaptureRetry(captureMessage);
+                return CaptureOutcome.MARK_AS_PROCESSED;
             }
+
+            LOGGER.info(
+                    "Failed to capture [externalChargeId={}] due to: {}",
+                    externalChargeId,
+                    gatewayResponse.getErrorMessage()
+            );
+            return handleCaptureRetry(captureMessage);
         } catch (IllegalStateRuntimeException e) {
-            handleCapturedInvalidTransition(captureMessage, e);
+            return handleCapturedInvalidTransition(captureMessage, e);
         }
     }
 
-    private void handleCaptureRetry(ChargeCaptureMessage captureMessage) throws QueueException {
+    private CaptureOutcome handleCaptureRetry(ChargeCaptureMessage captureMessage) {
         boolean shouldRetry = chargeService.isChargeRetriable(captureMessage.getChargeId());
 
         if (shouldRetry) {
             LOGGER.info("Charge capture message [{}] scheduled for retry.", captureMessage.getChargeId());
-            captureQueue.scheduleMessageForRetry(captureMessage);
-        } else {
-            cardCaptureService.markChargeAsCaptureError(captureMessage.getChargeId());
-            captureQueue.markMessageAsProcessed(captureMessage);
+            return CaptureOutcome.SCHEDULE_FOR_RETRY;
         }
+
+        cardCaptureService.markChargeAsCaptureError(captureMessage.getChargeId());
+        return CaptureOutcome.MARK_AS_PROCESSED;
     }
 
-    private void handleCapturedInvalidTransition(ChargeCaptureMessage captureMessage, IllegalStateRuntimeException e) throws QueueException {
+    private CaptureOutcome handleCapturedInvalidTransition(ChargeCaptureMessage captureMessage, IllegalStateRuntimeException e) {
         if (chargeService.isChargeCaptureSuccess(captureMessage.getChargeId())) {
             LOGGER.info(
                     "Charge capture message [{}] already captured - marking as processed. [chargeId={}]",
                     captureMessage.getQueueMessageId(),
                     captureMessage.getChargeId());
-            captureQueue.markMessageAsProcessed(captureMessage);
-            return;
+            return CaptureOutcome.MARK_AS_PROCESSED;
         }
 
         LOGGER.info(
@@ -104,4 +261,112 @@ public class CardCaptureProcess {
                 captureMessage.getChargeId());
         throw e;
     }
+
+    /**
+     * The captures for one gateway. Captures beyond the gateway's limit wait here rather than on a capture executor
+     * thread, and each capture that finishes starts the next waiting one, so a saturated gateway never holds
+     * threads that captures for other gateways could use. A capture that waits longer than the maximum wait is
+     * returned to the queue, so SQS does not deliver its message again while it is still waiting here.
+     */
+    private class GatewayCaptureLane {
+        private final Semaphore capturePermits;
+        private final int maximumWaitingCaptures;
+        private final long maximumWaitInNanoseconds;
+        private final Timer queueWaitTimer;
+        private final Queue<WaitingCapture> waitingCaptures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger numberOfWaitingCaptures = new AtomicInteger();
+
+        GatewayCaptureLane(int maximumConcurrentCaptures, int maximumWaitingCaptures, long maximumWaitInNanoseconds,
+                           Timer queueWaitTimer) {
+            this.capturePermits = new Semaphore(maximumConcurrentCaptures);
+            this.maximumWaitingCaptures = maximumWaitingCaptures;
+            this.maximumWaitInNanoseconds = maximumWaitInNanoseconds;
+            this.queueWaitTimer = queueWaitTimer;
+        }
+
+        boolean isFull() {
+            return numberOfWaitingCaptures.get() >= maximumWaitingCaptures;
+        }
+
+        void returnExpiredWaitingCaptures() {
+            List<ChargeCaptureMessage> expired = new ArrayList<>();
+            WaitingCapture oldest;
+            while ((oldest = waitingCaptures.peek()) != null && System.nanoTime() - oldest.offeredAt > maximumWaitInNanoseconds) {
+                if (waitingCaptures.remove(oldest)) {
+                    numberOfWaitingCaptures.decrementAndGet();
+                    expired.add(oldest.message);
+                    LOGGER.info("Capture waited too long for gateway, returning message to queue [queueMessageId={}] [chargeId={}]",
+                            oldest.message.getQueueMessageId(), oldest.message.getChargeId());
+                }
+            }
+            returnMessagesToQueue(expired);
+        }
+
+        boolean offer(ChargeCaptureMessage message) {
+            if (numberOfWaitingCaptures.incrementAndGet() > maximumWaitingCaptures) {
+                numberOfWaitingCaptures.decrementAndGet();
+                return false;
+            }
+            waitingCaptures.add(new WaitingCapture(message, System.nanoTime()));
+            startWaitingCaptures();
+            return true;
+        }
+
+        private void startWaitingCaptures() {
+            returnExpiredWaitingCaptures();
+            while (!waitingCaptures.isEmpty() && capturePermits.tryAcquire()) {
+                WaitingCapture capture = waitingCaptures.poll();
+                if (capture == null) {
+                    capturePermits.release();
+                    continue;
+                }
+                numberOfWaitingCaptures.decrementAndGet();
+                try {
+                    captureExecutorService.execute(() -> run(capture));
+                } catch (RejectedExecutionException e) {
+                    // the executor is shutting down, so the message is left on the queue
+                    capturePermits.release();
+                    return;
+                }
+            }
+        }
+
+        private void run(WaitingCapture capture) {
+            queueWaitTimer.update(System.nanoTime() - capture.offeredAt, TimeUnit.NANOSECONDS);
+            inFlightCaptures.inc();
+            try {
+                completeCapture(capture.message, processMessage(capture.message));
+            } finally {
+                inFlightCaptures.dec();
+                capturePermits.release();
+                startWaitingCaptures();
+            }
+        }
+    }
+
+    private static class WaitingCapture {
+        private final ChargeCaptureMessage message;
+        private final long offeredAt;
+
+        WaitingCapture(ChargeCaptureMessage message, long offeredAt) {
+            this.message = message;
+            this.offeredAt = offeredAt;
+        }
+    }
+
+    private static class CompletedCapture {
+        private final ChargeCaptureMessage message;
+        private final CaptureOutcome outcome;
+
+        CompletedCapture(ChargeCaptureMessage message, CaptureOutcome outcome) {
+            this.message = message;
+            this.outcome = outcome;
+        }
+    }
+
+    private enum CaptureOutcome {
+        MARK_AS_PROCESSED,
+        SCHEDULE_FOR_RETRY,
+        LEAVE_ON_QUEUE
+    }
 }
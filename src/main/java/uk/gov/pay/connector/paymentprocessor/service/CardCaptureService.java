@@ -12,6 +12,7 @@ import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.fee.dao.FeeDao;
 import uk.gov.pay.connector.gateway.CaptureResponse;
+import uk.gov.pay.connector.gateway.GatewayOperationMetrics;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.model.request.CaptureGatewayRequest;
 import uk.gov.pay.connector.paymentprocessor.model.OperationType;
@@ -42,6 +43,7 @@ public class CardCaptureService {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected MetricRegistry metricRegistry;
     protected CaptureQueue captureQueue;
+    private final GatewayOperationMetrics gatewayOperationMetrics;
 
     @Inject
     public CardCaptureService(ChargeService chargeService,
@@ -54,6 +56,7 @@ public class CardCaptureService {
         this.feeDao = feeDao;
         this.providers = providers;
         this.metricRegistry = environment.metrics();
+        this.gatewayOperationMetrics = new GatewayOperationMetrics(metricRegistry);
         this.userNotificationService = userNotificationService;
         this.captureQueue = captureQueue;
     }
@@ -122,10 +125,10 @@ public class CardCaptureService {
                 charge.getGatewayAccount().getAnalyticsId(), charge.getGatewayAccount().getId(),
                 captureResponse, oldStatus, nextStatus);
 
-        metricRegistry.counter(format("gateway-operations.%s.%s.%s.capture.result.%s",
+        gatewayOperationMetrics.captureResult(
                 charge.getGatewayAccount().getGatewayName(),
                 charge.getGatewayAccount().getType(),
-                charge.getGatewayAccount().getId(), nextStatus.toString())).inc();
+                charge.getGatewayAccount().getId(), nextStatus).inc();
 
         if (captureResponse.isSuccessful() && charge.isDelayedCapture()) {
             userNotificationService.sendPaymentConfirmedEmail(charge);
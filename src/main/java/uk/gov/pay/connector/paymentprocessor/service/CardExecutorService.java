@@ -16,13 +16,16 @@ import javax.ws.rs.WebApplicationException;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.lang.Runtime.getRuntime;
@@ -92,11 +95,34 @@ public class CardExecutorService {
     // accepts a supplier function and executed that in a separate Thread of its own.
     // returns a Pair of the execution status and the return type
     public <T> Pair<ExecutionStatus, T> execute(Supplier<T> callable) {
-        Callable<T> task = callable::get;
-        Map<String, String> mdcContextMap = Optional.ofNullable(MDC.getCopyOfContextMap()).orElse(Map.of());
+        return awaitResult(submit(callable::get));
+    }
+
+    // accepts a function that starts an asynchronous task, such as a gateway request, and starts it in a separate
+    // Thread. That thread is free again as soon as the task has started. The function is given an executor that runs
+    // on these Threads with the caller's MDC and X-Ray context, to finish the task on instead of the thread that
+    // completes the request. The result is waited for in the same way as execute
+    public <T> Pair<ExecutionStatus, T> executeAsync(Function<Executor, CompletableFuture<T>> asyncTask) {
+        Map<String, String> mdcContextMap = copyOfMdcContextMap();
+        Executor executorWithContext = command -> executor.submit(withContext(Executors.callable(command), mdcContextMap));
+
+        return awaitResult(CompletableFuture
+                .supplyAsync(() -> asyncTask.apply(executorWithContext), executorWithContext)
+                .thenCompose(Function.identity()));
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(withContext(task, copyOfMdcContextMap()));
+    }
+
+    private static Map<String, String> copyOfMdcContextMap() {
+        return Optional.ofNullable(MDC.getCopyOfContextMap()).orElse(Map.of());
+    }
+
+    private <T> Callable<T> withContext(Callable<T> task, Map<String, String> mdcContextMap) {
         final long startTime = System.currentTimeMillis();
 
-        Future<T> futureObject = executor.submit(() -> {
+        return () -> {
             MDC.setContextMap(mdcContextMap);
             xrayUtils.beginSegment();
             long totalWaitTime = System.currentTimeMillis() - startTime;
@@ -111,8 +137,10 @@ public class CardExecutorService {
                 xrayUtils.endSegment();
                 MDC.clear();
             }
-        });
+        };
+    }
 
+    private <T> Pair<ExecutionStatus, T> awaitResult(Future<T> futureObject) {
         try {
             return Pair.of(COMPLETED, futureObject.get(config.getTimeoutInSeconds(), TimeUnit.SECONDS));
         } catch (ExecutionException | InterruptedException exception) {
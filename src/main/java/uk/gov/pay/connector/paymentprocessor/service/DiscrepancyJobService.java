@@ -0,0 +1,109 @@
+package uk.gov.pay.connector.paymentprocessor.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.DiscrepancyConfig;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.report.model.DiscrepancyJob;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.connector.util.RandomIdGenerator.newId;
+
+/**
+ * Runs discrepancy reports and resolutions for large batches of charges in the background, so that callers can poll
+ * for their progress instead of holding a request open. Jobs are kept in memory on the instance that accepted them
+ * for as long as they are running, and then for the retention period after they finished.
+ */
+@Singleton
+public class DiscrepancyJobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscrepancyJobService.class);
+
+    private final DiscrepancyService discrepancyService;
+    private final ExecutorService jobExecutorService;
+    private final Map<String, DiscrepancyJob> runningJobs = new ConcurrentHashMap<>();
+    private final Cache<String, DiscrepancyJob> finishedJobs;
+
+    @Inject
+    public DiscrepancyJobService(DiscrepancyService discrepancyService,
+                                 Environment environment,
+                                 ConnectorConfiguration connectorConfiguration) {
+        this.discrepancyService = discrepancyService;
+
+        DiscrepancyConfig discrepancyConfig = connectorConfiguration.getDiscrepancyConfig();
+        // No work queue, so a job is rejected rather than left waiting when the maximum number are already running
+        this.jobExecutorService = environment.lifecycle()
+                .executorService("discrepancy-job-%d")
+                .maxThreads(discrepancyConfig.getMaximumConcurrentJobs())
+                .workQueue(new SynchronousQueue<>())
+                .build();
+        this.finishedJobs = CacheBuilder.newBuilder()
+                .expireAfterWrite(discrepancyConfig.getJobRetentionInMinutes(), TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * @return the started job, or empty if the maximum number of jobs are already running
+     */
+    public Optional<DiscrepancyJob> startReport(List<String> chargeIds) {
+        return start(new DiscrepancyJob(newId(), DiscrepancyJob.Type.REPORT, chargeIds.size()), chargeIds);
+    }
+
+    /**
+     * @return the started job, or empty if the maximum number of jobs are already running
+     */
+    public Optional<DiscrepancyJob> startResolution(List<String> chargeIds) {
+        return start(new DiscrepancyJob(newId(), DiscrepancyJob.Type.RESOLVE, chargeIds.size()), chargeIds);
+    }
+
+    public Optional<DiscrepancyJob> getJob(String jobId) {
+        return Optional.ofNullable(runningJobs.get(jobId))
+                .or(() -> Optional.ofNullable(finishedJobs.getIfPresent(jobId)));
+    }
+
+    private Optional<DiscrepancyJob> start(DiscrepancyJob job, List<String> chargeIds) {
+        runningJobs.put(job.getJobId(), job);
+        try {
+            jobExecutorService.execute(() -> run(job, chargeIds));
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(job.getJobId());
+            LOGGER.info("Rejected discrepancy job, maximum number of jobs already running");
+            return Optional.empty();
+        }
+        LOGGER.info("Started discrepancy job {} [type={}] [numberOfCharges={}]", job.getJobId(), job.getType(), chargeIds.size());
+        return Optional.of(job);
+    }
+
+    private void run(DiscrepancyJob job, List<String> chargeIds) {
+        try {
+            List<ChargeEntity> charges = discrepancyService.findCharges(chargeIds);
+            if (job.getType() == DiscrepancyJob.Type.RESOLVE) {
+                discrepancyService.forEachResolvedDiscrepancy(charges, job::addResult);
+            } else {
+                discrepancyService.forEachGatewayStatusComparison(charges, job::addResult);
+            }
+            job.finish();
+            LOGGER.info("Finished discrepancy job {} [numberOfResults={}]", job.getJobId(), job.getNumberOfResults());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            LOGGER.error("Discrepancy job {} failed: {}", job.getJobId(), e.getMessage());
+        } finally {
+            // the retention period starts once the job has finished
+            finishedJobs.put(job.getJobId(), job);
+            runningJobs.remove(job.getJobId());
+        }
+    }
+}
@@ -1,57 +1,216 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.DiscrepancyConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.service.ChargeExpiryService;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.common.model.api.ExternalChargeState;
 import uk.gov.pay.connector.gateway.GatewayException;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.report.model.GatewayStatusComparison;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 
+@Singleton
 public class DiscrepancyService {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscrepancyService.class);
 
     private final ChargeService chargeService;
     private final QueryService queryService;
     private final ChargeExpiryService expiryService;
+    private final ExecutorService inquiryExecutorService;
+    private final Map<PaymentGatewayName, Semaphore> inquiryPermitsByGateway = new EnumMap<>(PaymentGatewayName.class);
 
     @Inject
-    public DiscrepancyService(ChargeService chargeService, QueryService queryService, ChargeExpiryService expiryService) {
+    public DiscrepancyService(ChargeService chargeService,
+                              QueryService queryService,
+                              ChargeExpiryService expiryService,
+                              Environment environment,
+                              ConnectorConfiguration connectorConfiguration) {
         this.chargeService = chargeService;
         this.queryService = queryService;
         this.expiryService = expiryService;
+
+        DiscrepancyConfig discrepancyConfig = connectorConfiguration.getDiscrepancyConfig();
+        this.inquiryExecutorService = discrepancyConfig.isParallelInquiriesEnabled()
+                ? environment.lifecycle()
+                        .executorService("discrepancy-inquiry-%d")
+                        .minThreads(discrepancyConfig.getNumberOfThreads())
+                        .maxThreads(discrepancyConfig.getNumberOfThreads())
+                        .build()
+                : null;
+
+        for (PaymentGatewayName gateway : PaymentGatewayName.values()) {
+            int maximumConcurrentInquiries = discrepancyConfig.getMaximumConcurrentInquiriesPerGateway()
+                    .getOrDefault(gateway.getName(), discrepancyConfig.getDefaultMaximumConcurrentInquiriesPerGateway());
+            inquiryPermitsByGateway.put(gateway, new Semaphore(maximumConcurrentInquiries));
+        }
     }
 
     public List<GatewayStatusComparison> listGatewayStatusComparisons(List<String> chargeIds) {
-        return toGatewayStatusComparisonList(chargeIds)
-                .collect(Collectors.toList());
+        List<ChargeEntity> charges = findCharges(chargeIds);
+        List<GatewayStatusComparison> gatewayStatusComparisons = new ArrayList<>(chargeIds.size());
+        forEachGatewayStatusComparison(charges, gatewayStatusComparisons::add);
+        return inChargeOrder(charges, gatewayStatusComparisons);
     }
 
     public List<GatewayStatusComparison> resolveDiscrepancies(List<String> chargeIds) {
-        return toGatewayStatusComparisonList(chargeIds)
-                .filter(GatewayStatusComparison::hasExternalStatusMismatch)
-                .map(this::resolve)
-                .collect(Collectors.toList());
+        List<ChargeEntity> charges = findCharges(chargeIds);
+        List<GatewayStatusComparison> resolvedDiscrepancies = new ArrayList<>();
+        forEachResolvedDiscrepancy(charges, resolvedDiscrepancies::add);
+        return inChargeOrder(charges, resolvedDiscrepancies);
     }
 
-    private Stream<GatewayStatusComparison> toGatewayStatusComparisonList(List<String> chargeIds) {
+    /**
+     * Parallel inquiries complete in the order the gateways respond, so whole results are put back into the order
+     * the charges were given in.
+     */
+    private List<GatewayStatusComparison> inChargeOrder(List<ChargeEntity> charges,
+                                                        List<GatewayStatusComparison> gatewayStatusComparisons) {
+        Map<ChargeEntity, Integer> positions = new IdentityHashMap<>();
+        for (int i = charges.size() - 1; i >= 0; i--) {
+            positions.put(charges.get(i), i);
+        }
+        gatewayStatusComparisons.sort(Comparator.comparing(gatewayStatusComparison -> positions.get(gatewayStatusComparison.getCharge())));
+        return gatewayStatusComparisons;
+    }
+
+    /**
+     * Looking all charges up before any gateway is queried means an unknown charge id fails the whole request
+     * before any result has been returned.
+     */
+    public List<ChargeEntity> findCharges(List<String> chargeIds) {
         return chargeIds.stream()
                 .map(chargeService::findChargeById)
-                .map(charge -> {
-                    try {
-                        return GatewayStatusComparison.from(charge, queryService.getChargeGatewayStatus(charge));
-                    } catch (GatewayException e) {
-                        return GatewayStatusComparison.getEmpty(charge);
-                    }
-                });
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Passes the comparison for each charge to the consumer, on the calling thread, as soon as it is available.
+     * With parallel inquiries enabled, gateways are queried side by side on the inquiry executor, each gateway held
+     * to its configured number of concurrent inquiries, and comparisons arrive in the order the gateways respond.
+     * {@link #listGatewayStatusComparisons(List)} and {@link #resolveDiscrepancies(List)} restore the order given.
+     * An inquiry is only submitted once it holds one of its gateway's permits, so charges waiting on a busy gateway
+     * wait on the calling thread rather than holding inquiry threads that other gateways could use.
+     */
+    public void forEachGatewayStatusComparison(List<ChargeEntity> charges, Consumer<GatewayStatusComparison> consumer) {
+        if (inquiryExecutorService == null) {
+            charges.stream()
+                    .map(this::toGatewayStatusComparison)
+                    .forEach(consumer);
+            return;
+        }
+
+        CompletionService<GatewayStatusComparison> inquiries = new ExecutorCompletionService<>(inquiryExecutorService);
+        Map<PaymentGatewayName, Queue<ChargeEntity>> waitingCharges = new EnumMap<>(PaymentGatewayName.class);
+        charges.forEach(charge -> waitingCharges
+                .computeIfAbsent(charge.getPaymentGatewayName(), gateway -> new ArrayDeque<>())
+                .add(charge));
+        List<GatewayInquiry> submittedInquiries = new ArrayList<>(charges.size());
+        try {
+            int inquiriesInProgress = 0;
+            for (int i = 0; i < charges.size(); i++) {
+                inquiriesInProgress += submitInquiriesWithFreePermits(waitingCharges, inquiries, submittedInquiries);
+                if (inquiriesInProgress == 0) {
+                    // other requests hold every permit for the gateways still to be queried
+                    submitInquiryWhenPermitIsReleased(waitingCharges, inquiries, submittedInquiries);
+                    inquiriesInProgress++;
+                }
+                consumer.accept(takeNextCompleted(inquiries));
+                inquiriesInProgress--;
+            }
+        } finally {
+            submittedInquiries.forEach(GatewayInquiry::cancel);
+        }
+    }
+
+    /**
+     * Passes each charge whose gateway status does not match on to the consumer once resolution has been attempted.
+     * Resolution runs on the calling thread.
+     */
+    public void forEachResolvedDiscrepancy(List<ChargeEntity> charges, Consumer<GatewayStatusComparison> consumer) {
+        forEachGatewayStatusComparison(charges, gatewayStatusComparison -> {
+            if (gatewayStatusComparison.hasExternalStatusMismatch()) {
+                consumer.accept(resolve(gatewayStatusComparison));
+            }
+        });
+    }
+
+    private GatewayStatusComparison toGatewayStatusComparison(ChargeEntity charge) {
+        try {
+            return GatewayStatusComparison.from(charge, queryService.getChargeGatewayStatus(charge));
+        } catch (GatewayException e) {
+            return GatewayStatusComparison.getEmpty(charge);
+        }
+    }
+
+    private int submitInquiriesWithFreePermits(Map<PaymentGatewayName, Queue<ChargeEntity>> waitingCharges,
+                                               CompletionService<GatewayStatusComparison> inquiries,
+                                               List<GatewayInquiry> submittedInquiries) {
+        int submitted = 0;
+        for (Map.Entry<PaymentGatewayName, Queue<ChargeEntity>> gatewayCharges : waitingCharges.entrySet()) {
+            Semaphore inquiryPermits = inquiryPermitsByGateway.get(gatewayCharges.getKey());
+            while (!gatewayCharges.getValue().isEmpty() && inquiryPermits.tryAcquire()) {
+                submittedInquiries.add(new GatewayInquiry(gatewayCharges.getValue().poll(), inquiryPermits, inquiries));
+                submitted++;
+            }
+        }
+        return submitted;
+    }
+
+    private void submitInquiryWhenPermitIsReleased(Map<PaymentGatewayName, Queue<ChargeEntity>> waitingCharges,
+                                                   CompletionService<GatewayStatusComparison> inquiries,
+                                                   List<GatewayInquiry> submittedInquiries) {
+        Map.Entry<PaymentGatewayName, Queue<ChargeEntity>> gatewayCharges = waitingCharges.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .findFirst()
+                .orElseThrow();
+        Semaphore inquiryPermits = inquiryPermitsByGateway.get(gatewayCharges.getKey());
+        try {
+            inquiryPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a gateway status inquiry permit", e);
+        }
+        submittedInquiries.add(new GatewayInquiry(gatewayCharges.getValue().poll(), inquiryPermits, inquiries));
+    }
+
+    private GatewayStatusComparison takeNextCompleted(CompletionService<GatewayStatusComparison> inquiries) {
+        try {
+            return inquiries.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for gateway status inquiries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     private GatewayStatusComparison resolve(GatewayStatusComparison gatewayStatusComparison) {
@@ -84,4 +243,42 @@ public class DiscrepancyService {
     private boolean chargeAgeInDaysIsGreaterThan(ChargeEntity charge, long minimumAge) {
         return charge.getCreatedDate().plusDays(minimumAge).isBefore(ZonedDateTime.now());
     }
+
+    /**
+     * An inquiry submitted holding one of its gateway's permits. The permit is released when the inquiry finishes,
+     * or by {@link #cancel()} if the inquiry is cancelled before it starts.
+     */
+    private class GatewayInquiry {
+        private final Semaphore inquiryPermits;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final Future<GatewayStatusComparison> future;
+
+        GatewayInquiry(ChargeEntity charge, Semaphore inquiryPermits, CompletionService<GatewayStatusComparison> inquiries) {
+            this.inquiryPermits = inquiryPermits;
+            try {
+                this.future = inquiries.submit(() -> run(charge));
+            } catch (RejectedExecutionException e) {
+                inquiryPermits.release();
+                throw e;
+            }
+        }
+
+        private GatewayStatusComparison run(ChargeEntity charge) {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return toGatewayStatusComparison(charge);
+            } finally {
+                inquiryPermits.release();
+            }
+        }
+
+        void cancel() {
+            future.cancel(true);
+            if (started.compareAndSet(false, true)) {
+                inquiryPermits.release();
+            }
+        }
+    }
 }
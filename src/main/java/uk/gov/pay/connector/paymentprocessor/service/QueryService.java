@@ -1,26 +1,81 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.GatewayStatusQueryConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.WebApplicationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+@Singleton
 public class QueryService {
     private final PaymentProviders providers;
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final boolean singleFlightEnabled;
+    private final ConcurrentHashMap<String, CompletableFuture<ChargeQueryResponse>> queriesInFlight = new ConcurrentHashMap<>();
+    private final Cache<String, ChargeQueryResponse> recentResults;
 
     @Inject
-    public QueryService(PaymentProviders providers) {
+    public QueryService(PaymentProviders providers, ConnectorConfiguration configuration) {
         this.providers = providers;
+        GatewayStatusQueryConfig gatewayStatusQueryConfig = configuration.getGatewayStatusQueryConfig();
+        this.singleFlightEnabled = gatewayStatusQueryConfig.isSingleFlightEnabled();
+        this.recentResults = singleFlightEnabled && gatewayStatusQueryConfig.getResultCacheTtlInMilliseconds() > 0
+                ? CacheBuilder.newBuilder()
+                        .expireAfterWrite(gatewayStatusQueryConfig.getResultCacheTtlInMilliseconds(), TimeUnit.MILLISECONDS)
+                        .build()
+                : null;
     }
-    
+
+    /**
+     * With single flight enabled, callers asking for the status of a charge whose gateway status is already being
+     * queried wait for that query and share its result (or exception) instead of sending another one to the gateway.
+     */
     public ChargeQueryResponse getChargeGatewayStatus(ChargeEntity charge) throws GatewayException {
-        return providers.byName(charge.getPaymentGatewayName()).queryPaymentStatus(charge);
+        if (!singleFlightEnabled) {
+            return queryGateway(charge);
+        }
+
+        String chargeExternalId = charge.getExternalId();
+        if (recentResults != null) {
+            ChargeQueryResponse recentResult = recentResults.getIfPresent(chargeExternalId);
+            if (recentResult != null) {
+                return recentResult;
+            }
+        }
+
+        CompletableFuture<ChargeQueryResponse> query = new CompletableFuture<>();
+        CompletableFuture<ChargeQueryResponse> queryInFlight = queriesInFlight.putIfAbsent(chargeExternalId, query);
+        if (queryInFlight != null) {
+            logger.debug("Waiting for gateway status query already in flight for charge {}", chargeExternalId);
+            return awaitResult(queryInFlight);
+        }
+
+        try {
+            ChargeQueryResponse response = queryGateway(charge);
+            if (recentResults != null) {
+                recentResults.put(chargeExternalId, response);
+            }
+            query.complete(response);
+            return response;
+        } catch (Throwable t) {
+            query.completeExceptionally(t);
+            throw t;
+        } finally {
+            queriesInFlight.remove(chargeExternalId, query);
+        }
     }
 
     public boolean isTerminableWithGateway(ChargeEntity charge) {
@@ -34,4 +89,24 @@ public class QueryService {
             return false;
         }
     }
+
+    private ChargeQueryResponse queryGateway(ChargeEntity charge) throws GatewayException {
+        return providers.byName(charge.getPaymentGatewayName()).queryPaymentStatus(charge);
+    }
+
+    private ChargeQueryResponse awaitResult(CompletableFuture<ChargeQueryResponse> queryInFlight) throws GatewayException {
+        try {
+            return queryInFlight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GatewayException) {
+                throw (GatewayException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
 }
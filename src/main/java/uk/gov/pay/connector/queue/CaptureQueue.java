@@ -1,7 +1,9 @@
 package uk.gov.pay.connector.queue;
 
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.gson.GsonBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +13,7 @@ import uk.gov.pay.connector.queue.sqs.SqsQueueService;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -28,6 +31,9 @@ public class CaptureQueue {
     // default message keyword `All`, can be made more granular if queue is responsible for multiple message types
     private static final String CAPTURE_MESSAGE_ATTRIBUTE_NAME = "All";
 
+    // DeleteMessageBatch and ChangeMessageVisibilityBatch accept at most 10 entries
+    private static final int MAXIMUM_ACKNOWLEDGEMENT_BATCH_SIZE = 10;
+
     @Inject
     public CaptureQueue(
             SqsQueueService sqsQueueService,
@@ -59,6 +65,10 @@ public class CaptureQueue {
                 .collect(Collectors.toList());
     }
 
+    public int getApproximateNumberOfMessages() throws QueueException {
+        return sqsQueueService.getApproximateNumberOfMessages(this.captureQueueUrl);
+    }
+
     private ChargeCaptureMessage getChargeCaptureMessage(QueueMessage qm) {
         try {
             CaptureCharge captureCharge = objectMapper.readValue(qm.getMessageBody(), CaptureCharge.class);
@@ -77,4 +87,62 @@ public class CaptureQueue {
     public void scheduleMessageForRetry(ChargeCaptureMessage message) throws QueueException {
         sqsQueueService.deferMessage(this.captureQueueUrl, message.getQueueMessageReceiptHandle(), failedCaptureRetryDelayInSeconds);
     }
+
+    /**
+     * @return the messages SQS failed to delete, which will be received again once their visibility timeout expires
+     */
+    public List<ChargeCaptureMessage> markMessagesAsProcessed(List<ChargeCaptureMessage> messages) {
+        return acknowledgeInBatches(messages, receiptHandles -> sqsQueueService
+                .deleteMessageBatch(this.captureQueueUrl, receiptHandles)
+                .getFailed());
+    }
+
+    /**
+     * @return the messages SQS failed to defer, which will be received again once their current visibility timeout expires
+     */
+    public List<ChargeCaptureMessage> scheduleMessagesForRetry(List<ChargeCaptureMessage> messages) {
+        return acknowledgeInBatches(messages, receiptHandles -> sqsQueueService
+                .deferMessageBatch(this.captureQueueUrl, receiptHandles, failedCaptureRetryDelayInSeconds)
+                .getFailed());
+    }
+
+    /**
+     * Makes the messages visible on the queue again straight away, rather than once their visibility timeout expires
+     *
+     * @return the messages SQS failed to make visible, which will be received again once their visibility timeout expires
+     */
+    public List<ChargeCaptureMessage> returnMessagesToQueue(List<ChargeCaptureMessage> messages) {
+        return acknowledgeInBatches(messages, receiptHandles -> sqsQueueService
+                .deferMessageBatch(this.captureQueueUrl, receiptHandles, 0)
+                .getFailed());
+    }
+
+    /**
+     * A request that fails outright fails every message in its batch, and the remaining batches are still sent
+     */
+    private List<ChargeCaptureMessage> acknowledgeInBatches(List<ChargeCaptureMessage> messages,
+                                                            BatchAcknowledgement acknowledgement) {
+        List<ChargeCaptureMessage> failed = new ArrayList<>();
+        for (List<ChargeCaptureMessage> batch : Lists.partition(messages, MAXIMUM_ACKNOWLEDGEMENT_BATCH_SIZE)) {
+            try {
+                acknowledgement.send(receiptHandlesOf(batch))
+                        .forEach(entry -> failed.add(batch.get(Integer.parseInt(entry.getId()))));
+            } catch (QueueException e) {
+                logger.warn("Error acknowledging batch of {} charge capture messages [errorMessage={}]", batch.size(), e.getMessage());
+                failed.addAll(batch);
+            }
+        }
+        return failed;
+    }
+
+    private List<String> receiptHandlesOf(List<ChargeCaptureMessage> messages) {
+        return messages.stream()
+                .map(ChargeCaptureMessage::getQueueMessageReceiptHandle)
+                .collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface BatchAcknowledgement {
+        List<BatchResultErrorEntry> send(List<String> receiptHandles) throws QueueException;
+    }
 }
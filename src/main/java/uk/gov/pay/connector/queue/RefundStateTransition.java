@@ -42,4 +42,9 @@ public class RefundStateTransition extends StateTransition {
     public RefundStateTransition getNext() {
         return new RefundStateTransition(refundExternalId, refundStatus, getStateTransitionEventClass(), getAttempts() + 1, getDelayDurationInMilliseconds());
     }
+
+    @Override
+    public String getPartitionKey() {
+        return refundExternalId;
+    }
 }
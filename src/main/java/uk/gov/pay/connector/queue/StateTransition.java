@@ -3,12 +3,16 @@ package uk.gov.pay.connector.queue;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class StateTransition implements Delayed {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
     private final Class stateTransitionEventClass;
     private final Long readTime;
     private final long delayDurationInMilliseconds;
     private final AtomicInteger attempts;
+    private final long sequenceNumber = SEQUENCE.getAndIncrement();
 
     private static final int MAXIMUM_NUMBER_OF_ATTEMPTS = 10;
     private static final int BASE_ATTEMPTS = 1;
@@ -37,7 +41,10 @@ public abstract class StateTransition implements Delayed {
 
     @Override
     public int compareTo(Delayed o) {
-        return (int) (readTime - ((StateTransition) o).readTime);
+        StateTransition other = (StateTransition) o;
+        int result = Long.compare(readTime, other.readTime);
+        // transitions that become ready in the same millisecond are taken in the order they were created
+        return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
     }
 
     public boolean shouldAttempt() {
@@ -61,6 +68,13 @@ public abstract class StateTransition implements Delayed {
     }
     
     public abstract String getIdentifier();
-    
+
+    /**
+     * Identifies the resource whose transitions must be emitted in order, used to pick a queue partition.
+     */
+    public String getPartitionKey() {
+        return getIdentifier();
+    }
+
     public abstract StateTransition getNext();
 }
@@ -0,0 +1,161 @@
+package uk.gov.pay.connector.queue;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+import uk.gov.pay.connector.events.model.ResourceType;
+import uk.gov.pay.connector.refund.model.domain.RefundStatus;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.MILLIS;
+
+@Entity
+@Table(name = "state_transition_outbox")
+@SequenceGenerator(name = "state_transition_outbox_id_seq",
+        sequenceName = "state_transition_outbox_id_seq", allocationSize = 1)
+public class StateTransitionOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "state_transition_outbox_id_seq")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resource_type")
+    private ResourceType resourceType;
+
+    @Column(name = "charge_event_id")
+    private Long chargeEventId;
+
+    @Column(name = "refund_external_id")
+    private String refundExternalId;
+
+    @Column(name = "refund_status")
+    private String refundStatus;
+
+    @Column(name = "event_class")
+    private String eventClass;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "retry_delay_in_milliseconds")
+    private long retryDelayInMilliseconds;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    protected StateTransitionOutboxEntity() {
+    }
+
+    private StateTransitionOutboxEntity(ResourceType resourceType, Long chargeEventId, String refundExternalId,
+                                        String refundStatus, String eventClass, int attempts,
+                                        long retryDelayInMilliseconds, ZonedDateTime createdDate) {
+        this.resourceType = resourceType;
+        this.chargeEventId = chargeEventId;
+        this.refundExternalId = refundExternalId;
+        this.refundStatus = refundStatus;
+        this.eventClass = eventClass;
+        this.attempts = attempts;
+        this.retryDelayInMilliseconds = retryDelayInMilliseconds;
+        this.createdDate = createdDate;
+        this.nextAttemptDate = createdDate.plus(retryDelayInMilliseconds, MILLIS);
+    }
+
+    public static StateTransitionOutboxEntity from(StateTransition stateTransition) {
+        ZonedDateTime now = ZonedDateTime.now(UTC);
+        String eventClass = stateTransition.getStateTransitionEventClass().getName();
+
+        if (stateTransition instanceof PaymentStateTransition) {
+            PaymentStateTransition paymentStateTransition = (PaymentStateTransition) stateTransition;
+            return new StateTransitionOutboxEntity(ResourceType.PAYMENT, paymentStateTransition.getChargeEventId(),
+                    null, null, eventClass, stateTransition.getAttempts(),
+                    stateTransition.getDelayDurationInMilliseconds(), now);
+        } else if (stateTransition instanceof RefundStateTransition) {
+            RefundStateTransition refundStateTransition = (RefundStateTransition) stateTransition;
+            return new StateTransitionOutboxEntity(ResourceType.REFUND, null,
+                    refundStateTransition.getRefundExternalId(), refundStateTransition.getRefundStatus().getValue(),
+                    eventClass, stateTransition.getAttempts(), stateTransition.getDelayDurationInMilliseconds(), now);
+        }
+
+        throw new IllegalArgumentException(String.format("Unsupported state transition type: %s",
+                stateTransition.getClass().getSimpleName()));
+    }
+
+    public StateTransition toStateTransition() {
+        Class stateTransitionEventClass;
+        try {
+            stateTransitionEventClass = Class.forName(eventClass);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(String.format("Unknown state transition event class: %s", eventClass));
+        }
+
+        if (resourceType == ResourceType.PAYMENT) {
+            return new PaymentStateTransition(chargeEventId, stateTransitionEventClass, attempts, retryDelayInMilliseconds);
+        }
+        return new RefundStateTransition(refundExternalId, RefundStatus.fromString(refundStatus),
+                stateTransitionEventClass, attempts, retryDelayInMilliseconds);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ResourceType getResourceType() {
+        return resourceType;
+    }
+
+    public Long getChargeEventId() {
+        return chargeEventId;
+    }
+
+    public String getRefundExternalId() {
+        return refundExternalId;
+    }
+
+    public String getRefundStatus() {
+        return refundStatus;
+    }
+
+    public String getEventClass() {
+        return eventClass;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getRetryDelayInMilliseconds() {
+        return retryDelayInMilliseconds;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(ZonedDateTime nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
@@ -1,33 +1,74 @@
 package uk.gov.pay.connector.queue;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Holds state transitions until their delay has expired. The queue can be split into partitions, each with its own
+ * delay queue; a state transition always goes to the partition chosen by its {@link StateTransition#getPartitionKey()},
+ * so all transitions of one resource are taken from the same partition.
+ */
 public class StateTransitionQueue {
-    private final BlockingQueue<StateTransition> queue = new DelayQueue<>();
+    private final List<BlockingQueue<StateTransition>> partitions;
+
+    public StateTransitionQueue() {
+        this(1);
+    }
+
+    public StateTransitionQueue(int numberOfPartitions) {
+        this.partitions = IntStream.range(0, numberOfPartitions)
+                .mapToObj(partition -> new DelayQueue<StateTransition>())
+                .collect(Collectors.toList());
+    }
 
     public boolean offer(StateTransition stateTransition) {
-        return queue.offer(stateTransition);
+        return partitions.get(partitionOf(stateTransition)).offer(stateTransition);
     }
 
+    /**
+     * Polls the first partition, which holds every state transition when the queue is not partitioned.
+     */
     public StateTransition poll(long timeout, TimeUnit unit) throws InterruptedException {
-        return queue.poll(timeout, unit);
+        return poll(0, timeout, unit);
+    }
+
+    public StateTransition poll(int partition, long timeout, TimeUnit unit) throws InterruptedException {
+        return partitions.get(partition).poll(timeout, unit);
     }
 
     public StateTransition poll() throws InterruptedException {
         return poll(0L, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Moves up to {@code maxElements} state transitions whose delay has expired into {@code collection}.
+     */
+    public int drainTo(Collection<? super StateTransition> collection, int maxElements) {
+        return partitions.get(0).drainTo(collection, maxElements);
+    }
+
+    public int partitionOf(StateTransition stateTransition) {
+        return Math.floorMod(stateTransition.getPartitionKey().hashCode(), partitions.size());
+    }
+
+    public int getNumberOfPartitions() {
+        return partitions.size();
+    }
+
     public int size() {
-        return queue.size();
+        return partitions.stream().mapToInt(BlockingQueue::size).sum();
     }
 
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return partitions.stream().allMatch(BlockingQueue::isEmpty);
     }
 
     public void clear() {
-        queue.clear();
+        partitions.forEach(BlockingQueue::clear);
     }
 }
@@ -3,12 +3,14 @@ package uk.gov.pay.connector.queue;
 import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
 import uk.gov.pay.connector.common.model.domain.PaymentGatewayStateTransitions;
 import uk.gov.pay.connector.events.EventService;
 import uk.gov.pay.connector.events.model.Event;
 import uk.gov.pay.connector.events.model.ResourceType;
+import uk.gov.pay.connector.queue.dao.StateTransitionOutboxDao;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.refund.service.RefundStateEventMap;
@@ -28,20 +30,26 @@ public class StateTransitionService {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private StateTransitionQueue stateTransitionQueue;
+    private StateTransitionOutboxDao stateTransitionOutboxDao;
     private EventService eventService;
+    private final boolean stateTransitionOutboxEnabled;
 
     @Inject
     public StateTransitionService(StateTransitionQueue stateTransitionQueue,
-                                  EventService eventService) {
+                                  StateTransitionOutboxDao stateTransitionOutboxDao,
+                                  EventService eventService,
+                                  ConnectorConfiguration connectorConfiguration) {
         this.stateTransitionQueue = stateTransitionQueue;
+        this.stateTransitionOutboxDao = stateTransitionOutboxDao;
         this.eventService = eventService;
+        this.stateTransitionOutboxEnabled = connectorConfiguration.getEventQueueConfig().getStateTransitionOutboxEnabled();
     }
 
     @Transactional
     public void offerRefundStateTransition(RefundEntity refundEntity, RefundStatus refundStatus) {
         Class refundEventClass = RefundStateEventMap.calculateRefundEventClass(refundEntity.getUserExternalId(), refundStatus);
         RefundStateTransition refundStateTransition = new RefundStateTransition(refundEntity.getExternalId(), refundStatus, refundEventClass);
-        stateTransitionQueue.offer(refundStateTransition);
+        enqueue(refundStateTransition);
 
         eventService.recordOfferedEvent(ResourceType.REFUND,
                 refundEntity.getExternalId(),
@@ -54,8 +62,8 @@ public class StateTransitionService {
         PaymentGatewayStateTransitions.getInstance()
                 .getEventForTransition(fromChargeState, targetChargeState)
                 .ifPresent(eventClass -> {
-                    PaymentStateTransition transition = new PaymentStateTransition(chargeEventEntity.getId(), eventClass);
-                    stateTransitionQueue.offer(transition);
+                    PaymentStateTransition transition = new PaymentStateTransition(chargeEventEntity.getId(), externalId, eventClass);
+                    enqueue(transition);
 
                     var logMessage = format("Offered payment state transition to emitter queue [from=%s] [to=%s] [chargeEventId=%s] [chargeId=%s]",
                             fromChargeState, targetChargeState, chargeEventEntity.getId(), externalId);
@@ -77,8 +85,16 @@ public class StateTransitionService {
     @Transactional
     public void offerStateTransition(StateTransition stateTransition, Event event,
                                      ZonedDateTime doNotRetryEmitUntilDate) {
-        stateTransitionQueue.offer(stateTransition);
+        enqueue(stateTransition);
         eventService.recordOfferedEvent(event.getResourceType(), event.getResourceExternalId(),
                 event.getEventType(), event.getTimestamp(), doNotRetryEmitUntilDate);
     }
+
+    private void enqueue(StateTransition stateTransition) {
+        if (stateTransitionOutboxEnabled) {
+            stateTransitionOutboxDao.persist(StateTransitionOutboxEntity.from(stateTransition));
+        } else {
+            stateTransitionQueue.offer(stateTransition);
+        }
+    }
 }
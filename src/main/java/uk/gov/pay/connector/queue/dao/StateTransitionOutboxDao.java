@@ -0,0 +1,78 @@
+package uk.gov.pay.connector.queue.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.queue.StateTransitionOutboxEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Transactional
+public class StateTransitionOutboxDao extends JpaDao<StateTransitionOutboxEntity> {
+
+    @Inject
+    public StateTransitionOutboxDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Rows locked by a concurrent claim on another node are skipped rather than waited on. A claimed row
+     * becomes ready again once {@code leaseUntil} passes, so transitions survive the claiming node dying.
+     */
+    @SuppressWarnings("unchecked")
+    public List<StateTransitionOutboxEntity> claimReadyStateTransitions(int batchSize, ZonedDateTime now,
+                                                                       ZonedDateTime leaseUntil) {
+        String query = "SELECT * FROM state_transition_outbox " +
+                "WHERE next_attempt_date <= ?1 " +
+                "ORDER BY next_attempt_date " +
+                "LIMIT ?2 " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<StateTransitionOutboxEntity> claimed = entityManager.get()
+                .createNativeQuery(query, StateTransitionOutboxEntity.class)
+                .setParameter(1, Timestamp.from(now.toInstant()))
+                .setParameter(2, batchSize)
+                .getResultList();
+
+        if (!claimed.isEmpty()) {
+            entityManager.get()
+                    .createQuery("UPDATE StateTransitionOutboxEntity s" +
+                            " SET s.nextAttemptDate = :leaseUntil" +
+                            " WHERE s.id IN :ids")
+                    .setParameter("leaseUntil", leaseUntil)
+                    .setParameter("ids", claimed.stream().map(StateTransitionOutboxEntity::getId).collect(Collectors.toList()))
+                    .executeUpdate();
+        }
+
+        return claimed;
+    }
+
+    public void scheduleRetry(Long id, int attempts, ZonedDateTime nextAttemptDate) {
+        entityManager.get()
+                .createQuery("UPDATE StateTransitionOutboxEntity s" +
+                        " SET s.attempts = :attempts, s.nextAttemptDate = :nextAttemptDate" +
+                        " WHERE s.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("nextAttemptDate", nextAttemptDate)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public void deleteById(Long id) {
+        entityManager.get()
+                .createQuery("DELETE FROM StateTransitionOutboxEntity s WHERE s.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public Long countPending() {
+        return entityManager.get()
+                .createQuery("SELECT COUNT(s) FROM StateTransitionOutboxEntity s", Long.class)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,158 @@
+package uk.gov.pay.connector.queue.managed;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.CaptureProcessConfig;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.paymentprocessor.service.CardCaptureProcess;
+import uk.gov.pay.connector.queue.CaptureQueue;
+
+import javax.inject.Inject;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Receives capture messages in continuous loops rather than on a fixed delay. A receiver only backs off,
+ * exponentially, after receives that come back empty. The number of active receivers follows the capture
+ * queue's ApproximateNumberOfMessages, allowing one receiver per full receive batch of backlog.
+ */
+public class AdaptiveCaptureMessageReceiver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveCaptureMessageReceiver.class);
+
+    private static final long INACTIVE_RECEIVER_CHECK_INTERVAL_IN_MILLISECONDS = 1000;
+
+    private final CardCaptureProcess cardCaptureProcess;
+    private final CaptureQueue captureQueue;
+    private final int minimumNumberOfReceivers;
+    private final int maximumNumberOfReceivers;
+    private final int messagesPerReceiver;
+    private final int receiverScalingIntervalInSeconds;
+    private final long emptyReceiveInitialBackoffInMilliseconds;
+    private final long emptyReceiveMaximumBackoffInMilliseconds;
+    private final AtomicInteger activeReceivers;
+    private final AtomicInteger approximateNumberOfMessages = new AtomicInteger();
+
+    private ExecutorService receiverExecutorService;
+    private ScheduledExecutorService scalingExecutorService;
+    private volatile boolean running = false;
+
+    @Inject
+    public AdaptiveCaptureMessageReceiver(CardCaptureProcess cardCaptureProcess,
+                                          CaptureQueue captureQueue,
+                                          Environment environment,
+                                          ConnectorConfiguration connectorConfiguration) {
+        this.cardCaptureProcess = cardCaptureProcess;
+        this.captureQueue = captureQueue;
+
+        CaptureProcessConfig captureProcessConfig = connectorConfiguration.getCaptureProcessConfig();
+        this.minimumNumberOfReceivers = captureProcessConfig.getMinimumNumberOfReceivers();
+        this.maximumNumberOfReceivers = captureProcessConfig.getMaximumNumberOfReceivers();
+        this.receiverScalingIntervalInSeconds = captureProcessConfig.getReceiverScalingIntervalInSeconds();
+        this.emptyReceiveInitialBackoffInMilliseconds = captureProcessConfig.getEmptyReceiveInitialBackoffInMilliseconds();
+        this.emptyReceiveMaximumBackoffInMilliseconds = captureProcessConfig.getEmptyReceiveMaximumBackoffInMilliseconds();
+        this.messagesPerReceiver = connectorConfiguration.getSqsConfig().getMessageMaximumBatchSize();
+        this.activeReceivers = new AtomicInteger(minimumNumberOfReceivers);
+
+        if (captureProcessConfig.getAdaptiveReceiverEnabled()) {
+            receiverExecutorService = environment
+                    .lifecycle()
+                    .executorService("capture-message-receiver-%d")
+                    .minThreads(maximumNumberOfReceivers)
+                    .maxThreads(maximumNumberOfReceivers)
+                    .build();
+            scalingExecutorService = environment
+                    .lifecycle()
+                    .scheduledExecutorService("capture-message-receiver-scaler")
+                    .threads(1)
+                    .build();
+
+            MetricRegistry metricRegistry = environment.metrics();
+            metricRegistry.register("capture-queue.receivers.active", (Gauge<Integer>) activeReceivers::get);
+            metricRegistry.register("capture-queue.approximate-number-of-messages", (Gauge<Integer>) approximateNumberOfMessages::get);
+        }
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < maximumNumberOfReceivers; i++) {
+            int receiverIndex = i;
+            receiverExecutorService.submit(() -> receiveLoop(receiverIndex));
+        }
+        scalingExecutorService.scheduleWithFixedDelay(this::scaleReceivers,
+                0, receiverScalingIntervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        running = false;
+        scalingExecutorService.shutdown();
+        receiverExecutorService.shutdown();
+    }
+
+    private void receiveLoop(int receiverIndex) {
+        long emptyReceiveBackoffInMilliseconds = 0;
+        while (running) {
+            try {
+                if (receiverIndex >= activeReceivers.get()) {
+                    Thread.sleep(INACTIVE_RECEIVER_CHECK_INTERVAL_IN_MILLISECONDS);
+                    continue;
+                }
+
+                emptyReceiveBackoffInMilliseconds = receive() > 0
+                        ? 0
+                        : nextEmptyReceiveBackoff(emptyReceiveBackoffInMilliseconds);
+
+                if (emptyReceiveBackoffInMilliseconds > 0) {
+                    Thread.sleep(emptyReceiveBackoffInMilliseconds);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int receive() {
+        try {
+            return cardCaptureProcess.handleCaptureMessages();
+        } catch (Exception e) {
+            LOGGER.error("Queue message chargeCaptureMessageReceiver thread exception [message={}]", e.getMessage());
+            return 0;
+        }
+    }
+
+    long nextEmptyReceiveBackoff(long currentBackoffInMilliseconds) {
+        if (currentBackoffInMilliseconds == 0) {
+            return emptyReceiveInitialBackoffInMilliseconds;
+        }
+        return Math.min(currentBackoffInMilliseconds * 2, emptyReceiveMaximumBackoffInMilliseconds);
+    }
+
+    void scaleReceivers() {
+        try {
+            int backlog = captureQueue.getApproximateNumberOfMessages();
+            approximateNumberOfMessages.set(backlog);
+
+            int wantedReceivers = (backlog + messagesPerReceiver - 1) / messagesPerReceiver;
+            int receivers = Math.max(minimumNumberOfReceivers, Math.min(maximumNumberOfReceivers, wantedReceivers));
+            int previousReceivers = activeReceivers.getAndSet(receivers);
+
+            if (previousReceivers != receivers) {
+                LOGGER.info("Scaled capture message receivers [from={}] [to={}] [approximateNumberOfMessages={}]",
+                        previousReceivers, receivers, backlog);
+            }
+        } catch (Exception e) {
+            // an exception escaping a scheduled task would stop the receivers being scaled from then on
+            LOGGER.warn("Failed to scale capture message receivers [message={}]", e.getMessage());
+        }
+    }
+
+    int getActiveReceivers() {
+        return activeReceivers.get();
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.pay.connector.queue.managed;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeService;
+
+import javax.inject.Inject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class NotificationDedupePruner implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDedupePruner.class);
+
+    private final NotificationDedupeService notificationDedupeService;
+    private final int pruneIntervalInMinutes;
+    private final ScheduledExecutorService notificationDedupeExecutorService;
+
+    @Inject
+    public NotificationDedupePruner(NotificationDedupeService notificationDedupeService,
+                                    Environment environment,
+                                    ConnectorConfiguration connectorConfiguration) {
+        this.notificationDedupeService = notificationDedupeService;
+        this.pruneIntervalInMinutes = connectorConfiguration.getNotificationDedupeConfig().getPruneIntervalInMinutes();
+        this.notificationDedupeExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService("notification-dedupe-pruner-%d")
+                .threads(1)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        notificationDedupeExecutorService.scheduleWithFixedDelay(this::prune, pruneIntervalInMinutes, pruneIntervalInMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        notificationDedupeExecutorService.shutdown();
+    }
+
+    private void prune() {
+        try {
+            notificationDedupeService.deleteExpired();
+        } catch (Exception e) {
+            LOGGER.error("Notification dedupe pruner failed to delete expired keys due to [message={}]", e.getMessage());
+        }
+    }
+}
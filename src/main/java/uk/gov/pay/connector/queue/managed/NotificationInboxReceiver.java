@@ -0,0 +1,56 @@
+package uk.gov.pay.connector.queue.managed;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.webhook.inbox.NotificationInboxProcess;
+
+import javax.inject.Inject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class NotificationInboxReceiver implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationInboxReceiver.class);
+
+    private final NotificationInboxProcess notificationInboxProcess;
+    private final int numberOfThreads;
+    private final ScheduledExecutorService notificationInboxExecutorService;
+
+    @Inject
+    public NotificationInboxReceiver(NotificationInboxProcess notificationInboxProcess,
+                                     Environment environment,
+                                     ConnectorConfiguration connectorConfiguration) {
+        this.notificationInboxProcess = notificationInboxProcess;
+        this.numberOfThreads = connectorConfiguration.getNotificationInboxConfig().getNumberOfThreads();
+        this.notificationInboxExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService("notification-inbox-poller-%d")
+                .threads(numberOfThreads)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < numberOfThreads; i++) {
+            notificationInboxExecutorService.scheduleWithFixedDelay(this::notificationInboxReceiver, 1, 1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        notificationInboxExecutorService.shutdown();
+    }
+
+    private void notificationInboxReceiver() {
+        try {
+            notificationInboxProcess.handleNotifications();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Notification inbox polling thread failed to process notifications due to [message={}]", e.getMessage());
+        }
+    }
+}
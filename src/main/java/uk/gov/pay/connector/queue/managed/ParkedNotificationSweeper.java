@@ -0,0 +1,52 @@
+package uk.gov.pay.connector.queue.managed;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationProcess;
+
+import javax.inject.Inject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ParkedNotificationSweeper implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkedNotificationSweeper.class);
+
+    private final ParkedNotificationProcess parkedNotificationProcess;
+    private final int sweepIntervalInSeconds;
+    private final ScheduledExecutorService parkedNotificationExecutorService;
+
+    @Inject
+    public ParkedNotificationSweeper(ParkedNotificationProcess parkedNotificationProcess,
+                                     Environment environment,
+                                     ConnectorConfiguration connectorConfiguration) {
+        this.parkedNotificationProcess = parkedNotificationProcess;
+        this.sweepIntervalInSeconds = connectorConfiguration.getParkedNotificationConfig().getSweepIntervalInSeconds();
+        this.parkedNotificationExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService("parked-notification-sweeper-%d")
+                .threads(1)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        parkedNotificationExecutorService.scheduleWithFixedDelay(this::sweep, sweepIntervalInSeconds, sweepIntervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        parkedNotificationExecutorService.shutdown();
+    }
+
+    private void sweep() {
+        try {
+            parkedNotificationProcess.sweep();
+        } catch (Exception e) {
+            LOGGER.error("Parked notification sweeper failed to sweep notifications due to [message={}]", e.getMessage());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.events.StateTransitionEmitterProcess;
+import uk.gov.pay.connector.events.StateTransitionOutboxProcess;
 import uk.gov.pay.connector.paymentprocessor.service.CardCaptureProcess;
 
 import javax.inject.Inject;
@@ -22,6 +23,10 @@ public class QueueMessageReceiver implements Managed {
 
     private final int queueSchedulerThreadDelayInSeconds;
     private final int paymentStateTransitionPollerNumberOfThreads;
+    private final boolean stateTransitionOutboxEnabled;
+    private final boolean partitionedStateTransitionEmitterEnabled;
+    private final int stateTransitionNumberOfPartitions;
+    private final boolean adaptiveCaptureReceiverEnabled;
 
 
     private ScheduledExecutorService chargeCaptureMessageExecutorService;
@@ -29,16 +34,27 @@ public class QueueMessageReceiver implements Managed {
 
     private final CardCaptureProcess cardCaptureProcess;
     private final StateTransitionEmitterProcess stateTransitionEmitterProcess;
+    private final StateTransitionOutboxProcess stateTransitionOutboxProcess;
+    private final AdaptiveCaptureMessageReceiver adaptiveCaptureMessageReceiver;
 
 
     @Inject
     public QueueMessageReceiver(CardCaptureProcess cardCaptureProcess, StateTransitionEmitterProcess stateTransitionEmitterProcess,
+                                StateTransitionOutboxProcess stateTransitionOutboxProcess,
+                                AdaptiveCaptureMessageReceiver adaptiveCaptureMessageReceiver,
                                 Environment environment, ConnectorConfiguration connectorConfiguration) {
         this.stateTransitionEmitterProcess = stateTransitionEmitterProcess;
+        this.stateTransitionOutboxProcess = stateTransitionOutboxProcess;
+        this.adaptiveCaptureMessageReceiver = adaptiveCaptureMessageReceiver;
         this.cardCaptureProcess = cardCaptureProcess;
 
         int queueScheduleNumberOfThreads = connectorConfiguration.getCaptureProcessConfig().getQueueSchedulerNumberOfThreads();
         this.paymentStateTransitionPollerNumberOfThreads = connectorConfiguration.getEventQueueConfig().getPaymentStateTransitionPollerNumberOfThreads();
+        this.stateTransitionOutboxEnabled = connectorConfiguration.getEventQueueConfig().getStateTransitionOutboxEnabled();
+        this.partitionedStateTransitionEmitterEnabled = !stateTransitionOutboxEnabled
+                && connectorConfiguration.getEventQueueConfig().getPartitionedStateTransitionEmitterEnabled();
+        this.stateTransitionNumberOfPartitions = connectorConfiguration.getEventQueueConfig().getStateTransitionNumberOfPartitions();
+        this.adaptiveCaptureReceiverEnabled = connectorConfiguration.getCaptureProcessConfig().getAdaptiveReceiverEnabled();
 
         chargeCaptureMessageExecutorService = environment
                 .lifecycle()
@@ -49,7 +65,9 @@ public class QueueMessageReceiver implements Managed {
         stateTransitionMessageExecutorService = environment
                 .lifecycle()
                 .scheduledExecutorService("payment-state-transition-message-poller-%d")
-                .threads(paymentStateTransitionPollerNumberOfThreads)
+                .threads(partitionedStateTransitionEmitterEnabled
+                        ? stateTransitionNumberOfPartitions
+                        : paymentStateTransitionPollerNumberOfThreads)
                 .build();
 
         queueSchedulerThreadDelayInSeconds = connectorConfiguration.getCaptureProcessConfig().getQueueSchedulerThreadDelayInSeconds();
@@ -57,21 +75,41 @@ public class QueueMessageReceiver implements Managed {
 
     @Override
     public void start() {
-        int initialDelay = queueSchedulerThreadDelayInSeconds;
-        chargeCaptureMessageExecutorService.scheduleWithFixedDelay(
-                this::chargeCaptureMessageReceiver,
-                initialDelay,
-                queueSchedulerThreadDelayInSeconds,
-                TimeUnit.SECONDS);
+        if (adaptiveCaptureReceiverEnabled) {
+            adaptiveCaptureMessageReceiver.start();
+        } else {
+            int initialDelay = queueSchedulerThreadDelayInSeconds;
+            chargeCaptureMessageExecutorService.scheduleWithFixedDelay(
+                    this::chargeCaptureMessageReceiver,
+                    initialDelay,
+                    queueSchedulerThreadDelayInSeconds,
+                    TimeUnit.SECONDS);
+        }
             
+        if (partitionedStateTransitionEmitterEnabled) {
+            for (int partition = 0; partition < stateTransitionNumberOfPartitions; partition++) {
+                int partitionToPoll = partition;
+                stateTransitionMessageExecutorService.scheduleWithFixedDelay(
+                        () -> stateTransitionPartitionReceiver(partitionToPoll), 1, 1, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+
+        Runnable stateTransitionReceiver = stateTransitionOutboxEnabled
+                ? this::stateTransitionOutboxReceiver
+                : this::stateTransitionMessageReceiver;
+
         for (int i = 0; i < this.paymentStateTransitionPollerNumberOfThreads; i++) {
             stateTransitionMessageExecutorService.scheduleWithFixedDelay(
-                    this::stateTransitionMessageReceiver, 1, 1, TimeUnit.MILLISECONDS);
+                    stateTransitionReceiver, 1, 1, TimeUnit.MILLISECONDS);
         }
     }
 
     @Override
     public void stop() {
+        if (adaptiveCaptureReceiverEnabled) {
+            adaptiveCaptureMessageReceiver.stop();
+        }
         chargeCaptureMessageExecutorService.shutdown();
         stopStateTransitionExecutor();
     }
@@ -117,6 +155,23 @@ public class QueueMessageReceiver implements Managed {
         }
     }
 
+    private void stateTransitionPartitionReceiver(int partition) {
+        try {
+            stateTransitionEmitterProcess.handleStateTransitionMessages(partition);
+        } catch (Exception e) {
+            LOGGER.error("State transition message polling thread failed to process message due to [partition={}] [message={}]",
+                    partition, e.getMessage());
+        }
+    }
+
+    private void stateTransitionOutboxReceiver() {
+        try {
+            stateTransitionOutboxProcess.handleStateTransitionMessages();
+        } catch (Exception e) {
+            LOGGER.error("State transition outbox polling thread failed to process messages due to [message={}]", e.getMessage());
+        }
+    }
+
     private void chargeCaptureMessageReceiver() {
         try {
             cardCaptureProcess.handleCaptureMessages();
@@ -0,0 +1,56 @@
+package uk.gov.pay.connector.queue.managed;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.gateway.stripe.transfer.StripeTransferOutboxProcess;
+
+import javax.inject.Inject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class StripeTransferOutboxReceiver implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripeTransferOutboxReceiver.class);
+
+    private final StripeTransferOutboxProcess stripeTransferOutboxProcess;
+    private final int numberOfThreads;
+    private final ScheduledExecutorService stripeTransferExecutorService;
+
+    @Inject
+    public StripeTransferOutboxReceiver(StripeTransferOutboxProcess stripeTransferOutboxProcess,
+                                        Environment environment,
+                                        ConnectorConfiguration connectorConfiguration) {
+        this.stripeTransferOutboxProcess = stripeTransferOutboxProcess;
+        this.numberOfThreads = connectorConfiguration.getStripeTransferOutboxConfig().getNumberOfThreads();
+        this.stripeTransferExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService("stripe-transfer-outbox-poller-%d")
+                .threads(numberOfThreads)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < numberOfThreads; i++) {
+            stripeTransferExecutorService.scheduleWithFixedDelay(this::stripeTransferReceiver, 1, 1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        stripeTransferExecutorService.shutdown();
+    }
+
+    private void stripeTransferReceiver() {
+        try {
+            stripeTransferOutboxProcess.handleTransfers();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Stripe transfer outbox polling thread failed to process transfers due to [message={}]", e.getMessage());
+        }
+    }
+}
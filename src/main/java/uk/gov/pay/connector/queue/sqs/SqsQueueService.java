@@ -1,7 +1,11 @@
 package uk.gov.pay.connector.queue.sqs;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageResult;
@@ -10,6 +14,15 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.AmazonSQSException;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityResult;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
@@ -17,6 +30,7 @@ import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.QueueMessage;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SqsQueueService {
@@ -47,6 +61,19 @@ public class SqsQueueService {
         }
     }
 
+    public SendMessageBatchResult sendMessageBatch(String queueUrl, List<SendMessageBatchRequestEntry> entries) throws QueueException {
+        try {
+            SendMessageBatchResult sendMessageBatchResult = sqsClient.sendMessageBatch(new SendMessageBatchRequest(queueUrl, entries));
+
+            logger.info("Message batch sent to SQS queue - [successful={}] [failed={}]",
+                    sendMessageBatchResult.getSuccessful().size(), sendMessageBatchResult.getFailed().size());
+            return sendMessageBatchResult;
+        } catch (AmazonSQSException | UnsupportedOperationException e) {
+            logger.error("Failed sending message batch to SQS queue - {}", e.getMessage());
+            throw new QueueException(e.getMessage());
+        }
+    }
+
     public List<QueueMessage> receiveMessages(String queueUrl, String messageAttributeName) throws QueueException {
         try {
             ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(queueUrl);
@@ -64,6 +91,19 @@ public class SqsQueueService {
         }
     }
 
+    public int getApproximateNumberOfMessages(String queueUrl) throws QueueException {
+        try {
+            GetQueueAttributesResult getQueueAttributesResult = sqsClient.getQueueAttributes(new GetQueueAttributesRequest(queueUrl)
+                    .withAttributeNames(QueueAttributeName.ApproximateNumberOfMessages));
+
+            return Integer.parseInt(getQueueAttributesResult.getAttributes()
+                    .get(QueueAttributeName.ApproximateNumberOfMessages.toString()));
+        } catch (AmazonClientException | UnsupportedOperationException | NumberFormatException e) {
+            logger.error("Failed to get approximate number of messages from SQS queue - {}", e.getMessage());
+            throw new QueueException(e.getMessage());
+        }
+    }
+
     public DeleteMessageResult deleteMessage(String queueUrl, String messageReceiptHandle) throws QueueException {
         try {
             return sqsClient.deleteMessage(new DeleteMessageRequest(queueUrl, messageReceiptHandle));
@@ -77,6 +117,32 @@ public class SqsQueueService {
         }
     }
 
+    /**
+     * Entry ids in the result are the indexes of the receipt handles in {@code messageReceiptHandles}.
+     */
+    public DeleteMessageBatchResult deleteMessageBatch(String queueUrl, List<String> messageReceiptHandles) throws QueueException {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < messageReceiptHandles.size(); i++) {
+            entries.add(new DeleteMessageBatchRequestEntry(String.valueOf(i), messageReceiptHandles.get(i)));
+        }
+
+        try {
+            DeleteMessageBatchResult deleteMessageBatchResult = sqsClient.deleteMessageBatch(new DeleteMessageBatchRequest(queueUrl, entries));
+
+            deleteMessageBatchResult.getFailed().forEach(failed ->
+                    logger.error("Failed to delete message in batch from SQS queue - [entryId={}] [errorMessage={}] [awsErrorCode={}]",
+                            failed.getId(), failed.getMessage(), failed.getCode()));
+            return deleteMessageBatchResult;
+        } catch (AmazonSQSException | UnsupportedOperationException e) {
+            logger.error("Failed to delete message batch from SQS queue - {}", e.getMessage());
+            throw new QueueException(e.getMessage());
+        } catch (AmazonServiceException e) {
+            logger.error("Failed to delete message batch from SQS queue - [errorMessage={}] [awsErrorCode={}]", e.getMessage(), e.getErrorCode());
+            String errorMessage = String.format("%s [%s]", e.getMessage(), e.getErrorCode());
+            throw new QueueException(errorMessage);
+        }
+    }
+
     public ChangeMessageVisibilityResult deferMessage(String queueUrl, String messageReceiptHandle, int timeoutInSeconds) throws QueueException {
         try {
             ChangeMessageVisibilityRequest changeMessageVisibilityRequest = new ChangeMessageVisibilityRequest(
@@ -90,4 +156,29 @@ public class SqsQueueService {
             throw new QueueException(e.getMessage());
         }
     }
+
+    /**
+     * Entry ids in the result are the indexes of the receipt handles in {@code messageReceiptHandles}.
+     */
+    public ChangeMessageVisibilityBatchResult deferMessageBatch(String queueUrl, List<String> messageReceiptHandles,
+                                                                int timeoutInSeconds) throws QueueException {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < messageReceiptHandles.size(); i++) {
+            entries.add(new ChangeMessageVisibilityBatchRequestEntry(String.valueOf(i), messageReceiptHandles.get(i))
+                    .withVisibilityTimeout(timeoutInSeconds));
+        }
+
+        try {
+            ChangeMessageVisibilityBatchResult changeMessageVisibilityBatchResult =
+                    sqsClient.changeMessageVisibilityBatch(new ChangeMessageVisibilityBatchRequest(queueUrl, entries));
+
+            changeMessageVisibilityBatchResult.getFailed().forEach(failed ->
+                    logger.error("Failed to defer message in batch from SQS queue - [entryId={}] [errorMessage={}] [awsErrorCode={}]",
+                            failed.getId(), failed.getMessage(), failed.getCode()));
+            return changeMessageVisibilityBatchResult;
+        } catch (AmazonSQSException | UnsupportedOperationException e) {
+            logger.error("Failed to defer message batch from SQS queue - {}", e.getMessage());
+            throw new QueueException(e.getMessage());
+        }
+    }
 }
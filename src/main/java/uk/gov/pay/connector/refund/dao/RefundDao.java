@@ -9,11 +9,15 @@ import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 import javax.persistence.TemporalType;
 import java.sql.Date;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 @Transactional
@@ -42,6 +46,23 @@ public class RefundDao extends JpaDao<RefundEntity> {
                 .getResultList().stream().findFirst();
     }
 
+    public List<RefundEntity> findByProviderAndReferences(String provider, Collection<String> references) {
+        if (references.isEmpty()) {
+            return List.of();
+        }
+
+        String query = "SELECT refund FROM RefundEntity refund " +
+                "JOIN ChargeEntity charge ON refund.chargeEntity.id = charge.id " +
+                "JOIN GatewayAccountEntity gatewayAccount ON charge.gatewayAccount.id = gatewayAccount.id " +
+                "WHERE refund.reference IN :references AND gatewayAccount.gatewayName = :provider";
+
+        return entityManager.get()
+                .createQuery(query, RefundEntity.class)
+                .setParameter("references", references)
+                .setParameter("provider", provider)
+                .getResultList();
+    }
+
     public Optional<RefundHistory> getRefundHistoryByRefundExternalIdAndRefundStatus(String refundExternalId, RefundStatus refundStatus) {
         String query = "SELECT rh.id, rh.external_id, rh.amount, rh.status, rh.charge_id, rh.created_date, " +
                 "rh.version, rh.reference, rh.history_start_date, rh.history_end_date, rh.user_external_id, " +
@@ -59,6 +80,28 @@ public class RefundDao extends JpaDao<RefundEntity> {
 
     }
 
+    public List<RefundHistory> getRefundHistoriesByRefundExternalIds(List<String> refundExternalIds) {
+        if (refundExternalIds.isEmpty()) {
+            return List.of();
+        }
+
+        String parameters = IntStream.rangeClosed(1, refundExternalIds.size())
+                .mapToObj(i -> "?" + i)
+                .collect(Collectors.joining(", "));
+        String query = "SELECT rh.id, rh.external_id, rh.amount, rh.status, rh.charge_id, rh.created_date, " +
+                "rh.version, rh.reference, rh.history_start_date, rh.history_end_date, rh.user_external_id, " +
+                "rh.gateway_transaction_id, ch.external_id AS charge_external_id, ch.gateway_account_id, rh.user_email " +
+                "FROM refunds_history rh, charges ch " +
+                "WHERE rh.external_id IN (" + parameters + ") AND rh.charge_id = ch.id";
+
+        Query nativeQuery = entityManager.get().createNativeQuery(query, "RefundEntityHistoryMapping");
+        for (int i = 0; i < refundExternalIds.size(); i++) {
+            nativeQuery.setParameter(i + 1, refundExternalIds.get(i));
+        }
+
+        return nativeQuery.getResultList();
+    }
+
     public List<RefundHistory> searchHistoryByChargeId(Long chargeId) {
 
         String query = "SELECT id, external_id, amount, status, charge_id, created_date, version, reference, " +
@@ -0,0 +1,76 @@
+package uk.gov.pay.connector.report.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class DiscrepancyJob {
+
+    public enum Type {
+        REPORT, RESOLVE
+    }
+
+    public enum Status {
+        RUNNING, FINISHED, FAILED
+    }
+
+    private final String jobId;
+    private final Type type;
+    private final int numberOfCharges;
+    private final List<GatewayStatusComparison> results = new CopyOnWriteArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile String errorMessage;
+
+    public DiscrepancyJob(String jobId, Type type, int numberOfCharges) {
+        this.jobId = jobId;
+        this.type = type;
+        this.numberOfCharges = numberOfCharges;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getNumberOfCharges() {
+        return numberOfCharges;
+    }
+
+    /**
+     * For a resolution job only charges with a discrepancy have a result, so this can finish below the number of
+     * charges.
+     */
+    public int getNumberOfResults() {
+        return results.size();
+    }
+
+    public List<GatewayStatusComparison> getResults() {
+        return results;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void addResult(GatewayStatusComparison gatewayStatusComparison) {
+        results.add(gatewayStatusComparison);
+    }
+
+    public void finish() {
+        status = Status.FINISHED;
+    }
+
+    public void fail(String errorMessage) {
+        this.errorMessage = errorMessage;
+        status = Status.FAILED;
+    }
+}
@@ -1,25 +1,88 @@
 package uk.gov.pay.connector.util;
 
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.apache.commons.validator.routines.InetAddressValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.ReverseDnsConfig;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.InitialDirContext;
 import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.*;
 
+/**
+ * Reverse DNS lookups are cached by IP address, as notifications from the same gateway host arrive in bursts. Hosts
+ * that were found are cached for longer than addresses with no PTR record, and lookups that failed for any other
+ * reason are not cached at all. The JNDI DNS provider does not expose record TTLs, so the cache TTLs are configured
+ * and should not be longer than the gateway's PTR record TTL.
+ */
+@Singleton
 public class DnsUtils {
     private static final Logger logger = LoggerFactory.getLogger(DnsUtils.class);
 
-    private String extractForwardedIp(String forwardedAddress) {
-        String extractedIp = forwardedAddress.split(",")[0];
+    private final Cache<String, String> resolvedHosts;
+    private final Cache<String, Boolean> unresolvedHosts;
+    private final BlockingQueue<DirContext> idleContexts;
+    private final Hashtable<String, String> dnsEnvironment;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public DnsUtils() {
+        this(new ReverseDnsConfig(), new MetricRegistry(), null);
+    }
+
+    @Inject
+    public DnsUtils(ConnectorConfiguration configuration, Environment environment) {
+        this(configuration.getReverseDnsConfig(), environment.metrics(), null);
+    }
+
+    DnsUtils(ReverseDnsConfig reverseDnsConfig, MetricRegistry metricRegistry, String dnsProviderUrl) {
+        this.resolvedHosts = CacheBuilder.newBuilder()
+                .maximumSize(reverseDnsConfig.getCacheMaximumSize())
+                .expireAfterWrite(reverseDnsConfig.getPositiveTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.unresolvedHosts = CacheBuilder.newBuilder()
+                .maximumSize(reverseDnsConfig.getCacheMaximumSize())
+                .expireAfterWrite(reverseDnsConfig.getNegativeTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.idleContexts = new ArrayBlockingQueue<>(Math.max(1, reverseDnsConfig.getContextPoolSize()));
+
+        this.dnsEnvironment = new Hashtable<>();
+        dnsEnvironment.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
+        dnsEnvironment.put("com.sun.jndi.dns.timeout.initial", String.valueOf(reverseDnsConfig.getTimeoutInMilliseconds()));
+        dnsEnvironment.put("com.sun.jndi.dns.timeout.retries", "1");
+        if (dnsProviderUrl != null) {
+            dnsEnvironment.put("java.naming.provider.url", dnsProviderUrl);
+        }
+
+        this.cacheHits = metricRegistry.counter("reverse-dns.cache.hit");
+        this.cacheMisses = metricRegistry.counter("reverse-dns.cache.miss");
+    }
+
+    public String extractForwardedIp(String forwardedAddress) {
+        String extractedIp = forwardedAddress.split(",")[0].trim();
         logger.debug("Extracted ip {} from X-Forwarded-For '{}'", extractedIp, forwardedAddress);
         return extractedIp;
     }
+
     public boolean ipMatchesDomain(String forwardedAddress, String domain) {
         try {
             String ipAddress = extractForwardedIp(forwardedAddress);
@@ -38,6 +101,18 @@ public class DnsUtils {
         }
     }
 
+    public boolean ipInRanges(String forwardedAddress, List<IpAddressRange> ranges) {
+        if (forwardedAddress == null) {
+            return false;
+        }
+        String ipAddress = extractForwardedIp(forwardedAddress);
+        if (ranges.stream().noneMatch(range -> range.contains(ipAddress))) {
+            logger.error("Ip '{}' is not in any of the allowed ranges", ipAddress);
+            return false;
+        }
+        return true;
+    }
+
     public Optional<String> dnsLookup(String hostName) {
         try {
             InetAddress inetAddress = InetAddress.getByName(hostName);
@@ -48,18 +123,76 @@ public class DnsUtils {
     }
 
     public Optional<String> reverseDnsLookup(String hostIp) {
+        if (!InetAddressValidator.getInstance().isValidInet4Address(hostIp)) {
+            return Optional.empty();
+        }
+
+        String cachedHost = resolvedHosts.getIfPresent(hostIp);
+        if (cachedHost != null) {
+            cacheHits.inc();
+            return Optional.of(cachedHost);
+        }
+        if (unresolvedHosts.getIfPresent(hostIp) != null) {
+            cacheHits.inc();
+            return Optional.empty();
+        }
+        cacheMisses.inc();
+
         List<String> components = Arrays.asList(hostIp.split("\\."));
         Collections.reverse(components);
         String reverseIp = join(".", components.toArray(new String[0])) + ".in-addr.arpa";
+
+        DirContext ctx = null;
+        Attributes attrs;
         try {
-            Hashtable env = new Hashtable();
-            env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
-            DirContext ctx = new InitialDirContext(env);
-            Attributes attrs = ctx.getAttributes(reverseIp, new String[]{"PTR"});
-            ctx.close();
-            return Optional.ofNullable(attrs.get("ptr").get().toString());
-        } catch (Exception e) {
+            ctx = borrowContext();
+            attrs = ctx.getAttributes(reverseIp, new String[]{"PTR"});
+        } catch (NameNotFoundException e) {
+            returnContext(ctx);
+            unresolvedHosts.put(hostIp, Boolean.TRUE);
+            return Optional.empty();
+        } catch (NamingException e) {
+            // the lookup may have timed out, so don't cache the result or reuse the context
+            closeContext(ctx);
+            logger.warn("Reverse DNS lookup on ip '{}' failed: {}", hostIp, e.getMessage());
+            return Optional.empty();
+        }
+        returnContext(ctx);
+
+        try {
+            Attribute ptr = attrs.get("ptr");
+            if (ptr == null) {
+                unresolvedHosts.put(hostIp, Boolean.TRUE);
+                return Optional.empty();
+            }
+            String host = ptr.get().toString();
+            resolvedHosts.put(hostIp, host);
+            return Optional.of(host);
+        } catch (NamingException e) {
+            logger.warn("Reverse DNS lookup on ip '{}' returned an unreadable PTR record: {}", hostIp, e.getMessage());
             return Optional.empty();
         }
     }
+
+    private DirContext borrowContext() throws NamingException {
+        DirContext ctx = idleContexts.poll();
+        return ctx != null ? ctx : new InitialDirContext(dnsEnvironment);
+    }
+
+    private void returnContext(DirContext ctx) {
+        if (ctx != null && !idleContexts.offer(ctx)) {
+            closeContext(ctx);
+        }
+    }
+
+    private void closeContext(DirContext ctx) {
+        if (ctx == null) {
+            return;
+        }
+        try {
+            ctx.close();
+        } catch (NamingException e) {
+            logger.debug("Failed to close DNS context: {}", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package uk.gov.pay.connector.util;
+
+import org.apache.commons.validator.routines.InetAddressValidator;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * An IPv4 or IPv6 address range in CIDR notation, such as {@code 195.35.90.0/23}. Addresses are only ever parsed
+ * from literals, so checking whether an address is in a range never goes to DNS.
+ */
+public class IpAddressRange {
+
+    private static final InetAddressValidator VALIDATOR = InetAddressValidator.getInstance();
+
+    private final byte[] network;
+    private final int prefixLength;
+
+    private IpAddressRange(byte[] network, int prefixLength) {
+        this.network = network;
+        this.prefixLength = prefixLength;
+    }
+
+    public static IpAddressRange parse(String cidr) {
+        String[] parts = cidr.trim().split("/");
+        byte[] network = parseAddress(parts[0]);
+        if (network == null || parts.length > 2) {
+            throw new IllegalArgumentException(format("Invalid CIDR range '%s'", cidr));
+        }
+
+        int maximumPrefixLength = network.length * 8;
+        int prefixLength;
+        try {
+            prefixLength = parts.length == 2 ? Integer.parseInt(parts[1]) : maximumPrefixLength;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Invalid CIDR range '%s'", cidr));
+        }
+        if (prefixLength < 0 || prefixLength > maximumPrefixLength) {
+            throw new IllegalArgumentException(format("Invalid prefix length in CIDR range '%s'", cidr));
+        }
+        return new IpAddressRange(network, prefixLength);
+    }
+
+    /**
+     * Parses a comma separated list of CIDR ranges, ignoring blank entries
+     */
+    public static List<IpAddressRange> parseAll(String cidrs) {
+        if (isBlank(cidrs)) {
+            return List.of();
+        }
+        return Arrays.stream(cidrs.split(","))
+                .filter(cidr -> !isBlank(cidr))
+                .map(IpAddressRange::parse)
+                .collect(toList());
+    }
+
+    public boolean contains(String ipAddress) {
+        byte[] address = parseAddress(ipAddress);
+        if (address == null || address.length != network.length) {
+            return false;
+        }
+
+        int wholeBytes = prefixLength / 8;
+        for (int i = 0; i < wholeBytes; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+
+        int remainingBits = prefixLength % 8;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+        return (address[wholeBytes] & mask) == (network[wholeBytes] & mask);
+    }
+
+    private static byte[] parseAddress(String ipAddress) {
+        if (ipAddress == null || !VALIDATOR.isValid(ipAddress.trim())) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ipAddress.trim()).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
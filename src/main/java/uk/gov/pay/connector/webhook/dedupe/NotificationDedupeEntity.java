@@ -0,0 +1,80 @@
+package uk.gov.pay.connector.webhook.dedupe;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+/**
+ * A gateway notification that has been applied. Rows are written by
+ * {@link uk.gov.pay.connector.webhook.dedupe.dao.NotificationDedupeDao#insertIfAbsent} and deleted once they are
+ * older than the retention period.
+ */
+@Entity
+@Table(name = "notification_dedupe")
+@SequenceGenerator(name = "notification_dedupe_id_seq",
+        sequenceName = "notification_dedupe_id_seq", allocationSize = 1)
+public class NotificationDedupeEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_dedupe_id_seq")
+    private Long id;
+
+    @Column(name = "payment_gateway_name")
+    private String paymentGatewayName;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "reference")
+    private String reference;
+
+    @Column(name = "status")
+    private String status;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "event_date")
+    private ZonedDateTime eventDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    protected NotificationDedupeEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPaymentGatewayName() {
+        return paymentGatewayName;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public ZonedDateTime getEventDate() {
+        return eventDate;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+}
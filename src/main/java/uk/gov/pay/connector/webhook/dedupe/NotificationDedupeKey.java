@@ -0,0 +1,89 @@
+package uk.gov.pay.connector.webhook.dedupe;
+
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Identifies a gateway notification, so a notification that is sent again can be told apart from a new one. The
+ * gateway's own reference is included as well as the transaction id, because a charge can have several refunds with
+ * the same status on the same day.
+ */
+public class NotificationDedupeKey {
+
+    private final PaymentGatewayName paymentGatewayName;
+    private final String transactionId;
+    private final String reference;
+    private final String status;
+    private final ZonedDateTime eventDate;
+
+    private NotificationDedupeKey(PaymentGatewayName paymentGatewayName, String transactionId, String reference,
+                                  String status, ZonedDateTime eventDate) {
+        this.paymentGatewayName = paymentGatewayName;
+        this.transactionId = transactionId;
+        this.reference = reference;
+        this.status = status;
+        this.eventDate = eventDate;
+    }
+
+    public static NotificationDedupeKey of(PaymentGatewayName paymentGatewayName, String transactionId,
+                                           String reference, String status, ZonedDateTime eventDate) {
+        return new NotificationDedupeKey(
+                paymentGatewayName,
+                Objects.toString(transactionId, ""),
+                Objects.toString(reference, ""),
+                Objects.toString(status, ""),
+                eventDate.withZoneSameInstant(UTC));
+    }
+
+    public PaymentGatewayName getPaymentGatewayName() {
+        return paymentGatewayName;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public ZonedDateTime getEventDate() {
+        return eventDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NotificationDedupeKey that = (NotificationDedupeKey) o;
+        return paymentGatewayName == that.paymentGatewayName &&
+                transactionId.equals(that.transactionId) &&
+                reference.equals(that.reference) &&
+                status.equals(that.status) &&
+                eventDate.toInstant().equals(that.eventDate.toInstant());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(paymentGatewayName, transactionId, reference, status, eventDate.toInstant());
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationDedupeKey{" +
+                "paymentGatewayName=" + paymentGatewayName +
+                ", transactionId='" + transactionId + '\'' +
+                ", reference='" + reference + '\'' +
+                ", status='" + status + '\'' +
+                ", eventDate=" + eventDate +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+package uk.gov.pay.connector.webhook.dedupe;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationDedupeConfig;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.webhook.dedupe.dao.NotificationDedupeDao;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+
+/**
+ * Remembers the notifications that have been applied, so a notification the gateway sends again can be acknowledged
+ * without looking up its charge. Keys are kept in the {@code notification_dedupe} table, with the most recently seen
+ * keys cached in memory. A key is only cached once it has been read back from the table, so a key recorded in a
+ * transaction that is later rolled back is never treated as a replay.
+ */
+@Singleton
+public class NotificationDedupeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDedupeService.class);
+
+    private final NotificationDedupeDao notificationDedupeDao;
+    private final boolean enabled;
+    private final int retentionInDays;
+    private final Cache<NotificationDedupeKey, Boolean> recentlySeen;
+    private final Map<PaymentGatewayName, Meter> notifications = new EnumMap<>(PaymentGatewayName.class);
+    private final Map<PaymentGatewayName, Meter> replays = new EnumMap<>(PaymentGatewayName.class);
+
+    @Inject
+    public NotificationDedupeService(NotificationDedupeDao notificationDedupeDao,
+                                     ConnectorConfiguration connectorConfiguration,
+                                     Environment environment) {
+        this.notificationDedupeDao = notificationDedupeDao;
+
+        NotificationDedupeConfig notificationDedupeConfig = connectorConfiguration.getNotificationDedupeConfig();
+        this.enabled = notificationDedupeConfig.isEnabled();
+        this.retentionInDays = notificationDedupeConfig.getRetentionInDays();
+        this.recentlySeen = CacheBuilder.newBuilder()
+                .maximumSize(notificationDedupeConfig.getCacheMaximumSize())
+                .build();
+
+        MetricRegistry metricRegistry = environment.metrics();
+        for (PaymentGatewayName gateway : PaymentGatewayName.values()) {
+            String prefix = "notification-dedupe." + gateway.getName();
+            Meter gatewayNotifications = metricRegistry.meter(prefix + ".notifications");
+            Meter gatewayReplays = metricRegistry.meter(prefix + ".replays");
+            notifications.put(gateway, gatewayNotifications);
+            replays.put(gateway, gatewayReplays);
+            if (enabled) {
+                metricRegistry.register(prefix + ".replay-ratio", new RatioGauge() {
+                    @Override
+                    protected Ratio getRatio() {
+                        return Ratio.of(gatewayReplays.getOneMinuteRate(), gatewayNotifications.getOneMinuteRate());
+                    }
+                });
+            }
+        }
+    }
+
+    public boolean isReplay(NotificationDedupeKey key) {
+        if (!enabled) {
+            return false;
+        }
+
+        notifications.get(key.getPaymentGatewayName()).mark();
+        boolean replay = recentlySeen.getIfPresent(key) != null;
+        if (!replay && notificationDedupeDao.exists(key)) {
+            recentlySeen.put(key, Boolean.TRUE);
+            replay = true;
+        }
+        if (replay) {
+            markReplay(key);
+        }
+        return replay;
+    }
+
+    /**
+     * Checks a batch of notifications with at most one query, for the keys that are not already cached, rather than
+     * one query per notification.
+     */
+    public Set<NotificationDedupeKey> findReplays(Collection<NotificationDedupeKey> keys) {
+        if (!enabled) {
+            return Set.of();
+        }
+
+        Set<NotificationDedupeKey> found = new HashSet<>();
+        List<NotificationDedupeKey> uncached = new ArrayList<>();
+        for (NotificationDedupeKey key : keys) {
+            notifications.get(key.getPaymentGatewayName()).mark();
+            if (recentlySeen.getIfPresent(key) != null) {
+                found.add(key);
+            } else {
+                uncached.add(key);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Set<NotificationDedupeKey> existing = notificationDedupeDao.findExisting(uncached);
+            existing.forEach(key -> recentlySeen.put(key, Boolean.TRUE));
+            found.addAll(existing);
+        }
+
+        keys.stream().filter(found::contains).forEach(this::markReplay);
+        return found;
+    }
+
+    private void markReplay(NotificationDedupeKey key) {
+        replays.get(key.getPaymentGatewayName()).mark();
+        LOGGER.info("{} notification has already been applied [{}]", key.getPaymentGatewayName().getName(), key);
+    }
+
+    /**
+     * Records that the notification has been applied, in the caller's transaction if there is one.
+     */
+    public void record(NotificationDedupeKey key) {
+        if (!enabled) {
+            return;
+        }
+
+        notificationDedupeDao.insertIfAbsent(key, now(UTC));
+    }
+
+    /**
+     * Run by {@link uk.gov.pay.connector.queue.managed.NotificationDedupePruner} on its own thread, so the bulk
+     * delete is never part of the transaction that applies a notification.
+     */
+    public void deleteExpired() {
+        ZonedDateTime cutoff = now(UTC).minusDays(retentionInDays);
+        int deleted = notificationDedupeDao.deleteCreatedBefore(cutoff);
+        LOGGER.info("Deleted {} notification dedupe keys created before {}", deleted, cutoff);
+    }
+}
@@ -0,0 +1,96 @@
+package uk.gov.pay.connector.webhook.dedupe.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeEntity;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeKey;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Transactional
+public class NotificationDedupeDao extends JpaDao<NotificationDedupeEntity> {
+
+    @Inject
+    public NotificationDedupeDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    public boolean exists(NotificationDedupeKey key) {
+        return !entityManager.get()
+                .createQuery("SELECT n.id FROM NotificationDedupeEntity n" +
+                        " WHERE n.paymentGatewayName = :paymentGatewayName" +
+                        " AND n.transactionId = :transactionId" +
+                        " AND n.reference = :reference" +
+                        " AND n.status = :status" +
+                        " AND n.eventDate = :eventDate", Long.class)
+                .setParameter("paymentGatewayName", key.getPaymentGatewayName().getName())
+                .setParameter("transactionId", key.getTransactionId())
+                .setParameter("reference", key.getReference())
+                .setParameter("status", key.getStatus())
+                .setParameter("eventDate", key.getEventDate())
+                .setMaxResults(1)
+                .getResultList().isEmpty();
+    }
+
+    /**
+     * Finds which of the keys have been recorded in one query. Rows are narrowed down by gateway and transaction id
+     * in the database and matched against the full keys here.
+     */
+    public Set<NotificationDedupeKey> findExisting(Collection<NotificationDedupeKey> keys) {
+        if (keys.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<NotificationDedupeKey> wanted = new HashSet<>(keys);
+        return entityManager.get()
+                .createQuery("SELECT n FROM NotificationDedupeEntity n" +
+                        " WHERE n.paymentGatewayName IN :paymentGatewayNames" +
+                        " AND n.transactionId IN :transactionIds", NotificationDedupeEntity.class)
+                .setParameter("paymentGatewayNames", wanted.stream()
+                        .map(key -> key.getPaymentGatewayName().getName())
+                        .collect(Collectors.toSet()))
+                .setParameter("transactionIds", wanted.stream()
+                        .map(NotificationDedupeKey::getTransactionId)
+                        .collect(Collectors.toSet()))
+                .getResultList().stream()
+                .map(entity -> NotificationDedupeKey.of(PaymentGatewayName.valueFrom(entity.getPaymentGatewayName()),
+                        entity.getTransactionId(), entity.getReference(), entity.getStatus(), entity.getEventDate()))
+                .filter(wanted::contains)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * A duplicate key is ignored rather than violating the unique constraint, which would mark the caller's
+     * transaction for rollback when two nodes apply the same notification at once.
+     */
+    public void insertIfAbsent(NotificationDedupeKey key, ZonedDateTime createdDate) {
+        entityManager.get()
+                .createNativeQuery("INSERT INTO notification_dedupe" +
+                        " (payment_gateway_name, transaction_id, reference, status, event_date, created_date)" +
+                        " VALUES (?1, ?2, ?3, ?4, ?5, ?6)" +
+                        " ON CONFLICT DO NOTHING")
+                .setParameter(1, key.getPaymentGatewayName().getName())
+                .setParameter(2, key.getTransactionId())
+                .setParameter(3, key.getReference())
+                .setParameter(4, key.getStatus())
+                .setParameter(5, Timestamp.from(key.getEventDate().toInstant()))
+                .setParameter(6, Timestamp.from(createdDate.toInstant()))
+                .executeUpdate();
+    }
+
+    public int deleteCreatedBefore(ZonedDateTime cutoff) {
+        return entityManager.get()
+                .createQuery("DELETE FROM NotificationDedupeEntity n WHERE n.createdDate < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.pay.connector.webhook.inbox;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * A gateway notification that has been accepted but not yet processed. Notifications with the same ordering key,
+ * the gateway's transaction id, are processed one at a time in the order they were received. Notifications without
+ * an ordering key are processed independently.
+ */
+@Entity
+@Table(name = "notification_inbox")
+@SequenceGenerator(name = "notification_inbox_id_seq",
+        sequenceName = "notification_inbox_id_seq", allocationSize = 1)
+public class NotificationInboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_inbox_id_seq")
+    private Long id;
+
+    @Column(name = "payment_gateway_name")
+    private String paymentGatewayName;
+
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "ordering_key")
+    private String orderingKey;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "abandoned")
+    private boolean abandoned;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    protected NotificationInboxEntity() {
+    }
+
+    private NotificationInboxEntity(String paymentGatewayName, String payload, String orderingKey,
+                                    ZonedDateTime createdDate) {
+        this.paymentGatewayName = paymentGatewayName;
+        this.payload = payload;
+        this.orderingKey = orderingKey;
+        this.attempts = 0;
+        this.abandoned = false;
+        this.createdDate = createdDate;
+        this.nextAttemptDate = createdDate;
+    }
+
+    public static NotificationInboxEntity of(String paymentGatewayName, String payload, String orderingKey) {
+        return new NotificationInboxEntity(paymentGatewayName, payload, orderingKey, ZonedDateTime.now(UTC));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPaymentGatewayName() {
+        return paymentGatewayName;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getOrderingKey() {
+        return orderingKey;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
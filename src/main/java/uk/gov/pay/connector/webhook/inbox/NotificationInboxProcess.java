@@ -0,0 +1,193 @@
+package uk.gov.pay.connector.webhook.inbox;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
+import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
+import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.inbox.dao.NotificationInboxDao;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+
+/**
+ * Processes the notifications accepted into the inbox by {@link NotificationInboxService}, retrying failed
+ * notifications with exponential backoff until the maximum number of attempts, after which they are abandoned.
+ */
+@Singleton
+public class NotificationInboxProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationInboxProcess.class);
+
+    private static final long EMPTY_INBOX_POLL_DELAY_IN_MILLISECONDS = 1000;
+    private static final long INBOX_SIZE_CACHE_DURATION_IN_SECONDS = 10;
+
+    private final NotificationInboxDao notificationInboxDao;
+    private final WorldpayNotificationService worldpayNotificationService;
+    private final EpdqNotificationService epdqNotificationService;
+    private final SmartpayNotificationService smartpayNotificationService;
+    private final StripeNotificationService stripeNotificationService;
+    private final int batchSize;
+    private final int leaseInSeconds;
+    private final int maximumAttempts;
+    private final long initialRetryDelayInSeconds;
+    private final long maximumRetryDelayInSeconds;
+    private final Timer processingLag;
+
+    @Inject
+    public NotificationInboxProcess(NotificationInboxDao notificationInboxDao,
+                                    WorldpayNotificationService worldpayNotificationService,
+                                    EpdqNotificationService epdqNotificationService,
+                                    SmartpayNotificationService smartpayNotificationService,
+                                    StripeNotificationService stripeNotificationService,
+                                    Environment environment,
+                                    ConnectorConfiguration connectorConfiguration) {
+        this.notificationInboxDao = notificationInboxDao;
+        this.worldpayNotificationService = worldpayNotificationService;
+        this.epdqNotificationService = epdqNotificationService;
+        this.smartpayNotificationService = smartpayNotificationService;
+        this.stripeNotificationService = stripeNotificationService;
+
+        NotificationInboxConfig notificationInboxConfig = connectorConfiguration.getNotificationInboxConfig();
+        this.batchSize = notificationInboxConfig.getBatchSize();
+        this.leaseInSeconds = notificationInboxConfig.getLeaseInSeconds();
+        this.maximumAttempts = notificationInboxConfig.getMaximumAttempts();
+        this.initialRetryDelayInSeconds = notificationInboxConfig.getInitialRetryDelayInSeconds();
+        this.maximumRetryDelayInSeconds = notificationInboxConfig.getMaximumRetryDelayInSeconds();
+
+        MetricRegistry metricRegistry = environment.metrics();
+        this.processingLag = metricRegistry.timer("notification-inbox.processing-lag");
+        if (notificationInboxConfig.isEnabled()) {
+            registerMetrics(metricRegistry);
+        }
+    }
+
+    /**
+     * The lease on the rest of the batch is renewed before each notification is processed, so a batch that takes
+     * longer than one lease is not claimed again by another node part way through. If another node has already
+     * claimed any of the rest of the batch, they are left for it, as processing them here could apply a later
+     * notification for a charge before an earlier one.
+     */
+    public void handleNotifications() throws InterruptedException {
+        ZonedDateTime now = now(UTC);
+        ZonedDateTime leaseUntil = leaseFrom(now);
+        List<NotificationInboxEntity> claimed = notificationInboxDao.claimReadyNotifications(batchSize, now, leaseUntil);
+
+        if (claimed.isEmpty()) {
+            Thread.sleep(EMPTY_INBOX_POLL_DELAY_IN_MILLISECONDS);
+            return;
+        }
+
+        for (int i = 0; i < claimed.size(); i++) {
+            if (i > 0) {
+                List<Long> remainingIds = claimed.subList(i, claimed.size()).stream()
+                        .map(NotificationInboxEntity::getId)
+                        .collect(Collectors.toList());
+                ZonedDateTime renewedLeaseUntil = leaseFrom(now(UTC));
+                int renewed = notificationInboxDao.renewLease(remainingIds, leaseUntil, renewedLeaseUntil);
+                if (renewed < remainingIds.size()) {
+                    LOGGER.warn("Lease lost on {} of the {} notifications left in the batch, leaving them to be claimed again",
+                            remainingIds.size() - renewed, remainingIds.size());
+                    return;
+                }
+                leaseUntil = renewedLeaseUntil;
+            }
+            process(claimed.get(i));
+        }
+    }
+
+    // truncated so the lease reads back from the database exactly as it was written, which renewing relies on
+    private ZonedDateTime leaseFrom(ZonedDateTime now) {
+        return now.plusSeconds(leaseInSeconds).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private void process(NotificationInboxEntity notification) {
+        int attempts = notification.getAttempts() + 1;
+        String failure;
+        try {
+            if (processNotification(notification)) {
+                notificationInboxDao.deleteById(notification.getId());
+                processingLag.update(Duration.between(notification.getCreatedDate(), now(UTC)).toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+            failure = "not ready to be processed";
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        }
+
+        if (attempts >= maximumAttempts) {
+            LOGGER.error("Abandoning {} notification {} after {} attempts [orderingKey={}] [error={}]",
+                    notification.getPaymentGatewayName(), notification.getId(), attempts, notification.getOrderingKey(), failure);
+            notificationInboxDao.abandon(notification.getId(), attempts);
+            return;
+        }
+
+        long retryDelayInSeconds = retryDelayInSeconds(attempts);
+        LOGGER.warn("Failed to process {} notification {}, retrying in {} seconds [orderingKey={}] [attempts={}] [error={}]",
+                notification.getPaymentGatewayName(), notification.getId(), retryDelayInSeconds,
+                notification.getOrderingKey(), attempts, failure);
+        notificationInboxDao.scheduleRetry(notification.getId(), attempts, now(UTC).plusSeconds(retryDelayInSeconds));
+    }
+
+    private boolean processNotification(NotificationInboxEntity notification) {
+        String payload = notification.getPayload();
+        switch (PaymentGatewayName.valueFrom(notification.getPaymentGatewayName())) {
+            case WORLDPAY:
+                return worldpayNotificationService.processNotification(payload);
+            case EPDQ:
+                epdqNotificationService.handleNotificationFor(payload);
+                return true;
+            case SMARTPAY:
+                return smartpayNotificationService.handleNotificationFor(payload);
+            case STRIPE:
+                stripeNotificationService.processNotification(payload);
+                return true;
+            default:
+                throw new IllegalArgumentException("No notifications expected from " + notification.getPaymentGatewayName());
+        }
+    }
+
+    long retryDelayInSeconds(int attempts) {
+        long retryDelayInSeconds = initialRetryDelayInSeconds;
+        for (int attempt = 1; attempt < attempts && retryDelayInSeconds < maximumRetryDelayInSeconds; attempt++) {
+            retryDelayInSeconds *= 2;
+        }
+        return Math.min(retryDelayInSeconds, maximumRetryDelayInSeconds);
+    }
+
+    private void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register("notification-inbox.size", cachedGauge(notificationInboxDao::countPending));
+        metricRegistry.register("notification-inbox.abandoned", cachedGauge(notificationInboxDao::countAbandoned));
+        metricRegistry.register("notification-inbox.oldest-age-in-seconds", cachedGauge(() ->
+                notificationInboxDao.findOldestPendingCreatedDate()
+                        .map(createdDate -> Duration.between(createdDate, now(UTC)).getSeconds())
+                        .orElse(0L)));
+    }
+
+    private Gauge<Long> cachedGauge(Supplier<Long> count) {
+        return new CachedGauge<>(INBOX_SIZE_CACHE_DURATION_IN_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return count.get();
+            }
+        };
+    }
+}
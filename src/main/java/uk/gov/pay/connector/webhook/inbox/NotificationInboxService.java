@@ -0,0 +1,105 @@
+package uk.gov.pay.connector.webhook.inbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.gateway.epdq.EpdqNotification;
+import uk.gov.pay.connector.gateway.epdq.EpdqParseException;
+import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayXMLStreamParser;
+import uk.gov.pay.connector.webhook.inbox.dao.NotificationInboxDao;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
+
+/**
+ * Stores notifications that have been authenticated so they can be acknowledged straight away and processed by
+ * {@link NotificationInboxProcess}. Only the gateway's transaction id is read from the payload, to keep each
+ * charge's notifications in order. A Smartpay batch can hold notifications for several charges, so it is stored as
+ * one notification per item, each ordered with the other notifications of its own charge.
+ */
+public class NotificationInboxService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationInboxService.class);
+
+    private final NotificationInboxDao notificationInboxDao;
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public NotificationInboxService(NotificationInboxDao notificationInboxDao, ObjectMapper objectMapper) {
+        this.notificationInboxDao = notificationInboxDao;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional
+    public void accept(PaymentGatewayName gateway, String payload) {
+        List<String> notifications = gateway == SMARTPAY ? splitSmartpayBatch(payload) : List.of(payload);
+        for (String notification : notifications) {
+            String orderingKey = orderingKeyFor(gateway, notification);
+            notificationInboxDao.persist(NotificationInboxEntity.of(gateway.getName(), notification, orderingKey));
+            LOGGER.info("Accepted {} notification into the inbox [orderingKey={}]", gateway.getName(), orderingKey);
+        }
+    }
+
+    /**
+     * @return a copy of the batch for each of its notification items, or the batch itself if it has at most one
+     * item or cannot be parsed
+     */
+    List<String> splitSmartpayBatch(String payload) {
+        try {
+            JsonNode batch = objectMapper.readTree(payload);
+            JsonNode notificationItems = batch.path("notificationItems");
+            if (!notificationItems.isArray() || notificationItems.size() <= 1) {
+                return List.of(payload);
+            }
+            List<String> notifications = new ArrayList<>(notificationItems.size());
+            for (JsonNode notificationItem : notificationItems) {
+                ObjectNode notification = ((ObjectNode) batch).deepCopy();
+                notification.putArray("notificationItems").add(notificationItem);
+                notifications.add(objectMapper.writeValueAsString(notification));
+            }
+            return notifications;
+        } catch (IOException e) {
+            // the notification service will log why it cannot be parsed when it is processed
+            return List.of(payload);
+        }
+    }
+
+    String orderingKeyFor(PaymentGatewayName gateway, String payload) {
+        String transactionId;
+        try {
+            transactionId = transactionIdFor(gateway, payload);
+        } catch (XMLUnmarshallerException | EpdqParseException | IOException e) {
+            // the notification service will log why it cannot be parsed when it is processed
+            transactionId = null;
+        }
+        return isBlank(transactionId) ? null : gateway.getName() + ":" + transactionId;
+    }
+
+    private String transactionIdFor(PaymentGatewayName gateway, String payload)
+            throws XMLUnmarshallerException, EpdqParseException, IOException {
+        switch (gateway) {
+            case WORLDPAY:
+                return WorldpayXMLStreamParser.parseNotification(payload).getTransactionId();
+            case EPDQ:
+                return new EpdqNotification(payload).getTransactionId();
+            case SMARTPAY:
+                JsonNode notificationItem = objectMapper.readTree(payload)
+                        .path("notificationItems").path(0).path("NotificationRequestItem");
+                return notificationItem.path("originalReference").asText(null);
+            case STRIPE:
+                return objectMapper.readTree(payload).path("data").path("object").path("id").asText(null);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.pay.connector.webhook.inbox.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.webhook.inbox.NotificationInboxEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Transactional
+public class NotificationInboxDao extends JpaDao<NotificationInboxEntity> {
+
+    @Inject
+    public NotificationInboxDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Only the oldest notification for each ordering key can be claimed, so notifications for a charge are
+     * processed in the order they were received, even when an earlier one is waiting to be retried. Rows locked
+     * by a concurrent claim on another node are skipped rather than waited on. A claimed row becomes ready again
+     * once {@code leaseUntil} passes, so notifications survive the claiming node dying.
+     */
+    @SuppressWarnings("unchecked")
+    public List<NotificationInboxEntity> claimReadyNotifications(int batchSize, ZonedDateTime now, ZonedDateTime leaseUntil) {
+        String query = "SELECT * FROM notification_inbox n " +
+                "WHERE n.next_attempt_date <= ?1 " +
+                "AND n.abandoned = false " +
+                "AND NOT EXISTS (" +
+                "  SELECT 1 FROM notification_inbox earlier " +
+                "  WHERE earlier.ordering_key = n.ordering_key " +
+                "  AND earlier.abandoned = false " +
+                "  AND earlier.id < n.id" +
+                ") " +
+                "ORDER BY n.id " +
+                "LIMIT ?2 " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<NotificationInboxEntity> claimed = entityManager.get()
+                .createNativeQuery(query, NotificationInboxEntity.class)
+                .setParameter(1, Timestamp.from(now.toInstant()))
+                .setParameter(2, batchSize)
+                .getResultList();
+
+        if (!claimed.isEmpty()) {
+            entityManager.get()
+                    .createQuery("UPDATE NotificationInboxEntity n" +
+                            " SET n.nextAttemptDate = :leaseUntil" +
+                            " WHERE n.id IN :ids")
+                    .setParameter("leaseUntil", leaseUntil)
+                    .setParameter("ids", claimed.stream().map(NotificationInboxEntity::getId).collect(Collectors.toList()))
+                    .executeUpdate();
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Extends the lease on claimed notifications that are still held under {@code leaseUntil}. A notification
+     * whose lease ran out and was claimed again by another node is left alone, so fewer rows than ids are updated.
+     */
+    public int renewLease(List<Long> ids, ZonedDateTime leaseUntil, ZonedDateTime renewedLeaseUntil) {
+        return entityManager.get()
+                .createQuery("UPDATE NotificationInboxEntity n" +
+                        " SET n.nextAttemptDate = :renewedLeaseUntil" +
+                        " WHERE n.id IN :ids" +
+                        " AND n.nextAttemptDate = :leaseUntil" +
+                        " AND n.abandoned = false")
+                .setParameter("renewedLeaseUntil", renewedLeaseUntil)
+                .setParameter("ids", ids)
+                .setParameter("leaseUntil", leaseUntil)
+                .executeUpdate();
+    }
+
+    public void scheduleRetry(Long id, int attempts, ZonedDateTime nextAttemptDate) {
+        entityManager.get()
+                .createQuery("UPDATE NotificationInboxEntity n" +
+                        " SET n.attempts = :attempts, n.nextAttemptDate = :nextAttemptDate" +
+                        " WHERE n.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("nextAttemptDate", nextAttemptDate)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Abandoned notifications are kept, so they can be investigated, but no longer hold up later notifications
+     * with the same ordering key.
+     */
+    public void abandon(Long id, int attempts) {
+        entityManager.get()
+                .createQuery("UPDATE NotificationInboxEntity n" +
+                        " SET n.attempts = :attempts, n.abandoned = true" +
+                        " WHERE n.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public void deleteById(Long id) {
+        entityManager.get()
+                .createQuery("DELETE FROM NotificationInboxEntity n WHERE n.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public Long countPending() {
+        return entityManager.get()
+                .createQuery("SELECT COUNT(n) FROM NotificationInboxEntity n WHERE n.abandoned = false", Long.class)
+                .getSingleResult();
+    }
+
+    public Long countAbandoned() {
+        return entityManager.get()
+                .createQuery("SELECT COUNT(n) FROM NotificationInboxEntity n WHERE n.abandoned = true", Long.class)
+                .getSingleResult();
+    }
+
+    public Optional<ZonedDateTime> findOldestPendingCreatedDate() {
+        return entityManager.get()
+                .createQuery("SELECT n.createdDate FROM NotificationInboxEntity n" +
+                        " WHERE n.abandoned = false ORDER BY n.id", ZonedDateTime.class)
+                .setMaxResults(1)
+                .getResultList().stream().findFirst();
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.pay.connector.webhook.parking;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+/**
+ * A gateway notification that arrived before its charge was created. It is replayed once the charge exists, or
+ * deleted once it expires. A notification that keeps failing to replay is abandoned and kept for investigation.
+ */
+@Entity
+@Table(name = "parked_notification")
+@SequenceGenerator(name = "parked_notification_id_seq",
+        sequenceName = "parked_notification_id_seq", allocationSize = 1)
+public class ParkedNotificationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parked_notification_id_seq")
+    private Long id;
+
+    @Column(name = "payment_gateway_name")
+    private String paymentGatewayName;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "payload")
+    private String payload;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "expiry_date")
+    private ZonedDateTime expiryDate;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "abandoned")
+    private boolean abandoned;
+
+    protected ParkedNotificationEntity() {
+    }
+
+    private ParkedNotificationEntity(String paymentGatewayName, String transactionId, String payload,
+                                     ZonedDateTime createdDate, ZonedDateTime expiryDate) {
+        this.paymentGatewayName = paymentGatewayName;
+        this.transactionId = transactionId;
+        this.payload = payload;
+        this.createdDate = createdDate;
+        this.expiryDate = expiryDate;
+    }
+
+    public static ParkedNotificationEntity of(String paymentGatewayName, String transactionId, String payload,
+                                              ZonedDateTime createdDate, ZonedDateTime expiryDate) {
+        return new ParkedNotificationEntity(paymentGatewayName, transactionId, payload, createdDate, expiryDate);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPaymentGatewayName() {
+        return paymentGatewayName;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public ZonedDateTime getExpiryDate() {
+        return expiryDate;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
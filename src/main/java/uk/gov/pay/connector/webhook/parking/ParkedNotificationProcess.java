@@ -0,0 +1,107 @@
+package uk.gov.pay.connector.webhook.parking;
+
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CLAIMED_ELSEWHERE;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.REPLAYED;
+
+/**
+ * Replays parked notifications as soon as their charge is created. Telephone charges replay their notifications
+ * in the background once they are created, and a periodic sweep replays any that were parked while the charge was
+ * being created, then deletes expired notifications.
+ */
+@Singleton
+public class ParkedNotificationProcess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkedNotificationProcess.class);
+
+    // replays that don't fit are left to the next sweep rather than holding up the charge being created
+    private static final int REPLAY_QUEUE_CAPACITY = 100;
+
+    private final ParkedNotificationService parkedNotificationService;
+    private final WorldpayNotificationService worldpayNotificationService;
+    private final ExecutorService replayExecutorService;
+
+    @Inject
+    public ParkedNotificationProcess(ParkedNotificationService parkedNotificationService,
+                                     WorldpayNotificationService worldpayNotificationService,
+                                     Environment environment) {
+        this.parkedNotificationService = parkedNotificationService;
+        this.worldpayNotificationService = worldpayNotificationService;
+        this.replayExecutorService = environment
+                .lifecycle()
+                .executorService("parked-notification-replay-%d")
+                .minThreads(1)
+                .maxThreads(1)
+                .workQueue(new LinkedBlockingQueue<>(REPLAY_QUEUE_CAPACITY))
+                .build();
+    }
+
+    /**
+     * Replays the notifications parked for a charge that has just been created without making the request that
+     * created it wait for them. Notifications that can't be replayed are left for the next sweep.
+     */
+    public void replayInBackgroundFor(String transactionId) {
+        if (!parkedNotificationService.isEnabled()) {
+            return;
+        }
+        try {
+            replayExecutorService.execute(() -> replayFor(transactionId));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Too many parked {} notifications waiting to be replayed, leaving them for the next sweep [transactionId={}]",
+                    WORLDPAY.getName(), transactionId);
+        }
+    }
+
+    /**
+     * Replays the notifications parked for the transaction one at a time, in the order they were received, each in
+     * its own transaction. Replaying stops at the first notification that fails, which stays parked for the next
+     * sweep until it has failed too many times, or at one being replayed elsewhere, which keeps the order.
+     */
+    public void replayFor(String transactionId) {
+        try {
+            for (ParkedNotificationEntity parkedNotification : parkedNotificationService.findReplayable(WORLDPAY, transactionId)) {
+                if (!replay(parkedNotification)) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to replay parked {} notifications [transactionId={}]: {}", WORLDPAY.getName(), transactionId, e.getMessage());
+        }
+    }
+
+    private boolean replay(ParkedNotificationEntity parkedNotification) {
+        String failure;
+        try {
+            ReplayResult result = worldpayNotificationService.replayParkedNotification(parkedNotification.getId());
+            if (result == REPLAYED) {
+                return true;
+            }
+            if (result == CLAIMED_ELSEWHERE) {
+                return false;
+            }
+            failure = "charge not found";
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        }
+        parkedNotificationService.replayFailed(parkedNotification, failure);
+        return false;
+    }
+
+    public void sweep() {
+        for (String transactionId : parkedNotificationService.findTransactionIdsWithCharge(WORLDPAY)) {
+            replayFor(transactionId);
+        }
+        parkedNotificationService.deleteExpired();
+    }
+}
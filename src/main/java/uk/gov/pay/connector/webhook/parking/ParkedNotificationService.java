@@ -0,0 +1,127 @@
+package uk.gov.pay.connector.webhook.parking;
+
+import com.codahale.metrics.Meter;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.ParkedNotificationConfig;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.webhook.parking.dao.ParkedNotificationDao;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+
+/**
+ * Keeps notifications that arrived before their charge was created, so they can be acknowledged instead of the
+ * gateway sending them again on its own schedule. Parked notifications are replayed by
+ * {@link ParkedNotificationProcess}.
+ */
+@Singleton
+public class ParkedNotificationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkedNotificationService.class);
+
+    public enum ReplayResult {
+        REPLAYED,
+        CLAIMED_ELSEWHERE,
+        CHARGE_NOT_FOUND
+    }
+
+    private final ParkedNotificationDao parkedNotificationDao;
+    private final boolean enabled;
+    private final int expiryInMinutes;
+    private final int maximumReplayAttempts;
+    private final Meter parked;
+    private final Meter replayed;
+    private final Meter expired;
+    private final Meter abandoned;
+
+    @Inject
+    public ParkedNotificationService(ParkedNotificationDao parkedNotificationDao,
+                                     ConnectorConfiguration connectorConfiguration,
+                                     Environment environment) {
+        this.parkedNotificationDao = parkedNotificationDao;
+
+        ParkedNotificationConfig parkedNotificationConfig = connectorConfiguration.getParkedNotificationConfig();
+        this.enabled = parkedNotificationConfig.isEnabled();
+        this.expiryInMinutes = parkedNotificationConfig.getExpiryInMinutes();
+        this.maximumReplayAttempts = parkedNotificationConfig.getMaximumReplayAttempts();
+
+        this.parked = environment.metrics().meter("parked-notifications.parked");
+        this.replayed = environment.metrics().meter("parked-notifications.replayed");
+        this.expired = environment.metrics().meter("parked-notifications.expired");
+        this.abandoned = environment.metrics().meter("parked-notifications.abandoned");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void park(PaymentGatewayName gateway, String transactionId, String payload) {
+        ZonedDateTime now = now(UTC);
+        parkedNotificationDao.persist(ParkedNotificationEntity.of(gateway.getName(), transactionId, payload, now,
+                now.plusMinutes(expiryInMinutes)));
+        parked.mark();
+        LOGGER.info("Parked {} notification until its charge is created [transactionId={}]", gateway.getName(), transactionId);
+    }
+
+    public List<ParkedNotificationEntity> findReplayable(PaymentGatewayName gateway, String transactionId) {
+        return parkedNotificationDao.findReplayable(gateway.getName(), transactionId, now(UTC));
+    }
+
+    /**
+     * Must be called in the transaction that replays the notification and deletes it with {@link #replayed},
+     * which keeps it locked against other replays until it ends.
+     *
+     * @return the notification, or empty if it is being replayed elsewhere or is no longer parked
+     */
+    public Optional<ParkedNotificationEntity> claim(Long parkedNotificationId) {
+        return parkedNotificationDao.claim(parkedNotificationId, now(UTC));
+    }
+
+    public List<String> findTransactionIdsWithCharge(PaymentGatewayName gateway) {
+        return parkedNotificationDao.findTransactionIdsWithCharge(gateway.getName(), now(UTC));
+    }
+
+    public void replayed(ParkedNotificationEntity parkedNotification) {
+        parkedNotificationDao.deleteById(parkedNotification.getId());
+        replayed.mark();
+        LOGGER.info("Replayed parked {} notification [transactionId={}, parkedFor={}s]",
+                parkedNotification.getPaymentGatewayName(), parkedNotification.getTransactionId(),
+                now(UTC).toEpochSecond() - parkedNotification.getCreatedDate().toEpochSecond());
+    }
+
+    /**
+     * Must be called outside the transaction that failed to replay the notification, as that transaction is rolled
+     * back. A notification that fails the maximum number of times is abandoned rather than left to expire.
+     */
+    public void replayFailed(ParkedNotificationEntity parkedNotification, String failure) {
+        int attempts = parkedNotification.getAttempts() + 1;
+        if (attempts >= maximumReplayAttempts) {
+            parkedNotificationDao.abandon(parkedNotification.getId(), attempts);
+            abandoned.mark();
+            LOGGER.error("Abandoning parked {} notification {} after {} failed replays [transactionId={}] [error={}]",
+                    parkedNotification.getPaymentGatewayName(), parkedNotification.getId(), attempts,
+                    parkedNotification.getTransactionId(), failure);
+            return;
+        }
+        parkedNotificationDao.recordFailedAttempt(parkedNotification.getId(), attempts);
+        LOGGER.warn("Failed to replay parked {} notification {}, it will be replayed by the next sweep [transactionId={}] [attempts={}] [error={}]",
+                parkedNotification.getPaymentGatewayName(), parkedNotification.getId(),
+                parkedNotification.getTransactionId(), attempts, failure);
+    }
+
+    public void deleteExpired() {
+        int deleted = parkedNotificationDao.deleteExpired(now(UTC));
+        if (deleted > 0) {
+            expired.mark(deleted);
+            LOGGER.warn("Deleted {} parked notifications whose charge was not created within {} minutes", deleted, expiryInMinutes);
+        }
+    }
+}
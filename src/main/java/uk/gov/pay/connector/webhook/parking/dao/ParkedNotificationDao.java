@@ -0,0 +1,111 @@
+package uk.gov.pay.connector.webhook.parking.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Transactional
+public class ParkedNotificationDao extends JpaDao<ParkedNotificationEntity> {
+
+    @Inject
+    public ParkedNotificationDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Finds the unexpired notifications parked for the transaction that can still be replayed, in the order they
+     * were received. They are not locked, so each is claimed with {@link #claim} before it is replayed.
+     */
+    public List<ParkedNotificationEntity> findReplayable(String paymentGatewayName, String transactionId, ZonedDateTime now) {
+        return entityManager.get()
+                .createQuery("SELECT p FROM ParkedNotificationEntity p" +
+                        " WHERE p.paymentGatewayName = :paymentGatewayName" +
+                        " AND p.transactionId = :transactionId" +
+                        " AND p.expiryDate > :now" +
+                        " AND p.abandoned = false" +
+                        " ORDER BY p.id", ParkedNotificationEntity.class)
+                .setParameter("paymentGatewayName", paymentGatewayName)
+                .setParameter("transactionId", transactionId)
+                .setParameter("now", now)
+                .getResultList();
+    }
+
+    /**
+     * Locks the parked notification until the caller's transaction ends. A notification already locked by a replay
+     * on another thread or node is skipped rather than waited on, so each parked notification is replayed once.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<ParkedNotificationEntity> claim(Long id, ZonedDateTime now) {
+        String query = "SELECT * FROM parked_notification p " +
+                "WHERE p.id = ?1 " +
+                "AND p.expiry_date > ?2 " +
+                "AND p.abandoned = false " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<ParkedNotificationEntity> claimed = entityManager.get()
+                .createNativeQuery(query, ParkedNotificationEntity.class)
+                .setParameter(1, id)
+                .setParameter(2, Timestamp.from(now.toInstant()))
+                .getResultList();
+        return claimed.stream().findFirst();
+    }
+
+    /**
+     * Finds the transaction ids of unexpired parked notifications whose charge now exists
+     */
+    public List<String> findTransactionIdsWithCharge(String paymentGatewayName, ZonedDateTime now) {
+        return entityManager.get()
+                .createQuery("SELECT DISTINCT p.transactionId FROM ParkedNotificationEntity p" +
+                        " WHERE p.paymentGatewayName = :paymentGatewayName" +
+                        " AND p.expiryDate > :now" +
+                        " AND p.abandoned = false" +
+                        " AND EXISTS (SELECT c FROM ChargeEntity c" +
+                        "   WHERE c.gatewayTransactionId = p.transactionId" +
+                        "   AND c.gatewayAccount.gatewayName = :paymentGatewayName)", String.class)
+                .setParameter("paymentGatewayName", paymentGatewayName)
+                .setParameter("now", now)
+                .getResultList();
+    }
+
+    public void recordFailedAttempt(Long id, int attempts) {
+        entityManager.get()
+                .createQuery("UPDATE ParkedNotificationEntity p SET p.attempts = :attempts WHERE p.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Abandoned notifications are kept, so they can be investigated, and are no longer replayed or expired
+     */
+    public void abandon(Long id, int attempts) {
+        entityManager.get()
+                .createQuery("UPDATE ParkedNotificationEntity p SET p.attempts = :attempts, p.abandoned = true" +
+                        " WHERE p.id = :id")
+                .setParameter("attempts", attempts)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public void deleteById(Long id) {
+        entityManager.get()
+                .createQuery("DELETE FROM ParkedNotificationEntity p WHERE p.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    public int deleteExpired(ZonedDateTime now) {
+        return entityManager.get()
+                .createQuery("DELETE FROM ParkedNotificationEntity p WHERE p.expiryDate <= :now AND p.abandoned = false")
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+}
@@ -2,10 +2,12 @@ package uk.gov.pay.connector.webhook.resource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
 import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
 import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
 import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.inbox.NotificationInboxService;
 
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
@@ -20,6 +22,10 @@ import static javax.ws.rs.core.MediaType.APPLICATION_FORM_URLENCODED;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.MediaType.TEXT_XML;
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.EPDQ;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.STRIPE;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
 import static uk.gov.pay.connector.util.ResponseUtil.forbiddenErrorResponse;
 
 @Path("/")
@@ -31,16 +37,22 @@ public class NotificationResource {
     private final EpdqNotificationService epdqNotificationService;
     private final SmartpayNotificationService smartpayNotificationService;
     private final StripeNotificationService stripeNotificationService;
+    private final NotificationInboxService notificationInboxService;
+    private final boolean notificationInboxEnabled;
 
     @Inject
     public NotificationResource(WorldpayNotificationService worldpayNotificationService,
                                 EpdqNotificationService epdqNotificationService,
                                 SmartpayNotificationService smartpayNotificationService,
-                                StripeNotificationService stripeNotificationService) {
+                                StripeNotificationService stripeNotificationService,
+                                NotificationInboxService notificationInboxService,
+                                ConnectorConfiguration connectorConfiguration) {
         this.worldpayNotificationService = worldpayNotificationService;
         this.smartpayNotificationService = smartpayNotificationService;
         this.epdqNotificationService = epdqNotificationService;
         this.stripeNotificationService = stripeNotificationService;
+        this.notificationInboxService = notificationInboxService;
+        this.notificationInboxEnabled = connectorConfiguration.getNotificationInboxConfig().isEnabled();
     }
 
     @POST
@@ -48,7 +60,11 @@ public class NotificationResource {
     @PermitAll
     @Path("/v1/api/notifications/smartpay")
     public Response authoriseSmartpayNotifications(String notification) {
-        smartpayNotificationService.handleNotificationFor(notification);
+        if (notificationInboxEnabled) {
+            notificationInboxService.accept(SMARTPAY, notification);
+        } else {
+            smartpayNotificationService.handleNotificationFor(notification);
+        }
         String response = "[accepted]";
         logger.info("Responding to notification from provider=smartpay with 200 {}", response);
         return Response.ok(response).build();
@@ -66,7 +82,16 @@ public class NotificationResource {
     @Path("/v1/api/notifications/worldpay")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseWorldpayNotifications(String notification, @HeaderParam("X-Forwarded-For") String ipAddress) {
-        if (!worldpayNotificationService.handleNotificationFor(ipAddress, notification)) {
+        boolean accepted;
+        if (notificationInboxEnabled) {
+            accepted = worldpayNotificationService.isNotificationFromWorldpay(ipAddress);
+            if (accepted) {
+                notificationInboxService.accept(WORLDPAY, notification);
+            }
+        } else {
+            accepted = worldpayNotificationService.handleNotificationFor(ipAddress, notification);
+        }
+        if (!accepted) {
             logger.info(String.format("Rejected notification for ip '%s'", ipAddress), kv("notification_source", ipAddress));
             return forbiddenErrorResponse();
         }
@@ -80,7 +105,15 @@ public class NotificationResource {
     @Path("/v1/api/notifications/epdq")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseEpdqNotifications(String notification) {
-        epdqNotificationService.handleNotificationFor(notification);
+        if (notificationInboxEnabled) {
+            // ePDQ notifications are only authenticated by their signature, so only signed ones reach the inbox.
+            // Unverified ones are still acknowledged, as they are when processed straight away
+            if (epdqNotificationService.isVerified(notification)) {
+                notificationInboxService.accept(EPDQ, notification);
+            }
+        } else {
+            epdqNotificationService.handleNotificationFor(notification);
+        }
         String response = "[OK]";
         logger.info("Responding to notification from provider={} with 200 {}", "epdq", response);
         return Response.ok(response).build();
@@ -91,7 +124,12 @@ public class NotificationResource {
     @Path("/v1/api/notifications/stripe")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseStripeNotifications(String notification, @HeaderParam("Stripe-Signature") String signatureHeader) {
-        stripeNotificationService.handleNotificationFor(notification, signatureHeader);
+        if (notificationInboxEnabled) {
+            stripeNotificationService.verifyNotificationSignature(notification, signatureHeader);
+            notificationInboxService.accept(STRIPE, notification);
+        } else {
+            stripeNotificationService.handleNotificationFor(notification, signatureHeader);
+        }
         String response = "[OK]";
         logger.info("Responding to notification from provider=Stripe with 200 {}", response);
         return Response.ok(response).build();
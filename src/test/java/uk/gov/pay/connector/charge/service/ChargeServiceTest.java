@@ -271,7 +271,7 @@ public class ChargeServiceTest {
 
         service = new ChargeService(mockedTokenDao, mockedChargeDao, mockedChargeEventDao,
                 mockedCardTypeDao, mockedGatewayAccountDao, mockedConfig, mockedProviders,
-                mockStateTransitionService, mockEventService, mockRefundDao);
+                mockStateTransitionService, mockEventService, mockRefundDao, mock(ChargeStatusNotifier.class));
     }
 
     @After
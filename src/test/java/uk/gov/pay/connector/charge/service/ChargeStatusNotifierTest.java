@@ -0,0 +1,97 @@
+package uk.gov.pay.connector.charge.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChargeStatusNotifierTest {
+
+    private static final String CHARGE_EXTERNAL_ID = "charge-external-id";
+
+    @Mock
+    private ChargeDao chargeDao;
+
+    private ChargeStatusNotifier chargeStatusNotifier;
+
+    @Before
+    public void setUp() {
+        chargeStatusNotifier = new ChargeStatusNotifier(chargeDao);
+    }
+
+    @Test
+    public void shouldPublishOnlyStatusesThatCanBeAwaited() {
+        chargeStatusNotifier.publish(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_REQUIRED);
+        verify(chargeDao, never()).notifyStatusChange(anyString(), anyString());
+
+        chargeStatusNotifier.publish(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_READY);
+        verify(chargeDao).notifyStatusChange("charge_status", "charge-external-id:AUTHORISATION_3DS_READY");
+    }
+
+    @Test
+    public void shouldNotWaitIfChargeIsAlreadyInStatus() {
+        long startTime = System.currentTimeMillis();
+
+        boolean reachedStatus = chargeStatusNotifier.awaitStatus(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_READY, 2000, () -> true);
+
+        assertThat(reachedStatus, is(true));
+        assertThat(System.currentTimeMillis() - startTime, lessThan(500L));
+    }
+
+    @Test
+    public void shouldStopWaitingAsSoonAsStatusChangeIsReceived() throws Exception {
+        chargeStatusNotifier.setListening(true);
+        AtomicInteger statusReads = new AtomicInteger();
+
+        CompletableFuture<Boolean> reachedStatus = CompletableFuture.supplyAsync(() ->
+                chargeStatusNotifier.awaitStatus(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_READY, 5000, () -> {
+                    statusReads.incrementAndGet();
+                    return false;
+                }));
+
+        while (statusReads.get() == 0) {
+            Thread.sleep(10);
+        }
+        chargeStatusNotifier.statusChanged("charge-external-id:AUTHORISATION_3DS_READY");
+
+        assertThat(reachedStatus.get(1, TimeUnit.SECONDS), is(true));
+        assertThat(statusReads.get(), is(1));
+    }
+
+    @Test
+    public void shouldPollDatabaseWhileNotListening() {
+        AtomicInteger statusReads = new AtomicInteger();
+
+        boolean reachedStatus = chargeStatusNotifier.awaitStatus(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_READY, 2000,
+                () -> statusReads.incrementAndGet() == 3);
+
+        assertThat(reachedStatus, is(true));
+        assertThat(statusReads.get(), is(3));
+    }
+
+    @Test
+    public void shouldGiveUpWaitingAfterTimeout() {
+        chargeStatusNotifier.setListening(true);
+        chargeStatusNotifier.statusChanged("another-charge-external-id:AUTHORISATION_3DS_READY");
+
+        boolean reachedStatus = chargeStatusNotifier.awaitStatus(CHARGE_EXTERNAL_ID, AUTHORISATION_3DS_READY, 300, () -> false);
+
+        assertThat(reachedStatus, is(false));
+    }
+}
@@ -153,6 +153,24 @@ public class ChargeEventDaoIT extends DaoITestBase {
         assertThat(events.get(1).getChargeEntity().getId(), Matchers.is(testCharge.getChargeId()));
     }
 
+    @Test
+    public void findByIdsShouldReturnOnlyTheRequestedChargeEvents() {
+        DatabaseFixtures.TestCharge testCharge = createTestCharge();
+        ChargeEntity entity = chargeDao.findById(testCharge.getChargeId()).get();
+
+        entity.setStatus(ENTERING_CARD_DETAILS);
+        ChargeEventEntity first = chargeEventDao.persistChargeEventOf(entity, null);
+        entity.setStatus(AUTHORISATION_READY);
+        ChargeEventEntity second = chargeEventDao.persistChargeEventOf(entity, null);
+        entity.setStatus(AUTHORISATION_SUCCESS);
+        chargeEventDao.persistChargeEventOf(entity, null);
+
+        List<ChargeEventEntity> events = chargeEventDao.findByIds(List.of(first.getId(), second.getId()));
+
+        assertThat(events, hasSize(2));
+        assertThat(events, shouldIncludeStatus(ENTERING_CARD_DETAILS, AUTHORISATION_READY));
+    }
+
     private DatabaseFixtures.TestCharge createTestCharge() {
         DatabaseFixtures.TestAccount testAccount = withDatabaseTestHelper(databaseTestHelper)
                 .aTestAccount().insert();
@@ -0,0 +1,179 @@
+package uk.gov.pay.connector.events;
+
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
+import uk.gov.pay.connector.app.SqsConfig;
+import uk.gov.pay.connector.events.dao.EmittedEventDao;
+import uk.gov.pay.connector.events.model.Event;
+import uk.gov.pay.connector.events.model.charge.PaymentEvent;
+import uk.gov.pay.connector.queue.QueueException;
+import uk.gov.pay.connector.queue.sqs.SqsQueueService;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZonedDateTime.now;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventBatchPublisherTest {
+
+    private static final String EVENT_QUEUE_URL = "http://event-queue-url";
+
+    @Mock
+    private SqsQueueService sqsQueueService;
+    @Mock
+    private EmittedEventDao emittedEventDao;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private EventQueueConfig eventQueueConfig;
+    @Mock
+    private SqsConfig sqsConfig;
+    @Mock
+    private Environment environment;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private EventBatchPublisher eventBatchPublisher;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getSqsConfig()).thenReturn(sqsConfig);
+        when(connectorConfiguration.getEventQueueConfig()).thenReturn(eventQueueConfig);
+        when(sqsConfig.getEventQueueUrl()).thenReturn(EVENT_QUEUE_URL);
+        when(eventQueueConfig.getEventQueueEnabled()).thenReturn(true);
+        when(eventQueueConfig.getEventBatchLingerInMilliseconds()).thenReturn(200);
+        when(eventQueueConfig.getEventBatchQueueCapacity()).thenReturn(1000);
+        when(eventQueueConfig.getEventBatchEnqueueTimeoutInMilliseconds()).thenReturn(100);
+        when(environment.metrics()).thenReturn(metricRegistry);
+
+        eventBatchPublisher = new EventBatchPublisher(sqsQueueService, emittedEventDao, connectorConfiguration, environment);
+        eventBatchPublisher.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        eventBatchPublisher.stop();
+    }
+
+    @Test
+    public void shouldSendWaitingEventsInASingleBatchAndMarkThemAsEmitted() throws Exception {
+        when(sqsQueueService.sendMessageBatch(eq(EVENT_QUEUE_URL), anyList())).thenReturn(new SendMessageBatchResult()
+                .withSuccessful(
+                        new SendMessageBatchResultEntry().withId("0"),
+                        new SendMessageBatchResultEntry().withId("1"),
+                        new SendMessageBatchResultEntry().withId("2")));
+        Event first = new PaymentEvent("external-id-1", now());
+        Event second = new PaymentEvent("external-id-2", now());
+        Event third = new PaymentEvent("external-id-3", now());
+
+        CompletableFuture.allOf(
+                eventBatchPublisher.publish(first),
+                eventBatchPublisher.publish(second),
+                eventBatchPublisher.publish(third)).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<List<SendMessageBatchRequestEntry>> entriesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(sqsQueueService).sendMessageBatch(eq(EVENT_QUEUE_URL), entriesCaptor.capture());
+        assertThat(entriesCaptor.getValue().size(), is(3));
+
+        verify(emittedEventDao).markEventsAsEmitted(List.of(first, second, third));
+        assertThat(metricRegistry.histogram("event-queue.batch.size").getSnapshot().getMax(), is(3L));
+    }
+
+    @Test
+    public void shouldFailOnlyTheEventsRejectedBySqs() throws Exception {
+        when(sqsQueueService.sendMessageBatch(eq(EVENT_QUEUE_URL), anyList())).thenReturn(new SendMessageBatchResult()
+                .withSuccessful(new SendMessageBatchResultEntry().withId("0"))
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError").withMessage("oops")));
+        Event accepted = new PaymentEvent("external-id-1", now());
+        Event rejected = new PaymentEvent("external-id-2", now());
+
+        CompletableFuture<Void> acceptedResult = eventBatchPublisher.publish(accepted);
+        CompletableFuture<Void> rejectedResult = eventBatchPublisher.publish(rejected);
+
+        acceptedResult.get(5, TimeUnit.SECONDS);
+        assertFailsWithQueueException(rejectedResult);
+
+        verify(emittedEventDao).markEventsAsEmitted(List.of(accepted));
+    }
+
+    @Test
+    public void shouldFailAllEventsInBatchWhenSendingTheBatchFails() throws Exception {
+        when(sqsQueueService.sendMessageBatch(eq(EVENT_QUEUE_URL), anyList())).thenThrow(new QueueException("SQS unavailable"));
+
+        assertFailsWithQueueException(eventBatchPublisher.publish(new PaymentEvent("external-id-1", now())));
+
+        verify(emittedEventDao, never()).markEventsAsEmitted(any());
+    }
+
+    @Test
+    public void shouldFailEventsPublishedAfterStopping() throws Exception {
+        eventBatchPublisher.stop();
+
+        assertFailsWithQueueException(eventBatchPublisher.publish(new PaymentEvent("external-id-1", now())));
+    }
+
+    @Test
+    public void shouldFailEventsThatDoNotFitInTheQueueWhileABatchIsBeingSent() throws Exception {
+        eventBatchPublisher.stop();
+        when(eventQueueConfig.getEventBatchQueueCapacity()).thenReturn(1);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        when(environment.metrics()).thenReturn(metricRegistry);
+        eventBatchPublisher = new EventBatchPublisher(sqsQueueService, emittedEventDao, connectorConfiguration, environment);
+        eventBatchPublisher.start();
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch releaseSend = new CountDownLatch(1);
+        when(sqsQueueService.sendMessageBatch(eq(EVENT_QUEUE_URL), anyList())).thenAnswer(invocation -> {
+            sending.countDown();
+            releaseSend.await(5, TimeUnit.SECONDS);
+            return new SendMessageBatchResult().withSuccessful(new SendMessageBatchResultEntry().withId("0"));
+        });
+
+        CompletableFuture<Void> sent = eventBatchPublisher.publish(new PaymentEvent("external-id-1", now()));
+        assertThat(sending.await(5, TimeUnit.SECONDS), is(true));
+        CompletableFuture<Void> queued = eventBatchPublisher.publish(new PaymentEvent("external-id-2", now()));
+        CompletableFuture<Void> overflowed = eventBatchPublisher.publish(new PaymentEvent("external-id-3", now()));
+
+        assertFailsWithQueueException(overflowed);
+        assertThat(metricRegistry.meter("event-queue.batch.rejected").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get("event-queue.batch.queue-depth").getValue(), is(1));
+
+        releaseSend.countDown();
+        CompletableFuture.allOf(sent, queued).get(5, TimeUnit.SECONDS);
+    }
+
+    private void assertFailsWithQueueException(CompletableFuture<Void> result) throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected publishing to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(QueueException.class));
+        }
+    }
+}
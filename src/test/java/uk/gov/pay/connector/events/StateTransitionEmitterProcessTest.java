@@ -1,10 +1,13 @@
 package uk.gov.pay.connector.events;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
 import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
 import uk.gov.pay.connector.events.eventdetails.charge.PaymentCreatedEventDetails;
 import uk.gov.pay.connector.events.exception.EventCreationException;
@@ -17,13 +20,20 @@ import uk.gov.pay.connector.queue.StateTransitionQueue;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,9 +54,25 @@ public class StateTransitionEmitterProcessTest {
     @Mock
     EventService mockEventService;
 
-    @InjectMocks
+    @Mock
+    EventBatchPublisher mockEventBatchPublisher;
+
+    @Mock
+    ConnectorConfiguration connectorConfiguration;
+
+    @Mock
+    EventQueueConfig eventQueueConfig;
+
     StateTransitionEmitterProcess stateTransitionEmitterProcess;
 
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getEventQueueConfig()).thenReturn(eventQueueConfig);
+        when(eventQueueConfig.getStateTransitionDrainBatchSize()).thenReturn(1);
+        stateTransitionEmitterProcess = new StateTransitionEmitterProcess(stateTransitionQueue, eventFactory,
+                stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
+    }
+
     @Test
     public void shouldEmitPaymentEventGivenStateTransitionMessageOnQueue() throws Exception {
         PaymentStateTransition paymentStateTransition = new PaymentStateTransition(100L, PaymentCreated.class);
@@ -97,7 +123,7 @@ public class StateTransitionEmitterProcessTest {
     @Test
     public void shouldNotPutPaymentTransitionBackOnQueueIfItHasExceededMaxAttempts() throws Exception {
         StateTransitionQueue spyQueue = spy(new StateTransitionQueue());
-        StateTransitionEmitterProcess stateTransitionEmitterProcess = new StateTransitionEmitterProcess(spyQueue, eventFactory, stateTransitionQueueMetricEmitter, mockEventService);
+        StateTransitionEmitterProcess stateTransitionEmitterProcess = new StateTransitionEmitterProcess(spyQueue, eventFactory, stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
         PaymentStateTransition paymentStateTransition = new PaymentStateTransition(100L, PaymentEvent.class, 0);
 
         when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenThrow(EventCreationException.class);
@@ -114,4 +140,141 @@ public class StateTransitionEmitterProcessTest {
 
         verify(spyQueue, atMost(maximumStateTransitionMessageRetries)).offer(any());
     }
+
+    @Test
+    public void shouldPublishEventsInBatchWhenBatchPublishingIsEnabled() throws Exception {
+        PaymentStateTransition paymentStateTransition = new PaymentStateTransition(100L, PaymentCreated.class);
+        PaymentCreated paymentCreated = new PaymentCreated("id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenReturn(List.of(paymentCreated));
+        when(stateTransitionQueue.poll(anyLong(), any(TimeUnit.class))).thenReturn(paymentStateTransition);
+        when(mockEventBatchPublisher.isEnabled()).thenReturn(true);
+        when(mockEventBatchPublisher.publish(paymentCreated)).thenReturn(CompletableFuture.completedFuture(null));
+
+        stateTransitionEmitterProcess.handleStateTransitionMessages();
+
+        verify(mockEventBatchPublisher).publish(paymentCreated);
+        verifyNoMoreInteractions(mockEventService);
+        verify(stateTransitionQueue, never()).offer(any());
+    }
+
+    @Test
+    public void shouldPutPaymentTransitionBackOnQueueIfBatchPublishFails() throws Exception {
+        PaymentStateTransition paymentStateTransition = new PaymentStateTransition(100L, PaymentCreated.class);
+        PaymentCreated paymentCreated = new PaymentCreated("id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenReturn(List.of(paymentCreated));
+        when(stateTransitionQueue.poll(anyLong(), any(TimeUnit.class))).thenReturn(paymentStateTransition);
+        when(mockEventBatchPublisher.isEnabled()).thenReturn(true);
+        when(mockEventBatchPublisher.publish(paymentCreated))
+                .thenReturn(CompletableFuture.failedFuture(new QueueException("failed")));
+
+        stateTransitionEmitterProcess.handleStateTransitionMessages();
+
+        verify(stateTransitionQueue).offer(any(PaymentStateTransition.class));
+    }
+
+    @Test
+    public void shouldDrainReadyTransitionsAndCreateTheirEventsTogether() throws Exception {
+        StateTransitionQueue queue = new StateTransitionQueue();
+        when(eventQueueConfig.getStateTransitionDrainBatchSize()).thenReturn(10);
+        StateTransitionEmitterProcess drainingEmitterProcess = new StateTransitionEmitterProcess(queue, eventFactory,
+                stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
+        PaymentStateTransition first = new PaymentStateTransition(100L, PaymentCreated.class, 0L);
+        PaymentStateTransition second = new PaymentStateTransition(101L, PaymentCreated.class, 0L);
+        PaymentCreated firstEvent = new PaymentCreated("id-1", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        PaymentCreated secondEvent = new PaymentCreated("id-2", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(anyList())).thenReturn(Map.of(
+                first, List.of(firstEvent),
+                second, List.of(secondEvent)));
+        queue.offer(first);
+        queue.offer(second);
+
+        drainingEmitterProcess.handleStateTransitionMessages();
+
+        verify(eventFactory).createEvents(List.of(first, second));
+        verify(mockEventService).emitAndMarkEventAsEmitted(firstEvent);
+        verify(mockEventService).emitAndMarkEventAsEmitted(secondEvent);
+        assertThat(queue.size(), is(0));
+    }
+
+    @Test
+    public void shouldPutDrainedTransitionBackOnQueueIfItsEventsCouldNotBeCreated() throws Exception {
+        StateTransitionQueue queue = new StateTransitionQueue();
+        when(eventQueueConfig.getStateTransitionDrainBatchSize()).thenReturn(10);
+        StateTransitionEmitterProcess drainingEmitterProcess = new StateTransitionEmitterProcess(queue, eventFactory,
+                stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
+        PaymentStateTransition created = new PaymentStateTransition(100L, PaymentCreated.class, 0L);
+        PaymentStateTransition missing = new PaymentStateTransition(101L, PaymentCreated.class, 0L);
+        PaymentCreated paymentCreated = new PaymentCreated("id-1", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(anyList())).thenReturn(Map.of(created, List.of(paymentCreated)));
+        queue.offer(created);
+        queue.offer(missing);
+
+        drainingEmitterProcess.handleStateTransitionMessages();
+
+        verify(mockEventService).emitAndMarkEventAsEmitted(paymentCreated);
+        verifyNoMoreInteractions(mockEventService);
+        assertThat(queue.size(), is(1));
+    }
+
+    @Test
+    public void shouldRetryFailedTransitionBeforeEmittingLaterTransitionsOfTheSamePayment() throws Exception {
+        StateTransitionQueue queue = new StateTransitionQueue(2);
+        StateTransitionEmitterProcess partitionedEmitterProcess = new StateTransitionEmitterProcess(queue, eventFactory,
+                stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
+        PaymentStateTransition first = new PaymentStateTransition(100L, "charge-external-id", PaymentCreated.class, 1, 0L);
+        PaymentStateTransition second = new PaymentStateTransition(101L, "charge-external-id", PaymentCreated.class, 1, 0L);
+        PaymentCreated firstEvent = new PaymentCreated("charge-external-id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        PaymentCreated secondEvent = new PaymentCreated("charge-external-id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(any(PaymentStateTransition.class)))
+                .thenThrow(new EventCreationException("100"))
+                .thenReturn(List.of(firstEvent))
+                .thenReturn(List.of(secondEvent));
+        queue.offer(first);
+        queue.offer(second);
+
+        int partition = queue.partitionOf(first);
+        for (int i = 0; i < 4; i++) {
+            partitionedEmitterProcess.handleStateTransitionMessages(partition);
+        }
+
+        InOrder inOrder = inOrder(mockEventService);
+        inOrder.verify(mockEventService).emitAndMarkEventAsEmitted(firstEvent);
+        inOrder.verify(mockEventService).emitAndMarkEventAsEmitted(secondEvent);
+        verify(eventFactory, times(3)).createEvents(any(PaymentStateTransition.class));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldKeepHoldingLaterTransitionsWhenAHeldTransitionFails() throws Exception {
+        StateTransitionQueue queue = new StateTransitionQueue(2);
+        StateTransitionEmitterProcess partitionedEmitterProcess = new StateTransitionEmitterProcess(queue, eventFactory,
+                stateTransitionQueueMetricEmitter, mockEventService, mockEventBatchPublisher, connectorConfiguration);
+        PaymentStateTransition first = new PaymentStateTransition(100L, "charge-external-id", PaymentCreated.class, 1, 0L);
+        PaymentStateTransition second = new PaymentStateTransition(101L, "charge-external-id", PaymentCreated.class, 1, 0L);
+        PaymentStateTransition third = new PaymentStateTransition(102L, "charge-external-id", PaymentCreated.class, 1, 0L);
+        PaymentCreated firstEvent = new PaymentCreated("charge-external-id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        PaymentCreated secondEvent = new PaymentCreated("charge-external-id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        PaymentCreated thirdEvent = new PaymentCreated("charge-external-id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(any(PaymentStateTransition.class)))
+                .thenThrow(new EventCreationException("100"))
+                .thenReturn(List.of(firstEvent))
+                .thenThrow(new EventCreationException("101"))
+                .thenReturn(List.of(secondEvent))
+                .thenReturn(List.of(thirdEvent));
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+
+        int partition = queue.partitionOf(first);
+        for (int i = 0; i < 5; i++) {
+            partitionedEmitterProcess.handleStateTransitionMessages(partition);
+        }
+
+        InOrder inOrder = inOrder(mockEventService);
+        inOrder.verify(mockEventService).emitAndMarkEventAsEmitted(firstEvent);
+        inOrder.verify(mockEventService).emitAndMarkEventAsEmitted(secondEvent);
+        inOrder.verify(mockEventService).emitAndMarkEventAsEmitted(thirdEvent);
+        verify(eventFactory, times(5)).createEvents(any(PaymentStateTransition.class));
+        assertThat(partitionedEmitterProcess.isReadyForShutdown(), is(true));
+    }
 }
@@ -0,0 +1,121 @@
+package uk.gov.pay.connector.events;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
+import uk.gov.pay.connector.events.eventdetails.charge.PaymentCreatedEventDetails;
+import uk.gov.pay.connector.events.exception.EventCreationException;
+import uk.gov.pay.connector.events.model.EventFactory;
+import uk.gov.pay.connector.events.model.charge.PaymentCreated;
+import uk.gov.pay.connector.queue.PaymentStateTransition;
+import uk.gov.pay.connector.queue.QueueException;
+import uk.gov.pay.connector.queue.StateTransitionOutboxEntity;
+import uk.gov.pay.connector.queue.dao.StateTransitionOutboxDao;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StateTransitionOutboxProcessTest {
+
+    @Mock
+    private StateTransitionOutboxDao stateTransitionOutboxDao;
+    @Mock
+    private EventFactory eventFactory;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private StateTransitionQueueMetricEmitter stateTransitionQueueMetricEmitter;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private EventQueueConfig eventQueueConfig;
+
+    private StateTransitionOutboxProcess stateTransitionOutboxProcess;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getEventQueueConfig()).thenReturn(eventQueueConfig);
+        when(eventQueueConfig.getStateTransitionOutboxBatchSize()).thenReturn(10);
+        when(eventQueueConfig.getStateTransitionOutboxLeaseInSeconds()).thenReturn(60);
+        stateTransitionOutboxProcess = new StateTransitionOutboxProcess(stateTransitionOutboxDao, eventFactory,
+                eventService, stateTransitionQueueMetricEmitter, connectorConfiguration);
+    }
+
+    @Test
+    public void shouldEmitEventsAndRemoveOutboxEntry() throws Exception {
+        StateTransitionOutboxEntity outboxEntry = anOutboxEntry(new PaymentStateTransition(100L, PaymentCreated.class));
+        PaymentCreated paymentCreated = new PaymentCreated("id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(stateTransitionOutboxDao.claimReadyStateTransitions(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(outboxEntry));
+        when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenReturn(List.of(paymentCreated));
+
+        stateTransitionOutboxProcess.handleStateTransitionMessages();
+
+        verify(eventService).emitAndMarkEventAsEmitted(paymentCreated);
+        verify(stateTransitionOutboxDao).deleteById(1L);
+        verify(stateTransitionOutboxDao, never()).scheduleRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldScheduleRetryIfEventCreationFails() throws Exception {
+        StateTransitionOutboxEntity outboxEntry = anOutboxEntry(new PaymentStateTransition(100L, PaymentCreated.class));
+        when(stateTransitionOutboxDao.claimReadyStateTransitions(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(outboxEntry));
+        when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenThrow(EventCreationException.class);
+
+        stateTransitionOutboxProcess.handleStateTransitionMessages();
+
+        verifyNoInteractions(eventService);
+        verify(stateTransitionOutboxDao).scheduleRetry(eq(1L), eq(2), any(ZonedDateTime.class));
+        verify(stateTransitionOutboxDao, never()).deleteById(any());
+    }
+
+    @Test
+    public void shouldScheduleRetryIfEventEmitFails() throws Exception {
+        StateTransitionOutboxEntity outboxEntry = anOutboxEntry(new PaymentStateTransition(100L, PaymentCreated.class));
+        when(stateTransitionOutboxDao.claimReadyStateTransitions(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(outboxEntry));
+        when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenReturn(List.of(
+                new PaymentCreated("id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now())));
+        doThrow(QueueException.class).when(eventService).emitAndMarkEventAsEmitted(any());
+
+        stateTransitionOutboxProcess.handleStateTransitionMessages();
+
+        verify(stateTransitionOutboxDao).scheduleRetry(eq(1L), eq(2), any(ZonedDateTime.class));
+        verify(stateTransitionOutboxDao, never()).deleteById(any());
+    }
+
+    @Test
+    public void shouldRemoveOutboxEntryThatHasExceededMaxAttempts() throws Exception {
+        StateTransitionOutboxEntity outboxEntry = anOutboxEntry(new PaymentStateTransition(100L, PaymentCreated.class, 10, 0));
+        when(stateTransitionOutboxDao.claimReadyStateTransitions(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(outboxEntry));
+
+        stateTransitionOutboxProcess.handleStateTransitionMessages();
+
+        verifyNoInteractions(eventFactory);
+        verifyNoInteractions(eventService);
+        verify(stateTransitionOutboxDao).deleteById(1L);
+    }
+
+    private StateTransitionOutboxEntity anOutboxEntry(PaymentStateTransition stateTransition) {
+        StateTransitionOutboxEntity outboxEntry = StateTransitionOutboxEntity.from(stateTransition);
+        outboxEntry.setId(1L);
+        return outboxEntry;
+    }
+}
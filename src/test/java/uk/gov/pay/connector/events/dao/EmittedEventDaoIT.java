@@ -144,6 +144,25 @@ public class EmittedEventDaoIT extends DaoITestBase {
         assertThat(event.get("emitted_date").toString(), is(emittedDateBeforeUpdate));
     }
 
+    @Test
+    public void markEventsAsEmitted_shouldUpdateAllMatchingRecordsWithNullEmittedDate() {
+        final RefundSubmitted refundSubmitted = aRefundSubmittedEvent(null);
+        final PaymentCreated alreadyEmitted = aPaymentCreatedEvent();
+        emittedEventDao.recordEmission(refundSubmitted.getResourceType(), refundSubmitted.getResourceExternalId(),
+                refundSubmitted.getEventType(), refundSubmitted.getTimestamp(), null);
+        emittedEventDao.recordEmission(alreadyEmitted, null);
+        String emittedDateBeforeUpdate = databaseTestHelper.readEmittedEvents().get(1).get("emitted_date").toString();
+
+        int updated = emittedEventDao.markEventsAsEmitted(List.of(
+                aRefundSubmittedEvent(ZonedDateTime.parse("2019-01-01T14:00:00Z")), alreadyEmitted));
+
+        assertThat(updated, is(1));
+        final List<Map<String, Object>> events = databaseTestHelper.readEmittedEvents();
+        assertThat(events.get(0).get("emitted_date"), is(notNullValue()));
+        assertThat(events.get(0).get("event_date").toString(), is("2019-01-01 14:00:00.0"));
+        assertThat(events.get(1).get("emitted_date").toString(), is(emittedDateBeforeUpdate));
+    }
+
     @Test
     public void findNotEmittedEventsOlderThan_shouldReturnEventsWithEmptyEmittedDate() {
         final PaymentCreated paymentCreatedEvent = aPaymentCreatedEvent();
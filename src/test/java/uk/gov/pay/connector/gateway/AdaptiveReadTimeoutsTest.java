@@ -0,0 +1,95 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.config.AdaptiveReadTimeoutConfig;
+
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveReadTimeoutsTest {
+
+    private static final long STATIC_READ_TIMEOUT_IN_MILLISECONDS = 50000;
+
+    @Mock
+    private AdaptiveReadTimeoutConfig config;
+    @Mock
+    private Clock clock;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private AdaptiveReadTimeouts readTimeouts;
+
+    @Before
+    public void setUp() {
+        when(config.getWindowInSeconds()).thenReturn(300);
+        when(config.getMinimumReadTimeout()).thenReturn(Duration.milliseconds(500));
+        when(config.getRecalculationIntervalInSeconds()).thenReturn(10);
+        when(config.getMinimumNumberOfSamples()).thenReturn(10);
+        when(config.getPercentile()).thenReturn(0.999);
+        when(config.getFactor()).thenReturn(3.0);
+        when(clock.millis()).thenReturn(0L);
+
+        readTimeouts = new AdaptiveReadTimeouts("worldpay", "auth", STATIC_READ_TIMEOUT_IN_MILLISECONDS, config, metricRegistry, clock);
+    }
+
+    @Test
+    public void shouldUseStaticReadTimeoutUntilEnoughResponseTimesHaveBeenRecorded() {
+        recordResponseTimes("test", 5, 200);
+
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(50000)));
+    }
+
+    @Test
+    public void shouldCalculateReadTimeoutFromPercentileOfResponseTimesPerAccountType() {
+        recordResponseTimes("test", 100, 200);
+        recordResponseTimes("live", 100, 1000);
+
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(600)));
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("live"), is(Optional.of(3000)));
+        assertThat((Integer) metricRegistry.getGauges().get("gateway-operations.worldpay.test.auth.read_timeout").getValue(), is(600));
+    }
+
+    @Test
+    public void shouldKeepReadTimeoutWithinMinimumAndStaticReadTimeout() {
+        recordResponseTimes("test", 100, 10);
+        recordResponseTimes("live", 100, 40000);
+
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(500)));
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("live"), is(Optional.of(50000)));
+    }
+
+    @Test
+    public void shouldOnlyRecalculateReadTimeoutOnceTheRecalculationIntervalHasPassed() {
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(50000)));
+
+        recordResponseTimes("test", 100, 200);
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(50000)));
+
+        when(clock.millis()).thenReturn(10000L);
+        assertThat(readTimeouts.getReadTimeoutInMilliseconds("test"), is(Optional.of(600)));
+    }
+
+    @Test
+    public void shouldNotProvideReadTimeoutWhenDisabled() {
+        AdaptiveReadTimeouts disabled = AdaptiveReadTimeouts.disabled();
+        disabled.update("test", 200);
+
+        assertThat(disabled.getReadTimeoutInMilliseconds("test"), is(Optional.empty()));
+    }
+
+    private void recordResponseTimes(String accountType, int count, long responseTimeInMilliseconds) {
+        for (int i = 0; i < count; i++) {
+            readTimeouts.update(accountType, responseTimeInMilliseconds);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+
+import java.time.Clock;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.CLOSED;
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.HALF_OPEN;
+import static uk.gov.pay.connector.gateway.GatewayCircuitBreaker.State.OPEN;
+import static uk.gov.pay.connector.gateway.GatewayOperation.AUTHORISE;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GatewayCircuitBreakerTest {
+
+    @Mock
+    private GatewayCircuitBreakerConfig config;
+    @Mock
+    private Clock clock;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private GatewayCircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        when(config.isEnabled()).thenReturn(true);
+        when(config.getDefaultMaximumConcurrentRequests()).thenReturn(10);
+        when(config.getMaximumConcurrentRequests()).thenReturn(Map.of("worldpay.auth", 2));
+        when(config.getFailureThreshold()).thenReturn(3);
+        when(config.getOpenDurationInMilliseconds()).thenReturn(1000L);
+        when(config.getHalfOpenProbeRequests()).thenReturn(1);
+        when(clock.millis()).thenReturn(0L);
+
+        circuitBreaker = new GatewayCircuitBreakers(config, metricRegistry, clock).forOperation(WORLDPAY, AUTHORISE.getConfigKey());
+    }
+
+    @Test
+    public void shouldRejectRequestsOverTheConcurrentRequestLimitOfTheOperation() {
+        GatewayCircuitBreaker.Permit first = circuitBreaker.tryAcquire().orElseThrow();
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(true));
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(false));
+
+        first.release();
+
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(true));
+        assertThat(metricRegistry.counter("gateway-circuit-breaker.worldpay.auth.rejections").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailuresAndRejectRequestsUntilTheOpenDurationHasPassed() {
+        completeRequest(false);
+        completeRequest(false);
+        completeRequest(true);
+        completeRequest(false);
+        completeRequest(false);
+        assertThat(circuitBreaker.getState(), is(CLOSED));
+
+        completeRequest(false);
+        assertThat(circuitBreaker.getState(), is(OPEN));
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(false));
+
+        when(clock.millis()).thenReturn(1000L);
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(true));
+        assertThat(circuitBreaker.getState(), is(HALF_OPEN));
+    }
+
+    @Test
+    public void shouldLetOneProbeThroughWhenHalfOpenAndCloseWhenItSucceeds() {
+        openCircuitBreaker();
+        when(clock.millis()).thenReturn(1000L);
+
+        GatewayCircuitBreaker.Permit probe = circuitBreaker.tryAcquire().orElseThrow();
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(false));
+
+        probe.onSuccess();
+        probe.release();
+
+        assertThat(circuitBreaker.getState(), is(CLOSED));
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(true));
+    }
+
+    @Test
+    public void shouldReopenWhenTheProbeFails() {
+        openCircuitBreaker();
+        when(clock.millis()).thenReturn(1000L);
+
+        GatewayCircuitBreaker.Permit probe = circuitBreaker.tryAcquire().orElseThrow();
+        probe.onFailure();
+        probe.release();
+
+        assertThat(circuitBreaker.getState(), is(OPEN));
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreResultsOfRequestsAdmittedBeforeTheBreakerWentHalfOpen() {
+        GatewayCircuitBreaker.Permit slowRequest = circuitBreaker.tryAcquire().orElseThrow();
+        openCircuitBreaker();
+        when(clock.millis()).thenReturn(1000L);
+        GatewayCircuitBreaker.Permit probe = circuitBreaker.tryAcquire().orElseThrow();
+
+        slowRequest.onSuccess();
+        slowRequest.release();
+        assertThat(circuitBreaker.getState(), is(HALF_OPEN));
+
+        probe.onFailure();
+        probe.release();
+        assertThat(circuitBreaker.getState(), is(OPEN));
+    }
+
+    @Test
+    public void shouldFreeTheProbeSlotWhenAProbeIsReleasedWithoutAResult() {
+        openCircuitBreaker();
+        when(clock.millis()).thenReturn(1000L);
+
+        circuitBreaker.tryAcquire().orElseThrow().release();
+
+        assertThat(circuitBreaker.getState(), is(HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire().isPresent(), is(true));
+    }
+
+    @Test
+    public void shouldAlwaysAllowRequestsWhenDisabled() {
+        GatewayCircuitBreaker disabled = GatewayCircuitBreaker.disabled("worldpay.auth");
+
+        for (int i = 0; i < 5; i++) {
+            disabled.tryAcquire().orElseThrow().onFailure();
+        }
+
+        assertThat(disabled.tryAcquire().isPresent(), is(true));
+        assertThat(disabled.getState(), is(CLOSED));
+    }
+
+    private void completeRequest(boolean successful) {
+        GatewayCircuitBreaker.Permit permit = circuitBreaker.tryAcquire().orElseThrow();
+        if (successful) {
+            permit.onSuccess();
+        } else {
+            permit.onFailure();
+        }
+        permit.release();
+    }
+
+    private void openCircuitBreaker() {
+        for (int i = 0; i < 3; i++) {
+            completeRequest(false);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package uk.gov.pay.connector.gateway;
+
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.GatewayConfig;
+import uk.gov.pay.connector.app.config.GatewayConnectionWarmUpConfig;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GatewayConnectionWarmUpTest {
+
+    private static final String WORLDPAY_TEST_URL = "https://secure-test.worldpay.com/jsp/merchant/xml/paymentService.jsp";
+    private static final String WORLDPAY_LIVE_URL = "https://secure.worldpay.com/jsp/merchant/xml/paymentService.jsp";
+
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private GatewayConnectionWarmUpConfig gatewayConnectionWarmUpConfig;
+    @Mock
+    private GatewayConfig worldpayConfig;
+    @Mock
+    private Environment environment;
+    @Mock
+    private LifecycleEnvironment lifecycleEnvironment;
+    @Mock
+    private ExecutorServiceBuilder executorServiceBuilder;
+    @Mock
+    private Client client;
+    @Mock
+    private WebTarget webTarget;
+    @Mock
+    private Invocation.Builder invocationBuilder;
+    @Mock
+    private Response response;
+    @Mock
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private final ExecutorService warmUpExecutorService = Executors.newFixedThreadPool(4);
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getGatewayConnectionWarmUpConfig()).thenReturn(gatewayConnectionWarmUpConfig);
+        when(gatewayConnectionWarmUpConfig.getTimeoutInSeconds()).thenReturn(5);
+    }
+
+    @After
+    public void tearDown() {
+        warmUpExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldOpenConnectionsToEachGatewayHost() {
+        GatewayConnectionWarmUp gatewayConnectionWarmUp = anEnabledWarmUp(2);
+        givenWorldpayUrls(WORLDPAY_TEST_URL, WORLDPAY_LIVE_URL);
+        givenWarmUpRequestsSucceed();
+
+        gatewayConnectionWarmUp.register(WORLDPAY, "authorise", client, connectionManager);
+        gatewayConnectionWarmUp.start();
+
+        verify(client, times(2)).target(WORLDPAY_TEST_URL);
+        verify(client, times(2)).target(WORLDPAY_LIVE_URL);
+        verify(response, times(4)).close();
+    }
+
+    @Test
+    public void shouldWarmUpHostSharedByTestAndLiveAccountsOnce() {
+        GatewayConnectionWarmUp gatewayConnectionWarmUp = anEnabledWarmUp(2);
+        givenWorldpayUrls(WORLDPAY_TEST_URL, WORLDPAY_TEST_URL + "?live");
+        givenWarmUpRequestsSucceed();
+
+        gatewayConnectionWarmUp.register(WORLDPAY, "authorise", client, connectionManager);
+        gatewayConnectionWarmUp.start();
+
+        verify(invocationBuilder, times(2)).head();
+    }
+
+    @Test
+    public void shouldNotOpenMoreConnectionsThanThePoolAllowsPerHost() {
+        GatewayConnectionWarmUp gatewayConnectionWarmUp = anEnabledWarmUp(5);
+        givenWorldpayUrls(WORLDPAY_TEST_URL, WORLDPAY_TEST_URL);
+        givenWarmUpRequestsSucceed();
+
+        gatewayConnectionWarmUp.register(WORLDPAY, "authorise", client, connectionManager);
+        gatewayConnectionWarmUp.start();
+
+        verify(invocationBuilder, times(2)).head();
+    }
+
+    @Test
+    public void shouldCarryOnStartingUpWhenWarmUpRequestsFail() {
+        GatewayConnectionWarmUp gatewayConnectionWarmUp = anEnabledWarmUp(1);
+        givenWorldpayUrls(WORLDPAY_TEST_URL, WORLDPAY_LIVE_URL);
+        when(client.target(any(String.class))).thenReturn(webTarget);
+        when(webTarget.request()).thenReturn(invocationBuilder);
+        when(invocationBuilder.head()).thenThrow(new ProcessingException("connection refused"));
+        when(connectionManager.getDefaultMaxPerRoute()).thenReturn(2);
+        when(connectionManager.getTotalStats()).thenReturn(new PoolStats(0, 0, 0, 20));
+
+        gatewayConnectionWarmUp.register(WORLDPAY, "authorise", client, connectionManager);
+        gatewayConnectionWarmUp.start();
+
+        verify(invocationBuilder, times(2)).head();
+    }
+
+    @Test
+    public void shouldNotWarmUpWhenDisabled() {
+        GatewayConnectionWarmUp gatewayConnectionWarmUp = new GatewayConnectionWarmUp(connectorConfiguration, environment);
+
+        gatewayConnectionWarmUp.register(WORLDPAY, "authorise", client, connectionManager);
+        gatewayConnectionWarmUp.start();
+
+        verifyNoInteractions(client, environment);
+    }
+
+    private GatewayConnectionWarmUp anEnabledWarmUp(int connectionsPerRoute) {
+        when(gatewayConnectionWarmUpConfig.isEnabled()).thenReturn(true);
+        when(gatewayConnectionWarmUpConfig.getConnectionsPerRoute()).thenReturn(connectionsPerRoute);
+        when(gatewayConnectionWarmUpConfig.getNumberOfThreads()).thenReturn(4);
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(lifecycleEnvironment.executorService(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.minThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.maxThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.build()).thenReturn(warmUpExecutorService);
+        return new GatewayConnectionWarmUp(connectorConfiguration, environment);
+    }
+
+    private void givenWorldpayUrls(String testUrl, String liveUrl) {
+        when(connectorConfiguration.getGatewayConfigFor(WORLDPAY)).thenReturn(worldpayConfig);
+        when(worldpayConfig.getUrls()).thenReturn(Map.of("test", testUrl, "live", liveUrl));
+    }
+
+    private void givenWarmUpRequestsSucceed() {
+        when(client.target(any(String.class))).thenReturn(webTarget);
+        when(webTarget.request()).thenReturn(invocationBuilder);
+        when(invocationBuilder.head()).thenReturn(response);
+        when(connectionManager.getDefaultMaxPerRoute()).thenReturn(2);
+        when(connectionManager.getTotalStats()).thenReturn(new PoolStats(0, 0, 2, 20));
+    }
+}
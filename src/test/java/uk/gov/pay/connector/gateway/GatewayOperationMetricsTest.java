@@ -0,0 +1,44 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_SUBMITTED;
+import static uk.gov.pay.connector.gateway.model.OrderRequestType.AUTHORISE;
+import static uk.gov.pay.connector.gateway.model.OrderRequestType.AUTHORISE_3DS;
+
+public class GatewayOperationMetricsTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final GatewayOperationMetrics gatewayOperationMetrics = new GatewayOperationMetrics(metricRegistry);
+
+    @Test
+    public void shouldRegisterMetricsUnderTheNamesUsedByDashboards() {
+        gatewayOperationMetrics.forOperation("worldpay", "test", AUTHORISE_3DS);
+        gatewayOperationMetrics.authorisationResult("worldpay", "test", 1L, true, AUTHORISATION_SUCCESS);
+        gatewayOperationMetrics.authorisationResult("worldpay", "test", 1L, false, AUTHORISATION_SUCCESS);
+        gatewayOperationMetrics.captureResult("epdq", "live", 2L, CAPTURE_SUBMITTED);
+
+        assertThat(metricRegistry.getNames(), containsInAnyOrder(
+                "gateway-operations.worldpay.test.authorise3DS.response_time",
+                "gateway-operations.worldpay.test.authorise3DS.failures",
+                "gateway-operations.worldpay.test.1.authorise.with-billing-address.result.AUTHORISATION SUCCESS",
+                "gateway-operations.worldpay.test.1.authorise.without-billing-address.result.AUTHORISATION SUCCESS",
+                "gateway-operations.epdq.live.2.capture.result.CAPTURE SUBMITTED"));
+        assertThat(metricRegistry.getTimers().containsKey("gateway-operations.worldpay.test.authorise3DS.response_time"), is(true));
+    }
+
+    @Test
+    public void shouldReuseTheSameMetricsForTheSameGatewayAccountTypeOperationAndOutcome() {
+        GatewayOperationMetrics.OperationMetrics operationMetrics = gatewayOperationMetrics.forOperation("worldpay", "test", AUTHORISE);
+
+        assertThat(gatewayOperationMetrics.forOperation("worldpay", "test", AUTHORISE), is(sameInstance(operationMetrics)));
+        assertThat(gatewayOperationMetrics.captureResult("epdq", "live", 2L, CAPTURE_SUBMITTED),
+                is(sameInstance(gatewayOperationMetrics.captureResult("epdq", "live", 2L, CAPTURE_SUBMITTED))));
+    }
+}
@@ -1,8 +1,8 @@
 package uk.gov.pay.connector.gateway.epdq;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.setup.Environment;
 import org.junit.Before;
@@ -12,7 +12,10 @@ import uk.gov.pay.connector.app.GatewayConfig;
 import uk.gov.pay.connector.app.LinksConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.common.model.domain.Address;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+import uk.gov.pay.connector.gateway.AdaptiveReadTimeouts;
 import uk.gov.pay.connector.gateway.ClientFactory;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreakers;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
 import uk.gov.pay.connector.gateway.GatewayOperation;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
@@ -36,6 +39,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.net.URI;
+import java.time.Clock;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -75,7 +79,7 @@ public abstract class BaseEpdqPaymentProviderTest {
     @Mock
     MetricRegistry mockMetricRegistry;
     @Mock
-    Histogram mockHistogram;
+    Timer mockTimer;
     @Mock
     Counter mockCounter;
     @Mock
@@ -93,16 +97,21 @@ public abstract class BaseEpdqPaymentProviderTest {
 
     @Before
     public void setup() {
-        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory,
+                new GatewayCircuitBreakers(new GatewayCircuitBreakerConfig(), new MetricRegistry(), Clock.systemUTC()));
 
         mockClientInvocationBuilder = mockClientInvocationBuilder();
         when(environment.metrics()).thenReturn(mockMetricRegistry);
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         when(mockClientFactory.createWithDropwizardClient(
                 eq(PaymentGatewayName.EPDQ), any(GatewayOperation.class), any(MetricRegistry.class))
         ).thenReturn(mockClient);
 
+        when(mockClientFactory.createAdaptiveReadTimeouts(
+                eq(PaymentGatewayName.EPDQ), any(GatewayOperation.class), any(MetricRegistry.class))
+        ).thenReturn(AdaptiveReadTimeouts.disabled());
+
         when(configuration.getGatewayConfigFor(PaymentGatewayName.EPDQ)).thenReturn(gatewayConfig);
         when(gatewayConfig.getUrls()).thenReturn(ImmutableMap.of(TEST.toString(), "http://epdq.url"));
 
@@ -9,6 +9,8 @@ import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 
 import java.util.Optional;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
@@ -115,4 +117,22 @@ public class EpdqNotificationServiceTest extends BaseEpdqNotificationServiceTest
         verify(mockChargeNotificationProcessor, never()).invoke(anyString(), any(), any(), any());
         verify(mockRefundNotificationProcessor, never()).invoke(any(), any(), any(), any());
     }
+
+    @Test
+    public void shouldVerifyNotificationSignedWithTheChargesShaOutPassphrase() {
+        final String payload = notificationPayloadForTransaction(payId, EPDQ_PAYMENT_REQUESTED);
+
+        assertThat(notificationService.isVerified(payload), is(true));
+        verify(mockChargeNotificationProcessor, never()).invoke(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotVerifyNotificationSignedWithAnotherPassphrase() {
+        when(mockGatewayAccountEntity.getCredentials())
+                .thenReturn(ImmutableMap.of(CREDENTIALS_SHA_OUT_PASSPHRASE, "sha-phrase-out-expected"));
+
+        final String payload = notificationPayloadForTransaction(payId, EPDQ_PAYMENT_REQUESTED);
+
+        assertThat(notificationService.isVerified(payload), is(false));
+    }
 }
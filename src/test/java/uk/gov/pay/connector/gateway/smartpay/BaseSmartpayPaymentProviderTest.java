@@ -1,14 +1,16 @@
 package uk.gov.pay.connector.gateway.smartpay;
 
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.setup.Environment;
 import org.junit.Before;
 import org.mockito.Mock;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.GatewayConfig;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
 import uk.gov.pay.connector.gateway.ClientFactory;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreakers;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
@@ -20,6 +22,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 
 import java.net.URI;
+import java.time.Clock;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -47,14 +50,15 @@ public abstract class BaseSmartpayPaymentProviderTest {
 
     @Before
     public void setup() {
-        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory,
+                new GatewayCircuitBreakers(new GatewayCircuitBreakerConfig(), new MetricRegistry(), Clock.systemUTC()));
 
         when(mockClientFactory.createWithDropwizardClient(eq(PaymentGatewayName.SMARTPAY), any(MetricRegistry.class)))
                 .thenReturn(mockClient);
         when(configuration.getGatewayConfigFor(PaymentGatewayName.SMARTPAY)).thenReturn(gatewayConfig);
         when(gatewayConfig.getUrls()).thenReturn(ImmutableMap.of(TEST.toString(), "http://smartpay.url"));
         when(environment.metrics()).thenReturn(metricRegistry);
-        when(metricRegistry.histogram(anyString())).thenReturn(mock(Histogram.class));
+        when(metricRegistry.timer(anyString())).thenReturn(mock(Timer.class));
 
         provider = new SmartpayPaymentProvider(configuration, gatewayClientFactory, environment);
     }
@@ -11,19 +11,37 @@ import uk.gov.pay.connector.charge.dao.ChargeDao;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.gateway.processor.ChargeNotificationProcessor;
 import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
+import uk.gov.pay.connector.refund.dao.RefundDao;
+import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeKey;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeService;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
+import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aValidChargeEntity;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_SUBMITTED;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
 import static uk.gov.pay.connector.util.TestTemplateResourceLoader.SMARTPAY_MULTIPLE_NOTIFICATIONS_DIFFERENT_DATES;
 import static uk.gov.pay.connector.util.TestTemplateResourceLoader.SMARTPAY_NOTIFICATION_AUTHORISATION;
@@ -39,11 +57,17 @@ public class SmartpayNotificationServiceTest {
     @Mock
     private ChargeDao mockChargeDao;
     @Mock
+    private RefundDao mockRefundDao;
+    @Mock
     private ChargeNotificationProcessor mockChargeNotificationProcessor;
     @Mock
     private RefundNotificationProcessor mockRefundNotificationProcessor;
     @Mock
+    private NotificationDedupeService mockNotificationDedupeService;
+    @Mock
     private ChargeEntity mockCharge;
+    @Mock
+    private RefundEntity mockRefund;
 
     private final String originalReference = "original-reference";
     private final String pspReference = "psp-reference";
@@ -54,12 +78,15 @@ public class SmartpayNotificationServiceTest {
 
         notificationService = new SmartpayNotificationService(
                 mockChargeDao,
+                mockRefundDao,
                 mockChargeNotificationProcessor,
-                mockRefundNotificationProcessor
+                mockRefundNotificationProcessor,
+                mockNotificationDedupeService
         );
         when(mockCharge.getStatus()).thenReturn(AUTHORISATION_SUCCESS.getValue());
 
-        when(mockChargeDao.findByProviderAndTransactionId(SMARTPAY.getName(), originalReference)).thenReturn(Optional.of(mockCharge));
+        when(mockCharge.getGatewayTransactionId()).thenReturn(originalReference);
+        when(mockChargeDao.findByProviderAndTransactionIds(eq(SMARTPAY.getName()), any())).thenReturn(List.of(mockCharge));
     }
 
     @Test
@@ -74,16 +101,47 @@ public class SmartpayNotificationServiceTest {
                 ZonedDateTime.parse("2015-10-08T13:48:30+02:00"));  // from notification-capture.json
     }
 
+    @Test
+    public void shouldRecordNotificationAsApplied_WhenChargeIsUpdated() {
+        final String payload = sampleSmartpayNotification(SMARTPAY_NOTIFICATION_CAPTURE,
+                randomId(), originalReference, pspReference);
+
+        notificationService.handleNotificationFor(payload);
+
+        verify(mockNotificationDedupeService).record(NotificationDedupeKey.of(SMARTPAY, originalReference, pspReference,
+                "CAPTURE:true", ZonedDateTime.parse("2015-10-08T13:48:30+02:00")));
+    }
+
+    @Test
+    public void shouldSkipNotificationsThatHaveAlreadyBeenApplied() {
+        NotificationDedupeKey replayedKey = NotificationDedupeKey.of(SMARTPAY, "transaction-1", "psp-transaction-1",
+                "CAPTURE:true", ZonedDateTime.parse("2015-10-08T13:48:30+02:00"));
+        NotificationDedupeKey newKey = NotificationDedupeKey.of(SMARTPAY, "transaction-2", "psp-transaction-2",
+                "CAPTURE:true", ZonedDateTime.parse("2015-10-08T13:48:30+02:00"));
+        when(mockNotificationDedupeService.findReplays(List.of(replayedKey, newKey))).thenReturn(Set.of(replayedKey));
+        ChargeEntity charge = aValidChargeEntity().withGatewayTransactionId("transaction-2").withStatus(CAPTURE_SUBMITTED).build();
+        when(mockChargeDao.findByProviderAndTransactionIds(SMARTPAY.getName(), Set.of("transaction-2"))).thenReturn(List.of(charge));
+
+        notificationService.handleNotificationFor(captureNotificationsFor(List.of("transaction-1", "transaction-2")));
+
+        verify(mockChargeNotificationProcessor, times(1)).invoke(any(), any(), any(), any());
+        verify(mockChargeNotificationProcessor).invoke(eq("transaction-2"), eq(charge), eq(CAPTURED), any());
+        verify(mockNotificationDedupeService, never()).record(replayedKey);
+    }
+
     @Test
     public void shouldUpdateRefund_WhenNotificationIsForRefund() {
         final String payload = sampleSmartpayNotification(SMARTPAY_NOTIFICATION_REFUND,
                 randomId(), originalReference, pspReference);
 
+        when(mockRefund.getReference()).thenReturn(pspReference);
+        when(mockRefundDao.findByProviderAndReferences(SMARTPAY.getName(), Set.of(pspReference))).thenReturn(List.of(mockRefund));
+
         notificationService.handleNotificationFor(payload);
 
         verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
-        verify(mockRefundNotificationProcessor).invoke(SMARTPAY,
-                RefundStatus.REFUNDED, pspReference, originalReference);
+        verify(mockRefundNotificationProcessor).updateRefund(SMARTPAY,
+                RefundStatus.REFUNDED, mockRefund, originalReference);
     }
 
     @Test
@@ -139,6 +197,7 @@ public class SmartpayNotificationServiceTest {
 
         verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
         verify(mockRefundNotificationProcessor, never()).invoke(any(), any(), any(), any());
+        verify(mockNotificationDedupeService, never()).record(any());
     }
 
     @Test
@@ -151,6 +210,64 @@ public class SmartpayNotificationServiceTest {
         verify(mockRefundNotificationProcessor, never()).invoke(any(), any(), any(), any());
     }
 
+    @Test
+    public void shouldLookUpChargesForAllNotificationsInOneQuery() {
+        int numberOfNotifications = 500;
+        List<String> transactionIds = IntStream.range(0, numberOfNotifications)
+                .mapToObj(i -> "transaction-" + i)
+                .collect(toList());
+        List<ChargeEntity> charges = transactionIds.stream()
+                .map(transactionId -> aValidChargeEntity()
+                        .withGatewayTransactionId(transactionId)
+                        .withStatus(CAPTURE_SUBMITTED)
+                        .build())
+                .collect(toList());
+        when(mockChargeDao.findByProviderAndTransactionIds(SMARTPAY.getName(), Set.copyOf(transactionIds))).thenReturn(charges);
+
+        long startTime = System.nanoTime();
+        notificationService.handleNotificationFor(captureNotificationsFor(transactionIds));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        verify(mockChargeDao).findByProviderAndTransactionIds(SMARTPAY.getName(), Set.copyOf(transactionIds));
+        verify(mockChargeDao, never()).findByProviderAndTransactionId(any(), any());
+        for (ChargeEntity charge : charges) {
+            verify(mockChargeNotificationProcessor).invoke(eq(charge.getGatewayTransactionId()), eq(charge), eq(CAPTURED), any());
+        }
+        assertThat(elapsedMillis, lessThan(5000L));
+    }
+
+    @Test
+    public void shouldCarryOnProcessingNotificationsAfterOneFails() {
+        ChargeEntity failingCharge = aValidChargeEntity().withGatewayTransactionId("transaction-1").withStatus(CAPTURE_SUBMITTED).build();
+        ChargeEntity charge = aValidChargeEntity().withGatewayTransactionId("transaction-2").withStatus(CAPTURE_SUBMITTED).build();
+        when(mockChargeDao.findByProviderAndTransactionIds(eq(SMARTPAY.getName()), any())).thenReturn(List.of(failingCharge, charge));
+        when(mockChargeDao.findByProviderAndTransactionId(SMARTPAY.getName(), "transaction-2")).thenReturn(Optional.of(charge));
+        doThrow(new RuntimeException("database unavailable")).when(mockChargeNotificationProcessor)
+                .invoke(eq("transaction-1"), eq(failingCharge), eq(CAPTURED), any());
+
+        try {
+            notificationService.handleNotificationFor(captureNotificationsFor(List.of("transaction-1", "transaction-2")));
+            fail("Expected the failed notification to fail the batch so that Smartpay sends it again");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("database unavailable"));
+        }
+
+        // the failed transaction may have detached the charges looked up for the batch, so the rest are looked up again
+        verify(mockChargeNotificationProcessor).invoke(eq("transaction-2"), eq(charge), eq(CAPTURED), any());
+    }
+
+    private static String captureNotificationsFor(List<String> transactionIds) {
+        String notificationItems = transactionIds.stream()
+                .map(transactionId -> "{\"NotificationRequestItem\": {" +
+                        "\"eventCode\": \"CAPTURE\", " +
+                        "\"eventDate\": \"2015-10-08T13:48:30+02:00\", " +
+                        "\"originalReference\": \"" + transactionId + "\", " +
+                        "\"pspReference\": \"psp-" + transactionId + "\", " +
+                        "\"success\": \"true\"}}")
+                .collect(joining(", "));
+        return "{\"live\": \"false\", \"notificationItems\": [" + notificationItems + "]}";
+    }
+
     private static String sampleSmartpayNotification(String location,
                                                      String merchantReference,
                                                      String originalReference,
@@ -8,6 +8,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.StripeAuthTokens;
 import uk.gov.pay.connector.app.StripeGatewayConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.gateway.CaptureResponse;
@@ -18,6 +19,8 @@ import uk.gov.pay.connector.gateway.stripe.handler.StripeCaptureHandler;
 import uk.gov.pay.connector.gateway.stripe.request.StripeCaptureRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripePaymentIntentCaptureRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripeTransferOutRequest;
+import uk.gov.pay.connector.gateway.stripe.transfer.StripeTransferOutboxEntity;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.util.JsonObjectMapper;
 
@@ -30,6 +33,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.gateway.model.ErrorType.GATEWAY_ERROR;
@@ -245,6 +249,46 @@ public class StripeCaptureHandlerTest {
         assertThat(response.getError().get().getErrorType(), is(GATEWAY_ERROR));
     }
 
+    @Test
+    public void shouldRecordTransferInOutboxInsteadOfTransferringDuringCapture() throws Exception {
+        StripeTransferOutboxDao stripeTransferOutboxDao = mock(StripeTransferOutboxDao.class);
+        stripeCaptureHandler = new StripeCaptureHandler(gatewayClient, stripeGatewayConfig, objectMapper, stripeTransferOutboxDao);
+        GatewayClient.Response gatewayCaptureResponse = mock(GatewayClient.Response.class);
+        when(gatewayCaptureResponse.getEntity()).thenReturn(load(STRIPE_CAPTURE_SUCCESS_RESPONSE));
+        when(gatewayClient.postRequestFor(any(StripeCaptureRequest.class))).thenReturn(gatewayCaptureResponse);
+
+        CaptureResponse captureResponse = stripeCaptureHandler.capture(captureGatewayRequest);
+
+        ArgumentCaptor<StripeTransferOutboxEntity> transferCaptor = ArgumentCaptor.forClass(StripeTransferOutboxEntity.class);
+        verify(stripeTransferOutboxDao).insertIfAbsent(transferCaptor.capture());
+        verify(gatewayClient, never()).postRequestFor(any(StripeTransferOutRequest.class));
+
+        assertThat(transferCaptor.getValue().getChargeExternalId(), is(captureGatewayRequest.getExternalId()));
+        assertThat(transferCaptor.getValue().getGatewayAccountId(), is(1L));
+        assertThat(transferCaptor.getValue().getStripeChargeId(), is("ch_123456"));
+        assertThat(transferCaptor.getValue().getAmount(), is(9942L));
+        assertTrue(captureResponse.isSuccessful());
+        assertThat(captureResponse.state(), is(CaptureResponse.ChargeState.COMPLETE));
+    }
+
+    @Test
+    public void shouldTransferRecordedTransferWithTheSameIdempotencyKeyAsDuringCapture() throws Exception {
+        when(stripeGatewayConfig.getAuthTokens()).thenReturn(mock(StripeAuthTokens.class));
+        GatewayClient.Response gatewayTransferResponse = mock(GatewayClient.Response.class);
+        when(gatewayTransferResponse.getEntity()).thenReturn(load(STRIPE_TRANSFER_RESPONSE));
+        when(gatewayClient.postRequestFor(any(StripeTransferOutRequest.class))).thenReturn(gatewayTransferResponse);
+        StripeTransferOutboxEntity transfer = StripeTransferOutboxEntity.of(captureGatewayRequest.getExternalId(),
+                gatewayAccount.getId(), "ch_123456", 9942L);
+
+        stripeCaptureHandler.transferToConnectAccount(transfer, gatewayAccount);
+
+        ArgumentCaptor<StripeTransferOutRequest> transferRequestCaptor = ArgumentCaptor.forClass(StripeTransferOutRequest.class);
+        verify(gatewayClient).postRequestFor(transferRequestCaptor.capture());
+        assertThat(transferRequestCaptor.getValue().getGatewayOrder().getPayload(), containsString("amount=9942"));
+        assertThat(transferRequestCaptor.getValue().getHeaders().get("Idempotency-Key"),
+                is("transfer_out" + captureGatewayRequest.getExternalId()));
+    }
+
     private GatewayAccountEntity buildGatewayAccountEntity() {
         GatewayAccountEntity gatewayAccount = new GatewayAccountEntity();
         gatewayAccount.setId(1L);
@@ -17,8 +17,10 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.StripeGatewayConfig;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.charge.service.ChargeStatusNotifier;
 import uk.gov.pay.connector.gateway.model.Auth3dsDetails;
 import uk.gov.pay.connector.paymentprocessor.service.Card3dsResponseAuthService;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
@@ -59,6 +61,8 @@ public class StripeNotificationServiceTest {
     @Mock
     private ChargeService mockChargeService;
     @Mock
+    private ChargeDao mockChargeDao;
+    @Mock
     private ChargeEntity mockCharge;
     @Mock
     private StripeGatewayConfig stripeGatewayConfig;
@@ -77,7 +81,7 @@ public class StripeNotificationServiceTest {
     @Before
     public void setup() {
         notificationService = new StripeNotificationService(mockCard3dsResponseAuthService,
-                mockChargeService, stripeGatewayConfig, stripeAccountUpdatedHandler);
+                mockChargeService, stripeGatewayConfig, stripeAccountUpdatedHandler, new ChargeStatusNotifier(mockChargeDao));
 
         when(stripeGatewayConfig.getWebhookSigningSecrets()).thenReturn(List.of(webhookLiveSigningSecret, webhookTestSigningSecret));
         when(mockCharge.getExternalId()).thenReturn(externalId);
@@ -13,6 +13,7 @@ import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.LinksConfig;
 import uk.gov.pay.connector.app.StripeAuthTokens;
 import uk.gov.pay.connector.app.StripeGatewayConfig;
+import uk.gov.pay.connector.app.config.StripeTransferOutboxConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.common.model.domain.Address;
@@ -31,6 +32,7 @@ import uk.gov.pay.connector.gateway.stripe.request.StripeAuthoriseRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripePaymentIntentRequest;
 import uk.gov.pay.connector.gateway.stripe.request.StripePaymentMethodRequest;
 import uk.gov.pay.connector.gateway.stripe.response.StripeParamsFor3ds;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.model.domain.AuthCardDetailsFixture;
 import uk.gov.pay.connector.util.JsonObjectMapper;
@@ -85,7 +87,10 @@ public class StripePaymentProviderTest {
 
         when(environment.metrics()).thenReturn(metricRegistry);
 
-        provider = new StripePaymentProvider(gatewayClientFactory, configuration, objectMapper, environment);
+        when(configuration.getStripeTransferOutboxConfig()).thenReturn(new StripeTransferOutboxConfig());
+
+        provider = new StripePaymentProvider(gatewayClientFactory, configuration, objectMapper, environment,
+                mock(StripeTransferOutboxDao.class));
 
         when(paymentMethodResponse.getEntity()).thenReturn(successCreatePaymentMethodResponse());
         when(paymentIntentsResponse.getEntity()).thenReturn(successCreatePaymentIntentsResponse());
@@ -0,0 +1,138 @@
+package uk.gov.pay.connector.gateway.stripe.transfer;
+
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.StripeTransferOutboxConfig;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
+import uk.gov.pay.connector.gateway.stripe.StripePaymentProvider;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StripeTransferOutboxProcessTest {
+
+    private static final Long GATEWAY_ACCOUNT_ID = 10L;
+
+    @Mock
+    private StripeTransferOutboxDao stripeTransferOutboxDao;
+    @Mock
+    private GatewayAccountDao gatewayAccountDao;
+    @Mock
+    private StripePaymentProvider stripePaymentProvider;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private StripeTransferOutboxConfig stripeTransferOutboxConfig;
+    @Mock
+    private GatewayAccountEntity gatewayAccount;
+
+    private StripeTransferOutboxProcess stripeTransferOutboxProcess;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getStripeTransferOutboxConfig()).thenReturn(stripeTransferOutboxConfig);
+        when(stripeTransferOutboxConfig.getBatchSize()).thenReturn(10);
+        when(stripeTransferOutboxConfig.getLeaseInSeconds()).thenReturn(60);
+        when(stripeTransferOutboxConfig.getMaximumAttempts()).thenReturn(3);
+        when(stripeTransferOutboxConfig.getInitialRetryDelayInSeconds()).thenReturn(30L);
+        when(stripeTransferOutboxConfig.getMaximumRetryDelayInSeconds()).thenReturn(100L);
+        stripeTransferOutboxProcess = new StripeTransferOutboxProcess(stripeTransferOutboxDao, gatewayAccountDao,
+                stripePaymentProvider, environment, connectorConfiguration);
+    }
+
+    @Test
+    public void shouldMakeTransferAndRemoveItFromOutbox() throws Exception {
+        StripeTransferOutboxEntity transfer = aTransfer();
+        givenClaimedTransfers(transfer);
+
+        stripeTransferOutboxProcess.handleTransfers();
+
+        verify(stripePaymentProvider).transferToConnectAccount(transfer, gatewayAccount);
+        verify(stripeTransferOutboxDao).deleteById(1L);
+        verify(stripeTransferOutboxDao, never()).scheduleRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldScheduleRetryIfTransferFails() throws Exception {
+        StripeTransferOutboxEntity transfer = aTransfer();
+        givenClaimedTransfers(transfer);
+        doThrow(new GatewayErrorException("Stripe unavailable")).when(stripePaymentProvider)
+                .transferToConnectAccount(transfer, gatewayAccount);
+
+        stripeTransferOutboxProcess.handleTransfers();
+
+        verify(stripeTransferOutboxDao).scheduleRetry(eq(1L), eq(1), any(ZonedDateTime.class));
+        verify(stripeTransferOutboxDao, never()).deleteById(any());
+    }
+
+    @Test
+    public void shouldAbandonTransferAfterMaximumAttempts() throws Exception {
+        when(stripeTransferOutboxConfig.getMaximumAttempts()).thenReturn(1);
+        stripeTransferOutboxProcess = new StripeTransferOutboxProcess(stripeTransferOutboxDao, gatewayAccountDao,
+                stripePaymentProvider, environment, connectorConfiguration);
+        StripeTransferOutboxEntity transfer = aTransfer();
+        givenClaimedTransfers(transfer);
+        doThrow(new GatewayErrorException("Stripe unavailable")).when(stripePaymentProvider)
+                .transferToConnectAccount(transfer, gatewayAccount);
+
+        stripeTransferOutboxProcess.handleTransfers();
+
+        verify(stripeTransferOutboxDao).abandon(1L, 1);
+        verify(stripeTransferOutboxDao, never()).scheduleRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldAbandonTransferIfGatewayAccountCannotBeFound() throws Exception {
+        when(stripeTransferOutboxDao.claimReadyTransfers(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(aTransfer()));
+        when(gatewayAccountDao.findById(GATEWAY_ACCOUNT_ID)).thenReturn(Optional.empty());
+
+        stripeTransferOutboxProcess.handleTransfers();
+
+        verify(stripeTransferOutboxDao).abandon(1L, 0);
+        verifyNoInteractions(stripePaymentProvider);
+    }
+
+    @Test
+    public void shouldDoubleRetryDelayUpToMaximum() {
+        assertThat(stripeTransferOutboxProcess.retryDelayInSeconds(1), is(30L));
+        assertThat(stripeTransferOutboxProcess.retryDelayInSeconds(2), is(60L));
+        assertThat(stripeTransferOutboxProcess.retryDelayInSeconds(3), is(100L));
+    }
+
+    private void givenClaimedTransfers(StripeTransferOutboxEntity... transfers) {
+        when(stripeTransferOutboxDao.claimReadyTransfers(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(transfers));
+        when(gatewayAccountDao.findById(GATEWAY_ACCOUNT_ID)).thenReturn(Optional.of(gatewayAccount));
+    }
+
+    private StripeTransferOutboxEntity aTransfer() {
+        StripeTransferOutboxEntity transfer = StripeTransferOutboxEntity.of("charge-external-id", GATEWAY_ACCOUNT_ID,
+                "ch_123456", 9942L);
+        transfer.setId(1L);
+        return transfer;
+    }
+}
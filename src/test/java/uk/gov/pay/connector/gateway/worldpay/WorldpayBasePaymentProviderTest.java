@@ -1,15 +1,18 @@
 package uk.gov.pay.connector.gateway.worldpay;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.setup.Environment;
 import org.junit.Before;
 import org.mockito.Mock;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.GatewayConfig;
+import uk.gov.pay.connector.app.config.GatewayCircuitBreakerConfig;
+import uk.gov.pay.connector.gateway.AdaptiveReadTimeouts;
 import uk.gov.pay.connector.gateway.ClientFactory;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreakers;
 import uk.gov.pay.connector.gateway.GatewayClient;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
 import uk.gov.pay.connector.gateway.GatewayOperation;
@@ -24,6 +27,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.time.Clock;
 import java.util.Collections;
 import java.util.Map;
 
@@ -56,7 +60,7 @@ public abstract class WorldpayBasePaymentProviderTest {
     @Mock
     private MetricRegistry mockMetricRegistry;
     @Mock
-    private Histogram mockHistogram;
+    private Timer mockTimer;
     @Mock
     private Counter mockCounter;
     @Mock
@@ -73,15 +77,20 @@ public abstract class WorldpayBasePaymentProviderTest {
         gatewayAccountEntity = aServiceAccount();
         gatewayAccountEntity.setCredentials(ImmutableMap.of("merchant_id", "MERCHANTCODE"));
         
-        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory,
+                new GatewayCircuitBreakers(new GatewayCircuitBreakerConfig(), new MetricRegistry(), Clock.systemUTC()));
 
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         when(mockClientFactory.createWithDropwizardClient(
                 eq(PaymentGatewayName.WORLDPAY), any(GatewayOperation.class), any(MetricRegistry.class))
         )
                 .thenReturn(mockClient);
 
+        when(mockClientFactory.createAdaptiveReadTimeouts(
+                eq(PaymentGatewayName.WORLDPAY), any(GatewayOperation.class), any(MetricRegistry.class))
+        ).thenReturn(AdaptiveReadTimeouts.disabled());
+
         when(configuration.getGatewayConfigFor(PaymentGatewayName.WORLDPAY)).thenReturn(gatewayConfig);
         when(gatewayConfig.getUrls()).thenReturn(urlMap);
         when(environment.metrics()).thenReturn(mockMetricRegistry);
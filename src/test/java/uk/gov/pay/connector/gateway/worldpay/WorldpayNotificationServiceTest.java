@@ -3,6 +3,7 @@ package uk.gov.pay.connector.gateway.worldpay;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
@@ -12,15 +13,26 @@ import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.DnsUtils;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeKey;
+import uk.gov.pay.connector.webhook.dedupe.NotificationDedupeService;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationEntity;
+import uk.gov.pay.connector.webhook.parking.ParkedNotificationService;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,6 +40,9 @@ import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
 import static uk.gov.pay.connector.util.TestTemplateResourceLoader.WORLDPAY_NOTIFICATION;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CHARGE_NOT_FOUND;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CLAIMED_ELSEWHERE;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.REPLAYED;
 
 @RunWith(MockitoJUnitRunner.class)
 public class WorldpayNotificationServiceTest {
@@ -44,6 +59,10 @@ public class WorldpayNotificationServiceTest {
     @Mock
     private RefundNotificationProcessor mockRefundNotificationProcessor;
     @Mock
+    private NotificationDedupeService mockNotificationDedupeService;
+    @Mock
+    private ParkedNotificationService mockParkedNotificationService;
+    @Mock
     private ChargeEntity mockCharge;
 
     private final String ipAddress = "1.1.1.1";
@@ -57,7 +76,9 @@ public class WorldpayNotificationServiceTest {
                 mockWorldpayConfiguration,
                 mockDnsUtils,
                 mockChargeNotificationProcessor,
-                mockRefundNotificationProcessor
+                mockRefundNotificationProcessor,
+                mockNotificationDedupeService,
+                mockParkedNotificationService
         );
         when(mockChargeDao.findByProviderAndTransactionId(WORLDPAY.getName(), transactionId)).thenReturn(Optional.of(mockCharge));
     }
@@ -87,6 +108,32 @@ public class WorldpayNotificationServiceTest {
         verify(mockChargeNotificationProcessor).invoke(expectedNotification.getTransactionId(), mockCharge, CAPTURED, expectedNotification.getGatewayEventDate());
     }
 
+    @Test
+    public void givenAChargeCapturedNotification_notificationIsRecordedAsApplied() {
+        final String payload = sampleWorldpayNotification(
+                transactionId, referenceId, "CAPTURED",
+                "10", "03", "2017");
+
+        assertTrue(notificationService.handleNotificationFor(ipAddress, payload));
+
+        verify(mockNotificationDedupeService).record(NotificationDedupeKey.of(WORLDPAY, transactionId, referenceId,
+                "CAPTURED", ZonedDateTime.of(2017, 3, 10, 0, 0, 0, 0, ZoneOffset.UTC)));
+    }
+
+    @Test
+    public void givenANotificationThatHasAlreadyBeenApplied_shouldAcknowledgeWithoutLookingUpCharge() {
+        final String payload = sampleWorldpayNotification(
+                transactionId, referenceId, "CAPTURED",
+                "10", "03", "2017");
+        when(mockNotificationDedupeService.isReplay(any())).thenReturn(true);
+
+        assertTrue(notificationService.handleNotificationFor(ipAddress, payload));
+
+        verify(mockChargeDao, never()).findByProviderAndTransactionId(any(), any());
+        verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
+        verify(mockNotificationDedupeService, never()).record(any());
+    }
+
     @Test
     public void givenARefundNotification_refundNotificationProcessorInvokedWithNotificationAndCharge() {
         final List<String> refundSuccessStatuses = Arrays.asList(
@@ -138,6 +185,59 @@ public class WorldpayNotificationServiceTest {
         assertFalse(result);
 
         verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
+        verify(mockNotificationDedupeService, never()).record(any());
+    }
+
+    @Test
+    public void ifChargeNotFoundAndParkingEnabled_shouldParkNotificationAndReturnTrue() {
+        final String payload = sampleWorldpayNotification(
+                transactionId, referenceId, "CAPTURED",
+                "10", "03", "2017");
+        when(mockParkedNotificationService.isEnabled()).thenReturn(true);
+        when(mockChargeDao.findByProviderAndTransactionId(WORLDPAY.getName(), transactionId)).thenReturn(Optional.empty());
+
+        assertTrue(notificationService.handleNotificationFor(ipAddress, payload));
+
+        verify(mockParkedNotificationService).park(WORLDPAY, transactionId, payload);
+        verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
+    }
+
+    @Test
+    public void replayParkedNotification_shouldProcessAndDeleteClaimedNotification() {
+        ParkedNotificationEntity capture = ParkedNotificationEntity.of(WORLDPAY.getName(), transactionId,
+                sampleWorldpayNotification(transactionId, referenceId, "CAPTURED", "10", "03", "2017"),
+                ZonedDateTime.now(ZoneOffset.UTC), ZonedDateTime.now(ZoneOffset.UTC).plusDays(1));
+        when(mockParkedNotificationService.claim(1L)).thenReturn(Optional.of(capture));
+
+        assertThat(notificationService.replayParkedNotification(1L), is(REPLAYED));
+
+        InOrder inOrder = inOrder(mockChargeNotificationProcessor, mockParkedNotificationService);
+        inOrder.verify(mockChargeNotificationProcessor).invoke(eq(transactionId), eq(mockCharge), eq(CAPTURED), any());
+        inOrder.verify(mockParkedNotificationService).replayed(capture);
+    }
+
+    @Test
+    public void replayParkedNotification_shouldLeaveNotificationParkedIfChargeStillNotFound() {
+        ParkedNotificationEntity capture = ParkedNotificationEntity.of(WORLDPAY.getName(), transactionId,
+                sampleWorldpayNotification(transactionId, referenceId, "CAPTURED", "10", "03", "2017"),
+                ZonedDateTime.now(ZoneOffset.UTC), ZonedDateTime.now(ZoneOffset.UTC).plusDays(1));
+        when(mockParkedNotificationService.claim(1L)).thenReturn(Optional.of(capture));
+        when(mockChargeDao.findByProviderAndTransactionId(WORLDPAY.getName(), transactionId)).thenReturn(Optional.empty());
+
+        assertThat(notificationService.replayParkedNotification(1L), is(CHARGE_NOT_FOUND));
+
+        verify(mockParkedNotificationService, never()).park(any(), any(), any());
+        verify(mockParkedNotificationService, never()).replayed(any());
+    }
+
+    @Test
+    public void replayParkedNotification_shouldNotProcessNotificationBeingReplayedElsewhere() {
+        when(mockParkedNotificationService.claim(1L)).thenReturn(Optional.empty());
+
+        assertThat(notificationService.replayParkedNotification(1L), is(CLAIMED_ELSEWHERE));
+
+        verify(mockChargeNotificationProcessor, never()).invoke(any(), any(), any(), any());
+        verify(mockParkedNotificationService, never()).replayed(any());
     }
 
     @Test
@@ -202,6 +302,35 @@ public class WorldpayNotificationServiceTest {
         verify(mockRefundNotificationProcessor, never()).invoke(any(), any(), any(), any());
     }
 
+    @Test
+    public void ifAllowedRangesConfigured_checkIpAgainstRangesWithoutReverseDnsLookup() {
+        final String payload = sampleWorldpayNotification(
+                transactionId,
+                referenceId,
+                "CAPTURED",
+                "10",
+                "03",
+                "2017");
+        when(mockWorldpayConfiguration.isNotificationEndpointSecured()).thenReturn(true);
+        when(mockWorldpayConfiguration.getNotificationAllowedCidrs()).thenReturn("1.1.1.0/24, 195.35.90.0/23");
+        when(mockDnsUtils.ipInRanges(eq(ipAddress), anyList())).thenReturn(true);
+        notificationService = new WorldpayNotificationService(
+                mockChargeDao,
+                mockWorldpayConfiguration,
+                mockDnsUtils,
+                mockChargeNotificationProcessor,
+                mockRefundNotificationProcessor,
+                mockNotificationDedupeService,
+                mockParkedNotificationService
+        );
+
+        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        assertTrue(result);
+
+        verify(mockDnsUtils, never()).ipMatchesDomain(anyString(), anyString());
+        verify(mockChargeNotificationProcessor).invoke(eq(transactionId), eq(mockCharge), eq(CAPTURED), any());
+    }
+
     @Test
     public void ifPayloadNotValidXml_shouldIgnoreNotification() {
         String payload = "<not></valid>";
@@ -239,6 +239,24 @@ public class WorldpayOrderRequestBuilderTest {
         assertEquals(OrderRequestType.CAPTURE, actualRequest.getOrderRequestType());
     }
 
+    @Test
+    public void shouldGenerateValidCancelOrderRequestAfterRenderingALongerPayloadOnTheSameThread() throws Exception {
+
+        aWorldpayCaptureOrderRequestBuilder()
+                .withDate(new DateTime(2013, 2, 23, 0, 0))
+                .withMerchantCode("MERCHANTCODE")
+                .withAmount("500")
+                .withTransactionId("MyUniqueTransactionId!")
+                .build();
+
+        GatewayOrder actualRequest = aWorldpayCancelOrderRequestBuilder()
+                .withMerchantCode("MERCHANTCODE")
+                .withTransactionId("MyUniqueTransactionId!")
+                .build();
+
+        assertXMLEqual(TestTemplateResourceLoader.load(WORLDPAY_VALID_CANCEL_WORLDPAY_REQUEST), actualRequest.getPayload());
+    }
+
     @Test
     public void shouldGenerateValidCancelOrderRequest() throws Exception {
 
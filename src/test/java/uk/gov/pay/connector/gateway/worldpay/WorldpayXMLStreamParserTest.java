@@ -0,0 +1,98 @@
+package uk.gov.pay.connector.gateway.worldpay;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.connector.gateway.model.GatewayParamsFor3ds;
+import uk.gov.pay.connector.gateway.util.XMLUnmarshaller;
+import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.isEmptyOrNullString;
+import static org.hamcrest.Matchers.samePropertyValuesAs;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.WORLDPAY_NOTIFICATION;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.load;
+
+@RunWith(JUnitParamsRunner.class)
+public class WorldpayXMLStreamParserTest {
+
+    @Test
+    @Parameters({
+            "templates/worldpay/3ds-response.xml",
+            "templates/worldpay/3ds-flex-response.xml",
+            "templates/worldpay/authorisation-success-response.xml",
+            "templates/worldpay/authorisation-error-response.xml",
+            "templates/worldpay/authorisation-failed-response.xml",
+            "templates/worldpay/authorisation-cancelled-response.xml",
+            "templates/worldpay/authorisation-pares-parse-error-response.xml",
+            "templates/worldpay/cancel-success-response.xml",
+            "templates/worldpay/cancel-error-response.xml",
+            "templates/worldpay/capture-success-response.xml",
+            "templates/worldpay/capture-error-response.xml",
+            "templates/worldpay/refund-success-response.xml",
+            "templates/worldpay/refund-error-response.xml",
+            "templates/worldpay/error-response.xml",
+            "templates/worldpay/inquiry/authorised.xml",
+            "templates/worldpay/inquiry/captured.xml",
+            "templates/worldpay/inquiry/cancelled.xml",
+            "templates/worldpay/inquiry/rejected.xml"
+    })
+    public void shouldParseOrderStatusResponseTheSameAsJaxb(String fixture) throws Exception {
+        String payload = load(fixture);
+
+        WorldpayOrderStatusResponse expected = XMLUnmarshaller.unmarshall(payload, WorldpayOrderStatusResponse.class);
+        WorldpayOrderStatusResponse actual = WorldpayXMLStreamParser.parseOrderStatusResponse(payload);
+
+        assertThat(actual.toString(), is(expected.toString()));
+        assertThat(actual.getTransactionId(), is(expected.getTransactionId()));
+        assertThat(actual.getLastEvent(), is(expected.getLastEvent()));
+        assertThat(actual.getRefusedReturnCode(), is(expected.getRefusedReturnCode()));
+        assertThat(actual.getRefusedReturnCodeDescription(), is(expected.getRefusedReturnCodeDescription()));
+        assertThat(actual.getErrorCode(), is(expected.getErrorCode()));
+        assertThat(actual.getErrorMessage(), is(expected.getErrorMessage()));
+        assertThat(actual.authoriseStatus(), is(expected.authoriseStatus()));
+        assertSameGatewayParamsFor3ds(actual.getGatewayParamsFor3ds(), expected.getGatewayParamsFor3ds());
+    }
+
+    @Test
+    public void shouldParseNotificationTheSameAsJaxb() throws Exception {
+        String payload = load(WORLDPAY_NOTIFICATION)
+                .replace("{{transactionId}}", "transaction-id")
+                .replace("{{status}}", "CAPTURED")
+                .replace("{{bookingDateDay}}", "10")
+                .replace("{{bookingDateMonth}}", "01")
+                .replace("{{bookingDateYear}}", "2017")
+                .replace("{{refund-ref}}", "REFUND-REF");
+
+        WorldpayNotification expected = XMLUnmarshaller.unmarshall(payload, WorldpayNotification.class);
+        WorldpayNotification actual = WorldpayXMLStreamParser.parseNotification(payload);
+
+        assertThat(actual.toString(), is(expected.toString()));
+        assertThat(actual.getBookingDate(), is(expected.getBookingDate()));
+    }
+
+    @Test
+    public void shouldNotLoadExternalEntitiesDeclaredInADoctype() {
+        String payload = "<!DOCTYPE paymentService [<!ENTITY mrdanger SYSTEM \"file:///etc/passwd\" >]>" +
+                "<paymentService><reply><error code=\"5\">&mrdanger;</error></reply></paymentService>";
+
+        try {
+            WorldpayOrderStatusResponse response = WorldpayXMLStreamParser.parseOrderStatusResponse(payload);
+            assertThat(response.getErrorMessage(), isEmptyOrNullString());
+        } catch (XMLUnmarshallerException e) {
+            // rejecting the undeclared entity outright is also safe
+        }
+    }
+
+    private void assertSameGatewayParamsFor3ds(Optional<GatewayParamsFor3ds> actual, Optional<GatewayParamsFor3ds> expected) {
+        assertThat(actual.isPresent(), is(expected.isPresent()));
+        if (expected.isPresent()) {
+            assertThat(actual.get().getClass(), is(expected.get().getClass()));
+            assertThat(actual.get().toAuth3dsDetailsEntity(), samePropertyValuesAs(expected.get().toAuth3dsDetailsEntity()));
+        }
+    }
+}
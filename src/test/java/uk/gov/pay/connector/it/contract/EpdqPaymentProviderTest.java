@@ -1,7 +1,7 @@
 package uk.gov.pay.connector.it.contract;
 
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.setup.Environment;
 import org.hamcrest.core.Is;
@@ -78,7 +78,7 @@ public class EpdqPaymentProviderTest {
     private MetricRegistry mockMetricRegistry;
 
     @Mock
-    private Histogram mockHistogram;
+    private Timer mockTimer;
 
     @Mock
     private Environment mockEnvironment;
@@ -101,7 +101,7 @@ public class EpdqPaymentProviderTest {
         when(mockConnectorConfiguration.getGatewayConfigFor(EPDQ)).thenReturn(mockGatewayConfig);
         when(mockLinksConfig.getFrontendUrl()).thenReturn("http://frontendUrl");
         when(mockGatewayConfig.getUrls()).thenReturn(Collections.emptyMap());
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
 
         Client client = TestClientFactory.createJerseyClient();
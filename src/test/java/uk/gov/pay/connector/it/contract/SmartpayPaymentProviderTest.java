@@ -1,8 +1,8 @@
 package uk.gov.pay.connector.it.contract;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.setup.Environment;
 import org.junit.Assume;
@@ -96,9 +96,9 @@ public class SmartpayPaymentProviderTest {
                 .withGatewayAccountEntity(gatewayAccountEntity).build();
 
         mockMetricRegistry = mock(MetricRegistry.class);
-        Histogram mockHistogram = mock(Histogram.class);
+        Timer mockTimer = mock(Timer.class);
         Counter mockCounter = mock(Counter.class);
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         mockEnvironment = mock(Environment.class);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
@@ -24,6 +24,7 @@ import uk.gov.pay.connector.gateway.model.response.BaseCancelResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayRefundResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
 import uk.gov.pay.connector.gateway.stripe.StripePaymentProvider;
+import uk.gov.pay.connector.gateway.stripe.transfer.dao.StripeTransferOutboxDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.model.domain.AuthCardDetailsFixture;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
@@ -64,7 +65,9 @@ public class StripePaymentProviderTest {
         MetricRegistry metricRegistry = app.getInstanceFromGuiceContainer(Environment.class).metrics();
         GatewayClientFactory gatewayClientFactory = app.getInstanceFromGuiceContainer(GatewayClientFactory.class);
         Environment environment = app.getInstanceFromGuiceContainer(Environment.class);
-        stripePaymentProvider = new StripePaymentProvider(gatewayClientFactory, connectorConfig, objectMapper, environment);
+        StripeTransferOutboxDao stripeTransferOutboxDao = app.getInstanceFromGuiceContainer(StripeTransferOutboxDao.class);
+        stripePaymentProvider = new StripePaymentProvider(gatewayClientFactory, connectorConfig, objectMapper, environment,
+                stripeTransferOutboxDao);
         gatewayAccountEntity = new GatewayAccountEntity();
     }
 
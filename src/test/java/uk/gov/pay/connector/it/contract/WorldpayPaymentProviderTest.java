@@ -1,8 +1,8 @@
 package uk.gov.pay.connector.it.contract;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import io.dropwizard.setup.Environment;
 import org.junit.Assume;
 import org.junit.Before;
@@ -67,7 +67,7 @@ public class WorldpayPaymentProviderTest {
     private Map<String, String> validCredentials3ds;
     private ChargeEntity chargeEntity;
     private MetricRegistry mockMetricRegistry;
-    private Histogram mockHistogram;
+    private Timer mockTimer;
     private Counter mockCounter;
     private Environment mockEnvironment;
     private ExternalRefundAvailabilityCalculator defaultExternalRefundAvailabilityCalculator = new DefaultExternalRefundAvailabilityCalculator();
@@ -103,9 +103,9 @@ public class WorldpayPaymentProviderTest {
         validGatewayAccountFor3ds.setType(TEST);
 
         mockMetricRegistry = mock(MetricRegistry.class);
-        mockHistogram = mock(Histogram.class);
+        mockTimer = mock(Timer.class);
         mockCounter = mock(Counter.class);
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         mockEnvironment = mock(Environment.class);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
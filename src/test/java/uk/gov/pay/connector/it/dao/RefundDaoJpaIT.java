@@ -311,6 +311,39 @@ public class RefundDaoJpaIT extends DaoITestBase {
         assertThat(refundHistory.getUserEmail(), is(testRefund.getUserEmail()));
     }
 
+    @Test
+    public void getRefundHistoriesByRefundExternalIds_shouldReturnHistoriesOfAllRequestedRefunds() {
+        ZonedDateTime historyDate = ZonedDateTime.parse("2016-01-01T00:00:00Z");
+
+        DatabaseFixtures.TestAccount testAccount = withDatabaseTestHelper(databaseTestHelper).aTestAccount().insert();
+        DatabaseFixtures.TestCharge testCharge = withDatabaseTestHelper(databaseTestHelper).aTestCharge().withTestAccount(testAccount).insert();
+        DatabaseFixtures.TestRefund firstRefund = withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund().withTestCharge(testCharge).withType(REFUNDED).insert();
+        DatabaseFixtures.TestRefund secondRefund = withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund().withTestCharge(testCharge).withType(REFUNDED).insert();
+        DatabaseFixtures.TestRefund otherRefund = withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund().withTestCharge(testCharge).withType(REFUNDED).insert();
+
+        withDatabaseTestHelper(databaseTestHelper).aTestRefundHistory(firstRefund)
+                .insert(CREATED, "ref-1", historyDate, historyDate, SUBMITTED_BY, userEmail)
+                .insert(REFUND_SUBMITTED, "ref-1", historyDate.plusMinutes(1), historyDate.plusMinutes(1), SUBMITTED_BY, userEmail);
+        withDatabaseTestHelper(databaseTestHelper).aTestRefundHistory(secondRefund)
+                .insert(CREATED, "ref-2", historyDate, historyDate, SUBMITTED_BY, userEmail);
+        withDatabaseTestHelper(databaseTestHelper).aTestRefundHistory(otherRefund)
+                .insert(CREATED, "ref-3", historyDate, historyDate, SUBMITTED_BY, userEmail);
+
+        List<RefundHistory> refundHistoryList = refundDao.getRefundHistoriesByRefundExternalIds(
+                List.of(firstRefund.getExternalRefundId(), secondRefund.getExternalRefundId()));
+
+        assertThat(refundHistoryList.size(), is(3));
+        refundHistoryList.forEach(refundHistory -> {
+            assertNotNull(refundHistory.getChargeEntity());
+            assertThat(refundHistory.getChargeEntity().getId(), is(testCharge.getChargeId()));
+        });
+        assertThat(refundHistoryList.stream().filter(refundHistory -> refundHistory.getExternalId().equals(firstRefund.getExternalRefundId())).count(), is(2L));
+        assertThat(refundHistoryList.stream().filter(refundHistory -> refundHistory.getExternalId().equals(secondRefund.getExternalRefundId())).count(), is(1L));
+    }
+
     @Test
     public void findByChargeExternalIdShouldReturnAListOfRefunds() {
         DatabaseFixtures
@@ -16,6 +16,7 @@ import uk.gov.pay.commons.testing.port.PortFactory;
 import uk.gov.pay.connector.app.ConnectorApp;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.gateway.ClientFactory;
+import uk.gov.pay.connector.gateway.GatewayConnectionWarmUp;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Invocation;
@@ -71,7 +72,8 @@ public class ClientFactoryIT {
                 .willReturn(aResponse().withBody("world").withStatus(200)));
 
         when(mockMetricRegistry.register(any(), any())).thenReturn(null);
-        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration())
+        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration(),
+                new GatewayConnectionWarmUp(app.getConfiguration(), app.getEnvironment()))
                 .createWithDropwizardClient(WORLDPAY, AUTHORISE, mockMetricRegistry);
 
         client.target(getServerUrl()).path("hello").request().get();
@@ -88,7 +90,8 @@ public class ClientFactoryIT {
                 .willReturn(aResponse().withBody("world").withStatus(200)));
         when(mockMetricRegistry.register(any(), any())).thenReturn(null);
 
-        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration())
+        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration(),
+                new GatewayConnectionWarmUp(app.getConfiguration(), app.getEnvironment()))
                 .createWithDropwizardClient(WORLDPAY, AUTHORISE, mockMetricRegistry);
 
         client.target(getServerUrl()).path("hello").request().get();
@@ -108,7 +111,8 @@ public class ClientFactoryIT {
         wireMockRule.stubFor(get(urlPathEqualTo("/hello"))
                 .willReturn(aResponse().withBody("world").withStatus(200).withFixedDelay(2000)));
         
-        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration())
+        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration(),
+                new GatewayConnectionWarmUp(app.getConfiguration(), app.getEnvironment()))
                 .createWithDropwizardClient(WORLDPAY, AUTHORISE, mockMetricRegistry);
 
         Invocation.Builder request = client.target(getServerUrl()).path(path).request();
@@ -179,7 +183,8 @@ public class ClientFactoryIT {
         wireMockRule.stubFor(get(urlPathEqualTo("/hello"))
                 .willReturn(aResponse().withBody("world").withStatus(200).withFixedDelay(2000)));
 
-        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration())
+        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration(),
+                new GatewayConnectionWarmUp(app.getConfiguration(), app.getEnvironment()))
                 .createWithDropwizardClient(WORLDPAY, AUTHORISE, mockMetricRegistry);
 
         Invocation.Builder request = client.target(getServerUrl()).path(path).request();
@@ -201,7 +206,8 @@ public class ClientFactoryIT {
         wireMockRule.stubFor(get(urlPathEqualTo("/hello"))
                 .willReturn(aResponse().withBody("world").withStatus(200).withFixedDelay(2000)));
 
-        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration())
+        Client client = new ClientFactory(app.getEnvironment(), app.getConfiguration(),
+                new GatewayConnectionWarmUp(app.getConfiguration(), app.getEnvironment()))
                 .createWithDropwizardClient(SMARTPAY, AUTHORISE, mockMetricRegistry);
 
         Invocation.Builder request = client.target(getServerUrl()).path(path).request();
@@ -10,6 +10,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.ExecutorServiceConfig;
 import uk.gov.pay.connector.cardtype.model.domain.CardType;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
@@ -17,6 +18,7 @@ import uk.gov.pay.connector.charge.model.CardDetailsEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.charge.service.ChargeStatusNotifier;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.common.model.api.ErrorResponse;
@@ -44,6 +46,9 @@ import uk.gov.pay.connector.paymentprocessor.api.AuthorisationResponse;
 import uk.gov.pay.connector.queue.StateTransitionService;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -61,6 +66,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -106,6 +112,14 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
     @Mock
     private EventService mockEventService;
 
+    @Mock
+    private ConnectorConfiguration mockConfiguration;
+
+    @Mock
+    private ExecutorServiceConfig mockExecutorServiceConfig;
+
+    private ChargeService chargeService;
+    private CardAuthoriseBaseService cardAuthoriseBaseService;
     private CardAuthoriseService cardAuthorisationService;
 
     @Before
@@ -113,18 +127,19 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
 
-        ConnectorConfiguration mockConfiguration = mock(ConnectorConfiguration.class);
-        ChargeService chargeService = new ChargeService(null, mockedChargeDao, mockedChargeEventDao,
+        when(mockConfiguration.getExecutorServiceConfig()).thenReturn(mockExecutorServiceConfig);
+        chargeService = new ChargeService(null, mockedChargeDao, mockedChargeEventDao,
                 null, null, mockConfiguration, null,
-                stateTransitionService, mockEventService, mockedRefundDao);
+                stateTransitionService, mockEventService, mockedRefundDao, mock(ChargeStatusNotifier.class));
 
-        CardAuthoriseBaseService cardAuthoriseBaseService = new CardAuthoriseBaseService(mockExecutorService, mockEnvironment);
+        cardAuthoriseBaseService = new CardAuthoriseBaseService(mockExecutorService, mockEnvironment);
         cardAuthorisationService = new CardAuthoriseService(
                 mockedCardTypeDao,
                 mockedProviders,
                 cardAuthoriseBaseService,
                 chargeService,
-                mockEnvironment);
+                mockEnvironment,
+                mockConfiguration);
     }
 
     @Before
@@ -692,6 +707,78 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
         assertThat(charge.getStatus(), is(AUTHORISATION_UNEXPECTED_ERROR.getValue()));
     }
 
+    @Test
+    public void doAuthorise_shouldAuthoriseAsynchronously_whenAsyncGatewayAuthorisationIsEnabled() throws Exception {
+
+        mockExecutorServiceWillCompleteAsyncResultWithSupplierReturnValue();
+        GatewayResponse authResponse = mockAuthResponse(TRANSACTION_ID, AuthoriseStatus.AUTHORISED, null);
+        providerWillRespondToAuthoriseAsyncWith(CompletableFuture.completedFuture(authResponse));
+
+        AuthCardDetails authCardDetails = AuthCardDetailsFixture.anAuthCardDetails().build();
+        AuthorisationResponse response = anAsyncCardAuthoriseService().doAuthorise(charge.getExternalId(), authCardDetails);
+
+        assertTrue(response.getAuthoriseStatus().isPresent());
+        assertThat(response.getAuthoriseStatus().get(), is(AuthoriseStatus.AUTHORISED));
+        assertThat(charge.getProviderSessionId(), is(SESSION_IDENTIFIER));
+        assertThat(charge.getStatus(), is(AUTHORISATION_SUCCESS.getValue()));
+        assertThat(charge.getGatewayTransactionId(), is(TRANSACTION_ID));
+        verify(mockedPaymentProvider, never()).authorise(any());
+    }
+
+    @Test
+    public void doAuthorise_shouldReportAuthorisationTimeout_whenAsyncProviderTimeout() throws Exception {
+
+        mockExecutorServiceWillCompleteAsyncResultWithSupplierReturnValue();
+        providerWillRespondToAuthoriseAsyncWith(CompletableFuture.failedFuture(
+                new GatewayException.GatewayConnectionTimeoutException("Connection timed out")));
+
+        AuthCardDetails authCardDetails = AuthCardDetailsFixture.anAuthCardDetails().build();
+        AuthorisationResponse response = anAsyncCardAuthoriseService().doAuthorise(charge.getExternalId(), authCardDetails);
+
+        assertTrue(response.getGatewayError().isPresent());
+        assertThat(response.getGatewayError().get().getErrorType(), is(GATEWAY_CONNECTION_TIMEOUT_ERROR));
+        assertThat(charge.getStatus(), is(AUTHORISATION_TIMEOUT.getValue()));
+    }
+
+    @Test
+    public void doAuthorise_shouldThrowAnOperationAlreadyInProgressRuntimeException_whenAsyncAuthorisationTimesOut() {
+
+        when(mockExecutorService.executeAsync(any())).thenReturn(Pair.of(IN_PROGRESS, null));
+        AuthCardDetails authCardDetails = AuthCardDetailsFixture.anAuthCardDetails().build();
+
+        try {
+            anAsyncCardAuthoriseService().doAuthorise(charge.getExternalId(), authCardDetails);
+            fail("Exception not thrown.");
+        } catch (OperationAlreadyInProgressRuntimeException e) {
+            ErrorResponse response = (ErrorResponse) e.getResponse().getEntity();
+            assertThat(response.getMessages(), contains(format("Authorisation for charge already in progress, %s", charge.getExternalId())));
+        }
+    }
+
+    private CardAuthoriseService anAsyncCardAuthoriseService() {
+        when(mockExecutorServiceConfig.isAsyncGatewayAuthorisationEnabled()).thenReturn(true);
+        return new CardAuthoriseService(
+                mockedCardTypeDao,
+                mockedProviders,
+                cardAuthoriseBaseService,
+                chargeService,
+                mockEnvironment,
+                mockConfiguration);
+    }
+
+    private void mockExecutorServiceWillCompleteAsyncResultWithSupplierReturnValue() {
+        Executor directExecutor = Runnable::run;
+        doAnswer(invocation -> Pair.of(COMPLETED, ((Function<Executor, CompletableFuture>) invocation.getArguments()[0]).apply(directExecutor).join()))
+                .when(mockExecutorService).executeAsync(any(Function.class));
+    }
+
+    private void providerWillRespondToAuthoriseAsyncWith(CompletableFuture<GatewayResponse> value) {
+        when(mockedPaymentProvider.authoriseAsync(any())).thenReturn((CompletableFuture) value);
+
+        when(mockedProviders.byName(charge.getPaymentGatewayName())).thenReturn(mockedPaymentProvider);
+        when(mockedPaymentProvider.generateTransactionId()).thenReturn(Optional.empty());
+    }
+
     private void providerWillRespondToAuthoriseWith(GatewayResponse value) throws Exception {
         when(mockedPaymentProvider.authorise(any())).thenReturn(value);
 
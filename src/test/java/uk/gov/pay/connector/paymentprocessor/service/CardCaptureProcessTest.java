@@ -1,22 +1,46 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.CaptureProcessConfig;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.charge.ChargesAwaitingCaptureMetricEmitter;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.gateway.CaptureResponse;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.queue.CaptureQueue;
 import uk.gov.pay.connector.queue.ChargeCaptureMessage;
 import uk.gov.pay.connector.queue.QueueException;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,9 +65,20 @@ public class CardCaptureProcessTest {
     @Mock
     ChargesAwaitingCaptureMetricEmitter chargesAwaitingCaptureMetricEmitter;
 
+    @Mock
+    Environment environment;
+
+    @Mock
+    ConnectorConfiguration connectorConfiguration;
+
+    @Mock
+    CaptureProcessConfig captureProcessConfig;
+
     private static final String chargeExternalId = "some-charge-id";
 
     CardCaptureProcess cardCaptureProcess;
+    private ExecutorService captureExecutorService;
+    private final List<ChargeCaptureMessage> messagesMarkedAsProcessed = new CopyOnWriteArrayList<>();
 
     @Before
     public void setUp() throws Exception {
@@ -52,9 +87,20 @@ public class CardCaptureProcessTest {
         when(chargeCaptureMessage.getChargeId()).thenReturn(chargeExternalId);
         when(captureQueue.retrieveChargesForCapture()).thenReturn(messages);
         when(cardCaptureService.doCapture(anyString())).thenReturn(captureResponse);
+        when(connectorConfiguration.getCaptureProcessConfig()).thenReturn(captureProcessConfig);
+        when(captureProcessConfig.getDefaultMaximumConcurrentCapturesPerGateway()).thenReturn(2);
+        when(captureProcessConfig.getMaximumConcurrentCapturesPerGateway()).thenReturn(Map.of("epdq", 1));
+        when(environment.metrics()).thenReturn(new MetricRegistry());
 
         cardCaptureProcess = new CardCaptureProcess(captureQueue, cardCaptureService,
-                chargeService, chargesAwaitingCaptureMetricEmitter);
+                chargeService, chargesAwaitingCaptureMetricEmitter, environment, connectorConfiguration);
+    }
+
+    @After
+    public void tearDown() {
+        if (captureExecutorService != null) {
+            captureExecutorService.shutdownNow();
+        }
     }
 
     @Test
@@ -63,7 +109,7 @@ public class CardCaptureProcessTest {
 
         cardCaptureProcess.handleCaptureMessages();
 
-        verify(captureQueue).markMessageAsProcessed(chargeCaptureMessage);
+        verify(captureQueue).markMessagesAsProcessed(List.of(chargeCaptureMessage));
     }
 
     @Test
@@ -73,7 +119,7 @@ public class CardCaptureProcessTest {
 
         cardCaptureProcess.handleCaptureMessages();
 
-        verify(captureQueue).scheduleMessageForRetry(chargeCaptureMessage);
+        verify(captureQueue).scheduleMessagesForRetry(List.of(chargeCaptureMessage));
     }
 
     @Test
@@ -84,7 +130,7 @@ public class CardCaptureProcessTest {
         cardCaptureProcess.handleCaptureMessages();
 
         verify(cardCaptureService).markChargeAsCaptureError(chargeExternalId);
-        verify(captureQueue).markMessageAsProcessed(chargeCaptureMessage);
+        verify(captureQueue).markMessagesAsProcessed(List.of(chargeCaptureMessage));
     }
 
     @Test
@@ -94,6 +140,225 @@ public class CardCaptureProcessTest {
 
         cardCaptureProcess.handleCaptureMessages();
 
-        verify(captureQueue).markMessageAsProcessed(chargeCaptureMessage);
+        verify(captureQueue).markMessagesAsProcessed(List.of(chargeCaptureMessage));
+    }
+
+    @Test
+    public void shouldAcknowledgeWholeBatchOfMessagesInOneCallPerOutcome() throws QueueException {
+        ChargeCaptureMessage retriableCaptureMessage = mock(ChargeCaptureMessage.class);
+        ChargeCaptureMessage failingCaptureMessage = mock(ChargeCaptureMessage.class);
+        CaptureResponse unsuccessfulCaptureResponse = mock(CaptureResponse.class);
+        when(retriableCaptureMessage.getChargeId()).thenReturn("retriable-charge-id");
+        when(failingCaptureMessage.getChargeId()).thenReturn("failing-charge-id");
+        when(captureQueue.retrieveChargesForCapture())
+                .thenReturn(List.of(chargeCaptureMessage, retriableCaptureMessage, failingCaptureMessage));
+        when(captureResponse.isSuccessful()).thenReturn(true);
+        when(cardCaptureService.doCapture("retriable-charge-id")).thenReturn(unsuccessfulCaptureResponse);
+        when(cardCaptureService.doCapture("failing-charge-id")).thenThrow(new RuntimeException("gateway unavailable"));
+        when(chargeService.isChargeRetriable("retriable-charge-id")).thenReturn(true);
+
+        cardCaptureProcess.handleCaptureMessages();
+
+        verify(captureQueue).markMessagesAsProcessed(List.of(chargeCaptureMessage));
+        verify(captureQueue).scheduleMessagesForRetry(List.of(retriableCaptureMessage));
+    }
+
+    @Test
+    public void shouldCaptureChargesForOtherGatewaysWhileASlowGatewayCaptureIsRunning() throws Exception {
+        ChargeCaptureMessage worldpayCaptureMessage = mock(ChargeCaptureMessage.class);
+        when(worldpayCaptureMessage.getChargeId()).thenReturn("worldpay-charge-id");
+        when(captureQueue.retrieveChargesForCapture()).thenReturn(List.of(chargeCaptureMessage, worldpayCaptureMessage));
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.EPDQ);
+        givenChargeForGateway("worldpay-charge-id", PaymentGatewayName.WORLDPAY);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+
+        CountDownLatch worldpayCaptured = new CountDownLatch(1);
+        AtomicBoolean epdqCaptureSawWorldpayCapture = new AtomicBoolean(false);
+        when(cardCaptureService.doCapture(chargeExternalId)).thenAnswer(invocation -> {
+            epdqCaptureSawWorldpayCapture.set(worldpayCaptured.await(5, TimeUnit.SECONDS));
+            return captureResponse;
+        });
+        when(cardCaptureService.doCapture("worldpay-charge-id")).thenAnswer(invocation -> {
+            worldpayCaptured.countDown();
+            return captureResponse;
+        });
+
+        aParallelCardCaptureProcess(4).handleCaptureMessages();
+
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage, worldpayCaptureMessage);
+        assertThat(epdqCaptureSawWorldpayCapture.get(), is(true));
+    }
+
+    @Test
+    public void shouldNotExceedConcurrentCaptureLimitForAGateway() throws Exception {
+        ChargeCaptureMessage secondEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        when(secondEpdqCaptureMessage.getChargeId()).thenReturn("second-epdq-charge-id");
+        when(captureQueue.retrieveChargesForCapture()).thenReturn(List.of(chargeCaptureMessage, secondEpdqCaptureMessage));
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.EPDQ);
+        givenChargeForGateway("second-epdq-charge-id", PaymentGatewayName.EPDQ);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+
+        AtomicInteger capturesInProgress = new AtomicInteger();
+        AtomicInteger maximumCapturesInProgress = new AtomicInteger();
+        when(cardCaptureService.doCapture(anyString())).thenAnswer(invocation -> {
+            maximumCapturesInProgress.accumulateAndGet(capturesInProgress.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            capturesInProgress.decrementAndGet();
+            return captureResponse;
+        });
+
+        aParallelCardCaptureProcess(4).handleCaptureMessages();
+
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage, secondEpdqCaptureMessage);
+        assertThat(maximumCapturesInProgress.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotHoldCaptureThreadsForCapturesWaitingOnASaturatedGateway() throws Exception {
+        ChargeCaptureMessage secondEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        ChargeCaptureMessage thirdEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        ChargeCaptureMessage worldpayCaptureMessage = mock(ChargeCaptureMessage.class);
+        when(secondEpdqCaptureMessage.getChargeId()).thenReturn("second-epdq-charge-id");
+        when(thirdEpdqCaptureMessage.getChargeId()).thenReturn("third-epdq-charge-id");
+        when(worldpayCaptureMessage.getChargeId()).thenReturn("worldpay-charge-id");
+        when(captureQueue.retrieveChargesForCapture()).thenReturn(
+                List.of(chargeCaptureMessage, secondEpdqCaptureMessage, thirdEpdqCaptureMessage, worldpayCaptureMessage));
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.EPDQ);
+        givenChargeForGateway("second-epdq-charge-id", PaymentGatewayName.EPDQ);
+        givenChargeForGateway("third-epdq-charge-id", PaymentGatewayName.EPDQ);
+        givenChargeForGateway("worldpay-charge-id", PaymentGatewayName.WORLDPAY);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+
+        // ePDQ is limited to one capture at a time, and its first capture doesn't finish until Worldpay has been
+        // captured, which can only happen if the waiting ePDQ captures leave the second thread free
+        CountDownLatch worldpayCaptured = new CountDownLatch(1);
+        AtomicBoolean epdqCaptureSawWorldpayCapture = new AtomicBoolean(false);
+        when(cardCaptureService.doCapture(chargeExternalId)).thenAnswer(invocation -> {
+            epdqCaptureSawWorldpayCapture.set(worldpayCaptured.await(5, TimeUnit.SECONDS));
+            return captureResponse;
+        });
+        when(cardCaptureService.doCapture("worldpay-charge-id")).thenAnswer(invocation -> {
+            worldpayCaptured.countDown();
+            return captureResponse;
+        });
+
+        aParallelCardCaptureProcess(2).handleCaptureMessages();
+
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage, secondEpdqCaptureMessage, thirdEpdqCaptureMessage, worldpayCaptureMessage);
+        assertThat(epdqCaptureSawWorldpayCapture.get(), is(true));
+    }
+
+    @Test
+    public void shouldReturnToReceiveTheNextBatchWithoutWaitingForCapturesToFinish() throws Exception {
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.WORLDPAY);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+        CountDownLatch receiveReturned = new CountDownLatch(1);
+        when(cardCaptureService.doCapture(chargeExternalId)).thenAnswer(invocation -> {
+            receiveReturned.await(5, TimeUnit.SECONDS);
+            return captureResponse;
+        });
+
+        int received = aParallelCardCaptureProcess(4).handleCaptureMessages();
+        receiveReturned.countDown();
+
+        assertThat(received, is(1));
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage);
+    }
+
+    @Test
+    public void shouldLeaveMessagesOnQueueWhenTooManyCapturesAreWaitingForAGateway() throws Exception {
+        ChargeCaptureMessage secondEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        ChargeCaptureMessage thirdEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        when(secondEpdqCaptureMessage.getChargeId()).thenReturn("second-epdq-charge-id");
+        when(thirdEpdqCaptureMessage.getChargeId()).thenReturn("third-epdq-charge-id");
+        when(captureQueue.retrieveChargesForCapture()).thenReturn(
+                List.of(chargeCaptureMessage, secondEpdqCaptureMessage, thirdEpdqCaptureMessage));
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.EPDQ);
+        givenChargeForGateway("second-epdq-charge-id", PaymentGatewayName.EPDQ);
+        givenChargeForGateway("third-epdq-charge-id", PaymentGatewayName.EPDQ);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+        CountDownLatch receiveReturned = new CountDownLatch(1);
+        when(cardCaptureService.doCapture(anyString())).thenAnswer(invocation -> {
+            receiveReturned.await(5, TimeUnit.SECONDS);
+            return captureResponse;
+        });
+
+        // with one thread, one ePDQ capture runs and one waits, so the third is given back for a later receive
+        int received = aParallelCardCaptureProcess(1).handleCaptureMessages();
+        receiveReturned.countDown();
+
+        assertThat(received, is(2));
+        verify(captureQueue).returnMessagesToQueue(List.of(thirdEpdqCaptureMessage));
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage, secondEpdqCaptureMessage);
+        verify(cardCaptureService, never()).doCapture("third-epdq-charge-id");
+    }
+
+    @Test
+    public void shouldReturnCapturesThatWaitTooLongForAGatewayToTheQueue() throws Exception {
+        ChargeCaptureMessage secondEpdqCaptureMessage = mock(ChargeCaptureMessage.class);
+        when(secondEpdqCaptureMessage.getChargeId()).thenReturn("second-epdq-charge-id");
+        when(captureQueue.retrieveChargesForCapture())
+                .thenReturn(List.of(chargeCaptureMessage, secondEpdqCaptureMessage))
+                .thenReturn(List.of());
+        givenChargeForGateway(chargeExternalId, PaymentGatewayName.EPDQ);
+        givenChargeForGateway("second-epdq-charge-id", PaymentGatewayName.EPDQ);
+        when(captureResponse.isSuccessful()).thenReturn(true);
+        CountDownLatch secondEpdqCaptureReturned = new CountDownLatch(1);
+        when(cardCaptureService.doCapture(chargeExternalId)).thenAnswer(invocation -> {
+            secondEpdqCaptureReturned.await(5, TimeUnit.SECONDS);
+            return captureResponse;
+        });
+        CardCaptureProcess parallelCardCaptureProcess = aParallelCardCaptureProcess(2, 50);
+        when(captureQueue.returnMessagesToQueue(List.of(secondEpdqCaptureMessage))).thenAnswer(invocation -> {
+            secondEpdqCaptureReturned.countDown();
+            return List.of();
+        });
+
+        // the second ePDQ capture waits behind the first, which doesn't finish until the wait has run out
+        parallelCardCaptureProcess.handleCaptureMessages();
+        Thread.sleep(100);
+        parallelCardCaptureProcess.handleCaptureMessages();
+
+        awaitMessagesMarkedAsProcessed(chargeCaptureMessage);
+        verify(cardCaptureService, never()).doCapture("second-epdq-charge-id");
+    }
+
+    private CardCaptureProcess aParallelCardCaptureProcess(int numberOfThreads) {
+        return aParallelCardCaptureProcess(numberOfThreads, 10000);
+    }
+
+    private CardCaptureProcess aParallelCardCaptureProcess(int numberOfThreads, long maximumWaitInMilliseconds) {
+        LifecycleEnvironment lifecycleEnvironment = mock(LifecycleEnvironment.class);
+        ExecutorServiceBuilder executorServiceBuilder = mock(ExecutorServiceBuilder.class);
+        captureExecutorService = Executors.newFixedThreadPool(numberOfThreads);
+        when(captureProcessConfig.getParallelCaptureEnabled()).thenReturn(true);
+        when(captureProcessConfig.getParallelCaptureNumberOfThreads()).thenReturn(numberOfThreads);
+        when(captureProcessConfig.getParallelCaptureMaximumWaitInMilliseconds()).thenReturn(maximumWaitInMilliseconds);
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(lifecycleEnvironment.executorService(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.minThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.maxThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.build()).thenReturn(captureExecutorService);
+        when(captureQueue.markMessagesAsProcessed(any())).thenAnswer(invocation -> {
+            messagesMarkedAsProcessed.addAll(invocation.getArgument(0));
+            return List.of();
+        });
+
+        return new CardCaptureProcess(captureQueue, cardCaptureService,
+                chargeService, chargesAwaitingCaptureMetricEmitter, environment, connectorConfiguration);
+    }
+
+    private void awaitMessagesMarkedAsProcessed(ChargeCaptureMessage... messages) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messagesMarkedAsProcessed.size() < messages.length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(Set.copyOf(messagesMarkedAsProcessed), is(Set.of(messages)));
+    }
+
+    private void givenChargeForGateway(String externalId, PaymentGatewayName gateway) {
+        ChargeEntity charge = mock(ChargeEntity.class);
+        when(charge.getPaymentGatewayName()).thenReturn(gateway);
+        when(chargeService.findChargeById(externalId)).thenReturn(charge);
     }
 }
@@ -0,0 +1,76 @@
+package uk.gov.pay.connector.paymentprocessor.service;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.MDC;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.ExecutorServiceConfig;
+import uk.gov.pay.connector.util.XrayUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.paymentprocessor.service.CardExecutorService.ExecutionStatus.COMPLETED;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CardExecutorServiceTest {
+
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private ExecutorServiceConfig executorServiceConfig;
+    @Mock
+    private Environment environment;
+    @Mock
+    private XrayUtils xrayUtils;
+
+    // stands in for the HTTP client's own threads, which complete gateway requests
+    private final ScheduledExecutorService gatewayClientThreads = Executors.newSingleThreadScheduledExecutor();
+    private CardExecutorService cardExecutorService;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getExecutorServiceConfig()).thenReturn(executorServiceConfig);
+        when(executorServiceConfig.getThreadsPerCpu()).thenReturn(1);
+        when(executorServiceConfig.getTimeoutInSeconds()).thenReturn(5);
+        when(environment.metrics()).thenReturn(new MetricRegistry());
+        cardExecutorService = new CardExecutorService(connectorConfiguration, environment, xrayUtils);
+    }
+
+    @After
+    public void tearDown() {
+        gatewayClientThreads.shutdownNow();
+        MDC.clear();
+    }
+
+    @Test
+    public void shouldFinishAsyncTaskOnCardExecutorThreadWithCallersContext() {
+        MDC.put("chargeId", "charge-external-id");
+
+        Pair<CardExecutorService.ExecutionStatus, String> result = cardExecutorService.executeAsync(executorWithContext -> {
+            CompletableFuture<String> gatewayResponse = new CompletableFuture<>();
+            gatewayClientThreads.schedule(() -> gatewayResponse.complete("authorised"), 50, TimeUnit.MILLISECONDS);
+            return gatewayResponse.thenApplyAsync(response ->
+                    String.join(" ", response, MDC.get("chargeId"), Thread.currentThread().getName()), executorWithContext);
+        });
+
+        assertThat(result.getLeft(), is(COMPLETED));
+        assertThat(result.getRight(), startsWith("authorised charge-external-id CardExecutorService-"));
+        verify(xrayUtils, atLeast(2)).beginSegment();
+    }
+}
@@ -0,0 +1,145 @@
+package uk.gov.pay.connector.paymentprocessor.service;
+
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.DiscrepancyConfig;
+import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.report.model.DiscrepancyJob;
+import uk.gov.pay.connector.report.model.GatewayStatusComparison;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aValidChargeEntity;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DiscrepancyJobServiceTest {
+
+    @Mock
+    private DiscrepancyService discrepancyService;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private DiscrepancyConfig discrepancyConfig;
+
+    private ExecutorService jobExecutorService;
+    private DiscrepancyJobService discrepancyJobService;
+
+    @Before
+    public void setUp() {
+        LifecycleEnvironment lifecycleEnvironment = mock(LifecycleEnvironment.class);
+        ExecutorServiceBuilder executorServiceBuilder = mock(ExecutorServiceBuilder.class);
+        jobExecutorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        when(connectorConfiguration.getDiscrepancyConfig()).thenReturn(discrepancyConfig);
+        when(discrepancyConfig.getMaximumConcurrentJobs()).thenReturn(1);
+        when(discrepancyConfig.getJobRetentionInMinutes()).thenReturn(60);
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(lifecycleEnvironment.executorService(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.maxThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.workQueue(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.build()).thenReturn(jobExecutorService);
+
+        discrepancyJobService = new DiscrepancyJobService(discrepancyService, environment, connectorConfiguration);
+    }
+
+    @After
+    public void tearDown() {
+        jobExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldCollectResultsOfAReportJob() throws Exception {
+        ChargeEntity charge = aValidChargeEntity().build();
+        List<ChargeEntity> charges = List.of(charge);
+        GatewayStatusComparison gatewayStatusComparison = GatewayStatusComparison.getEmpty(charge);
+        when(discrepancyService.findCharges(List.of("charge-id"))).thenReturn(charges);
+        doAnswer(invocation -> {
+            Consumer<GatewayStatusComparison> consumer = invocation.getArgument(1);
+            consumer.accept(gatewayStatusComparison);
+            return null;
+        }).when(discrepancyService).forEachGatewayStatusComparison(eq(charges), any());
+
+        DiscrepancyJob job = discrepancyJobService.startReport(List.of("charge-id")).get();
+        awaitCompletion(job);
+
+        assertThat(job.getStatus(), is(DiscrepancyJob.Status.FINISHED));
+        assertThat(job.getResults(), is(List.of(gatewayStatusComparison)));
+        assertThat(discrepancyJobService.getJob(job.getJobId()), is(Optional.of(job)));
+    }
+
+    @Test
+    public void shouldFailAJobWhenAChargeCannotBeFound() throws Exception {
+        when(discrepancyService.findCharges(List.of("unknown-charge-id")))
+                .thenThrow(new ChargeNotFoundRuntimeException("unknown-charge-id"));
+
+        DiscrepancyJob job = discrepancyJobService.startResolution(List.of("unknown-charge-id")).get();
+        awaitCompletion(job);
+
+        assertThat(job.getStatus(), is(DiscrepancyJob.Status.FAILED));
+    }
+
+    @Test
+    public void shouldRejectAJobWhenTheMaximumNumberOfJobsAreRunning() throws Exception {
+        CountDownLatch firstJobMayFinish = new CountDownLatch(1);
+        when(discrepancyService.findCharges(List.of("charge-id"))).thenAnswer(invocation -> {
+            firstJobMayFinish.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        DiscrepancyJob firstJob = discrepancyJobService.startReport(List.of("charge-id")).get();
+        Optional<DiscrepancyJob> secondJob = discrepancyJobService.startReport(List.of("charge-id"));
+        firstJobMayFinish.countDown();
+        awaitCompletion(firstJob);
+
+        assertThat(secondJob.isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldKeepARunningJobForLongerThanTheRetentionPeriod() throws Exception {
+        when(discrepancyConfig.getJobRetentionInMinutes()).thenReturn(0);
+        discrepancyJobService = new DiscrepancyJobService(discrepancyService, environment, connectorConfiguration);
+        CountDownLatch jobMayFinish = new CountDownLatch(1);
+        when(discrepancyService.findCharges(List.of("charge-id"))).thenAnswer(invocation -> {
+            jobMayFinish.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        DiscrepancyJob job = discrepancyJobService.startReport(List.of("charge-id")).get();
+
+        assertThat(discrepancyJobService.getJob(job.getJobId()), is(Optional.of(job)));
+        jobMayFinish.countDown();
+        awaitCompletion(job);
+    }
+
+    private void awaitCompletion(DiscrepancyJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getStatus() == DiscrepancyJob.Status.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,20 +1,40 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.DiscrepancyConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.service.ChargeExpiryService;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
 import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture;
+import uk.gov.pay.connector.report.model.GatewayStatusComparison;
 
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -22,6 +42,7 @@ import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATIO
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.EXPIRED;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntityFixture.aGatewayAccountEntity;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DiscrepancyServiceTest {
@@ -36,9 +57,28 @@ public class DiscrepancyServiceTest {
     @Mock
     private ChargeExpiryService expiryService;
 
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+
+    @Mock
+    private DiscrepancyConfig discrepancyConfig;
+
+    private ExecutorService inquiryExecutorService;
+
     @Before
     public void beforeTest() {
-        discrepancyService = new DiscrepancyService(chargeService, queryService, expiryService);
+        when(connectorConfiguration.getDiscrepancyConfig()).thenReturn(discrepancyConfig);
+        discrepancyService = new DiscrepancyService(chargeService, queryService, expiryService, environment, connectorConfiguration);
+    }
+
+    @After
+    public void afterTest() {
+        if (inquiryExecutorService != null) {
+            inquiryExecutorService.shutdownNow();
+        }
     }
     
     @Test
@@ -119,4 +159,108 @@ public class DiscrepancyServiceTest {
         discrepancyService.resolveDiscrepancies(Collections.singletonList(charge.getExternalId()));
         verifyNoMoreInteractions(expiryService);
     }
+
+    @Test
+    public void shouldQueryOtherGatewaysWhileASlowGatewayInquiryIsRunning() throws Exception {
+        ChargeEntity epdqCharge = aChargeForGateway("epdq");
+        ChargeEntity worldpayCharge = aChargeForGateway("worldpay");
+        ChargeQueryResponse chargeQueryResponse = new ChargeQueryResponse(AUTHORISATION_SUCCESS, "Raw response");
+
+        CountDownLatch worldpayQueried = new CountDownLatch(1);
+        AtomicBoolean epdqInquirySawWorldpayInquiry = new AtomicBoolean(false);
+        when(queryService.getChargeGatewayStatus(epdqCharge)).thenAnswer(invocation -> {
+            epdqInquirySawWorldpayInquiry.set(worldpayQueried.await(5, TimeUnit.SECONDS));
+            return chargeQueryResponse;
+        });
+        when(queryService.getChargeGatewayStatus(worldpayCharge)).thenAnswer(invocation -> {
+            worldpayQueried.countDown();
+            return chargeQueryResponse;
+        });
+
+        List<GatewayStatusComparison> gatewayStatusComparisons = aParallelDiscrepancyService(4)
+                .listGatewayStatusComparisons(List.of(epdqCharge.getExternalId(), worldpayCharge.getExternalId()));
+
+        assertThat(epdqInquirySawWorldpayInquiry.get(), is(true));
+        assertThat(gatewayStatusComparisons.size(), is(2));
+        // worldpay responded first, but results are returned in the order the charge ids were given
+        assertThat(gatewayStatusComparisons.get(0).getChargeId(), is(epdqCharge.getExternalId()));
+        assertThat(gatewayStatusComparisons.get(1).getChargeId(), is(worldpayCharge.getExternalId()));
+    }
+
+    @Test
+    public void shouldNotExceedConcurrentInquiryLimitForAGateway() throws Exception {
+        ChargeEntity firstCharge = aChargeForGateway("epdq");
+        ChargeEntity secondCharge = aChargeForGateway("epdq");
+        ChargeQueryResponse chargeQueryResponse = new ChargeQueryResponse(AUTHORISATION_SUCCESS, "Raw response");
+
+        AtomicInteger inquiriesInProgress = new AtomicInteger();
+        AtomicInteger maximumInquiriesInProgress = new AtomicInteger();
+        when(queryService.getChargeGatewayStatus(any(ChargeEntity.class))).thenAnswer(invocation -> {
+            maximumInquiriesInProgress.accumulateAndGet(inquiriesInProgress.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            inquiriesInProgress.decrementAndGet();
+            return chargeQueryResponse;
+        });
+
+        List<GatewayStatusComparison> gatewayStatusComparisons = aParallelDiscrepancyService(4)
+                .listGatewayStatusComparisons(List.of(firstCharge.getExternalId(), secondCharge.getExternalId()));
+
+        assertThat(maximumInquiriesInProgress.get(), is(1));
+        assertThat(gatewayStatusComparisons.size(), is(2));
+    }
+
+    @Test
+    public void shouldNotHoldInquiryThreadsForInquiriesWaitingOnABusyGateway() throws Exception {
+        ChargeEntity firstEpdqCharge = aChargeForGateway("epdq");
+        ChargeEntity secondEpdqCharge = aChargeForGateway("epdq");
+        ChargeEntity worldpayCharge = aChargeForGateway("worldpay");
+        ChargeQueryResponse chargeQueryResponse = new ChargeQueryResponse(AUTHORISATION_SUCCESS, "Raw response");
+
+        // ePDQ is limited to one inquiry at a time, and its first inquiry doesn't finish until Worldpay has been
+        // queried, which can only happen if the waiting ePDQ inquiry leaves the second thread free
+        CountDownLatch worldpayQueried = new CountDownLatch(1);
+        AtomicBoolean epdqInquirySawWorldpayInquiry = new AtomicBoolean(false);
+        when(queryService.getChargeGatewayStatus(firstEpdqCharge)).thenAnswer(invocation -> {
+            epdqInquirySawWorldpayInquiry.set(worldpayQueried.await(5, TimeUnit.SECONDS));
+            return chargeQueryResponse;
+        });
+        when(queryService.getChargeGatewayStatus(secondEpdqCharge)).thenReturn(chargeQueryResponse);
+        when(queryService.getChargeGatewayStatus(worldpayCharge)).thenAnswer(invocation -> {
+            worldpayQueried.countDown();
+            return chargeQueryResponse;
+        });
+
+        List<GatewayStatusComparison> gatewayStatusComparisons = aParallelDiscrepancyService(2)
+                .listGatewayStatusComparisons(List.of(
+                        firstEpdqCharge.getExternalId(), secondEpdqCharge.getExternalId(), worldpayCharge.getExternalId()));
+
+        assertThat(epdqInquirySawWorldpayInquiry.get(), is(true));
+        assertThat(gatewayStatusComparisons.size(), is(3));
+    }
+
+    private DiscrepancyService aParallelDiscrepancyService(int numberOfThreads) {
+        LifecycleEnvironment lifecycleEnvironment = mock(LifecycleEnvironment.class);
+        ExecutorServiceBuilder executorServiceBuilder = mock(ExecutorServiceBuilder.class);
+        inquiryExecutorService = Executors.newFixedThreadPool(numberOfThreads);
+        when(discrepancyConfig.isParallelInquiriesEnabled()).thenReturn(true);
+        when(discrepancyConfig.getNumberOfThreads()).thenReturn(numberOfThreads);
+        when(discrepancyConfig.getDefaultMaximumConcurrentInquiriesPerGateway()).thenReturn(1);
+        when(discrepancyConfig.getMaximumConcurrentInquiriesPerGateway()).thenReturn(Map.of());
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(lifecycleEnvironment.executorService(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.minThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.maxThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.build()).thenReturn(inquiryExecutorService);
+
+        return new DiscrepancyService(chargeService, queryService, expiryService, environment, connectorConfiguration);
+    }
+
+    private ChargeEntity aChargeForGateway(String gatewayName) {
+        ChargeEntity charge = ChargeEntityFixture.aValidChargeEntity()
+                .withGatewayAccountEntity(aGatewayAccountEntity().withGatewayName(gatewayName).build())
+                .withStatus(AUTHORISATION_SUCCESS)
+                .build();
+        when(chargeService.findChargeById(charge.getExternalId())).thenReturn(charge);
+        return charge;
+    }
 }
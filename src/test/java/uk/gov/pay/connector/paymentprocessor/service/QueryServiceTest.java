@@ -3,17 +3,24 @@ package uk.gov.pay.connector.paymentprocessor.service;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.GatewayStatusQueryConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
 import uk.gov.pay.connector.gateway.PaymentProvider;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
@@ -28,12 +35,19 @@ public class QueryServiceTest {
     @Mock
     private PaymentProviders paymentProviders;
 
-    @InjectMocks
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+
+    @Mock
+    private GatewayStatusQueryConfig gatewayStatusQueryConfig;
+
     private QueryService queryService;
 
     @Before
     public void setUp() {
         when(paymentProviders.byName(any())).thenReturn(paymentProvider);
+        when(connectorConfiguration.getGatewayStatusQueryConfig()).thenReturn(gatewayStatusQueryConfig);
+        queryService = new QueryService(paymentProviders, connectorConfiguration);
     }
 
     @Test
@@ -55,4 +69,84 @@ public class QueryServiceTest {
 
         assertThat(queryService.isTerminableWithGateway(chargeEntity), is(false));
     }
+
+    @Test
+    public void getChargeGatewayStatus_sharesOneGatewayQueryBetweenConcurrentCallersForTheSameCharge() throws Exception {
+        when(gatewayStatusQueryConfig.isSingleFlightEnabled()).thenReturn(true);
+        queryService = new QueryService(paymentProviders, connectorConfiguration);
+        ChargeEntity chargeEntity = aValidChargeEntity().build();
+
+        ChargeQueryResponse response = new ChargeQueryResponse(CAPTURED, "a-response");
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch gatewayResponded = new CountDownLatch(1);
+        when(paymentProvider.queryPaymentStatus(any(ChargeEntity.class))).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            gatewayResponded.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        CompletableFuture<ChargeQueryResponse> first = queryInBackground(chargeEntity);
+        assertThat(queryStarted.await(5, TimeUnit.SECONDS), is(true));
+
+        CompletableFuture<ChargeQueryResponse> second = new CompletableFuture<>();
+        Thread secondCaller = new Thread(() -> completeWithGatewayStatus(second,
+                aValidChargeEntity().withExternalId(chargeEntity.getExternalId()).build()));
+        secondCaller.start();
+        awaitWaiting(secondCaller);
+        gatewayResponded.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS), is(response));
+        assertThat(second.get(5, TimeUnit.SECONDS), is(response));
+        verify(paymentProvider, times(1)).queryPaymentStatus(any(ChargeEntity.class));
+    }
+
+    @Test
+    public void getChargeGatewayStatus_returnsRecentResultWithoutQueryingGatewayAgain() throws Exception {
+        when(gatewayStatusQueryConfig.isSingleFlightEnabled()).thenReturn(true);
+        when(gatewayStatusQueryConfig.getResultCacheTtlInMilliseconds()).thenReturn(60000L);
+        queryService = new QueryService(paymentProviders, connectorConfiguration);
+        ChargeEntity chargeEntity = aValidChargeEntity().build();
+
+        ChargeQueryResponse response = new ChargeQueryResponse(CAPTURED, "a-response");
+        when(paymentProvider.queryPaymentStatus(chargeEntity)).thenReturn(response);
+
+        assertThat(queryService.getChargeGatewayStatus(chargeEntity), is(response));
+        assertThat(queryService.getChargeGatewayStatus(chargeEntity), is(response));
+
+        verify(paymentProvider, times(1)).queryPaymentStatus(chargeEntity);
+    }
+
+    @Test
+    public void getChargeGatewayStatus_queriesGatewayForEveryCallWhenSingleFlightIsDisabled() throws Exception {
+        ChargeEntity chargeEntity = aValidChargeEntity().build();
+
+        ChargeQueryResponse response = new ChargeQueryResponse(CAPTURED, "a-response");
+        when(paymentProvider.queryPaymentStatus(chargeEntity)).thenReturn(response);
+
+        queryService.getChargeGatewayStatus(chargeEntity);
+        queryService.getChargeGatewayStatus(chargeEntity);
+
+        verify(paymentProvider, times(2)).queryPaymentStatus(chargeEntity);
+    }
+
+    private CompletableFuture<ChargeQueryResponse> queryInBackground(ChargeEntity chargeEntity) {
+        CompletableFuture<ChargeQueryResponse> result = new CompletableFuture<>();
+        new Thread(() -> completeWithGatewayStatus(result, chargeEntity)).start();
+        return result;
+    }
+
+    private void completeWithGatewayStatus(CompletableFuture<ChargeQueryResponse> result, ChargeEntity chargeEntity) {
+        try {
+            result.complete(queryService.getChargeGatewayStatus(chargeEntity));
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package uk.gov.pay.connector.queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.connector.app.ConnectorApp;
+import uk.gov.pay.connector.junit.ConfigOverride;
+import uk.gov.pay.connector.junit.DropwizardConfig;
+import uk.gov.pay.connector.junit.DropwizardJUnitRunner;
+import uk.gov.pay.connector.junit.DropwizardTestContext;
+import uk.gov.pay.connector.junit.TestContext;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aValidChargeEntity;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(
+        app = ConnectorApp.class,
+        config = "config/test-it-config.yaml",
+        withDockerSQS = true,
+        configOverrides = {
+                @ConfigOverride(key = "sqsConfig.messageMaximumWaitTimeInSeconds", value = "1")
+        }
+)
+public class CaptureQueueIT {
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    @Test
+    public void shouldAcknowledgeReceivedMessagesInBatches() throws QueueException {
+        CaptureQueue captureQueue = testContext.getInstanceFromGuiceContainer(CaptureQueue.class);
+        captureQueue.sendForCapture(aValidChargeEntity().withExternalId("charge-to-mark-as-processed").build());
+        captureQueue.sendForCapture(aValidChargeEntity().withExternalId("charge-to-retry").build());
+
+        List<ChargeCaptureMessage> received = captureQueue.retrieveChargesForCapture();
+        assertThat(received.size(), is(2));
+
+        ChargeCaptureMessage toMarkAsProcessed = received.stream()
+                .filter(message -> message.getChargeId().equals("charge-to-mark-as-processed"))
+                .findFirst().orElseThrow();
+        ChargeCaptureMessage toRetry = received.stream()
+                .filter(message -> message.getChargeId().equals("charge-to-retry"))
+                .findFirst().orElseThrow();
+
+        assertThat(captureQueue.markMessagesAsProcessed(List.of(toMarkAsProcessed)), is(empty()));
+        assertThat(captureQueue.scheduleMessagesForRetry(List.of(toRetry)), is(empty()));
+
+        assertThat(captureQueue.retrieveChargesForCapture(), is(empty()));
+    }
+}
@@ -1,5 +1,8 @@
 package uk.gov.pay.connector.queue;
 
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
@@ -14,11 +17,17 @@ import uk.gov.pay.connector.queue.sqs.SqsQueueService;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -34,12 +43,6 @@ public class CaptureQueueTest {
 
     @Before
     public void setUp() throws Exception {
-        String validJsonMessage = "{ \"chargeId\": \"my-charge-id\"}";
-        SendMessageResult messageResult = mock(SendMessageResult.class);
-
-        List<QueueMessage> messages = Arrays.asList(
-                QueueMessage.of(messageResult, validJsonMessage)
-        );
         objectMapper = new ObjectMapper();
         CaptureProcessConfig captureProcessConfig = mock(CaptureProcessConfig.class);
         SqsConfig sqsConfig = mock(SqsConfig.class);
@@ -47,15 +50,60 @@ public class CaptureQueueTest {
         when(captureProcessConfig.getFailedCaptureRetryDelayInSeconds()).thenReturn(3600);
         when(connectorConfiguration.getSqsConfig()).thenReturn(sqsConfig);
         when(connectorConfiguration.getCaptureProcessConfig()).thenReturn(captureProcessConfig);
-        when(sqsQueueService.receiveMessages(anyString(), anyString())).thenReturn(messages);
     }
 
     @Test
     public void shouldParseChargeIdGivenWellFormattedJSON() throws QueueException {
+        String validJsonMessage = "{ \"chargeId\": \"my-charge-id\"}";
+        SendMessageResult messageResult = mock(SendMessageResult.class);
+        List<QueueMessage> messages = Arrays.asList(
+                QueueMessage.of(messageResult, validJsonMessage)
+        );
+        when(sqsQueueService.receiveMessages(anyString(), anyString())).thenReturn(messages);
+
         CaptureQueue queue = new CaptureQueue(sqsQueueService, connectorConfiguration, objectMapper);
         List<ChargeCaptureMessage> chargeCaptureMessages = queue.retrieveChargesForCapture();
 
         assertNotNull(chargeCaptureMessages);
         assertEquals("my-charge-id", chargeCaptureMessages.get(0).getChargeId());
     }
+
+    @Test
+    public void shouldDeleteMessagesInBatchesOfTenAndReturnFailedMessages() throws QueueException {
+        List<ChargeCaptureMessage> messages = aBatchOfCaptureMessages(12);
+        when(sqsQueueService.deleteMessageBatch(eq(""), anyList()))
+                .thenReturn(new DeleteMessageBatchResult()
+                        .withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError").withMessage("oops")))
+                .thenReturn(new DeleteMessageBatchResult());
+
+        CaptureQueue queue = new CaptureQueue(sqsQueueService, connectorConfiguration, objectMapper);
+        List<ChargeCaptureMessage> failed = queue.markMessagesAsProcessed(messages);
+
+        verify(sqsQueueService, times(2)).deleteMessageBatch(eq(""), anyList());
+        assertEquals(List.of(messages.get(1)), failed);
+    }
+
+    @Test
+    public void shouldKeepSendingBatchesAfterABatchFailsAndReturnItsMessages() throws QueueException {
+        List<ChargeCaptureMessage> messages = aBatchOfCaptureMessages(12);
+        when(sqsQueueService.deferMessageBatch(eq(""), anyList(), eq(3600)))
+                .thenThrow(new QueueException("SQS unavailable"))
+                .thenReturn(new ChangeMessageVisibilityBatchResult());
+
+        CaptureQueue queue = new CaptureQueue(sqsQueueService, connectorConfiguration, objectMapper);
+        List<ChargeCaptureMessage> failed = queue.scheduleMessagesForRetry(messages);
+
+        verify(sqsQueueService, times(2)).deferMessageBatch(eq(""), anyList(), eq(3600));
+        assertEquals(messages.subList(0, 10), failed);
+    }
+
+    private List<ChargeCaptureMessage> aBatchOfCaptureMessages(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> {
+                    ChargeCaptureMessage message = mock(ChargeCaptureMessage.class);
+                    when(message.getQueueMessageReceiptHandle()).thenReturn("receipt-handle-" + i);
+                    return message;
+                })
+                .collect(Collectors.toList());
+    }
 }
@@ -34,4 +34,30 @@ public class StateTransitionQueueTest {
 
         assertThat(readTransition.getChargeEventId(), is(chargeEventId));
     }
+
+    @Test
+    public void shouldPutTransitionsOfTheSameResourceInTheSamePartition() {
+        StateTransitionQueue queue = new StateTransitionQueue(4);
+        PaymentStateTransition first = new PaymentStateTransition(1L, "charge-external-id", PaymentEvent.class);
+        PaymentStateTransition second = new PaymentStateTransition(2L, "charge-external-id", PaymentEvent.class);
+
+        queue.offer(first);
+        queue.offer(second);
+
+        assertThat(queue.partitionOf(first), is(queue.partitionOf(second)));
+        assertThat(queue.size(), is(2));
+    }
+
+    @Test
+    public void shouldReturnTransitionsReadyAtTheSameTimeInTheOrderTheyWereCreated() throws InterruptedException {
+        StateTransitionQueue queue = new StateTransitionQueue();
+        PaymentStateTransition first = new PaymentStateTransition(1L, PaymentEvent.class, 0L);
+        PaymentStateTransition second = new PaymentStateTransition(2L, PaymentEvent.class, 0L);
+
+        queue.offer(second);
+        queue.offer(first);
+
+        assertThat(((PaymentStateTransition) queue.poll()).getChargeEventId(), is(1L));
+        assertThat(((PaymentStateTransition) queue.poll()).getChargeEventId(), is(2L));
+    }
 }
@@ -6,12 +6,15 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.EventQueueConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
 import uk.gov.pay.connector.events.EventService;
 import uk.gov.pay.connector.events.model.ResourceType;
 import uk.gov.pay.connector.events.model.charge.PaymentStarted;
 import uk.gov.pay.connector.events.model.refund.RefundCreatedByUser;
+import uk.gov.pay.connector.queue.dao.StateTransitionOutboxDao;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundHistory;
 
@@ -25,7 +28,9 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.ENTERING_CARD_DETAILS;
 import static uk.gov.pay.connector.events.model.ResourceType.PAYMENT;
@@ -43,11 +48,19 @@ public class StateTransitionServiceTest {
     @Mock
     StateTransitionQueue mockStateTransitionQueue;
     @Mock
+    StateTransitionOutboxDao mockStateTransitionOutboxDao;
+    @Mock
     EventService mockEventService;
+    @Mock
+    ConnectorConfiguration mockConnectorConfiguration;
+    @Mock
+    EventQueueConfig mockEventQueueConfig;
 
     @Before
     public void setUp() {
-        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockEventService);
+        when(mockConnectorConfiguration.getEventQueueConfig()).thenReturn(mockEventQueueConfig);
+        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockStateTransitionOutboxDao,
+                mockEventService, mockConnectorConfiguration);
     }
 
     @Test
@@ -61,6 +74,7 @@ public class StateTransitionServiceTest {
         verify(mockStateTransitionQueue).offer(paymentStateTransitionArgumentCaptor.capture());
 
         assertThat(paymentStateTransitionArgumentCaptor.getValue().getChargeEventId(), is(100L));
+        assertThat(paymentStateTransitionArgumentCaptor.getValue().getChargeExternalId(), is("external-id"));
         assertThat(paymentStateTransitionArgumentCaptor.getValue().getStateTransitionEventClass(), is(PaymentStarted.class));
 
         verify(mockEventService).recordOfferedEvent(PAYMENT, "external-id", "PAYMENT_STARTED", chargeEvent.getUpdated());
@@ -124,4 +138,54 @@ public class StateTransitionServiceTest {
         verify(mockEventService).recordOfferedEvent(REFUND, refundHistory.getExternalId(),
                 "REFUND_CREATED_BY_USER", refundHistory.getHistoryStartDate(), doNotEmitRetryUntil);
     }
+
+    @Test
+    public void shouldWritePaymentStateTransitionToOutboxWhenOutboxIsEnabled() {
+        when(mockEventQueueConfig.getStateTransitionOutboxEnabled()).thenReturn(true);
+        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockStateTransitionOutboxDao,
+                mockEventService, mockConnectorConfiguration);
+        ChargeEventEntity chargeEvent = aValidChargeEventEntity()
+                .withId(100L)
+                .build();
+
+        stateTransitionService.offerPaymentStateTransition("external-id", ChargeStatus.CREATED, ENTERING_CARD_DETAILS, chargeEvent);
+
+        ArgumentCaptor<StateTransitionOutboxEntity> outboxEntityArgumentCaptor = ArgumentCaptor.forClass(StateTransitionOutboxEntity.class);
+        verify(mockStateTransitionOutboxDao).persist(outboxEntityArgumentCaptor.capture());
+        verifyNoInteractions(mockStateTransitionQueue);
+
+        StateTransitionOutboxEntity outboxEntity = outboxEntityArgumentCaptor.getValue();
+        assertThat(outboxEntity.getResourceType(), is(PAYMENT));
+        assertThat(outboxEntity.getChargeEventId(), is(100L));
+        assertThat(outboxEntity.getEventClass(), is(PaymentStarted.class.getName()));
+        assertThat(outboxEntity.getAttempts(), is(1));
+
+        PaymentStateTransition stateTransition = (PaymentStateTransition) outboxEntity.toStateTransition();
+        assertThat(stateTransition.getChargeEventId(), is(100L));
+        assertThat(stateTransition.getStateTransitionEventClass(), is(PaymentStarted.class));
+
+        verify(mockEventService).recordOfferedEvent(PAYMENT, "external-id", "PAYMENT_STARTED", chargeEvent.getUpdated());
+    }
+
+    @Test
+    public void shouldWriteRefundStateTransitionToOutboxWhenOutboxIsEnabled() {
+        when(mockEventQueueConfig.getStateTransitionOutboxEnabled()).thenReturn(true);
+        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockStateTransitionOutboxDao,
+                mockEventService, mockConnectorConfiguration);
+        RefundEntity refundEntity = aValidRefundEntity()
+                .withExternalId("external-id")
+                .withStatus(CREATED)
+                .build();
+
+        stateTransitionService.offerRefundStateTransition(refundEntity, CREATED);
+
+        ArgumentCaptor<StateTransitionOutboxEntity> outboxEntityArgumentCaptor = ArgumentCaptor.forClass(StateTransitionOutboxEntity.class);
+        verify(mockStateTransitionOutboxDao).persist(outboxEntityArgumentCaptor.capture());
+        verifyNoInteractions(mockStateTransitionQueue);
+
+        RefundStateTransition stateTransition = (RefundStateTransition) outboxEntityArgumentCaptor.getValue().toStateTransition();
+        assertThat(stateTransition.getRefundExternalId(), is("external-id"));
+        assertThat(stateTransition.getRefundStatus(), is(CREATED));
+        assertThat(stateTransition.getStateTransitionEventClass(), is(RefundCreatedByUser.class));
+    }
 }
@@ -0,0 +1,110 @@
+package uk.gov.pay.connector.queue.managed;
+
+import com.amazonaws.SdkClientException;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.CaptureProcessConfig;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.SqsConfig;
+import uk.gov.pay.connector.paymentprocessor.service.CardCaptureProcess;
+import uk.gov.pay.connector.queue.CaptureQueue;
+import uk.gov.pay.connector.queue.QueueException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveCaptureMessageReceiverTest {
+
+    @Mock
+    private CardCaptureProcess cardCaptureProcess;
+    @Mock
+    private CaptureQueue captureQueue;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private CaptureProcessConfig captureProcessConfig;
+    @Mock
+    private SqsConfig sqsConfig;
+
+    private AdaptiveCaptureMessageReceiver adaptiveCaptureMessageReceiver;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getCaptureProcessConfig()).thenReturn(captureProcessConfig);
+        when(connectorConfiguration.getSqsConfig()).thenReturn(sqsConfig);
+        when(captureProcessConfig.getMinimumNumberOfReceivers()).thenReturn(1);
+        when(captureProcessConfig.getMaximumNumberOfReceivers()).thenReturn(4);
+        when(captureProcessConfig.getEmptyReceiveInitialBackoffInMilliseconds()).thenReturn(500L);
+        when(captureProcessConfig.getEmptyReceiveMaximumBackoffInMilliseconds()).thenReturn(3000L);
+        when(sqsConfig.getMessageMaximumBatchSize()).thenReturn(10);
+
+        adaptiveCaptureMessageReceiver = new AdaptiveCaptureMessageReceiver(cardCaptureProcess, captureQueue,
+                environment, connectorConfiguration);
+    }
+
+    @Test
+    public void shouldActivateOneReceiverPerBatchOfBacklog() throws QueueException {
+        when(captureQueue.getApproximateNumberOfMessages()).thenReturn(21);
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(3));
+    }
+
+    @Test
+    public void shouldKeepNumberOfReceiversWithinConfiguredBounds() throws QueueException {
+        when(captureQueue.getApproximateNumberOfMessages()).thenReturn(500, 0);
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(4));
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(1));
+    }
+
+    @Test
+    public void shouldKeepCurrentReceiversIfBacklogCannotBeRead() throws QueueException {
+        when(captureQueue.getApproximateNumberOfMessages()).thenReturn(40).thenThrow(new QueueException("unavailable"));
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(4));
+    }
+
+    @Test
+    public void shouldKeepScalingReceiversAfterQueueCannotBeReached() throws QueueException {
+        when(captureQueue.getApproximateNumberOfMessages())
+                .thenReturn(40)
+                .thenThrow(new SdkClientException("Unable to execute HTTP request"))
+                .thenReturn(10);
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(4));
+
+        adaptiveCaptureMessageReceiver.scaleReceivers();
+        assertThat(adaptiveCaptureMessageReceiver.getActiveReceivers(), is(1));
+    }
+
+    @Test
+    public void shouldDoubleBackoffAfterEachEmptyReceiveUpToMaximum() {
+        long backoff = adaptiveCaptureMessageReceiver.nextEmptyReceiveBackoff(0);
+        assertThat(backoff, is(500L));
+
+        backoff = adaptiveCaptureMessageReceiver.nextEmptyReceiveBackoff(backoff);
+        assertThat(backoff, is(1000L));
+
+        backoff = adaptiveCaptureMessageReceiver.nextEmptyReceiveBackoff(backoff);
+        backoff = adaptiveCaptureMessageReceiver.nextEmptyReceiveBackoff(backoff);
+        assertThat(backoff, is(3000L));
+    }
+}
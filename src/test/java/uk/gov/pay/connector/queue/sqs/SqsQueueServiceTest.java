@@ -5,6 +5,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.*;
 import org.junit.Assert;
@@ -86,6 +87,33 @@ public class SqsQueueServiceTest {
         sqsQueueService.sendMessage(QUEUE_URL, MESSAGE);
     }
 
+    @Test
+    public void shouldSendMessageBatchToQueueAndReturnPerEntryResults() throws QueueException {
+        List<SendMessageBatchRequestEntry> entries = List.of(
+                new SendMessageBatchRequestEntry("0", MESSAGE),
+                new SendMessageBatchRequestEntry("1", MESSAGE));
+        SendMessageBatchResult sendMessageBatchResult = new SendMessageBatchResult()
+                .withSuccessful(new SendMessageBatchResultEntry().withId("0"))
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError"));
+        when(mockSqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(sendMessageBatchResult);
+
+        SendMessageBatchResult result = sqsQueueService.sendMessageBatch(QUEUE_URL, entries);
+
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(mockSqsClient).sendMessageBatch(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getQueueUrl(), is(QUEUE_URL));
+        assertThat(requestCaptor.getValue().getEntries(), is(entries));
+        assertThat(result.getSuccessful().size(), is(1));
+        assertThat(result.getFailed().get(0).getId(), is("1"));
+    }
+
+    @Test(expected = QueueException.class)
+    public void shouldThrowExceptionIfMessageBatchIsNotSentToQueue() throws QueueException {
+        when(mockSqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenThrow(AmazonSQSException.class);
+
+        sqsQueueService.sendMessageBatch(QUEUE_URL, List.of(new SendMessageBatchRequestEntry("0", MESSAGE)));
+    }
+
     @Test
     public void shouldReceiveMessagesFromQueueSuccessfully() throws QueueException {
         ReceiveMessageResult receiveMessageResult = new ReceiveMessageResult();
@@ -119,4 +147,56 @@ public class SqsQueueServiceTest {
 
         sqsQueueService.receiveMessages(QUEUE_URL, MESSAGE_ATTRIBUTE_NAME);
     }
+
+    @Test
+    public void shouldDeleteMessageBatchUsingReceiptHandleIndexesAsEntryIds() throws QueueException {
+        when(mockSqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(new DeleteMessageBatchResult()
+                .withSuccessful(new DeleteMessageBatchResultEntry().withId("0"))
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("ReceiptHandleIsInvalid").withMessage("invalid")));
+
+        DeleteMessageBatchResult result = sqsQueueService.deleteMessageBatch(QUEUE_URL, List.of("receipt-handle-1", "receipt-handle-2"));
+
+        ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsClient).deleteMessageBatch(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getEntries().get(1).getId(), is("1"));
+        assertThat(requestCaptor.getValue().getEntries().get(1).getReceiptHandle(), is("receipt-handle-2"));
+        assertThat(result.getFailed().get(0).getId(), is("1"));
+    }
+
+    @Test(expected = QueueException.class)
+    public void shouldThrowExceptionIfMessageBatchCannotBeDeleted() throws QueueException {
+        when(mockSqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenThrow(AmazonSQSException.class);
+
+        sqsQueueService.deleteMessageBatch(QUEUE_URL, List.of("receipt-handle-1"));
+    }
+
+    @Test
+    public void shouldDeferMessageBatchWithVisibilityTimeout() throws QueueException {
+        when(mockSqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(new ChangeMessageVisibilityBatchResult()
+                        .withSuccessful(new ChangeMessageVisibilityBatchResultEntry().withId("0")));
+
+        sqsQueueService.deferMessageBatch(QUEUE_URL, List.of("receipt-handle-1"), 3600);
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(mockSqsClient).changeMessageVisibilityBatch(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getEntries().get(0).getReceiptHandle(), is("receipt-handle-1"));
+        assertThat(requestCaptor.getValue().getEntries().get(0).getVisibilityTimeout(), is(3600));
+    }
+
+    @Test
+    public void shouldReturnApproximateNumberOfMessagesInQueue() throws QueueException {
+        when(mockSqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(new GetQueueAttributesResult().addAttributesEntry("ApproximateNumberOfMessages", "42"));
+
+        assertThat(sqsQueueService.getApproximateNumberOfMessages(QUEUE_URL), is(42));
+    }
+
+    @Test(expected = QueueException.class)
+    public void shouldThrowQueueExceptionIfSqsCannotBeReachedForApproximateNumberOfMessages() throws QueueException {
+        when(mockSqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenThrow(new SdkClientException("Unable to execute HTTP request"));
+
+        sqsQueueService.getApproximateNumberOfMessages(QUEUE_URL);
+    }
 }
@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.gateway.ClientFactory;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreakers;
 import uk.gov.pay.connector.gateway.GatewayClient;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
@@ -25,6 +26,8 @@ public class GatewayClientFactoryTest {
     @Mock
     ClientFactory mockClientFactory;
     @Mock
+    GatewayCircuitBreakers mockGatewayCircuitBreakers;
+    @Mock
     MetricRegistry mockMetricRegistry;
     @Test
     public void shouldBuildGatewayClient() {
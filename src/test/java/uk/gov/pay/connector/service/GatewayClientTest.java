@@ -1,8 +1,8 @@
 package uk.gov.pay.connector.service;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +11,7 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.gateway.GatewayCircuitBreaker;
 import uk.gov.pay.connector.gateway.GatewayClient;
 import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.GatewayOrder;
@@ -18,20 +19,35 @@ import uk.gov.pay.connector.gateway.model.OrderRequestType;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.HttpCookie;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static java.util.Collections.emptyMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -55,7 +71,7 @@ public class GatewayClientTest {
     @Mock
     private MetricRegistry mockMetricRegistry;
     @Mock
-    private Histogram mockHistogram;
+    private Timer mockTimer;
     @Mock
     private Counter mockCounter;
 
@@ -69,7 +85,7 @@ public class GatewayClientTest {
     public void setup() {
         gatewayClient = new GatewayClient(mockClient,
                 mockMetricRegistry);
-        when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
+        when(mockMetricRegistry.timer(anyString())).thenReturn(mockTimer);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         doAnswer(invocationOnMock -> null).when(mockCounter).inc();
 
@@ -111,4 +127,85 @@ public class GatewayClientTest {
         inOrder.verify(mockBuilder).cookie("machine", "value");
         inOrder.verify(mockBuilder).post(Entity.entity(orderPayload, mediaType));
     }
+
+    @Test
+    public void shouldCompleteAsyncRequestWithTheGatewayResponse() throws Exception {
+        when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(String.class)).thenReturn("a-response");
+        givenAsyncInvocation(callback -> callback.completed(mockResponse));
+
+        GatewayClient.Response response = gatewayClient
+                .postRequestForAsync(WORLDPAY_API_ENDPOINT, mockGatewayAccountEntity, mockGatewayOrder, emptyMap())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getEntity(), is("a-response"));
+        verify(mockResponse).close();
+        verify(mockMetricRegistry).timer("gateway-operations.worldpay.worldpay.authorise.response_time");
+    }
+
+    @Test
+    public void shouldCompleteAsyncRequestExceptionallyWithGatewayErrorWhenProviderFails() throws Exception {
+        when(mockResponse.getStatus()).thenReturn(500);
+        givenAsyncInvocation(callback -> callback.completed(mockResponse));
+
+        CompletableFuture<GatewayClient.Response> result = gatewayClient
+                .postRequestForAsync(WORLDPAY_API_ENDPOINT, mockGatewayAccountEntity, mockGatewayOrder, emptyMap());
+
+        assertFailsWith(result, GatewayException.GatewayErrorException.class);
+        verify(mockCounter).inc();
+        verify(mockResponse).close();
+    }
+
+    @Test
+    public void shouldCompleteAsyncRequestExceptionallyWithConnectionTimeoutWhenProviderTimesOut() throws Exception {
+        givenAsyncInvocation(callback -> callback.failed(new ProcessingException(new SocketTimeoutException("read timed out"))));
+
+        CompletableFuture<GatewayClient.Response> result = gatewayClient
+                .postRequestForAsync(WORLDPAY_API_ENDPOINT, mockGatewayAccountEntity, mockGatewayOrder, emptyMap());
+
+        assertFailsWith(result, GatewayException.GatewayConnectionTimeoutException.class);
+        verify(mockCounter).inc();
+    }
+
+    @Test
+    public void shouldCompleteAsyncRequestExceptionallyWithGenericGatewayErrorWhenProviderFailsWithAProcessingException() throws Exception {
+        givenAsyncInvocation(callback -> callback.failed(new ProcessingException(new SocketException("socket failed"))));
+
+        CompletableFuture<GatewayClient.Response> result = gatewayClient
+                .postRequestForAsync(WORLDPAY_API_ENDPOINT, mockGatewayAccountEntity, mockGatewayOrder, emptyMap());
+
+        assertFailsWith(result, GatewayException.GenericGatewayException.class);
+    }
+
+    @Test
+    public void shouldFailFastWithoutCallingTheGatewayWhenTheCircuitBreakerRejectsTheRequest() throws Exception {
+        GatewayCircuitBreaker mockCircuitBreaker = mock(GatewayCircuitBreaker.class);
+        when(mockCircuitBreaker.tryAcquire()).thenReturn(Optional.empty());
+        gatewayClient = new GatewayClient(mockClient, mockMetricRegistry, mockCircuitBreaker);
+
+        try {
+            gatewayClient.postRequestFor(WORLDPAY_API_ENDPOINT, mockGatewayAccountEntity, mockGatewayOrder, emptyMap());
+            fail("Expected the gateway request to be rejected");
+        } catch (GatewayException.GenericGatewayException e) {
+            verify(mockClient, never()).target(any(URI.class));
+        }
+    }
+
+    private void givenAsyncInvocation(Consumer<InvocationCallback<Response>> invocation) {
+        AsyncInvoker mockAsyncInvoker = mock(AsyncInvoker.class);
+        when(mockBuilder.async()).thenReturn(mockAsyncInvoker);
+        doAnswer(invocationOnMock -> {
+            invocation.accept(invocationOnMock.getArgument(1));
+            return null;
+        }).when(mockAsyncInvoker).post(eq(Entity.entity(orderPayload, mediaType)), any(InvocationCallback.class));
+    }
+
+    private void assertFailsWith(CompletableFuture<GatewayClient.Response> result, Class<? extends GatewayException> expected) throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected the gateway request to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(expected));
+        }
+    }
 }
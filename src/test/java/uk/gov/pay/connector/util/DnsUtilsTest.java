@@ -0,0 +1,89 @@
+package uk.gov.pay.connector.util;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.ReverseDnsConfig;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DnsUtilsTest {
+
+    private StubDnsServer stubDnsServer;
+    private MetricRegistry metricRegistry;
+    private DnsUtils dnsUtils;
+
+    @Before
+    public void setUp() throws Exception {
+        stubDnsServer = new StubDnsServer();
+        stubDnsServer.addPtrRecord("1.90.35.195.in-addr.arpa", "hello.worldpay.com.");
+        stubDnsServer.addPtrRecord("8.8.8.8.in-addr.arpa", "dns.google.");
+        metricRegistry = new MetricRegistry();
+        dnsUtils = new DnsUtils(new ReverseDnsConfig(), metricRegistry, stubDnsServer.getUrl());
+    }
+
+    @After
+    public void tearDown() {
+        stubDnsServer.close();
+    }
+
+    @Test
+    public void shouldMatchForwardedIpToDomain() {
+        assertThat(dnsUtils.ipMatchesDomain("195.35.90.1, 8.8.8.8", "worldpay.com"), is(true));
+        assertThat(dnsUtils.ipMatchesDomain("8.8.8.8, 195.35.90.1", "worldpay.com"), is(false));
+    }
+
+    @Test
+    public void shouldCacheFoundHosts() {
+        assertThat(dnsUtils.reverseDnsLookup("195.35.90.1"), is(Optional.of("hello.worldpay.com.")));
+        assertThat(dnsUtils.reverseDnsLookup("195.35.90.1"), is(Optional.of("hello.worldpay.com.")));
+        assertThat(dnsUtils.ipMatchesDomain("195.35.90.1", "worldpay.com"), is(true));
+
+        assertThat(stubDnsServer.getQueryCount(), is(1));
+        assertThat(metricRegistry.counter("reverse-dns.cache.miss").getCount(), is(1L));
+        assertThat(metricRegistry.counter("reverse-dns.cache.hit").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldCacheAddressesWithNoHost() {
+        assertThat(dnsUtils.reverseDnsLookup("195.35.90.2").isPresent(), is(false));
+        assertThat(dnsUtils.ipMatchesDomain("195.35.90.2", "worldpay.com"), is(false));
+
+        assertThat(stubDnsServer.getQueryCount(), is(1));
+        assertThat(metricRegistry.counter("reverse-dns.cache.hit").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldReuseDnsContextForLookupsOfDifferentAddresses() {
+        assertThat(dnsUtils.reverseDnsLookup("195.35.90.1").isPresent(), is(true));
+        assertThat(dnsUtils.reverseDnsLookup("8.8.8.8"), is(Optional.of("dns.google.")));
+        assertThat(dnsUtils.reverseDnsLookup("195.35.90.3").isPresent(), is(false));
+
+        assertThat(stubDnsServer.getQueryCount(), is(3));
+    }
+
+    @Test
+    public void shouldNotLookUpAddressesThatAreNotValid() {
+        assertThat(dnsUtils.reverseDnsLookup("not-an-ip").isPresent(), is(false));
+        assertThat(dnsUtils.reverseDnsLookup("123.234.567.890").isPresent(), is(false));
+        assertThat(dnsUtils.ipMatchesDomain(null, "worldpay.com"), is(false));
+
+        assertThat(stubDnsServer.getQueryCount(), is(0));
+    }
+
+    @Test
+    public void shouldMatchForwardedIpToAllowedRangesWithoutLookingItUp() {
+        List<IpAddressRange> ranges = IpAddressRange.parseAll("195.35.90.0/23");
+
+        assertThat(dnsUtils.ipInRanges("195.35.91.200, 8.8.8.8", ranges), is(true));
+        assertThat(dnsUtils.ipInRanges("195.35.92.1", ranges), is(false));
+        assertThat(dnsUtils.ipInRanges(null, ranges), is(false));
+
+        assertThat(stubDnsServer.getQueryCount(), is(0));
+    }
+}
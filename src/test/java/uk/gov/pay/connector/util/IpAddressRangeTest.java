@@ -0,0 +1,62 @@
+package uk.gov.pay.connector.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class IpAddressRangeTest {
+
+    @Test
+    public void shouldMatchIpv4AddressesInRange() {
+        IpAddressRange range = IpAddressRange.parse("195.35.90.0/23");
+
+        assertThat(range.contains("195.35.90.0"), is(true));
+        assertThat(range.contains("195.35.91.255"), is(true));
+        assertThat(range.contains("195.35.92.0"), is(false));
+        assertThat(range.contains("195.35.89.255"), is(false));
+    }
+
+    @Test
+    public void shouldTreatAddressWithoutPrefixLengthAsSingleAddress() {
+        IpAddressRange range = IpAddressRange.parse("10.0.0.1");
+
+        assertThat(range.contains("10.0.0.1"), is(true));
+        assertThat(range.contains("10.0.0.2"), is(false));
+    }
+
+    @Test
+    public void shouldMatchIpv6AddressesInRange() {
+        IpAddressRange range = IpAddressRange.parse("2001:db8::/32");
+
+        assertThat(range.contains("2001:db8:1::1"), is(true));
+        assertThat(range.contains("2001:db9::1"), is(false));
+        assertThat(range.contains("195.35.90.1"), is(false));
+    }
+
+    @Test
+    public void shouldNotMatchValuesThatAreNotIpAddresses() {
+        IpAddressRange range = IpAddressRange.parse("0.0.0.0/0");
+
+        assertThat(range.contains("195.35.90.1"), is(true));
+        assertThat(range.contains("worldpay.com"), is(false));
+        assertThat(range.contains(null), is(false));
+    }
+
+    @Test
+    public void shouldParseCommaSeparatedRanges() {
+        assertThat(IpAddressRange.parseAll("195.35.90.0/23, 10.0.0.0/8,").size(), is(2));
+        assertThat(IpAddressRange.parseAll(null).isEmpty(), is(true));
+        assertThat(IpAddressRange.parseAll(" ").isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPrefixLengthLongerThanAddress() {
+        IpAddressRange.parse("195.35.90.0/33");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectHostNames() {
+        IpAddressRange.parse("worldpay.com/24");
+    }
+}
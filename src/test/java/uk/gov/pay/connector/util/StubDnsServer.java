@@ -0,0 +1,113 @@
+package uk.gov.pay.connector.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A UDP DNS server on localhost that answers PTR queries from a fixed set of records, and NXDOMAIN for anything else.
+ */
+public class StubDnsServer implements AutoCloseable {
+
+    private static final int TYPE_PTR = 12;
+    private static final int CLASS_IN = 1;
+
+    private final DatagramSocket socket;
+    private final Map<String, String> ptrRecords = new ConcurrentHashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final Thread thread;
+
+    public StubDnsServer() throws SocketException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::serve, "stub-dns-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void addPtrRecord(String reverseName, String host) {
+        ptrRecords.put(reverseName.toLowerCase(), host);
+    }
+
+    public String getUrl() {
+        return "dns://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    public int getQueryCount() {
+        return queries.get();
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                socket.receive(request);
+                queries.incrementAndGet();
+                byte[] response = respondTo(Arrays.copyOf(request.getData(), request.getLength()));
+                socket.send(new DatagramPacket(response, response.length, request.getSocketAddress()));
+            } catch (IOException e) {
+                // the socket has been closed
+            }
+        }
+    }
+
+    private byte[] respondTo(byte[] query) throws IOException {
+        // the question starts after the 12 byte header and ends after the name, type and class
+        int position = 12;
+        StringBuilder name = new StringBuilder();
+        while (query[position] != 0) {
+            int length = query[position];
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(query, position + 1, length, StandardCharsets.US_ASCII));
+            position += length + 1;
+        }
+        int questionEnd = position + 5;
+        int type = ((query[position + 1] & 0xFF) << 8) | (query[position + 2] & 0xFF);
+        String host = type == TYPE_PTR ? ptrRecords.get(name.toString().toLowerCase()) : null;
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(query, 0, 2);
+        response.write(new byte[]{(byte) 0x81, (byte) (host == null ? 0x83 : 0x80)});
+        response.write(new byte[]{0, 1, 0, host == null ? (byte) 0 : (byte) 1, 0, 0, 0, 0});
+        response.write(query, 12, questionEnd - 12);
+
+        if (host != null) {
+            byte[] rdata = encodeName(host);
+            response.write(new byte[]{(byte) 0xC0, 12});
+            response.write(new byte[]{0, TYPE_PTR, 0, CLASS_IN});
+            response.write(new byte[]{0, 0, 0x0E, 0x10});
+            response.write(new byte[]{(byte) (rdata.length >> 8), (byte) rdata.length});
+            response.write(rdata);
+        }
+        return response.toByteArray();
+    }
+
+    private static byte[] encodeName(String name) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (String label : name.split("\\.")) {
+            if (label.isEmpty()) {
+                continue;
+            }
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            encoded.write(bytes.length);
+            encoded.write(bytes);
+        }
+        encoded.write(0);
+        return encoded.toByteArray();
+    }
+}
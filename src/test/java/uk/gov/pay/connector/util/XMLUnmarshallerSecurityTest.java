@@ -43,6 +43,23 @@ public class XMLUnmarshallerSecurityTest {
         XMLUnmarshaller.unmarshall(xmlData, XMLUnmarshallingAttackTest.class);
     }
 
+    @Test
+    public void preventXEE_aBillionLaughsAttack_shouldFailUnmarshallingWhenParserHasBeenUsedBefore() throws Exception {
+
+        XMLUnmarshaller.unmarshall("<foo>hola</foo>", XMLUnmarshallingAttackTest.class);
+
+        String xmlData = "<!DOCTYPE foo [" +
+                "<!ENTITY a \"1234567890\" >" +
+                "<!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;&a;&a;\" >" +
+                "]> " +
+                "<foo>&b;</foo>";
+
+        expectedException.expect(XMLUnmarshallerException.class);
+        expectedException.expectCause(is(unmarshalExceptionWithLinkedSAXParseException("JAXP00010001: The parser has encountered more than \"1\" entity expansions in this document; this is the limit imposed by the JDK.")));
+
+        XMLUnmarshaller.unmarshall(xmlData, XMLUnmarshallingAttackTest.class);
+    }
+
     @Test
     public void preventXEE_externalEntityReference_shouldFailUnmarshallingWithOneEntityWithAnExternalReference() throws Exception {
 
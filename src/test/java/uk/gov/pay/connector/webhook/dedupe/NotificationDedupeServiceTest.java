@@ -0,0 +1,150 @@
+package uk.gov.pay.connector.webhook.dedupe;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationDedupeConfig;
+import uk.gov.pay.connector.webhook.dedupe.dao.NotificationDedupeDao;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationDedupeServiceTest {
+
+    private static final NotificationDedupeKey KEY = NotificationDedupeKey.of(WORLDPAY, "transaction-id", "reference",
+            "CAPTURED", ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+
+    @Mock
+    private NotificationDedupeDao notificationDedupeDao;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private NotificationDedupeConfig notificationDedupeConfig;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldCacheKeysFoundInTheDatabase() {
+        when(notificationDedupeDao.exists(KEY)).thenReturn(true);
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(true);
+
+        assertThat(notificationDedupeService.isReplay(KEY), is(true));
+        assertThat(notificationDedupeService.isReplay(KEY), is(true));
+
+        verify(notificationDedupeDao, times(1)).exists(KEY);
+        assertThat(metricRegistry.meter("notification-dedupe.worldpay.notifications").getCount(), is(2L));
+        assertThat(metricRegistry.meter("notification-dedupe.worldpay.replays").getCount(), is(2L));
+        assertThat(metricRegistry.meter("notification-dedupe.smartpay.replays").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCacheKeysThatHaveOnlyBeenRecorded() {
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(true);
+
+        notificationDedupeService.record(KEY);
+
+        // the transaction the key was recorded in may yet be rolled back
+        assertThat(notificationDedupeService.isReplay(KEY), is(false));
+        verify(notificationDedupeDao).insertIfAbsent(eq(KEY), any());
+        verify(notificationDedupeDao).exists(KEY);
+        assertThat(metricRegistry.meter("notification-dedupe.worldpay.replays").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldFindReplaysInABatchWithOneQueryForKeysThatAreNotCached() {
+        NotificationDedupeKey cachedKey = NotificationDedupeKey.of(SMARTPAY, "transaction-1", "reference-1",
+                "CAPTURE:true", ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+        NotificationDedupeKey recordedKey = NotificationDedupeKey.of(SMARTPAY, "transaction-2", "reference-2",
+                "CAPTURE:true", ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+        NotificationDedupeKey newKey = NotificationDedupeKey.of(SMARTPAY, "transaction-3", "reference-3",
+                "CAPTURE:true", ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+        when(notificationDedupeDao.findExisting(List.of(cachedKey))).thenReturn(Set.of(cachedKey));
+        when(notificationDedupeDao.findExisting(List.of(recordedKey, newKey))).thenReturn(Set.of(recordedKey));
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(true);
+        notificationDedupeService.findReplays(List.of(cachedKey));
+
+        Set<NotificationDedupeKey> replays = notificationDedupeService.findReplays(List.of(cachedKey, recordedKey, newKey));
+
+        assertThat(replays, is(Set.of(cachedKey, recordedKey)));
+        verify(notificationDedupeDao).findExisting(List.of(recordedKey, newKey));
+        verify(notificationDedupeDao, never()).exists(any());
+        assertThat(metricRegistry.meter("notification-dedupe.smartpay.notifications").getCount(), is(4L));
+        assertThat(metricRegistry.meter("notification-dedupe.smartpay.replays").getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldTreatKeysWithSameEventTimeInDifferentZonesAsEqual() {
+        NotificationDedupeKey sameKeyInAnotherZone = NotificationDedupeKey.of(WORLDPAY, "transaction-id", "reference",
+                "CAPTURED", ZonedDateTime.parse("2017-03-10T02:00:00+02:00"));
+        NotificationDedupeKey otherGatewayKey = NotificationDedupeKey.of(SMARTPAY, "transaction-id", "reference",
+                "CAPTURED", ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+
+        assertThat(sameKeyInAnotherZone.equals(KEY), is(true));
+        assertThat(sameKeyInAnotherZone.hashCode(), is(KEY.hashCode()));
+        assertThat(otherGatewayKey.equals(KEY), is(false));
+    }
+
+    @Test
+    public void shouldNotPruneOldKeysWhileRecordingANotification() {
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(true);
+
+        notificationDedupeService.record(KEY);
+
+        verify(notificationDedupeDao).insertIfAbsent(eq(KEY), any());
+        verify(notificationDedupeDao, never()).deleteCreatedBefore(any());
+    }
+
+    @Test
+    public void shouldDeleteKeysOlderThanTheRetentionPeriod() {
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(true);
+
+        notificationDedupeService.deleteExpired();
+
+        ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(notificationDedupeDao).deleteCreatedBefore(cutoff.capture());
+        assertThat(cutoff.getValue().isBefore(ZonedDateTime.now().minusDays(7).plusMinutes(1)), is(true));
+        assertThat(cutoff.getValue().isAfter(ZonedDateTime.now().minusDays(7).minusMinutes(1)), is(true));
+    }
+
+    @Test
+    public void shouldDoNothingWhenDisabled() {
+        NotificationDedupeService notificationDedupeService = aNotificationDedupeService(false);
+
+        assertThat(notificationDedupeService.isReplay(KEY), is(false));
+        assertThat(notificationDedupeService.findReplays(List.of(KEY)), is(Set.of()));
+        notificationDedupeService.record(KEY);
+
+        verifyNoInteractions(notificationDedupeDao);
+        assertThat(metricRegistry.getGauges().containsKey("notification-dedupe.worldpay.replay-ratio"), is(false));
+    }
+
+    private NotificationDedupeService aNotificationDedupeService(boolean enabled) {
+        when(environment.metrics()).thenReturn(metricRegistry);
+        when(connectorConfiguration.getNotificationDedupeConfig()).thenReturn(notificationDedupeConfig);
+        when(notificationDedupeConfig.isEnabled()).thenReturn(enabled);
+        when(notificationDedupeConfig.getCacheMaximumSize()).thenReturn(100);
+        when(notificationDedupeConfig.getRetentionInDays()).thenReturn(7);
+        return new NotificationDedupeService(notificationDedupeDao, connectorConfiguration, environment);
+    }
+}
@@ -0,0 +1,195 @@
+package uk.gov.pay.connector.webhook.inbox;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
+import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
+import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.inbox.dao.NotificationInboxDao;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationInboxProcessTest {
+
+    private static final String PAYLOAD = "notification-payload";
+
+    @Mock
+    private NotificationInboxDao notificationInboxDao;
+    @Mock
+    private WorldpayNotificationService worldpayNotificationService;
+    @Mock
+    private EpdqNotificationService epdqNotificationService;
+    @Mock
+    private SmartpayNotificationService smartpayNotificationService;
+    @Mock
+    private StripeNotificationService stripeNotificationService;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private NotificationInboxConfig notificationInboxConfig;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private NotificationInboxProcess notificationInboxProcess;
+
+    @Before
+    public void setUp() {
+        when(environment.metrics()).thenReturn(metricRegistry);
+        when(connectorConfiguration.getNotificationInboxConfig()).thenReturn(notificationInboxConfig);
+        when(notificationInboxConfig.getBatchSize()).thenReturn(10);
+        when(notificationInboxConfig.getLeaseInSeconds()).thenReturn(60);
+        when(notificationInboxConfig.getMaximumAttempts()).thenReturn(3);
+        when(notificationInboxConfig.getInitialRetryDelayInSeconds()).thenReturn(30L);
+        when(notificationInboxConfig.getMaximumRetryDelayInSeconds()).thenReturn(100L);
+        notificationInboxProcess = aNotificationInboxProcess();
+    }
+
+    @Test
+    public void shouldProcessNotificationAndRemoveItFromInbox() throws Exception {
+        givenClaimedNotifications(aNotification("WORLDPAY"));
+        when(worldpayNotificationService.processNotification(PAYLOAD)).thenReturn(true);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(notificationInboxDao).deleteById(1L);
+        verify(notificationInboxDao, never()).scheduleRetry(any(), anyInt(), any());
+        assertThat(metricRegistry.timer("notification-inbox.processing-lag").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDispatchNotificationToItsGateway() throws Exception {
+        givenClaimedNotifications(aNotification("EPDQ"), aNotification("SMARTPAY"), aNotification("STRIPE"));
+        when(smartpayNotificationService.handleNotificationFor(PAYLOAD)).thenReturn(true);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(epdqNotificationService).handleNotificationFor(PAYLOAD);
+        verify(smartpayNotificationService).handleNotificationFor(PAYLOAD);
+        verify(stripeNotificationService).processNotification(PAYLOAD);
+        verifyNoInteractions(worldpayNotificationService);
+    }
+
+    @Test
+    public void shouldScheduleRetryIfChargeIsNotKnownYet() throws Exception {
+        givenClaimedNotifications(aNotification("WORLDPAY"));
+        when(worldpayNotificationService.processNotification(PAYLOAD)).thenReturn(false);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(notificationInboxDao).scheduleRetry(eq(1L), eq(1), any(ZonedDateTime.class));
+        verify(notificationInboxDao, never()).deleteById(any());
+    }
+
+    @Test
+    public void shouldScheduleRetryIfProcessingFails() throws Exception {
+        givenClaimedNotifications(aNotification("STRIPE"));
+        doThrow(new RuntimeException("database unavailable")).when(stripeNotificationService).processNotification(PAYLOAD);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(notificationInboxDao).scheduleRetry(eq(1L), eq(1), any(ZonedDateTime.class));
+        verify(notificationInboxDao, never()).deleteById(any());
+    }
+
+    @Test
+    public void shouldAbandonNotificationAfterMaximumAttempts() throws Exception {
+        when(notificationInboxConfig.getMaximumAttempts()).thenReturn(1);
+        notificationInboxProcess = aNotificationInboxProcess();
+        givenClaimedNotifications(aNotification("WORLDPAY"));
+        when(worldpayNotificationService.processNotification(PAYLOAD)).thenReturn(false);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(notificationInboxDao).abandon(1L, 1);
+        verify(notificationInboxDao, never()).scheduleRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldRenewLeaseOnTheRestOfTheBatchBeforeEachNotification() throws Exception {
+        givenClaimedNotifications(aNotification(1L, "STRIPE"), aNotification(2L, "STRIPE"), aNotification(3L, "STRIPE"));
+
+        notificationInboxProcess.handleNotifications();
+
+        ArgumentCaptor<ZonedDateTime> claimedLeaseUntil = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(notificationInboxDao).claimReadyNotifications(eq(10), any(ZonedDateTime.class), claimedLeaseUntil.capture());
+        ArgumentCaptor<ZonedDateTime> renewedLeaseUntil = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(notificationInboxDao).renewLease(eq(List.of(2L, 3L)), eq(claimedLeaseUntil.getValue()), renewedLeaseUntil.capture());
+        verify(notificationInboxDao).renewLease(eq(List.of(3L)), eq(renewedLeaseUntil.getValue()), any(ZonedDateTime.class));
+        verify(notificationInboxDao).deleteById(1L);
+        verify(notificationInboxDao).deleteById(2L);
+        verify(notificationInboxDao).deleteById(3L);
+    }
+
+    @Test
+    public void shouldLeaveTheRestOfTheBatchIfAnotherNodeClaimedItAfterTheLeaseRanOut() throws Exception {
+        when(notificationInboxDao.claimReadyNotifications(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(aNotification(1L, "STRIPE"), aNotification(2L, "STRIPE"), aNotification(3L, "STRIPE")));
+        // the first notification took longer than the lease, and another node has since claimed the third
+        when(notificationInboxDao.renewLease(eq(List.of(2L, 3L)), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(1);
+
+        notificationInboxProcess.handleNotifications();
+
+        verify(stripeNotificationService).processNotification(PAYLOAD);
+        verify(notificationInboxDao).deleteById(1L);
+        verify(notificationInboxDao, never()).deleteById(2L);
+        verify(notificationInboxDao, never()).deleteById(3L);
+        verify(notificationInboxDao, never()).scheduleRetry(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldDoubleRetryDelayUpToMaximum() {
+        assertThat(notificationInboxProcess.retryDelayInSeconds(1), is(30L));
+        assertThat(notificationInboxProcess.retryDelayInSeconds(2), is(60L));
+        assertThat(notificationInboxProcess.retryDelayInSeconds(3), is(100L));
+    }
+
+    private NotificationInboxProcess aNotificationInboxProcess() {
+        return new NotificationInboxProcess(notificationInboxDao, worldpayNotificationService, epdqNotificationService,
+                smartpayNotificationService, stripeNotificationService, environment, connectorConfiguration);
+    }
+
+    private void givenClaimedNotifications(NotificationInboxEntity... notifications) {
+        when(notificationInboxDao.claimReadyNotifications(eq(10), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                .thenReturn(List.of(notifications));
+        if (notifications.length > 1) {
+            when(notificationInboxDao.renewLease(anyList(), any(ZonedDateTime.class), any(ZonedDateTime.class)))
+                    .thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+        }
+    }
+
+    private NotificationInboxEntity aNotification(String paymentGatewayName) {
+        return aNotification(1L, paymentGatewayName);
+    }
+
+    private NotificationInboxEntity aNotification(Long id, String paymentGatewayName) {
+        NotificationInboxEntity notification = NotificationInboxEntity.of(paymentGatewayName, PAYLOAD, null);
+        notification.setId(id);
+        return notification;
+    }
+}
@@ -0,0 +1,93 @@
+package uk.gov.pay.connector.webhook.inbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.webhook.inbox.dao.NotificationInboxDao;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.STRIPE;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.WORLDPAY_NOTIFICATION;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.load;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationInboxServiceTest {
+
+    @Mock
+    private NotificationInboxDao notificationInboxDao;
+
+    private NotificationInboxService notificationInboxService;
+
+    @Before
+    public void setUp() {
+        notificationInboxService = new NotificationInboxService(notificationInboxDao, new ObjectMapper());
+    }
+
+    @Test
+    public void shouldStoreNotificationOrderedByGatewayTransactionId() {
+        String payload = "{\"id\": \"evt_123\", \"data\": {\"object\": {\"id\": \"pi_123\"}}}";
+
+        notificationInboxService.accept(STRIPE, payload);
+
+        ArgumentCaptor<NotificationInboxEntity> notification = ArgumentCaptor.forClass(NotificationInboxEntity.class);
+        verify(notificationInboxDao).persist(notification.capture());
+        assertThat(notification.getValue().getPaymentGatewayName(), is("STRIPE"));
+        assertThat(notification.getValue().getPayload(), is(payload));
+        assertThat(notification.getValue().getOrderingKey(), is("STRIPE:pi_123"));
+        assertThat(notification.getValue().getAttempts(), is(0));
+    }
+
+    @Test
+    public void shouldOrderWorldpayNotificationsByOrderCode() {
+        String payload = load(WORLDPAY_NOTIFICATION)
+                .replace("{{transactionId}}", "transaction-id")
+                .replace("{{status}}", "CAPTURED")
+                .replace("{{bookingDateDay}}", "10")
+                .replace("{{bookingDateMonth}}", "01")
+                .replace("{{bookingDateYear}}", "2017")
+                .replace("{{refund-ref}}", "REFUND-REF");
+
+        assertThat(notificationInboxService.orderingKeyFor(WORLDPAY, payload), is("WORLDPAY:transaction-id"));
+    }
+
+    @Test
+    public void shouldOrderSmartpayNotificationsByOriginalReference() {
+        String payload = "{\"notificationItems\": [{\"NotificationRequestItem\": " +
+                "{\"originalReference\": \"original-reference\", \"pspReference\": \"psp-reference\"}}]}";
+
+        assertThat(notificationInboxService.orderingKeyFor(SMARTPAY, payload), is("SMARTPAY:original-reference"));
+    }
+
+    @Test
+    public void shouldStoreEachItemOfASmartpayBatchOrderedByItsOwnOriginalReference() {
+        String payload = "{\"live\": \"false\", \"notificationItems\": [" +
+                "{\"NotificationRequestItem\": {\"originalReference\": \"first-reference\"}}, " +
+                "{\"NotificationRequestItem\": {\"originalReference\": \"second-reference\"}}]}";
+
+        notificationInboxService.accept(SMARTPAY, payload);
+
+        ArgumentCaptor<NotificationInboxEntity> notifications = ArgumentCaptor.forClass(NotificationInboxEntity.class);
+        verify(notificationInboxDao, times(2)).persist(notifications.capture());
+        assertThat(notifications.getAllValues().get(0).getOrderingKey(), is("SMARTPAY:first-reference"));
+        assertThat(notifications.getAllValues().get(0).getPayload(), is("{\"live\":\"false\",\"notificationItems\":[" +
+                "{\"NotificationRequestItem\":{\"originalReference\":\"first-reference\"}}]}"));
+        assertThat(notifications.getAllValues().get(1).getOrderingKey(), is("SMARTPAY:second-reference"));
+    }
+
+    @Test
+    public void shouldNotOrderNotificationsThatCannotBeParsed() {
+        assertThat(notificationInboxService.orderingKeyFor(STRIPE, "not json"), is(nullValue()));
+        assertThat(notificationInboxService.orderingKeyFor(WORLDPAY, "<not-a-notification/>"), is(nullValue()));
+        assertThat(notificationInboxService.orderingKeyFor(SMARTPAY, "{\"live\": \"false\"}"), is(nullValue()));
+    }
+}
@@ -0,0 +1,134 @@
+package uk.gov.pay.connector.webhook.parking;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CHARGE_NOT_FOUND;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.CLAIMED_ELSEWHERE;
+import static uk.gov.pay.connector.webhook.parking.ParkedNotificationService.ReplayResult.REPLAYED;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParkedNotificationProcessTest {
+
+    @Mock
+    private ParkedNotificationService parkedNotificationService;
+    @Mock
+    private WorldpayNotificationService worldpayNotificationService;
+    @Mock
+    private Environment environment;
+
+    private final ParkedNotificationEntity capture = aParkedNotification(1L);
+    private final ParkedNotificationEntity refund = aParkedNotification(2L);
+
+    private ParkedNotificationProcess parkedNotificationProcess;
+
+    @Before
+    public void setUp() {
+        LifecycleEnvironment lifecycleEnvironment = mock(LifecycleEnvironment.class);
+        ExecutorServiceBuilder executorServiceBuilder = mock(ExecutorServiceBuilder.class);
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(lifecycleEnvironment.executorService(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.minThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.maxThreads(anyInt())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.workQueue(any())).thenReturn(executorServiceBuilder);
+        when(executorServiceBuilder.build()).thenReturn(MoreExecutors.newDirectExecutorService());
+
+        parkedNotificationProcess = new ParkedNotificationProcess(parkedNotificationService, worldpayNotificationService, environment);
+    }
+
+    @Test
+    public void shouldReplayParkedNotificationsInOrderWhenChargeIsCreated() {
+        when(parkedNotificationService.isEnabled()).thenReturn(true);
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-id")).thenReturn(List.of(capture, refund));
+        when(worldpayNotificationService.replayParkedNotification(1L)).thenReturn(REPLAYED);
+        when(worldpayNotificationService.replayParkedNotification(2L)).thenReturn(REPLAYED);
+
+        parkedNotificationProcess.replayInBackgroundFor("transaction-id");
+
+        verify(worldpayNotificationService).replayParkedNotification(1L);
+        verify(worldpayNotificationService).replayParkedNotification(2L);
+        verify(parkedNotificationService, never()).replayFailed(any(), any());
+    }
+
+    @Test
+    public void shouldRecordFailedReplayAndLeaveLaterNotificationsParked() {
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-id")).thenReturn(List.of(capture, refund));
+        when(worldpayNotificationService.replayParkedNotification(1L)).thenThrow(new RuntimeException("database unavailable"));
+
+        parkedNotificationProcess.replayFor("transaction-id");
+
+        verify(parkedNotificationService).replayFailed(capture, "database unavailable");
+        verify(worldpayNotificationService, never()).replayParkedNotification(2L);
+    }
+
+    @Test
+    public void shouldRecordFailedReplayWhenChargeIsStillNotFound() {
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-id")).thenReturn(List.of(capture));
+        when(worldpayNotificationService.replayParkedNotification(1L)).thenReturn(CHARGE_NOT_FOUND);
+
+        parkedNotificationProcess.replayFor("transaction-id");
+
+        verify(parkedNotificationService).replayFailed(capture, "charge not found");
+    }
+
+    @Test
+    public void shouldStopWithoutRecordingAFailureWhenANotificationIsBeingReplayedElsewhere() {
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-id")).thenReturn(List.of(capture, refund));
+        when(worldpayNotificationService.replayParkedNotification(1L)).thenReturn(CLAIMED_ELSEWHERE);
+
+        parkedNotificationProcess.replayFor("transaction-id");
+
+        verify(worldpayNotificationService, never()).replayParkedNotification(2L);
+        verify(parkedNotificationService, never()).replayFailed(any(), any());
+    }
+
+    @Test
+    public void shouldNotReplayWhenParkingIsDisabled() {
+        when(parkedNotificationService.isEnabled()).thenReturn(false);
+
+        parkedNotificationProcess.replayInBackgroundFor("transaction-id");
+
+        verifyNoInteractions(worldpayNotificationService);
+    }
+
+    @Test
+    public void shouldReplayNotificationsWhoseChargeNowExistsThenDeleteExpiredNotifications() {
+        when(parkedNotificationService.findTransactionIdsWithCharge(WORLDPAY)).thenReturn(List.of("transaction-1", "transaction-2"));
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-1")).thenThrow(new RuntimeException("database unavailable"));
+        when(parkedNotificationService.findReplayable(WORLDPAY, "transaction-2")).thenReturn(List.of(capture));
+        when(worldpayNotificationService.replayParkedNotification(1L)).thenReturn(REPLAYED);
+
+        parkedNotificationProcess.sweep();
+
+        verify(worldpayNotificationService).replayParkedNotification(1L);
+        verify(parkedNotificationService).deleteExpired();
+    }
+
+    private static ParkedNotificationEntity aParkedNotification(Long id) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        ParkedNotificationEntity parkedNotification = ParkedNotificationEntity.of(WORLDPAY.getName(), "transaction-id",
+                "payload", now, now.plusDays(1));
+        parkedNotification.setId(id);
+        return parkedNotification;
+    }
+}